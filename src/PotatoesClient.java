@@ -0,0 +1,87 @@
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+
+/**
+ * <b>PotatoesClient</b><p>
+ *
+ * Thin command line of the compiler: it takes the arguments of {@link PotatoesMain} and has the compilation done by
+ * the daemon ({@link PotatoesDaemon}) if one is running, or else in its own JVM. The programs run with --run and
+ * --interpret are always compiled and run in its own JVM. --stop stops the daemon.
+ */
+public class PotatoesClient {
+
+	public static void main(String[] args) throws Exception {
+		SocketChannel channel = null;
+		if (!runsProgram(args)) {
+			try {
+				channel = SocketChannel.open(StandardProtocolFamily.UNIX);
+				channel.connect(UnixDomainSocketAddress.of(PotatoesDaemon.socket()));
+			}
+			catch (IOException e) {
+				if (channel != null) {
+					channel.close();
+				}
+				channel = null;
+			}
+		}
+		if (channel == null) {
+			if (args.length == 1 && args[0].equals("--stop")) {
+				System.err.println("No Potatoes daemon is running.");
+				System.exit(1);
+			}
+			// no daemon, or a program to run: the compilation is done here
+			PotatoesMain.main(args);
+			return;
+		}
+
+		int status;
+		try (SocketChannel connection = channel;
+				DataOutputStream request = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(connection)));
+				DataInputStream frames = new DataInputStream(new BufferedInputStream(Channels.newInputStream(connection)))) {
+			request.writeUTF(new File("").getAbsolutePath());
+			request.writeInt(args.length);
+			for (String arg : args) {
+				request.writeUTF(arg);
+			}
+			request.flush();
+			status = answer(frames);
+		}
+		if (status != 0) {
+			System.exit(status);
+		}
+	}
+
+	/**
+	 * @return true if the options run the program (--run or --interpret)
+	 */
+	private static boolean runsProgram(String[] args) {
+		for (int i = 0; i < args.length && args[i].startsWith("--"); i++) {
+			if (args[i].equals("--run") || args[i].equals("--interpret")) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Writes the output of the compilation as the daemon sends it
+	 * @return the exit status
+	 */
+	private static int answer(DataInputStream frames) throws IOException {
+		while (true) {
+			byte kind = frames.readByte();
+			if (kind == PotatoesDaemon.EXIT) {
+				return frames.readInt();
+			}
+			byte[] bytes = new byte[frames.readInt()];
+			frames.readFully(bytes);
+			PrintStream output = kind == PotatoesDaemon.OUT ? System.out : System.err;
+			output.write(bytes);
+			output.flush();
+		}
+	}
+
+}
@@ -0,0 +1,303 @@
+import java.io.*;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFilePermission;
+import java.nio.file.attribute.PosixFilePermissions;
+import java.nio.file.attribute.UserPrincipal;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import jdk.net.ExtendedSocketOptions;
+import jdk.net.UnixDomainPrincipal;
+import utils.errorHandling.ErrorHandling;
+
+/**
+ * <b>PotatoesDaemon</b><p>
+ *
+ * Long-running compiler: serves the compilations asked by {@link PotatoesClient} on a Unix-domain socket in its own
+ * JVM, that keeps across them the DFAs of the parsers, the units files read last (by the hash of the file) and the
+ * code compiled by the JIT.<p>
+ * The socket is in a directory of its user only (created with the permissions rwx------, and refused if it has others),
+ * and the clients of other users are refused where the JVM gives the user of the peer. The daemon only compiles:
+ * --run and --interpret are refused, the client runs the programs in its own JVM.<p>
+ * Each client is served by a thread of its own (a virtual thread, if the JVM has them), and the compilations of the
+ * clients run at the same time (each has its own state, see {@link PotatoesMain#compile(String[], File)}). System.out
+ * and System.err of the daemon write the output of each thread to the client it serves.<p>
+ * Protocol: the client writes its working directory, the number of arguments and the arguments (as UTF strings); the
+ * daemon answers with frames of output (OUT or ERR, the length and the bytes), and ends with EXIT and the status.
+ */
+public class PotatoesDaemon {
+
+	// kinds of the frames of the answer
+	static final byte	EXIT	= 0;
+	static final byte	OUT		= 1;
+	static final byte	ERR		= 2;
+
+	private static final Set<PosixFilePermission> OWNER_ONLY = PosixFilePermissions.fromString("rwx------");
+
+	// output of the daemon itself (System.out and System.err write to the clients, in the threads that serve them)
+	private static final PrintStream log = System.err;
+
+	// output of the client served by the thread (out and err), null in the other threads
+	private static final ThreadLocal<PrintStream[]> client = new ThreadLocal<>();
+
+	/**
+	 * @return the socket of the daemon (property potatoes.socket, or daemon.sock in the directory potatoes-<user> of
+	 * the temporary files)
+	 */
+	static Path socket() {
+		String socket = System.getProperty("potatoes.socket");
+		if (socket != null) {
+			return Paths.get(socket).toAbsolutePath();
+		}
+		return Paths.get(System.getProperty("java.io.tmpdir"), "potatoes-" + System.getProperty("user.name"), "daemon.sock");
+	}
+
+	/**
+	 * Serves the clients until one asks to stop (--stop)
+	 * @param socket
+	 */
+	public static void serve(Path socket) throws IOException {
+		UserPrincipal owner = ownerOnlyDirectory(socket.toAbsolutePath().getParent());
+		if (isServed(socket)) {
+			throw new IOException("a Potatoes daemon is listening on " + socket + " already");
+		}
+		Files.deleteIfExists(socket);	// left by a daemon that did not stop
+
+		System.setOut(new PrintStream(new ClientStream(0, System.out), true));
+		System.setErr(new PrintStream(new ClientStream(1, System.err), true));
+
+		ExecutorService workers = workers();
+		try (ServerSocketChannel server = ServerSocketChannel.open(StandardProtocolFamily.UNIX)) {
+			server.bind(UnixDomainSocketAddress.of(socket));
+			new ErrorHandling().printInfo("Potatoes daemon listening on " + socket);
+			while (true) {
+				SocketChannel client;
+				try {
+					client = server.accept();
+				}
+				catch (ClosedChannelException e) {
+					break;	// closed by --stop
+				}
+				if (!isOwner(client, owner)) {
+					log.println("Potatoes daemon: client of another user refused");
+					client.close();
+					continue;
+				}
+				workers.execute(() -> serve(client, server));
+			}
+		}
+		finally {
+			workers.shutdown();
+			Files.deleteIfExists(socket);
+		}
+	}
+
+	private static void serve(SocketChannel client, ServerSocketChannel server) {
+		try (SocketChannel channel = client;
+				DataInputStream request = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel)));
+				DataOutputStream answer = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)))) {
+			File directory = new File(request.readUTF());
+			String[] args = new String[request.readInt()];
+			for (int i = 0; i < args.length; i++) {
+				args[i] = request.readUTF();
+			}
+
+			int status = 0;
+			if (args.length == 1 && args[0].equals("--stop")) {
+				server.close();
+			}
+			else {
+				ByteArrayOutputStream frames = new ByteArrayOutputStream();
+				status = compile(directory, args, new DataOutputStream(frames));
+				frames.writeTo(answer);
+			}
+			answer.writeByte(EXIT);
+			answer.writeInt(status);
+			answer.flush();
+		}
+		catch (IOException e) {
+			log.println("Potatoes daemon: client lost (" + e.getMessage() + ")");
+		}
+	}
+
+	/**
+	 * Compiles in the JVM of the daemon, with the output written in frames (sent to the client once it is compiled, so
+	 * a client that does not read its answer does not stop the output of the others)
+	 * @param directory working directory of the client (of the files and of the files generated)
+	 * @return the exit status of the command line
+	 */
+	private static int compile(File directory, String[] args, DataOutputStream frames) {
+		PrintStream out = new PrintStream(new FrameStream(frames, OUT), true);
+		PrintStream err = new PrintStream(new FrameStream(frames, ERR), true);
+
+		// the programs are not run in the JVM of the daemon (nor with its permissions)
+		for (int i = 0; i < args.length && args[i].startsWith("--"); i++) {
+			if (args[i].equals("--run") || args[i].equals("--interpret")) {
+				err.println("The Potatoes daemon does not run programs (" + args[i] + "): run them with PotatoesMain or PotatoesClient.");
+				return 10;
+			}
+		}
+		for (int i = 0; i < args.length; i++) {
+			if (!args[i].startsWith("--")) {
+				File file = new File(args[i]);
+				args[i] = (file.isAbsolute() ? file : new File(directory, args[i])).getPath();
+			}
+		}
+
+		client.set(new PrintStream[] {out, err});
+		try {
+			return PotatoesMain.compile(args, directory);
+		}
+		catch (Exception | Error e) {
+			// the JVM of the command line would exit with 1
+			e.printStackTrace(err);
+			return 1;
+		}
+		finally {
+			client.remove();
+			out.flush();
+			err.flush();
+		}
+	}
+
+	/**
+	 * Creates the directory with the permissions rwx------, if it does not exist
+	 * @return the owner of the directory, the user of the daemon (null if the file system has no POSIX permissions)
+	 * @throws IOException if the directory is not a directory of the user only
+	 */
+	private static UserPrincipal ownerOnlyDirectory(Path directory) throws IOException {
+		if (!directory.getFileSystem().supportedFileAttributeViews().contains("posix")) {
+			Files.createDirectories(directory);
+			return null;
+		}
+		try {
+			Files.createDirectory(directory, PosixFilePermissions.asFileAttribute(OWNER_ONLY));
+		}
+		catch (FileAlreadyExistsException e) {
+			// created before, checked below
+		}
+		UserPrincipal user = directory.getFileSystem().getUserPrincipalLookupService().lookupPrincipalByName(System.getProperty("user.name"));
+		if (!Files.isDirectory(directory, LinkOption.NOFOLLOW_LINKS) || !Files.getOwner(directory, LinkOption.NOFOLLOW_LINKS).equals(user)
+				|| !Files.getPosixFilePermissions(directory, LinkOption.NOFOLLOW_LINKS).equals(OWNER_ONLY)) {
+			throw new IOException(directory + " is not a directory of " + user.getName() + " only (rwx------)");
+		}
+		return user;
+	}
+
+	/**
+	 * @return true if a daemon accepts the connections of the socket
+	 */
+	private static boolean isServed(Path socket) {
+		try {
+			SocketChannel.open(UnixDomainSocketAddress.of(socket)).close();
+			return true;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @param owner user of the daemon (null if unknown)
+	 * @return true if the client is of the user of the daemon, or if the JVM does not give the user of the peer
+	 */
+	private static boolean isOwner(SocketChannel client, UserPrincipal owner) throws IOException {
+		if (owner == null || !client.supportedOptions().contains(ExtendedSocketOptions.SO_PEERCRED)) {
+			return true;
+		}
+		UnixDomainPrincipal peer = client.getOption(ExtendedSocketOptions.SO_PEERCRED);
+		return peer.user().getName().equals(owner.getName());
+	}
+
+	/**
+	 * @return executor of a virtual thread for each task (Java 21), or else of a cached pool of threads
+	 */
+	private static ExecutorService workers() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool();
+		}
+	}
+
+	/**
+	 * System.out (0) or System.err (1) of the daemon: the output of a thread that serves a client is written to the
+	 * client, the one of the other threads to the output of the daemon
+	 */
+	private static class ClientStream extends OutputStream {
+		private final int			stream;
+		private final OutputStream	daemon;
+
+		ClientStream(int stream, OutputStream daemon) {
+			this.stream = stream;
+			this.daemon = daemon;
+		}
+
+		private OutputStream target() {
+			PrintStream[] streams = client.get();
+			return streams == null ? daemon : streams[stream];
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			target().write(b);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			target().write(bytes, offset, length);
+		}
+
+		@Override
+		public void flush() throws IOException {
+			target().flush();
+		}
+	}
+
+	/**
+	 * Output of a compilation, written in frames of its kind
+	 */
+	private static class FrameStream extends OutputStream {
+		private final DataOutputStream	frames;
+		private final byte				kind;
+
+		FrameStream(DataOutputStream frames, byte kind) {
+			this.frames = frames;
+			this.kind = kind;
+		}
+
+		@Override
+		public void write(int b) throws IOException {
+			write(new byte[] {(byte) b}, 0, 1);
+		}
+
+		@Override
+		public void write(byte[] bytes, int offset, int length) throws IOException {
+			synchronized (frames) {
+				frames.writeByte(kind);
+				frames.writeInt(length);
+				frames.write(bytes, offset, length);
+			}
+		}
+
+		@Override
+		public void flush() throws IOException {
+			synchronized (frames) {
+				frames.flush();
+			}
+		}
+	}
+
+}
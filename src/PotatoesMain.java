@@ -2,26 +2,120 @@ import static java.lang.System.err;
 import static java.lang.System.exit;
 
 import java.io.*;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
 
 import org.antlr.v4.runtime.CharStream;
 import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.tree.ParseTree;
-import org.stringtemplate.v4.ST;
 
+import compiler.IncrementalCache;
+import compiler.JavaRunner;
 import compiler.PotatoesCompiler;
+import compiler.PotatoesEngine;
 import compiler.PotatoesSemanticCheck;
+import compiler.ir.BytecodeLowering;
+import compiler.ir.IRInterpreter;
+import compiler.ir.IRProgram;
+import compiler.ir.JavaLowering;
+import compiler.ir.JavaWriter;
+import compiler.ir.PassManager;
+import potatoesGrammar.grammar.PotatoesLowering;
 import potatoesGrammar.grammar.PotatoesLexer;
 import potatoesGrammar.grammar.PotatoesParser;
+import potatoesGrammar.grammar.PotatoesParser.ProgramContext;
+import utils.errorHandling.CompilationException;
+import utils.errorHandling.Diagnostic;
 import utils.errorHandling.ErrorHandling;
 import utils.errorHandling.ErrorHandlingListener;
 
 
 public class PotatoesMain {
+
+	// time taken by each phase of the compilation (reported with --run and --interpret)
+	private final Map<String, Long> phases = new LinkedHashMap<>();
+	private long phaseStart = System.nanoTime();
+
+	// messages of the compilation
+	private final ErrorHandling errors = new ErrorHandling();
+
 	public static void main(String[] args) throws Exception {
-		if (args.length != 1) {
-			err.println("Usage: PotatoesMain <file to compile>");
-			exit(10);
+		// --daemon [socket] serves the compilations of the clients (PotatoesClient) in this JVM, until one stops it
+		if (args.length > 0 && args[0].equals("--daemon")) {
+			PotatoesDaemon.serve(args.length > 1 ? Paths.get(args[1]) : PotatoesDaemon.socket());
+			return;
+		}
+		int status = compile(args, null);
+		if (status != 0) {
+			exit(status);
+		}
+	}
+
+	/**
+	 * Compiles the file (or the files) as the command line does. Each compilation has its own state (its checker,
+	 * compiler and messages), so the threads of a JVM can compile at the same time
+	 * @param args options, file to compile and arguments of the program run
+	 * @param directory where the files generated are written (null for the working directory)
+	 * @return the exit status of the command line
+	 */
+	public static int compile(String[] args, File directory) throws Exception {
+		// many files, a directory or a glob: compiled by engines on a pool of threads (not with --run or --interpret,
+		// where the arguments after the file are the ones of the program run)
+		int options = options(args);
+		List<String> optionsList = Arrays.asList(args).subList(0, options);
+		if (!optionsList.contains("--run") && !optionsList.contains("--interpret")
+				&& (args.length - options > 1 || (args.length - options == 1 && isBatch(args[options])))) {
+			return new PotatoesMain().compileAll(optionsList, Arrays.copyOfRange(args, options, args.length), directory);
+		}
+		return new PotatoesMain().compileFile(args, directory);
+	}
+
+	private int compileFile(String[] args, File directory) throws Exception {
+		// --incremental reuses the Java methods of the functions that did not change since last compilation
+		// --dump-ir writes the intermediate representation, as built and after each pass, to <name>.ir
+		// --time-passes reports the time taken by each pass over the intermediate representation
+		// --run compiles the Java class in memory and runs it (the arguments after the file are the ones of its main)
+		// --bytecode generates the class file instead of the Java class
+		// --interpret runs the program with the interpreter, without generating its class (as --run, with its arguments):
+		// the interpreter runs the IR as built, without the passes (so without --dump-ir and --time-passes)
+		boolean incremental = false;
+		boolean dumpIR = false;
+		boolean timePasses = false;
+		boolean run = false;
+		boolean bytecode = false;
+		boolean interpret = false;
+		int options = 0;
+		for (; options < args.length && args[options].startsWith("--"); options++) {
+			switch (args[options]) {
+			case "--incremental"	: incremental = true; break;
+			case "--dump-ir"		: dumpIR = true; break;
+			case "--time-passes"	: timePasses = true; break;
+			case "--run"			: run = true; break;
+			case "--bytecode"		: bytecode = true; break;
+			case "--interpret"		: interpret = true; break;
+			default					: options = args.length; break;
+			}
+		}
+		args = Arrays.copyOfRange(args, Math.min(options, args.length), args.length);
+		
+		if (args.length != 1 && !((run || interpret) && args.length > 1)) {
+			return usage();
 		}
 
 		//out.println("The Potatoes Project");
@@ -33,13 +127,7 @@ public class PotatoesMain {
 		CharStream input = null;
 
 		//System.out.println("inputed file: "+ args[0]);
-		File aux = new File(args[0]);
-		String name = aux.getName();
-		String[] nameArr = name.split("\\.");
-		name = nameArr[0];
-		if (name.charAt(0) != '$' && name.charAt(0) != '_' && !Character.isLetter(name.charAt(0))) {
-			name = "_" + name;
-		}
+		String name = PotatoesEngine.className(new File(args[0]).getName());
 		
 		try {
 			//out.println("ARGS: " + args[0]);
@@ -51,12 +139,348 @@ public class PotatoesMain {
 			fileStream.close();
 		} catch(FileNotFoundException e) {
 			err.println("File \"" + args[0] + "\" could not be found! Please check if the file exists and can be read.");
-			exit(1);
+			return 1;
 		} catch (IOException e) {
 			err.println("Internal error reading the Types file! Please check if the file exists and can be read.");
-			exit(2);
+			return 2;
+		}
+
+
+		try {
+			// parse tree -> intermediate representation -> optimization passes -> Java
+			// (the parse tree, its tokens and the checker are dropped once the intermediate representation is built)
+			IncrementalCache cache = incremental ? new IncrementalCache(new File(directory, name + ".pcache"), errors) : null;
+			IRProgram ir = generate(input, args[0], name, cache);
+			if (ir != null) {
+				// the closures of the interpreter, from the IR as built: the passes take longer than they save in the
+				// runs of the interpreter (the class is compiled in memory if the IR has code it does not support)
+				IRInterpreter interpreter = null;
+				if (interpret) {
+					endPhase("generate");
+					try {
+						interpreter = IRInterpreter.compile(ir);
+						endPhase("closures");
+					}
+					catch (IllegalStateException e) {
+						errors.printWarning(e.getMessage() + "! Compiling the class instead.");
+						run = true;
+					}
+				}
+
+				if (interpreter == null) {
+					PassManager passes = PassManager.standardPasses();
+					PrintWriter irDump = dumpIR ? new PrintWriter(new File(directory, name+".ir")) : null;
+					passes.setDump(irDump);
+					passes.run(ir);
+					for (String warning : ir.warnings) {
+						errors.printWarning(warning + "!");
+					}
+					if (irDump != null) {
+						irDump.close();
+						errors.printInfo(name+".ir file created!");
+					}
+					if (timePasses) {
+						errors.printInfo("IR passes: " + passes.timingsReport());
+					}
+				}
+
+				// the class file straight from the IR (the Java class if the IR has code the bytecode backend does not support)
+				byte[] classFile = null;
+				if (bytecode) {
+					try {
+						classFile = BytecodeLowering.lower(ir);
+					}
+					catch (IllegalStateException e) {
+						errors.printWarning(e.getMessage() + "! Generating the Java class instead.");
+					}
+				}
+
+				if (interpreter != null) {
+					errors.printInfo(name+" interpreted! Running...");
+					try {
+						interpreter.run(Arrays.copyOfRange(args, 1, args.length));
+					}
+					finally {
+						System.out.flush();
+						endPhase("run");
+						errors.printInfo("Phases: " + phasesReport(phases));
+					}
+				}
+
+				// the class is compiled and run in memory
+				else if (run) {
+					Class<?> compiled = null;
+					if (classFile != null) {
+						endPhase("generate");
+						compiled = JavaRunner.load(name, classFile);
+						endPhase("load");
+					}
+					else {
+						String java = JavaLowering.lower(ir);
+						endPhase("generate");
+						try {
+							compiled = JavaRunner.compile(name, java);
+						}
+						catch (IllegalStateException e) {
+							errors.printError(e.getMessage());
+							return 3;
+						}
+						endPhase("javac");
+					}
+					errors.printInfo(name+" compiled! Running...");
+					try {
+						JavaRunner.run(compiled, Arrays.copyOfRange(args, 1, args.length));
+					}
+					finally {
+						System.out.flush();
+						endPhase("run");
+						errors.printInfo("Phases: " + phasesReport(phases));
+					}
+				}
+
+				else if (classFile != null) {
+					try (OutputStream file = new FileOutputStream(new File(directory, name+".class"))) {
+						file.write(classFile);
+					}
+					errors.printInfo(name+".class file created! Compilation Completed Sucessfully!");
+				}
+
+				// the class is written to its file as it is lowered
+				else {
+					try (JavaWriter java = new JavaWriter(new FileWriter(new File(directory, name+".java")))) {
+						JavaLowering.lower(ir, java);
+					}
+					errors.printInfo(name+" file created! Compilation Completed Sucessfully!");
+				}
+				
+				if (cache != null) {
+					cache.save();
+					errors.printInfo((cache.getFunctionsCount() - cache.getDirtyCount()) + " function(s) reused, " + cache.getDirtyCount() + " function(s) regenerated.");
+				}
+			}
+		}
+		catch (CompilationException e) {
+			return e.getStatus();
+		}
+		return 0;
+	}
+
+	/**
+	 * Compiles the files, and the Potatoes files of the directories and of the globs, with an engine on a pool of
+	 * threads (as many as the processors, or the property potatoes.jobs): the files are parsed, checked, lowered and
+	 * written in parallel (each compilation has its own state), and each units file is read once for all the files that
+	 * use it.
+	 * The messages of all the files are reported at the end, in the order of the files, with the time taken.
+	 * @param options options of the command line (--bytecode, the others are for one file)
+	 * @param args files, directories and globs
+	 * @param directory where the files generated are written (null for the working directory)
+	 * @return the exit status of the command line (1 if a file has errors)
+	 */
+	private int compileAll(List<String> options, String[] args, File directory) throws Exception {
+		long start = System.nanoTime();
+		for (String option : options) {
+			if (option.equals("--incremental") || option.equals("--dump-ir") || option.equals("--time-passes")) {
+				errors.printWarning(option + " is for one file, ignored!");
+			}
+			else if (!option.equals("--bytecode")) {
+				return usage();
+			}
+		}
+		PotatoesEngine engine = new PotatoesEngine();
+		engine.setBytecode(options.contains("--bytecode"));
+
+		// the files, each with the name of its class (two files can not generate the same class)
+		Map<String, Path> classes = new LinkedHashMap<>();
+		List<String> failed = new ArrayList<>();
+		for (String arg : args) {
+			List<Path> files = expand(arg);
+			if (files.isEmpty()) {
+				errors.printError("No Potatoes file found for \"" + arg + "\"!");
+				failed.add(arg);
+			}
+			for (Path file : files) {
+				Path other = classes.putIfAbsent(PotatoesEngine.className(file.getFileName().toString()), file);
+				if (other != null && !other.equals(file)) {
+					errors.printError(file + ": its class is generated for " + other + " already!");
+					failed.add(file.toString());
+				}
+			}
+		}
+
+		int jobs = Math.max(1, Math.min(Integer.getInteger("potatoes.jobs", Runtime.getRuntime().availableProcessors()), classes.size()));
+		ExecutorService pool = Executors.newFixedThreadPool(jobs);
+		Map<Path, Future<PotatoesEngine.Result>> results = new LinkedHashMap<>();
+		for (Path file : classes.values()) {
+			results.put(file, pool.submit(() -> {
+				PotatoesEngine.Result result = engine.compile(file);
+				write(result, directory);
+				return result;
+			}));
+		}
+		pool.shutdown();
+		pool.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+
+		// the messages, once all the files are compiled (in the order of the files)
+		Map<String, Long> totals = new LinkedHashMap<>();
+		int warnings = 0;
+		for (Map.Entry<Path, Future<PotatoesEngine.Result>> entry : results.entrySet()) {
+			String file = entry.getKey().toString();
+			PotatoesEngine.Result result;
+			try {
+				result = entry.getValue().get();
+			}
+			catch (ExecutionException e) {
+				if (e.getCause() instanceof IOException) {
+					errors.printError(file + ": its class could not be written! (" + e.getCause() + ")");
+				}
+				else {
+					errors.printError(file + ": " + e.getCause());
+				}
+				failed.add(file);
+				continue;
+			}
+			for (Diagnostic diagnostic : result.getDiagnostics()) {
+				report(file, diagnostic);
+				if (diagnostic.getKind() == Diagnostic.Kind.WARNING) {
+					warnings++;
+				}
+			}
+			for (Map.Entry<String, Long> phase : result.getPhases().entrySet()) {
+				totals.merge(phase.getKey(), phase.getValue(), Long::sum);
+			}
+			if (result.succeeded()) {
+				errors.printInfo(file + ": " + result.getName() + (result.getClassFile() != null ? ".class" : ".java") + " file created!");
+			}
+			else {
+				failed.add(file);
+			}
 		}
 
+		errors.printInfo(String.format(Locale.ROOT, "%d file(s) compiled, %d with errors, %d warning(s), in %.3f ms on %d thread(s)",
+				results.size(), failed.size(), warnings, (System.nanoTime() - start) / 1e6, jobs));
+		errors.printInfo("Phases (of all the files): " + phasesReport(totals));
+		return failed.isEmpty() ? 0 : 1;
+	}
+
+	/**
+	 * @param arg file, directory or glob of the command line
+	 * @return true if the argument is for many files (a directory or a glob)
+	 */
+	private static boolean isBatch(String arg) {
+		return isGlob(arg) || new File(arg).isDirectory();
+	}
+
+	private static boolean isGlob(String arg) {
+		return arg.indexOf('*') >= 0 || arg.indexOf('?') >= 0 || arg.indexOf('[') >= 0 || arg.indexOf('{') >= 0;
+	}
+
+	/**
+	 * @param arg file, directory or glob of the command line
+	 * @return the file, or the Potatoes files of the directory (and of its subdirectories) or that match the glob (the
+	 * units files are left out), in the order of their paths
+	 */
+	private static List<Path> expand(String arg) throws IOException {
+		if (!isBatch(arg)) {
+			return Arrays.asList(Paths.get(arg));
+		}
+
+		// the directory walked: the one given, or the one of the glob before its first pattern
+		Path directory = Paths.get(arg);
+		PathMatcher matcher = null;
+		if (isGlob(arg)) {
+			matcher = FileSystems.getDefault().getPathMatcher("glob:" + arg);
+			Path base = directory.getRoot();
+			for (Path name : directory) {
+				if (isGlob(name.toString())) {
+					break;
+				}
+				base = base == null ? name : base.resolve(name);
+			}
+			directory = base == null ? Paths.get("") : base;
+		}
+
+		List<Path> files = new ArrayList<>();
+		if (!Files.isDirectory(directory)) {
+			return files;
+		}
+		try (Stream<Path> walk = Files.walk(directory)) {
+			for (Path file : (Iterable<Path>) walk.sorted()::iterator) {
+				if (Files.isRegularFile(file) && (matcher == null || matcher.matches(file)) && isProgram(file)) {
+					files.add(file);
+				}
+			}
+		}
+		return files;
+	}
+
+	/**
+	 * @return true if the file is a Potatoes program (it starts with using), and not a units file
+	 */
+	private static boolean isProgram(Path file) {
+		try {
+			PotatoesLexer lexer = new PotatoesLexer(CharStreams.fromPath(file));
+			lexer.removeErrorListeners();
+			return lexer.nextToken().getType() == PotatoesLexer.USING;
+		}
+		catch (IOException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Writes the class generated, if the file compiled
+	 */
+	private static void write(PotatoesEngine.Result result, File directory) throws IOException {
+		if (result.getClassFile() != null) {
+			try (OutputStream file = new FileOutputStream(new File(directory, result.getName()+".class"))) {
+				file.write(result.getClassFile());
+			}
+		}
+		else if (result.getJava() != null) {
+			try (Writer file = new BufferedWriter(new FileWriter(new File(directory, result.getName()+".java")))) {
+				file.write(result.getJava());
+			}
+		}
+	}
+
+	private void report(String file, Diagnostic diagnostic) {
+		String text = file + ": " + diagnostic.getMessage();
+		switch (diagnostic.getKind()) {
+		case INFO		: if (diagnostic.getLine() > 0) errors.printInfo(diagnostic.getLine(), text); else errors.printInfo(text); break;
+		case WARNING	: if (diagnostic.getLine() > 0) errors.printWarning(diagnostic.getLine(), text); else errors.printWarning(text); break;
+		case ERROR		: if (diagnostic.getLine() > 0) errors.printError(diagnostic.getLine(), text); else errors.printError(text); break;
+		}
+	}
+
+	/**
+	 * @return the number of options at the start of the arguments
+	 */
+	private static int options(String[] args) {
+		int options = 0;
+		while (options < args.length && args[options].startsWith("--")) {
+			options++;
+		}
+		return options;
+	}
+
+	private static int usage() {
+		err.println("Usage: PotatoesMain [--incremental] [--dump-ir] [--time-passes] [--run] [--bytecode] [--interpret] <file to compile> [arguments of the program run]");
+		err.println("       PotatoesMain [--bytecode] <files, directories or globs to compile>...");
+		err.println("       PotatoesMain --daemon [socket]");
+		return 10;
+	}
+
+	/**
+	 * Parses and checks the file, and compiles it to its intermediate representation (the parse tree, its tokens and
+	 * the tables of the checker are only referenced here, so they are dropped once it is built)
+	 * @param input the source of the file
+	 * @param path path of the file (the units file is found next to it)
+	 * @param name name of the class generated
+	 * @param cache incremental cache (null without --incremental)
+	 * @return the intermediate representation of the class, as built (before the passes), or null if the program has
+	 * errors (already reported)
+	 */
+	private IRProgram generate(CharStream input, String path, String name, IncrementalCache cache) {
 
 		// create a lexer that feeds off of input CharStream:
 		PotatoesLexer lexer = new PotatoesLexer(input);
@@ -69,30 +493,52 @@ public class PotatoesMain {
 
 		// replace error listener:
 		parser.removeErrorListeners(); // remove ConsoleErrorListener
-		parser.addErrorListener(new ErrorHandlingListener());
+		parser.addErrorListener(new ErrorHandlingListener(errors));
 
 		// begin parsing at program rule:
 		ParseTree tree = parser.program();
-		if (parser.getNumberOfSyntaxErrors() == 0) {
-			// print LISP-style tree:
-			// System.out.println(tree.toStringTree(parser));
-			PotatoesSemanticCheck visitor1 = new PotatoesSemanticCheck(args[0]);
-			if (visitor1.visit(tree)) {
-				ErrorHandling.printInfo("Semantic Analyzis Completed Sucessfully! :)");
-
-				//System.out.print("Semantic Analyzis skiped! :P\n");
-				PotatoesCompiler visitor2 = new PotatoesCompiler();
-				ST program = visitor2.visit(tree);
-				program.add("name", name);
-				PrintWriter pw = new PrintWriter(new File(name+".java"));
-				pw.print(program.render());
-				pw.close();
-				ErrorHandling.printInfo(name+" file created! Compilation Completed Sucessfully!");
+		endPhase("parse");
+		// the errors that stop the compilation (of the units file) are already reported
+		if (parser.getNumberOfSyntaxErrors() > 0) {
+			return null;
+		}
 
-			}
-			else {
-				ErrorHandling.printError("Semantic Analyzis Completed With Errors :(");
-			}
+		// number the tree nodes and lower operators and identifiers for the checker and compiler
+		new PotatoesLowering().lower(tree);
+
+		// print LISP-style tree:
+		// System.out.println(tree.toStringTree(parser));
+		PotatoesSemanticCheck visitor1 = null;
+		if (cache != null) {
+			cache.analyze((ProgramContext) tree, path);
+			visitor1 = new PotatoesSemanticCheck(path, tree, cache, errors);
+		}
+		else {
+			visitor1 = new PotatoesSemanticCheck(path, tree, errors);
+		}
+
+		if (!visitor1.visit(tree)) {
+			errors.printError("Semantic Analyzis Completed With Errors :(");
+			return null;
+		}
+		endPhase("check");
+		errors.printInfo("Semantic Analyzis Completed Sucessfully! :)");
+
+		//System.out.print("Semantic Analyzis skiped! :P\n");
+		return new PotatoesCompiler(visitor1).compile(tree, name);
+	}
+
+	private void endPhase(String phase) {
+		long now = System.nanoTime();
+		phases.put(phase, now - phaseStart);
+		phaseStart = now;
+	}
+
+	private static String phasesReport(Map<String, Long> phases) {
+		List<String> report = new ArrayList<>();
+		for (Map.Entry<String, Long> phase : phases.entrySet()) {
+			report.add(phase.getKey() + " " + String.format(Locale.ROOT, "%.3f ms", phase.getValue() / 1e6));
 		}
+		return String.join(", ", report);
 	}
 }
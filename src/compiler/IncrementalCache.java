@@ -0,0 +1,380 @@
+package compiler;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayDeque;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.misc.Interval;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.Trees;
+
+import compiler.ir.IRExpression;
+import compiler.ir.IRFunction;
+import compiler.ir.IRInstruction;
+import potatoesGrammar.grammar.PotatoesParser;
+import potatoesGrammar.grammar.PotatoesParser.*;
+import utils.errorHandling.ErrorHandling;
+
+/**
+ *
+ * <b>IncrementalCache</b><p>
+ *
+ * Keeps, between two compilations of the same Potatoes file, a fingerprint of every function
+ * together with the method generated for it (its intermediate representation, before the passes).<p>
+ * The fingerprint of a function is made of its source text, the global section of the program,
+ * the Units file in use and the compiler itself (its class files), so a new version of the compiler
+ * generates everything again. A function is dirty if its fingerprint changed or if it calls
+ * (directly or indirectly) a dirty function. Clean functions are not compiled again (the method
+ * stored in the cache is reused), and are only checked again when a dirty function uses the value they
+ * return for a call the cache does not know (the results of the calls checked are kept by the arguments
+ * and the global variables they were checked with).
+ */
+public class IncrementalCache {
+
+	// for debug purposes only
+	private static final boolean debug = false;
+
+	private static final String MAIN = "main";
+
+	// version of the layout of the cache and of the serialized methods (the classes of the intermediate representation):
+	// it has to change with them, as a cache in another format is not read at all
+	private static final String FORMAT			= "1";
+
+	private static final String FORMAT_KEY		= "format";
+	private static final String UNITS_KEY		= "units";
+	private static final String FINGERPRINT_KEY	= "fingerprint.";
+	private static final String CODE_KEY		= "code.";
+	private static final String RESULT_KEY		= "result.";
+
+	private final File cacheFile;
+	private final Properties previous = new Properties();
+	private final ErrorHandling errors;
+
+	private final Map<String, String>		fingerprints	= new HashMap<>();	// function name -> current fingerprint
+	private final Map<String, Set<String>>	callers			= new HashMap<>();	// function name -> functions that call it
+	private final Set<String>				dirty			= new HashSet<>();
+	private final Map<String, String>		generated		= new HashMap<>();	// function name -> freshly generated method, serialized
+	private final Map<String, String>		results			= new HashMap<>();	// function name and hash of a call -> result checked
+
+	// classes that check and generate the code of the functions, and the classes of the methods stored
+	private static final Class<?>[] GENERATORS = {PotatoesSemanticCheck.class, PotatoesCompiler.class, IncrementalCache.class,
+			IRFunction.class, IRInstruction.class, IRExpression.class};
+
+	private static String compilerFingerprint = null;
+
+	private String unitsFingerprint = "";
+
+	/**
+	 * Constructor
+	 * @param cacheFile file where the cache is loaded from and saved to. It may not exist yet
+	 * @param errors where the warnings of the cache are reported
+	 */
+	public IncrementalCache(File cacheFile, ErrorHandling errors) {
+		this.cacheFile = cacheFile;
+		this.errors = errors;
+		if (cacheFile.exists()) {
+			try (InputStream in = new FileInputStream(cacheFile)) {
+				previous.load(in);
+			}
+			catch (IOException e) {
+				errors.printWarning("Incremental cache \"" + cacheFile + "\" could not be read, compiling everything.");
+				previous.clear();
+			}
+			if (!previous.isEmpty() && !FORMAT.equals(previous.getProperty(FORMAT_KEY))) {
+				errors.printWarning("Incremental cache \"" + cacheFile + "\" is in another format, compiling everything.");
+				previous.clear();
+			}
+		}
+	}
+
+	// --------------------------------------------------------------------------
+	// Analysis
+
+	/**
+	 * Computes the fingerprint of every function and the set of dirty functions
+	 * @param program the parse tree of the Potatoes file
+	 * @param potatoesFilePath path of the Potatoes file (the Units file path is relative to it)
+	 */
+	public void analyze(ProgramContext program, String potatoesFilePath) {
+
+		// fingerprint of the Units file and of the global section are shared by all functions
+		String unitsPath = program.using().STRING().getText();
+		unitsPath = unitsPath.substring(1, unitsPath.length()-1);
+		try {
+			unitsFingerprint = hash(Files.readAllBytes(Paths.get(potatoesFilePath).resolveSibling(unitsPath)));
+		}
+		catch (IOException | InvalidPathException e) {
+			// the semantic check reports the missing Units file
+			unitsFingerprint = "";
+		}
+
+		// generated names of global variables are positional, so every function depends on the whole global section
+		StringBuilder globals = new StringBuilder();
+		for (GlobalStatementContext statement : program.globalStatement()) {
+			if (statement instanceof GlobalStatement_DeclarationContext || statement instanceof GlobalStatement_AssignmentContext) {
+				globals.append(sourceText(statement)).append('\n');
+			}
+		}
+
+		// fingerprint every function and build the call graph
+		for (GlobalStatementContext statement : program.globalStatement()) {
+
+			ParserRuleContext function = null;
+			String name = null;
+			if (statement instanceof GlobalStatement_FunctionMainContext) {
+				function = ((GlobalStatement_FunctionMainContext) statement).functionMain();
+				name = MAIN;
+			}
+			else if (statement instanceof GlobalStatement_FunctionIDContext) {
+				function = ((GlobalStatement_FunctionIDContext) statement).functionID();
+				name = ((FunctionIDContext) function).ID(0).getText();
+			}
+			else {
+				continue;
+			}
+
+			fingerprints.put(name, hash((sourceText(function) + '\n' + globals + '\n' + unitsFingerprint + '\n' + compilerFingerprint(errors))
+					.getBytes(StandardCharsets.UTF_8)));
+			callers.putIfAbsent(name, new HashSet<>());
+
+			for (ParseTree call : Trees.findAllRuleNodes(function, PotatoesParser.RULE_functionCall)) {
+				String callee = ((FunctionCallContext) call).ID().getText();
+				callers.computeIfAbsent(callee, k -> new HashSet<>()).add(name);
+			}
+		}
+
+		// changed functions and, transitively, the functions that call them are dirty
+		Deque<String> toVisit = new ArrayDeque<>();
+		for (String name : fingerprints.keySet()) {
+			String code = previous.getProperty(CODE_KEY + name);
+			if (code == null || !fingerprints.get(name).equals(previous.getProperty(FINGERPRINT_KEY + name)) || decode(code) == null) {
+				toVisit.push(name);
+			}
+		}
+		while (!toVisit.isEmpty()) {
+			String name = toVisit.pop();
+			if (dirty.add(name)) {
+				for (String caller : callers.getOrDefault(name, new HashSet<>())) {
+					toVisit.push(caller);
+				}
+			}
+		}
+
+		if (debug) {
+			errors.printInfo("Incremental cache: functions = " + fingerprints.keySet() + ", dirty = " + dirty);
+		}
+	}
+
+	// --------------------------------------------------------------------------
+	// Getters
+
+	/**
+	 * @param functionName the Potatoes function name ("main" for the main function)
+	 * @return true if the cached method for the function can be reused
+	 */
+	public boolean isClean(String functionName) {
+		return fingerprints.containsKey(functionName) && !dirty.contains(functionName);
+	}
+
+	/**
+	 * @param functionName the Potatoes function name ("main" for the main function)
+	 * @return a new copy of the cached method for the function (the passes change the methods they are given), null if
+	 * there is none
+	 */
+	public IRFunction getCachedFunction(String functionName) {
+		String code = previous.getProperty(CODE_KEY + functionName);
+		return code == null ? null : decode(code);
+	}
+
+	/**
+	 * @param functionName the Potatoes function name
+	 * @param call the arguments of the call and the global variables, as the checker describes them
+	 * @return the result of the function for the same call, as the checker described it when it checked it (in this
+	 * compilation, or in the last one if the function is clean), null if it is not known
+	 */
+	public String getResult(String functionName, String call) {
+		String key = RESULT_KEY + functionName + "." + hash(call.getBytes(StandardCharsets.UTF_8));
+		if (results.containsKey(key)) {
+			return results.get(key);
+		}
+		return isClean(functionName) ? previous.getProperty(key) : null;
+	}
+
+	/**
+	 * @return the number of functions in the program
+	 */
+	public int getFunctionsCount() {
+		return fingerprints.size();
+	}
+
+	/**
+	 * @return the number of functions that have to be checked and compiled again
+	 */
+	public int getDirtyCount() {
+		return dirty.size();
+	}
+
+	// --------------------------------------------------------------------------
+	// Update
+
+	/**
+	 * Registers the method generated for a dirty function, to be stored on {@link #save()}
+	 * @param functionName the Potatoes function name ("main" for the main function)
+	 * @param function the generated method, before the passes (it is stored as it is now)
+	 */
+	public void putGenerated(String functionName, IRFunction function) {
+		generated.put(functionName, encode(function));
+	}
+
+	/**
+	 * Registers the result of a call checked, to be stored on {@link #save()}
+	 * @param functionName the Potatoes function name
+	 * @param call the arguments of the call and the global variables, as the checker describes them
+	 * @param result the result, as the checker describes it (null if it can not be kept)
+	 */
+	public void putResult(String functionName, String call, String result) {
+		if (result != null) {
+			results.put(RESULT_KEY + functionName + "." + hash(call.getBytes(StandardCharsets.UTF_8)), result);
+		}
+	}
+
+	/**
+	 * Writes the cache file with the current fingerprints. Should only be called after a successful compilation
+	 */
+	public void save() {
+
+		Properties current = new Properties();
+		current.setProperty(FORMAT_KEY, FORMAT);
+		current.setProperty(UNITS_KEY, unitsFingerprint);
+
+		for (String name : fingerprints.keySet()) {
+			String code = generated.containsKey(name) ? generated.get(name) : previous.getProperty(CODE_KEY + name);
+
+			// functions that were not generated in this compilation (never called) are not cached
+			if (code != null) {
+				current.setProperty(FINGERPRINT_KEY + name, fingerprints.get(name));
+				current.setProperty(CODE_KEY + name, code);
+			}
+		}
+
+		// the results of the calls checked before stay valid while the function does not change
+		for (String key : previous.stringPropertyNames()) {
+			if (key.startsWith(RESULT_KEY)) {
+				String name = key.substring(RESULT_KEY.length(), key.lastIndexOf('.'));
+				if (isClean(name) && current.containsKey(CODE_KEY + name)) {
+					current.setProperty(key, previous.getProperty(key));
+				}
+			}
+		}
+		for (Map.Entry<String, String> result : results.entrySet()) {
+			String name = result.getKey().substring(RESULT_KEY.length(), result.getKey().lastIndexOf('.'));
+			if (current.containsKey(CODE_KEY + name)) {
+				current.setProperty(result.getKey(), result.getValue());
+			}
+		}
+
+		try (OutputStream out = new FileOutputStream(cacheFile)) {
+			current.store(out, "Potatoes incremental compilation cache");
+		}
+		catch (IOException e) {
+			errors.printWarning("Incremental cache \"" + cacheFile + "\" could not be written.");
+		}
+	}
+
+	// --------------------------------------------------------------------------
+	// Auxiliar Functions
+
+	/**
+	 * @return the method serialized, in base 64
+	 */
+	private static String encode(IRFunction function) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(function);
+		}
+		catch (IOException e) {
+			throw new IllegalStateException("Incremental cache: method " + function.name + " could not be stored", e);
+		}
+		return Base64.getEncoder().encodeToString(bytes.toByteArray());
+	}
+
+	/**
+	 * @return the method serialized by {@link #encode(IRFunction)}, or null if it cannot be read
+	 */
+	private static IRFunction decode(String code) {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(Base64.getDecoder().decode(code)))) {
+			return (IRFunction) in.readObject();
+		}
+		catch (IOException | ClassNotFoundException | IllegalArgumentException | ClassCastException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * @return the original source text of the rule, whitespace and comments included
+	 */
+	private static String sourceText(ParserRuleContext ctx) {
+		return ctx.start.getInputStream().getText(Interval.of(ctx.start.getStartIndex(), ctx.stop.getStopIndex()));
+	}
+
+	/**
+	 * @param errors where the warning is reported, if the class files are not found
+	 * @return the fingerprint of the class files of the compiler (computed once per JVM)
+	 */
+	private static synchronized String compilerFingerprint(ErrorHandling errors) {
+		if (compilerFingerprint == null) {
+			ByteArrayOutputStream classFiles = new ByteArrayOutputStream();
+			for (Class<?> generator : GENERATORS) {
+				try (InputStream in = generator.getResourceAsStream(generator.getSimpleName() + ".class")) {
+					if (in == null) {
+						throw new IOException("class file of " + generator.getName() + " not found");
+					}
+					in.transferTo(classFiles);
+				}
+				catch (IOException e) {
+					// without the class files, nothing cached can be trusted
+					errors.printWarning("Incremental cache: " + e.getMessage() + ", compiling everything.");
+					return compilerFingerprint = "unknown " + System.nanoTime();
+				}
+			}
+			compilerFingerprint = hash(classFiles.toByteArray());
+		}
+		return compilerFingerprint;
+	}
+
+	private static String hash(byte[] bytes) {
+		try {
+			StringBuilder str = new StringBuilder();
+			for (byte b : MessageDigest.getInstance("SHA-256").digest(bytes)) {
+				str.append(String.format("%02x", b));
+			}
+			return str.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			// every Java platform is required to support SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package compiler;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.net.URI;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.FileObject;
+import javax.tools.ForwardingJavaFileManager;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.SimpleJavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+/**
+ * <b>JavaRunner</b><p>
+ *
+ * Compiles the generated class with the Java compiler of the running JVM (javax.tools) and runs its main in the same
+ * JVM, without files: the source is read from memory, and the class files are kept in memory and loaded by a class
+ * loader of their own.
+ */
+public class JavaRunner {
+
+	/**
+	 * @param className
+	 * @param source Java code of the class
+	 * @return the class compiled (and its nested classes), loaded
+	 * @throws IllegalStateException if the JVM has no Java compiler or the source does not compile
+	 */
+	public static Class<?> compile(String className, String source) throws ClassNotFoundException, IOException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if (compiler == null) {
+			throw new IllegalStateException("no Java compiler in this JVM (run it from a JDK)");
+		}
+
+		DiagnosticCollector<JavaFileObject> diagnostics = new DiagnosticCollector<>();
+		Map<String, byte[]> classFiles = new HashMap<>();
+		try (MemoryFileManager fileManager = new MemoryFileManager(compiler.getStandardFileManager(diagnostics, null, null))) {
+			JavaFileObject file = new SourceFile(className, source);
+			boolean compiled = compiler.getTask(null, fileManager, diagnostics, Arrays.asList("-nowarn"), null, Arrays.asList(file)).call();
+			if (!compiled) {
+				StringBuilder errors = new StringBuilder("generated class does not compile:");
+				for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+					if (diagnostic.getKind() == Diagnostic.Kind.ERROR) {
+						errors.append("\n\tline ").append(diagnostic.getLineNumber()).append(": ").append(diagnostic.getMessage(null));
+					}
+				}
+				throw new IllegalStateException(errors.toString());
+			}
+			for (Map.Entry<String, ClassFile> classFile : fileManager.classes.entrySet()) {
+				classFiles.put(classFile.getKey(), classFile.getValue().bytes.toByteArray());
+			}
+		}
+		return new MemoryClassLoader(classFiles).loadClass(className);
+	}
+
+	/**
+	 * @param className
+	 * @param classFile bytecode of the class
+	 * @return the class loaded
+	 */
+	public static Class<?> load(String className, byte[] classFile) throws ClassNotFoundException {
+		Map<String, byte[]> classFiles = new HashMap<>();
+		classFiles.put(className, classFile);
+		return new MemoryClassLoader(classFiles).loadClass(className);
+	}
+
+	/**
+	 * Runs the main of the class
+	 * @param mainClass
+	 * @param args arguments of main
+	 * @throws Exception what main throws
+	 */
+	public static void run(Class<?> mainClass, String[] args) throws Exception {
+		Method main = mainClass.getMethod("main", String[].class);
+		try {
+			main.invoke(null, (Object) args);
+		}
+		catch (InvocationTargetException e) {
+			if (e.getCause() instanceof Error) {
+				throw (Error) e.getCause();
+			}
+			throw (Exception) e.getCause();
+		}
+	}
+
+	// --------------------------------------------------------------------------
+	// Files in memory
+
+	private static class SourceFile extends SimpleJavaFileObject {
+		private final String source;
+
+		SourceFile(String className, String source) {
+			super(URI.create("string:///" + className + Kind.SOURCE.extension), Kind.SOURCE);
+			this.source = source;
+		}
+
+		@Override
+		public CharSequence getCharContent(boolean ignoreEncodingErrors) {
+			return source;
+		}
+	}
+
+	private static class ClassFile extends SimpleJavaFileObject {
+		private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+		ClassFile(String className) {
+			super(URI.create("bytes:///" + className.replace('.', '/') + Kind.CLASS.extension), Kind.CLASS);
+		}
+
+		@Override
+		public OutputStream openOutputStream() {
+			return bytes;
+		}
+	}
+
+	/**
+	 * File manager that keeps the class files written by the compiler
+	 */
+	private static class MemoryFileManager extends ForwardingJavaFileManager<StandardJavaFileManager> {
+		final Map<String, ClassFile> classes = new HashMap<>();
+
+		MemoryFileManager(StandardJavaFileManager fileManager) {
+			super(fileManager);
+		}
+
+		@Override
+		public JavaFileObject getJavaFileForOutput(Location location, String className, JavaFileObject.Kind kind, FileObject sibling) {
+			ClassFile file = new ClassFile(className);
+			classes.put(className, file);
+			return file;
+		}
+	}
+
+	/**
+	 * Class loader of the classes compiled: its parent is the platform class loader, not the one of the compiler, so a
+	 * program whose class has the name of a class of the compiler (PotatoesEngine) loads its own
+	 */
+	private static class MemoryClassLoader extends ClassLoader {
+		private final Map<String, byte[]> classes;
+
+		MemoryClassLoader(Map<String, byte[]> classes) {
+			super(ClassLoader.getPlatformClassLoader());
+			this.classes = classes;
+		}
+
+		@Override
+		protected Class<?> findClass(String name) throws ClassNotFoundException {
+			byte[] bytes = classes.get(name);
+			if (bytes == null) {
+				throw new ClassNotFoundException(name);
+			}
+			return defineClass(name, bytes, 0, bytes.length);
+		}
+	}
+
+}
@@ -2,16 +2,29 @@ package compiler;
 
 import utils.errorHandling.ErrorHandling;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Collections;
-import java.util.HashMap;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
 
-import org.antlr.v4.runtime.tree.ParseTreeProperty;
-import org.stringtemplate.v4.*;
+import org.antlr.v4.runtime.ParserRuleContext;
+import org.antlr.v4.runtime.tree.ParseTree;
 
+import compiler.ir.IRExpression;
+import compiler.ir.IRExpression.*;
+import compiler.ir.IRFunction;
+import compiler.ir.IRInstruction;
+import compiler.ir.IRInstruction.*;
+import compiler.ir.IRProgram;
+import potatoesGrammar.grammar.NodeContext;
 import potatoesGrammar.grammar.PotatoesBaseVisitor;
 import potatoesGrammar.grammar.PotatoesParser.*;
 import potatoesGrammar.utils.*;
@@ -19,2082 +32,2031 @@ import unitsGrammar.grammar.*;
 
 
 /**
- * 
+ *
  * <b>PotatoesCompiler</b><p>
- * 
- * This Visitor Class runs the Potatoes Code and compiles it to Java.
+ *
+ * This Visitor Class runs the Potatoes Code and compiles it to the intermediate representation of the Java class
+ * (see {@link IRProgram}), that the passes optimize and the lowerings turn into Java, bytecode or closures.
+ * Every operation gets its own temporary, annotated with the unit the semantic check found for it.
  * It works under the assumption that everything is verified by the Potatoes Semantic Check.
  * Should anything fail, Potatoes Semantic Check should be the one to be corrected.
  * @
  */
-public class PotatoesCompiler extends PotatoesBaseVisitor<ST> {
-	
+public class PotatoesCompiler extends PotatoesBaseVisitor<List<IRInstruction>> {
+
 	// for debug purposes only
 	private static final boolean debug = false;
 
-	protected static STGroup stg = new STGroupFile("java.stg");
-	//protected static ParseTreeProperty<Object> mapCtxObj = PotatoesSemanticCheck.getMapCtxObj();
+	// prefix of the methods that give the conversion factors of the units of the lists sorted, by type (see addFactorMethods)
+	private static final String FACTOR_OF = "factorOf_";
+
+	private final List<HashMap<String, String>>		symbolTableNames	= new ArrayList<>();  // stores the updated name of variables
+	private final Map<String, Variable>				symbolTableValue	= new HashMap<>(); // stores the updated value of variables
+	private final Map<String, String>				javaTypes			= new HashMap<>(); // stores the Java type of the generated variables (Double, Boolean, String, List<...>, ...)
+	private final Map<String, String>				declaredTypes		= new HashMap<>(); // stores the type the generated variables are declared with
+	private final Map<String, Unit>					varUnits			= new HashMap<>(); // stores the unit of the generated variables
+	private final VariableTable						mapCtxVar;
+	private final VariableTable						mapCtxListDict;
+	private final Map<String, FunctionIDContext>	checkedFunctions;	// functions of the program
+	private final Map<String, FunctionIDContext>	functionNames		= new LinkedHashMap<>(); // functions not generated yet
+	private final IncrementalCache					incrementalCache;
+	private final Units								unitsFile;
+	private final ErrorHandling						errors;
+
+	private int varCounter = 0;
+	private boolean globalScope = true;
+	private final List<IRInstruction> globalInitialization = new ArrayList<>(); // assignments of the global variables, done at the start of main
+
+	private IRProgram program;
+
+	/**
+	 * @param checker checker of the program compiled (after its check)
+	 */
+	public PotatoesCompiler(PotatoesSemanticCheck checker) {
+		mapCtxVar = checker.getmapCtxVar();
+		mapCtxListDict = checker.getmapCtxListDict();
+		checkedFunctions = checker.getFunctionNames();
+		incrementalCache = checker.getIncrementalCache();
+		unitsFile = checker.getUnitsFileInfo();
+		errors = checker.getErrorHandling();
+	}
+
+	/**
+	 * Compiles the program (after its semantic check). The state of a previous compilation is discarded, the
+	 * global variables are assigned again at the start of the new main only
+	 * @param tree parse tree of the program
+	 * @param name name of the class generated
+	 * @return the intermediate representation of the class, as built (before the passes)
+	 */
+	public IRProgram compile(ParseTree tree, String name) {
+		symbolTableNames.clear();
+		symbolTableValue.clear();
+		javaTypes.clear();
+		declaredTypes.clear();
+		varUnits.clear();
+		functionNames.clear();
+		functionNames.putAll(checkedFunctions);
+		varCounter = 0;
+		globalScope = true;
+		globalInitialization.clear();
+		indent = "";
+
+		program = new IRProgram(name);
+		program.imports.addAll(Arrays.asList("java.util.*", "java.util.Map.*", "java.io.*"));
+		visit(tree);
+		numberLocals((ProgramContext) tree);
+		addFactorMethods();
+		program.setNamesCount(varCounter);
+		return program;
+	}
 
-	protected static List<HashMap<String, String>>	symbolTableNames	= new ArrayList<>();  // stores the updated name of variables
-	protected static Map<String, Variable>			symbolTableValue	= new HashMap<>(); // stores the updated value of variables
-	protected static ParseTreeProperty<Variable> 	mapCtxVar			= PotatoesSemanticCheck.getmapCtxVar();
-	protected static ParseTreeProperty<Variable> 	mapCtxListDict		= PotatoesSemanticCheck.getmapCtxListDict();
-	protected static Map<String, FunctionIDContext> functionNames		= PotatoesSemanticCheck.getFunctionNames();
-	
-	private static int varCounter = 0;
-	private static boolean globalScope = true;
-	
-	ST classContent = stg.getInstanceOf("class");
-	
 	// --------------------------------------------------------------------------------------------------------------------
 	// MAIN RULES----------------------------------------------------------------------------------------------------------
 	// --------------------------------------------------------------------------------------------------------------------
-	
+
 	@Override
-	public ST visitProgram(ProgramContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->PROGRAM\n");
-		
+	public List<IRInstruction> visitProgram(ProgramContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->PROGRAM\n");
+
 		// initialize symbolTableNames
 		symbolTableNames.add(new HashMap<>());
-	    
+
 		// visit global Declarations
 	    for(GlobalStatementContext statement : ctx.globalStatement()) {
 	    	if (statement instanceof GlobalStatement_DeclarationContext) {
-	    		classContent.add("stat", visit(statement));
+	    		visit(statement);
 	    	}
 	    }
-	    
+
 	    // visit global Assignments
 	    for(GlobalStatementContext statement : ctx.globalStatement()) {
 	    	if (statement instanceof GlobalStatement_AssignmentContext) {
-	    		classContent.add("stat", visit(statement));
+	    		globalInitialization.addAll(visit(statement));
 	    	}
 	    }
-	    
+
 	    globalScope = false;
-	    // visit Main function
+	    // visit Main function (the functions it calls are generated on their first call)
 	    for(GlobalStatementContext statement : ctx.globalStatement()) {
 	    	if (statement instanceof GlobalStatement_FunctionMainContext) {
-	    		classContent.add("stat", visit(statement));
+	    		visitFunctionOrCached("main", ((GlobalStatement_FunctionMainContext) statement).functionMain());
 	    	}
 	    }
-	    
+
 	    // visit Normal Methods that are not called by the Main function directly or indirectly
-	    for (String key : functionNames.keySet()) {
-	    	classContent.add("stat", visit(functionNames.get(key)));
+	    for (String key : new ArrayList<>(functionNames.keySet())) {
+	    	FunctionIDContext function = functionNames.remove(key);
+	    	if (function != null) {
+	    		visitFunctionOrCached(key, function);
+	    	}
 	    }
-	    
+
 	    if(debug) ci();
-	    
-	    return classContent;
-	}
-	
-	@Override
-	public ST visitUsing(UsingContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->USING");
 
-		
-		if(debug) {
-			ci();
-		}
-		
-		// return is empty
-		return stg.getInstanceOf("values");
-	}
-	
-	@Override
-	public ST visitGlobalStatement_Declaration(GlobalStatement_DeclarationContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->GLOBAL STATEMENT - DECLARATION");
-		
-		ST statement = visit(ctx.varDeclaration());
-		
-		if(debug) ci();
-		
-		return createEOL(statement);
+	    return new ArrayList<>();
 	}
 
 	@Override
-	public ST visitGlobalStatement_Assignment(GlobalStatement_AssignmentContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->GLOBAL STATEMENT - ASSIGNMENT\n");
-		
-		ST statement = visit(ctx.assignment());
-		
-		if(debug) ci();
-		
-		return createEOL(statement);
-	}
-	
-	@Override
-	public ST visitGlobalStatement_FunctionMain(GlobalStatement_FunctionMainContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->GLOBAL STATEMENT - FUNCTION MAIN\n");
-		
+	public List<IRInstruction> visitGlobalStatement_Declaration(GlobalStatement_DeclarationContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->GLOBAL STATEMENT - DECLARATION");
+
+		// global variables are static fields
+		List<IRInstruction> declaration = visit(ctx.varDeclaration());
+		((Assign) declaration.get(0)).modifiers = "static";
+		program.globals.addAll(declaration);
+
 		if(debug) ci();
-		
-		return visit(ctx.functionMain());
+
+		return new ArrayList<>();
 	}
 
 	@Override
-	public ST visitGlobalStatement_FunctionID(GlobalStatement_FunctionIDContext ctx) {
+	public List<IRInstruction> visitGlobalStatement_Assignment(GlobalStatement_AssignmentContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->GLOBAL STATEMENT - ASSIGNMENT\n");
+
+		// java does not allow statements in the class body, so the value is assigned at the start of main
+		List<IRInstruction> statements = visit(ctx.assignment());
 
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->GLOBAL STATEMENT - FUNCTION ID\n");
-		
 		if(debug) ci();
-		
-		return visit(ctx.functionID());
+
+		return statements;
 	}
-	
-	// --------------------------------------------------------------------------------------------------------------------	
-	// CLASS - STATEMENTS--------------------------------------------------------------------------------------------------	
-	// --------------------------------------------------------------------------------------------------------------------	
+
+	// --------------------------------------------------------------------------------------------------------------------
+	// CLASS - STATEMENTS--------------------------------------------------------------------------------------------------
+	// --------------------------------------------------------------------------------------------------------------------
 
 	@Override
-	public ST visitStatement_Declaration(Statement_DeclarationContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->STATEMENT - DECLARATION\n");
-		
-		ST statement = visit(ctx.varDeclaration());
-		
+	public List<IRInstruction> visitStatement_Declaration(Statement_DeclarationContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->STATEMENT - DECLARATION\n");
+
+		List<IRInstruction> statement = visit(ctx.varDeclaration());
+
 		if(debug) ci();
-		
-		return createEOL(statement);
+
+		return statement;
 	}
-	
+
 	@Override
-	public ST visitStatement_Assignment(Statement_AssignmentContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->STATEMENT - ASSIGNMENT\n");
-		
-		ST statement = visit(ctx.assignment());
+	public List<IRInstruction> visitStatement_Assignment(Statement_AssignmentContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->STATEMENT - ASSIGNMENT\n");
+
+		List<IRInstruction> statement = visit(ctx.assignment());
 
 		if(debug) ci();
-		
+
 		return statement;
 	}
-	
+
 	@Override
-	public ST visitStatement_Control_Flow_Statement(Statement_Control_Flow_StatementContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->STATEMENT - CONTROL FLOW STATEMENTS\n");
+	public List<IRInstruction> visitStatement_Control_Flow_Statement(Statement_Control_Flow_StatementContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->STATEMENT - CONTROL FLOW STATEMENTS\n");
 		if(debug) ci();
 		return visit(ctx.controlFlowStatement());
 	}
-	
+
 	@Override
-	public ST visitStatement_FunctionCall(Statement_FunctionCallContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->STATEMENT - FUNCTION CALL");
-		
-		ST statement = visit(ctx.functionCall());
-		
+	public List<IRInstruction> visitStatement_FunctionCall(Statement_FunctionCallContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->STATEMENT - FUNCTION CALL");
+
+		List<IRInstruction> statement = visit(ctx.functionCall());
+
 		if(debug) ci();
-		
-		return createEOL(statement);
+
+		return statement;
 	}
-	
+
 	@Override
-	public ST visitStatement_InputOutput(Statement_InputOutputContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->STATEMENT - INPUT OUTPUT\n");
-		
-		ST statement = visit(ctx.inputOutput());
-		
+	public List<IRInstruction> visitStatement_InputOutput(Statement_InputOutputContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->STATEMENT - INPUT OUTPUT\n");
+
+		List<IRInstruction> statement = visit(ctx.inputOutput());
+
 		if(debug) ci();
-		
-		return createEOL(statement);
+
+		return statement;
 	}
-	
+
 	@Override
-	public ST visitStatement_Expression(Statement_ExpressionContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->STATEMENT - EXPRESSION\n");
-		
-		ST statement = visit(ctx.expression());
-		
+	public List<IRInstruction> visitStatement_Expression(Statement_ExpressionContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->STATEMENT - EXPRESSION\n");
+
+		List<IRInstruction> statement = visit(ctx.expression());
+
 		if(debug) ci();
-		
-		return createEOL(statement);
+
+		return statement;
 	}
-	
+
 	// --------------------------------------------------------------------------------------------------------------------
 	// CLASS - ASSIGNMENTS-----------------------------------------------------------------------
-	// --------------------------------------------------------------------------------------------------------------------	
+	// --------------------------------------------------------------------------------------------------------------------
 
 	@Override
-	public ST visitAssignment_Var_Declaration_Expression(Assignment_Var_Declaration_ExpressionContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->ASSIGNMENT - VAR DECLARATION - EXPRESSION\n");
-		
+	public List<IRInstruction> visitAssignment_Var_Declaration_Expression(Assignment_Var_Declaration_ExpressionContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->ASSIGNMENT - VAR DECLARATION - EXPRESSION\n");
+
 		// get var and expression info
-		ST var = visit(ctx.varDeclaration());
-		ST expr = visit(ctx.expression());
-		String type = (String) expr.getAttribute("type");
-		String varName = (String) var.getAttribute("var");
-		String exprName = (String) expr.getAttribute("var");
-		String id = ctx.varDeclaration().ID().getText();
-		String factor = "";
-		
+		List<IRInstruction> var = visit(ctx.varDeclaration());
+		List<IRInstruction> expr = visit(ctx.expression());
+		String varName = var(var);
+		IRExpression value = ref(expr);
+
 		Variable exprVar = new Variable(mapCtxVar.get(ctx.expression()));
 		Variable declVar = new Variable(mapCtxVar.get(ctx.varDeclaration()));
 		if (exprVar.isNumeric()) {
-			double conversionFactor = exprVar.convertUnitTo(Units.instanceOf(declVar.getUnit().getName()));
-			factor = " * " + conversionFactor;
+			double conversionFactor = exprVar.convertUnitTo(unitsFile.instanceOf(declVar.getUnit().getName()));
+			value = scale(value, conversionFactor);
 		}
-		
-		ST newVariable = stg.getInstanceOf("varAssignment");
-		
-		// create template for every variable except global variables
-		if (globalScope == false) {
-			
-			newVariable.add("previousStatements", var);
-			newVariable.add("previousStatements", expr);
-			newVariable.add("var", varName);
-			newVariable.add("operation", exprName + factor);
-			
-			// update tables
-			symbolTableValue.put(varName, exprVar);
+
+		List<IRInstruction> statements = new ArrayList<>();
+
+		// global variables are static fields, the value is assigned at the start of main
+		if (globalScope) {
+			((Assign) var.get(0)).modifiers = "static";
+			program.globals.addAll(var);
+			statements.addAll(expr);
+			statements.add(assign(null, varName, value));
 		}
-		
-		// global variables have to be declared with type because java does not allow assignments in global scope
+
+		// locals are declared with their value (a local assigned once is a constant for the passes), unless the
+		// expression reads the variable declared
 		else {
-			
-			// global declarations must be static in order to be compatible with main function
-			String[] varLines = var.render().split("\n");
-			for (int i = 1; i < varLines.length; i++) {
-				varLines[i] = "static " + varLines[i];
-				newVariable.add("previousStatements",  varLines[i]);
+			List<String> names = new ArrayList<>();
+			for (IRInstruction instruction : expr) {
+				instruction.collectNames(names);
 			}
-			
-			String[] exprLines = expr.render().split("\n");
-			for (String str : exprLines) {
-				str = "static " + str;
-				newVariable.add("previousStatements", str);
+			if (names.contains(varName)) {
+				statements.addAll(var);
+				statements.addAll(expr);
+				statements.add(assign(null, varName, value));
+			}
+			else {
+				statements.addAll(expr);
+				statements.add(assign(((Assign) var.get(0)).type, varName, value));
 			}
-		
-			String newName = getNewVarName();
-			newVariable.add("type", "static " + type);
-			newVariable.add("var", newName);
-			newVariable.add("operation", exprName + factor);
-			
-			// update tables
-			symbolTableNamesPut(id,  newName);
-			symbolTableValue.put(newName, exprVar);
 		}
-		
+
+		// update tables
+		symbolTableValue.put(varName, exprVar);
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> varDeclaration = " + ctx.varDeclaration().getText());
-			ErrorHandling.printInfo(ctx,indent + "-> expression = " + ctx.expression().getText());
-			ErrorHandling.printInfo(ctx,indent + "-> assigned = " + exprVar + "\n");
+			errors.printInfo(ctx,indent + "-> varDeclaration = " + ctx.varDeclaration().getText());
+			errors.printInfo(ctx,indent + "-> expression = " + ctx.expression().getText());
+			errors.printInfo(ctx,indent + "-> assigned = " + exprVar + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return statements;
 	}
 
 	@Override
-	public ST visitAssignment_Var_Expression(Assignment_Var_ExpressionContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->ASSIGNMENT - VAR - EXPRESSION");
-		
+	public List<IRInstruction> visitAssignment_Var_Expression(Assignment_Var_ExpressionContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->ASSIGNMENT - VAR - EXPRESSION");
+
 		// get var and expression info
-		String id = ctx.var().ID().getText();
-		String varName = symbolTableNamesGet(id);
-		ST expr = visit(ctx.expression());
-		String exprName = (String) expr.getAttribute("var");
-		String factor = "";
-		
-		//String lastName = symbolTableNames.get(ctx.var().ID().getText());
+		String varName = symbolTableNamesGet(ctx.var().getName());
+		List<IRInstruction> expr = visit(ctx.expression());
+		IRExpression value = ref(expr);
+
 		Variable varVar = new Variable(symbolTableValue.get(varName));
 		Variable exprVar = new Variable(mapCtxVar.get(ctx.expression())); // deep copy
-		
+
 		if (exprVar.isNumeric()) {
-			double conversionFactor = exprVar.convertUnitTo(Units.instanceOf(varVar.getUnit().getName()));
-			factor = " * " + conversionFactor;
+			double conversionFactor = exprVar.convertUnitTo(unitsFile.instanceOf(varVar.getUnit().getName()));
+			value = scale(value, conversionFactor);
 		}
-		
-		// create template
-		ST newVariable = stg.getInstanceOf("varAssignment");
-		newVariable.add("previousStatements", expr);
-		newVariable.add("var", varName);
-		newVariable.add("operation", exprName + factor);
-	
+
+		List<IRInstruction> statements = new ArrayList<>(expr);
+		statements.add(assign(null, varName, value));
+
 		// update tables
 		symbolTableValue.put(varName, exprVar);
-		
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> var = " + ctx.var().getText());
-			ErrorHandling.printInfo(ctx,indent + "-> expression = " + ctx.expression().getText() + "\n");
-			ErrorHandling.printInfo(ctx,indent + "-> assigned = " + exprVar + "\n");
+			errors.printInfo(ctx,indent + "-> var = " + ctx.var().getText());
+			errors.printInfo(ctx,indent + "-> expression = " + ctx.expression().getText() + "\n");
+			errors.printInfo(ctx,indent + "-> assigned = " + exprVar + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return statements;
 	}
-	
-	// --------------------------------------------------------------------------------------------------------------------	
+
+	// --------------------------------------------------------------------------------------------------------------------
 	// FUNCTIONS-----------------------------------------------------------------------------------------------------------
-	// --------------------------------------------------------------------------------------------------------------------	
-	
+	// --------------------------------------------------------------------------------------------------------------------
+
 	@Override
-	public ST visitFunctionMain(FunctionMainContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->FUNCTION MAIN\n");
-		
-		openScope();
-		
-		ST main = stg.getInstanceOf("main");
-		main.add("scope", visit(ctx.scope()));
-		
+	public List<IRInstruction> visitFunctionMain(FunctionMainContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->FUNCTION MAIN\n");
+
+		// the global variables are assigned first
+		List<IRInstruction> body = new ArrayList<>(globalInitialization);
+		body.addAll(visit(ctx.scope()));
+
 		if(debug) ci();
-		
-		return main;
+
+		return body;
 	}
-	
+
 	@Override
-	public ST visitFunctionID(FunctionIDContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->FUNCTION ID");
-		
-		openScope();
-		
-		// create template
-		ST function = stg.getInstanceOf("function");
-		function.add("returnType", getCorrespondingTypeDeclaration(ctx.type(0).getText(), "", ""));
-		function.add("functionName", ctx.ID(0).getText());
-		
-		for (int i = 2; i < ctx.ID().size(); i++) {
-			String type = visit(ctx.type(i-2)).render();
-			String var = getNewVarName();
-			function.add("args", type + " " + var);
-			symbolTableNamesPut(ctx.ID(i).getText(), var);
-		}
-		
-		function.add("scope",  visit(ctx.scope()));
-		
+	public List<IRInstruction> visitFunctionID(FunctionIDContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->FUNCTION ID");
+
+		// the scope of the function sees the global variables only (it may be generated in the middle of its caller)
+		List<IRInstruction> body = visit(ctx.scope());
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> function name = " + ctx.ID(0).getText() + "\n");
+			errors.printInfo(ctx,indent + "-> function name = " + ctx.getName() + "\n");
 			ci();
 		}
-		
-		return function;
-		
+
+		return body;
 	}
 
 	@Override
-	public ST visitFunctionReturn(FunctionReturnContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->FUNCTION RETURN");
-		
-		// get expression info
-		ST expr = visit(ctx.expression());
-		
-		// create template
-		ST functionReturn = stg.getInstanceOf("stats");
-		functionReturn.add("stat", expr);
-		functionReturn.add("stat", "return " + (String) expr.getAttribute("var") + ";");
-		
+	public List<IRInstruction> visitFunctionReturn(FunctionReturnContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->FUNCTION RETURN");
+
+		List<IRInstruction> functionReturn = new ArrayList<>();
+		if (ctx.expression() == null) {
+			functionReturn.add(new Return(null));
+		}
+		else {
+			functionReturn.addAll(visit(ctx.expression()));
+			functionReturn.add(new Return(ref(functionReturn)));
+		}
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> return type = " + mapCtxVar.get(ctx.expression()).getVarType().toString() + "\n");
+			errors.printInfo(ctx,indent + "-> return = " + ctx.getText() + "\n");
 			ci();
 		}
-		
+
 		return functionReturn;
 	}
 
 	@Override
-	public ST visitFunctionCall(FunctionCallContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->FUNCTION CALL\n");
-		
-		// create template
-		ST functionCall = stg.getInstanceOf("functionCall");
-		
-		// add previousStatements and arguments
+	public List<IRInstruction> visitFunctionCall(FunctionCallContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->FUNCTION CALL\n");
+
+		// the arguments are computed before the call
+		List<IRInstruction> functionCall = new ArrayList<>();
+		List<IRExpression> args = new ArrayList<>();
 		for (int i = 0; i < ctx.expression().size(); i++) {
-			ST expr = visit(ctx.expression(i));
-			functionCall.add("previousStatements", expr);
-			if (i == ctx.expression().size()-1) {
-				functionCall.add("args", (String) expr.getAttribute("var"));
-			}
-			functionCall.add("args", (String) expr.getAttribute("var") + ";");
+			List<IRInstruction> expr = visit(ctx.expression(i));
+			functionCall.addAll(expr);
+			args.add(ref(expr));
 		}
-		
-		// add function Name
-		functionCall.add("functionName", ctx.ID().getText());
-		
-		String functionName = ctx.ID().getText();
-		FunctionIDContext functionToVisit = functionNames.get(functionName);
-		functionNames.remove(functionName);
-		classContent.add("stat", visit(functionToVisit));
-		
+		functionCall.add(new Eval(new Call(null, ctx.getName(), args)));
+
+		// the function is only generated on its first call
+		String functionName = ctx.getName();
+		FunctionIDContext functionToVisit = functionNames.remove(functionName);
+		if (functionToVisit != null) {
+			visitFunctionOrCached(functionName, functionToVisit);
+		}
+
 		if(debug) ci();
-				
+
 		return functionCall;
 	}
-			
-	// --------------------------------------------------------------------------------------------------------------------
-	// CONTROL FLOW STATMENTS----------------------------------------------------------------------------------------------
-	// --------------------------------------------------------------------------------------------------------------------	
-	
-	@Override
-	public ST visitControlFlowStatement(ControlFlowStatementContext ctx) {
 
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->CONTROL FLOW STATEMENT\n");
-		if(debug) ci();
-		return visitChildren(ctx);
-	}
+	/**
+	 * Generates the method for a function, or reuses the one stored in the incremental cache if the function did not
+	 * change, and adds it to the program
+	 * @param functionName the Potatoes function name ("main" for the main function)
+	 * @param ctx the function context (FunctionMainContext or FunctionIDContext)
+	 */
+	private void visitFunctionOrCached(String functionName, ParserRuleContext ctx) {
 
-	@Override
-	public ST visitForLoop(ForLoopContext ctx) {
-	
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->FOR LOOP\n");
-		
-		openScope();
-		
-		// create template
-		ST forLoop = stg.getInstanceOf("forLoop");
-		
-		// get first assignments and add to forLoop outsideStatements
-		List<String> assignVarNames = new ArrayList<>();
-		for (int i = 0; i < ctx.assignment().size()-1; i++) {
-			ST assign = visit(ctx.assignment(i));
-			forLoop.add("outsideStatements", assign);
-			assignVarNames.add((String) assign.getAttribute("var"));
+		IRFunction function = null;
+		if (incrementalCache != null && incrementalCache.isClean(functionName)) {
+			function = incrementalCache.getCachedFunction(functionName);
+			if(debug && function != null) errors.printInfo(ctx, indent + "-> reusing cached function " + functionName + "\n");
 		}
-		
-		// get logical operation and add to forLoop outsideStatements
-		ST expr = visit(ctx.expression());
-		forLoop.add("outsideStatements", expr);
-		
-		// add logical Operation result to internal if
-		String exprRes = (String) expr.getAttribute("var");
-		forLoop.add("logicalOperation", "!" + exprRes);
-		
-		// get scope and add to stats
-		forLoop.add("content", visit(ctx.scope()));
-		
-		// add last assignment to for loop content
-		ST finalAssign = visit(ctx.assignment(ctx.assignment().size()-1));
-		forLoop.add("content", finalAssign);
-		
-		// add logical operation to for loop content
-		expr = visit(ctx.expression());
-		String lastLogicalName = (String) expr.getAttribute("var");
-		forLoop.add("content", expr);
-		
-		// force logical expression result into last varName
-		forLoop.add("content", exprRes + " = " + lastLogicalName + ";");
-		
+
+		if (function == null) {
+			function = newFunction(ctx);
+			if (incrementalCache != null) {
+				incrementalCache.putGenerated(functionName, function);
+			}
+		}
+		program.functions.add(function);
+	}
+
+	/**
+	 * @param ctx the function context (FunctionMainContext or FunctionIDContext)
+	 * @return the method of the function
+	 */
+	private IRFunction newFunction(ParserRuleContext ctx) {
+
+		// the scope of the function is closed by visitScope
+		symbolTableNames.add(new HashMap<>(symbolTableNames.get(0)));
+
+		if (ctx instanceof FunctionMainContext) {
+			IRFunction main = new IRFunction("public static", "void", "main");
+			main.paramTypes.add("String[]");
+			main.params.add("args");
+			main.body = visit(ctx);
+			return main;
+		}
+
+		FunctionIDContext functionID = (FunctionIDContext) ctx;
+		IRFunction function = new IRFunction("public static", primitive(getTypeDeclaration(functionID.type(0))), functionID.getName());
+
+		// ID(0) and type(0) are the function name and return type, the others are the arguments
+		for (int i = 1; i < functionID.ID().size(); i++) {
+			String var = getNewVarName();
+			String type = getTypeDeclaration(functionID.type(i));
+			newVariable(var, type, mapCtxVar.getUnit(functionID.type(i)));
+			function.paramTypes.add(primitive(type));
+			function.params.add(var);
+			declaredTypes.put(var, primitive(type));
+			symbolTableNamesPut(functionID.ID(i).getText(), var);
+			symbolTableValue.put(var, new Variable(mapCtxVar.get(functionID.type(i))));
+		}
+
+		function.body = visit(functionID);
+		return function;
+	}
+
+	/**
+	 * Orders the methods as the functions are in the file, and names their parameters and locals again in that order
+	 * (after the global variables, that keep their names): the class is the same whether its methods were generated,
+	 * in the order of the first calls, or reused from the incremental cache, named by another compilation
+	 * @param ctx the program
+	 */
+	private void numberLocals(ProgramContext ctx) {
+		List<String> order = new ArrayList<>();
+		for (GlobalStatementContext statement : ctx.globalStatement()) {
+			if (statement instanceof GlobalStatement_FunctionMainContext) {
+				order.add("main");
+			}
+			else if (statement instanceof GlobalStatement_FunctionIDContext) {
+				order.add(((GlobalStatement_FunctionIDContext) statement).functionID().getName());
+			}
+		}
+		program.functions.sort(Comparator.comparingInt(function -> order.indexOf(function.name)));
+
+		// the global variables are named first (var0, var1, ...), the locals after the last one
+		varCounter = 0;
+		for (IRInstruction global : program.globals) {
+			if (global instanceof Assign) {
+				varCounter = Math.max(varCounter, Integer.parseInt(((Assign) global).target.substring("var".length())) + 1);
+			}
+		}
+		for (IRFunction function : program.functions) {
+			renameLocals(function);
+		}
+	}
+
+	/**
+	 * Adds, for each type of the lists sorted, the method that gives the conversion factor to the unit of the type of
+	 * a unit, by symbol (factorOf_type), from a table of the factors built with the class: the methods are made for
+	 * the sorts of the methods generated and of the ones reused from the incremental cache
+	 */
+	private void addFactorMethods() {
+		Set<String> types = new TreeSet<>();
+		for (List<IRInstruction> block : program.allBlocks()) {
+			for (IRInstruction instruction : block) {
+				for (IRExpression expression : instruction.expressions()) {
+					if (expression == null) {
+						continue;
+					}
+					expression.forEach(e -> {
+						if (e instanceof Call && ((Call) e).target == null && ((Call) e).method.startsWith(FACTOR_OF)) {
+							types.add(((Call) e).method.substring(FACTOR_OF.length()));
+						}
+					});
+				}
+			}
+		}
+
+		int globals = 0;
+		for (String type : types) {
+
+			// the table of the factors, a static field
+			IRFunction table = new IRFunction("private static", "Map<String, Double>", "factorsOf_" + type);
+			Name factors = new Name(getNewVarName());
+			table.body.add(local("Map<String, Double>", factors.name, new New("HashMap<>", args())));
+			Map<String, Double> factorsBySymbol = getFactorsBySymbol(type, new ArrayList<>());
+			for (String symbol : factorsBySymbol.keySet()) {
+				table.body.add(new Eval(new Call(factors, "put", args(new Literal("\"" + symbol + "\""), literal(factorsBySymbol.get(symbol))))));
+			}
+			table.body.add(new Return(factors));
+			String field = getNewVarName();
+			Assign tableField = local("Map<String, Double>", field, new Call(null, table.name, args()));
+			tableField.modifiers = "static";
+			program.globals.add(globals++, tableField);
+
+			// the factor of a unit, the checker only lets the lists hold the units of the table
+			IRFunction factorOf = new IRFunction("private static", "double", FACTOR_OF + type);
+			Name symbol = new Name(getNewVarName());
+			Name factor = new Name(getNewVarName());
+			factorOf.paramTypes.add("String");
+			factorOf.params.add(symbol.name);
+			factorOf.body.add(local("Double", factor.name, new Call(new Name(field), "get", args(symbol))));
+			If unknown = new If();
+			IRExpression message = new Binary("+", new Binary("+", new Literal("\"Sort: \""), symbol), new Literal("\" is not a unit of " + type + "\""));
+			unknown.conditions.add(new Binary("==", factor, new Literal("null")));
+			unknown.branches.add(new ArrayList<>(Arrays.asList(new Throw(new New("IllegalStateException", args(message))))));
+			factorOf.body.add(unknown);
+			factorOf.body.add(new Return(factor));
+
+			program.functions.add(table);
+			program.functions.add(factorOf);
+		}
+	}
+
+	/**
+	 * Gives the next names to the parameters (not the arguments of main) and locals of the function
+	 * @param function
+	 */
+	private void renameLocals(IRFunction function) {
+		Map<String, String> names = new HashMap<>();
+		for (int i = 0; i < function.params.size() && !function.isMain(); i++) {
+			names.put(function.params.get(i), getNewVarName());
+			function.params.set(i, names.get(function.params.get(i)));
+		}
+		// the assignments of the loop headers are not in the blocks (their expressions are the ones of the loop)
+		List<IRInstruction> instructions = new ArrayList<>();
+		List<IRInstruction> assignments = new ArrayList<>();
+		for (List<IRInstruction> block : IRProgram.nestedBlocks(Arrays.asList(function.body))) {
+			for (IRInstruction instruction : block) {
+				instructions.add(instruction);
+				assignments.add(instruction);
+				if (instruction instanceof Loop) {
+					assignments.add(((Loop) instruction).init);
+					assignments.add(((Loop) instruction).update);
+				}
+			}
+		}
+		for (IRInstruction instruction : assignments) {
+			if (instruction instanceof Assign && ((Assign) instruction).isDeclaration()) {
+				names.put(((Assign) instruction).target, getNewVarName());
+			}
+		}
+		for (IRInstruction instruction : assignments) {
+			if (instruction instanceof Assign && names.containsKey(((Assign) instruction).target)) {
+				((Assign) instruction).target = names.get(((Assign) instruction).target);
+			}
+		}
+		for (IRInstruction instruction : instructions) {
+			instruction.mapExpressions(e -> e == null ? null : e.transform(node -> node instanceof Name && names.containsKey(((Name) node).name)
+					? new Name(names.get(((Name) node).name)) : node));
+		}
+	}
+
+	// --------------------------------------------------------------------------------------------------------------------
+	// CONTROL FLOW STATMENTS----------------------------------------------------------------------------------------------
+	// --------------------------------------------------------------------------------------------------------------------
+
+	@Override
+	public List<IRInstruction> visitControlFlowStatement(ControlFlowStatementContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->CONTROL FLOW STATEMENT\n");
 		if(debug) ci();
-		
+		return visitChildren(ctx);
+	}
+
+	@Override
+	public List<IRInstruction> visitForLoop(ForLoopContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->FOR LOOP\n");
+
+		openScope();
+
+		// get first assignments (they are executed once, so they are compiled before the loop is entered)
+		List<IRInstruction> forLoop = new ArrayList<>();
+		for (int i = 0; i < ctx.assignment().size()-1; i++) {
+			forLoop.addAll(visit(ctx.assignment(i)));
+		}
+
+		// the condition is computed before the loop and again at the end of every iteration
+		List<IRInstruction> expr = visit(ctx.expression());
+		forLoop.addAll(expr);
+
+		// the scope has its own variables, the last assignment sees the ones of the first assignments
+		openScope();
+		List<IRInstruction> content = visit(ctx.scope());
+		content.addAll(visit(ctx.assignment(ctx.assignment().size()-1)));
+		List<IRInstruction> exprNewVisit = visit(ctx.expression());
+		content.addAll(exprNewVisit);
+		content.add(assign(null, var(expr), ref(exprNewVisit)));
+		closeScope();
+
+		forLoop.add(new Loop(ref(expr), null, content));
+
+		if(debug) ci();
+
 		return forLoop;
 	}
 
 	@Override
-	public ST visitWhileLoop(WhileLoopContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->WHILE LOOP\n");
-		
+	public List<IRInstruction> visitWhileLoop(WhileLoopContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->WHILE LOOP\n");
+
 		openScope();
 
-		// get expression info
-		ST expr = visit(ctx.expression());
-		String logicalOperation = (String) expr.getAttribute("var");
-		
-		// create template
-		ST whileLoop = stg.getInstanceOf("whileLoop");
-		
-		whileLoop.add("previousStatements", "\n//starting while template\n");
-		
-		whileLoop.add("previousStatements", expr);
-		whileLoop.add("logicalOperation", logicalOperation);
-		whileLoop.add("content", visit(ctx.scope()));
-		ST exprNewVisit = visit(ctx.expression());
-		String logicalOperationInside = (String) exprNewVisit.getAttribute("var");
-		whileLoop.add("content", exprNewVisit);
-		whileLoop.add("content", logicalOperation + " = " + logicalOperationInside + ";");
+		// the condition is computed before the loop and again at the end of every iteration
+		List<IRInstruction> whileLoop = visit(ctx.expression());
+		List<IRInstruction> content = visit(ctx.scope());
+		List<IRInstruction> exprNewVisit = visit(ctx.expression());
+		content.addAll(exprNewVisit);
+		content.add(assign(null, var(whileLoop), ref(exprNewVisit)));
+
+		whileLoop.add(new Loop(ref(whileLoop), null, content));
 
-		
 		if(debug) ci();
-				
+
 		return whileLoop;
 	}
-	
+
 	@Override
-	public ST visitCondition(ConditionContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->CONDITIONS\n");
-		
-		// create template
-		ST stats = stg.getInstanceOf("stats");
-		
+	public List<IRInstruction> visitCondition(ConditionContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->CONDITIONS\n");
+
 		// add if condition
-		ST ifCond = visit(ctx.ifCondition());
-		stats.add("stat", ifCond);
-		
-		// add else if conditions
+		List<IRInstruction> condition = visit(ctx.ifCondition());
+
+		// add else if conditions (each one is tested after the ones before, as an if of its own)
 		for (ElseIfConditionContext elseif : ctx.elseIfCondition()) {
-			stats.add("stat", visit(elseif));
+			condition.addAll(visit(elseif));
 		}
-		
-		// add else condition
+
+		// add else condition, the branch of the last if
 		if (ctx.elseCondition() != null) {
-			stats.add("stat", visit(ctx.elseCondition()));
+			If lastCondition = (If) condition.get(condition.size()-1);
+			lastCondition.conditions.add(null);
+			lastCondition.branches.add(visit(ctx.elseCondition()));
 		}
-		
+
 		if(debug) ci();
-				
-		return stats;
+
+		return condition;
 	}
-	
-	@Override 
-	public ST visitIfCondition(IfConditionContext ctx) { 
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->IF CONDITION");
-		
+
+	@Override
+	public List<IRInstruction> visitIfCondition(IfConditionContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->IF CONDITION");
+
 		openScope();
 
-		// get expression info
-		ST expr = visit(ctx.expression());
-		String logicalOperation = (String) expr.getAttribute("var");
-		
-		// create template
-		ST ifCondition = stg.getInstanceOf("ifCondition");
-		ifCondition.add("previousStatements", expr);
-		ifCondition.add("logicalOperation", logicalOperation);
-		ifCondition.add("scope", visit(ctx.scope()));
-		
+		List<IRInstruction> ifCondition = ifCondition(ctx.expression(), ctx.scope());
+
 		if(debug) ci();
-			
+
 		return ifCondition;
 	}
 
-	@Override 
-	public ST visitElseIfCondition(ElseIfConditionContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->ELSE IF CONDITION\n");
-		
+	@Override
+	public List<IRInstruction> visitElseIfCondition(ElseIfConditionContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->ELSE IF CONDITION\n");
+
 		openScope();
-		
-		// get expression info
-		ST expr = visit(ctx.expression());
-		String logicalOperation = (String) expr.getAttribute("var");
-		
-		// create template
-		ST elseIfCondition = stg.getInstanceOf("ifCondition");
-		elseIfCondition.add("previousStatements", expr);
-		elseIfCondition.add("logicalOperation", logicalOperation);
-		elseIfCondition.add("scope", visit(ctx.scope()));
-		
+
+		List<IRInstruction> elseIfCondition = ifCondition(ctx.expression(), ctx.scope());
+
 		if(debug) ci();
-			
+
 		return elseIfCondition;
 	}
 
-	@Override 
-	public ST visitElseCondition(ElseConditionContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->ELSE CONDITION\n");
-		
+	@Override
+	public List<IRInstruction> visitElseCondition(ElseConditionContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->ELSE CONDITION\n");
+
 		openScope();
-		
-		// create template
-		ST elseCondition = stg.getInstanceOf("elseCondition");
-		elseCondition.add("scope", visit(ctx.scope()));
-		
+
+		List<IRInstruction> scope = visit(ctx.scope());
+
 		if(debug) ci();
-		
-		return elseCondition;
+
+		return scope;
 	}
-	
+
+	/**
+	 * @return the statements of the condition followed by the if
+	 */
+	private List<IRInstruction> ifCondition(ExpressionContext expression, ScopeContext scope) {
+		List<IRInstruction> statements = visit(expression);
+		If ifCondition = new If();
+		ifCondition.conditions.add(ref(statements));
+		ifCondition.branches.add(visit(scope));
+		statements.add(ifCondition);
+		return statements;
+	}
+
 	@Override
-	public ST visitScope(ScopeContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->SCOPE\n");
-		
+	public List<IRInstruction> visitScope(ScopeContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->SCOPE\n");
+
 		// Visit all statement rules
-		ST scopeContent = stg.getInstanceOf("stats");
+		List<IRInstruction> scopeContent = new ArrayList<>();
 		for (StatementContext stat : ctx.statement()) {
-			scopeContent.add("stat", visit(stat));
+			scopeContent.addAll(visit(stat));
 		}
-		
+
 		if (ctx.functionReturn() != null) {
-			scopeContent.add("stat", visit(ctx.functionReturn()));
+			scopeContent.addAll(visit(ctx.functionReturn()));
 		}
-		
+
 		closeScope();
-		
+
 		if(debug) ci();
-		
+
 		return scopeContent;
 	}
 
 	// --------------------------------------------------------------------------------------------------------------------
 	// EXPRESSIONS----------------------------------------------------------------------------------------------
-	// --------------------------------------------------------------------------------------------------------------------	
-	
+	// --------------------------------------------------------------------------------------------------------------------
+
 	@Override
-	public ST visitExpression_Parenthesis(Expression_ParenthesisContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - PARENTHESIS\n");
-		
-		// get expression info
-		ST expr = visit(ctx.expression());
-		String exprName = (String) expr.getAttribute("var");
-		String type = (String) expr.getAttribute("type");
-		String operation = exprName;
-		
-		// create template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST(type, newName);
-		newVariable.add("previousStatements", expr);
-		newVariable.add("operation", operation);
-		
+	public List<IRInstruction> visitExpression_Parenthesis(Expression_ParenthesisContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - PARENTHESIS\n");
+
+		// the temporary of the expression holds the value
+		List<IRInstruction> expr = visit(ctx.expression());
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> expr type = " + mapCtxVar.get(ctx.expression()).getVarType() + "\n");
+			errors.printInfo(ctx,indent + "-> expr type = " + mapCtxVar.get(ctx.expression()).getVarType() + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return expr;
 	}
 
 	@Override
-	public ST visitExpression_LISTINDEX(Expression_LISTINDEXContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - LIST INDEX\n");
-		
+	public List<IRInstruction> visitExpression_LISTINDEX(Expression_LISTINDEXContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - LIST INDEX\n");
+
 		// get expression info
-		ST expr0 = visit(ctx.expression(0));
-		ST expr1 = visit(ctx.expression(1));
-		String expr0Name = (String) expr0.getAttribute("var");
-		String expr1Name = (String) expr1.getAttribute("var");
+		List<IRInstruction> expr0 = visit(ctx.expression(0));
+		List<IRInstruction> expr1 = visit(ctx.expression(1));
 		String type = getListValueDeclaration(((ListVar) mapCtxVar.get(ctx.expression(0)).getValue()).getType());
-		String operation = expr0Name + ".get(" + expr1Name + ".intValue()" + ")";
+		IRExpression operation = new Call(ref(expr0), "get", args(new Cast("int", ref(expr1))));
 		if (type.equals("Double")) {
-			operation = "Double.parseDouble(" + operation + ".split(\" \")[0]" + ")";
+			operation = parseNumber(operation);
 		}
-		
-		// create template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST(type, newName);
-		newVariable.add("previousStatements", expr0);
-		newVariable.add("previousStatements", expr1);
-		newVariable.add("operation", operation);
-		
+
 		if(debug) ci();
-		
-		return newVariable;
+
+		return temporary(ctx, type, operation, expr0, expr1);
 	}
 
 	@Override
-	public ST visitExpression_ISEMPTY(Expression_ISEMPTYContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - ES EMPTY");
-		
+	public List<IRInstruction> visitExpression_ISEMPTY(Expression_ISEMPTYContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - ES EMPTY");
+
 		// get expression info
-		ST expr = visit(ctx.expression());
-		String exprName = (String) expr.getAttribute("var");
-		String type = "Boolean";
-		String operation = exprName + ".isEmpty()";
-		
-		// create template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST(type, newName);
-		newVariable.add("previousStatements", expr);
-		newVariable.add("operation", operation);
-		
+		List<IRInstruction> expr = visit(ctx.expression());
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> expr type = " + mapCtxVar.get(ctx).getVarType().toString() + "\n");
+			errors.printInfo(ctx,indent + "-> expr type = " + mapCtxVar.get(ctx).getVarType().toString() + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return temporary(ctx, "Boolean", new Call(ref(expr), "isEmpty", args()), expr);
 	}
 
 	@Override
-	public ST visitExpression_SIZE(Expression_SIZEContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - SIZE");
-		
+	public List<IRInstruction> visitExpression_SIZE(Expression_SIZEContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - SIZE");
+
 		// get expression info
-		ST expr = visit(ctx.expression());
-		String exprName = (String) expr.getAttribute("var");
-		String type = "";
-		String operation = "";
-		
+		List<IRInstruction> expr = visit(ctx.expression());
+		IRExpression operation = null;
+
 		// expression is string
 		if (typeIsString(expr)) {
-			
-			type = "String";
-			operation = exprName + ".length()";
+			operation = new Call(ref(expr), "length", args());
 		}
-		
-		// expression is list
-		else if (typeIsList(expr)) {
-			
-			type = "Double";
-			operation = "(double)" + exprName + ".size()";
-		}
-		
-		// expression is dict
-		else if (typeIsMap(expr)) {
-			
-			DictVar dict = ((DictVar) mapCtxVar.get(ctx.expression()).getValue());
-			String dictKeyType = getDictKeyDeclaration(dict.getKeyType());
-			String dictValueType = getDictValueDeclaration(dict.getValueType());
-			type = getDictDeclaration(dictKeyType, dictValueType);
-			operation = exprName + ".size()";
+
+		// expression is list or dict
+		else {
+			operation = new Call(ref(expr), "size", args());
 		}
-		
-		// create template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST(type, newName);
-		newVariable.add("previousStatements", expr);
-		newVariable.add("operation", operation);
 
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> expr type = " + mapCtxVar.get(ctx).getVarType().toString() + "\n");
+			errors.printInfo(ctx,indent + "-> expr type = " + mapCtxVar.get(ctx).getVarType().toString() + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return temporary(ctx, "Double", new Cast("double", operation), expr);
 	}
-	
+
 	@Override
-	public ST visitExpression_SORT(Expression_SORTContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - SORT");
-		
+	public List<IRInstruction> visitExpression_SORT(Expression_SORTContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - SORT");
+
 		// get expression info
-		ST expr = visit(ctx.expression());
-		String exprName = (String) expr.getAttribute("var");
-		String type = "";
-		String operation = "";
-		String previousStatements = "";
-		
-		// create template
-		String newName = getNewVarName();
-		ST newVariable = stg.getInstanceOf("varAssignment");
-		
-		// expression is list
+		List<IRInstruction> expr = visit(ctx.expression());
+		Name exprName = ref(expr);
+		List<IRInstruction> sort = new ArrayList<>(expr);
+
+		// expression is list -> sorted at runtime, in place
 		if (typeIsList(expr)) {
-			
-			List<Variable> preList 	= ((ListVar) mapCtxListDict.get(ctx).getValue()).getList();
-			List<Variable> list 	= ((ListVar) mapCtxVar.get(ctx).getValue()).getList();
-			
-			newVariable = stg.getInstanceOf("varAssignment");
-			newVariable.add("previousStatements", expr);
-			newVariable.add("previousStatements", expr.getAttribute("type") + newName + " = new ArrayList<>();");
-			for (int i = 0; i < list.size(); i++) {
-				int index = preList.indexOf(list.get(i));
-				newVariable.add("previousStatements", newName + ".add(" + exprName + ".get(" + index + "));");
+
+			ListVar listVar = (ListVar) mapCtxVar.get(ctx.expression()).getValue();
+
+			// numeric lists hold "value symbol" strings: the values are sorted as doubles, in the unit of the list
+			if (unitsFile.exists(listVar.getType())) {
+
+				// the key of each element, its value in the unit of the list
+				Name keys = new Name(getNewVarName());
+				Name index = new Name(getNewVarName());
+				Name element = new Name(getNewVarName());
+				Name space = new Name(getNewVarName());
+				Name symbol = new Name(getNewVarName());
+				sort.add(local("double[]", keys.name, new NewArray("double", new Call(exprName, "size", args()))));
+				List<IRInstruction> keysLoop = new ArrayList<>();
+				keysLoop.add(local("String", element.name, new Call(exprName, "get", args(index))));
+				keysLoop.add(local("int", space.name, new Call(element, "indexOf", args(new Literal("' '")))));
+				keysLoop.add(local("String", symbol.name, new Call(element, "substring", args(new Binary("+", space, new Literal("1"))))));
+
+				// the factors of the units of the file are shared by the sorts of the lists of the type, the units only
+				// known from the elements (not defined in the file) are checked here
+				IRExpression factor = new Call(null, FACTOR_OF + listVar.getType(), args(symbol));
+				Set<String> shared = getFactorsBySymbol(listVar.getType(), new ArrayList<>()).keySet();
+				Map<String, Double> factorsBySymbol = getFactorsBySymbol(listVar.getType(), ((ListVar) mapCtxListDict.get(ctx).getValue()).getList());
+				for (String unitSymbol : factorsBySymbol.keySet()) {
+					if (!shared.contains(unitSymbol)) {
+						IRExpression isUnit = new Call(symbol, "equals", args(new Literal("\"" + unitSymbol + "\"")));
+						factor = new Conditional(isUnit, literal(factorsBySymbol.get(unitSymbol)), factor);
+					}
+				}
+
+				IRExpression value = new Call(new Name("Double"), "parseDouble", args(new Call(element, "substring", args(new Literal("0"), space))));
+				keysLoop.add(new Store(keys, index, new Binary("*", value, factor)));
+				sort.add(countedLoop(index.name, new Field(keys, "length"), keysLoop));
+
+				// the keys sorted, and the first position of the equal keys of each position
+				Name sorted = new Name(getNewVarName());
+				Name starts = new Name(getNewVarName());
+				Name position = new Name(getNewVarName());
+				sort.add(local("double[]", sorted.name, new Call(keys, "clone", args())));
+				sort.add(new Eval(new Call(new Name("Arrays"), "sort", args(sorted))));
+				sort.add(local("int[]", starts.name, new NewArray("int", new Field(sorted, "length"))));
+				IRExpression previous = new Binary("-", position, new Literal("1"));
+				IRExpression sameKey = new Binary("&&", new Binary(">", position, new Literal("0")),
+						new Binary("==", new Call(new Name("Double"), "compare", args(new Index(sorted, previous), new Index(sorted, position))), new Literal("0")));
+				List<IRInstruction> startsLoop = new ArrayList<>();
+				startsLoop.add(new Store(starts, position, new Conditional(sameKey, new Index(starts, previous), position)));
+				sort.add(countedLoop(position.name, new Field(sorted, "length"), startsLoop));
+
+				// each element goes after the elements with the same key before it in the list (the sort is stable)
+				Name placed = new Name(getNewVarName());
+				Name elements = new Name(getNewVarName());
+				Name next = new Name(getNewVarName());
+				Name start = new Name(getNewVarName());
+				sort.add(local("int[]", placed.name, new NewArray("int", new Field(keys, "length"))));
+				sort.add(local("String[]", elements.name, new NewArray("String", new Field(keys, "length"))));
+				List<IRInstruction> placeLoop = new ArrayList<>();
+				IRExpression search = new Call(new Name("Arrays"), "binarySearch", args(sorted, new Index(keys, next)));
+				placeLoop.add(local("int", start.name, new Index(starts, search)));
+				placeLoop.add(new Store(elements, new Binary("+", start, new Index(placed, start)), new Call(exprName, "get", args(next))));
+				placeLoop.add(new Store(placed, start, new Binary("+", new Index(placed, start), new Literal("1"))));
+				sort.add(countedLoop(next.name, new Field(keys, "length"), placeLoop));
+
+				// the list is filled again in the order of the keys
+				Name filled = new Name(getNewVarName());
+				sort.add(new Eval(new Call(exprName, "clear", args())));
+				List<IRInstruction> fillLoop = new ArrayList<>();
+				fillLoop.add(new Eval(new Call(exprName, "add", args(new Index(elements, filled)))));
+				sort.add(countedLoop(filled.name, new Field(elements, "length"), fillLoop));
 			}
-			
-			newVariable.add("var", symbolTableNamesGet(exprName));
-			newVariable.add("operation", newName);
+			else {
+				sort.add(new Eval(new Call(new Name("Collections"), "sort", args(exprName))));
+			}
+
+			sort = temporary(ctx, type(expr), exprName, sort);
 		}
-		
+
 		// expression is string
 		else if (typeIsString(expr)) {
-			
-			type = "String";
-			previousStatements = "char[] chars = " + exprName + ".toCharArray();\nArrays.sort(chars)";
-			operation = "new String(chars)";
-			newVariable.add("previousStatements", expr);
-			newVariable.add("previousStatements", previousStatements);
-			newVariable.add("type",  type);
-			newVariable.add("var", newName);
-			newVariable.add("operation", operation);
+
+			Name chars = new Name(getNewVarName());
+			sort.add(local("char[]", chars.name, new Call(exprName, "toCharArray", args())));
+			sort.add(new Eval(new Call(new Name("Arrays"), "sort", args(chars))));
+			sort = temporary(ctx, "String", new New("String", args(chars)), sort);
 		}
-		
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> expr type = " + mapCtxVar.get(ctx).getVarType().toString() + "\n");
+			errors.printInfo(ctx,indent + "-> expr type = " + mapCtxVar.get(ctx).getVarType().toString() + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return sort;
 	}
-	
+
 	@Override
-	public ST visitExpression_KEYS(Expression_KEYSContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - KEYS\n");
-		
+	public List<IRInstruction> visitExpression_KEYS(Expression_KEYSContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - KEYS\n");
+
 		// get expression info
-		ST expr = visit(ctx.expression());
-		String exprName = (String) expr.getAttribute("var");
+		List<IRInstruction> expr = visit(ctx.expression());
 		DictVar dict = ((DictVar) mapCtxVar.get(ctx.expression()).getValue());
 		String dictKeyType = getDictKeyDeclaration(dict.getKeyType());
 		String type = getListDeclaration(dictKeyType);
-		String operation = exprName + ".keys()";
-		
-		// create template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST(type, newName);
-		newVariable.add("previousStatements", expr);
-		newVariable.add("operation", operation);
-		
+
 		if(debug) ci();
-				
-		return newVariable;
+
+		return temporary(ctx, type, new Call(ref(expr), "keys", args()), expr);
 	}
 
 	@Override
-	public ST visitExpression_VALUES(Expression_VALUESContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION VALUES\n");
-		
+	public List<IRInstruction> visitExpression_VALUES(Expression_VALUESContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION VALUES\n");
+
 		// get expression info
-		ST expr = visit(ctx.expression());
-		String exprName = (String) expr.getAttribute("var");
+		List<IRInstruction> expr = visit(ctx.expression());
 		DictVar dict = ((DictVar) mapCtxVar.get(ctx.expression()).getValue());
 		String dictValueType = getDictValueDeclaration(dict.getValueType());
 		String type = getListDeclaration(dictValueType);
-		String operation = exprName + ".values()";
-		
-		// create template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST(type, newName);
-		newVariable.add("previousStatements", expr);
-		newVariable.add("operation", operation);
-		
+
 		if(debug) ci();
-		
-		return newVariable;
+
+		return temporary(ctx, type, new Call(ref(expr), "values", args()), expr);
 	}
-	
+
 	@Override
-	public ST visitExpression_Cast(Expression_CastContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION CAST");
-		
+	public List<IRInstruction> visitExpression_Cast(Expression_CastContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION CAST");
+
 		// get cast info
-		String castType = ctx.cast().id.getText();
-		ST expr = visit(ctx.expression());
-		String exprName = (String) expr.getAttribute("var");
-		String type = "Double";
-		String operation = "";
-		
+		String castType = ctx.cast().getName();
+		List<IRInstruction> expr = visit(ctx.expression());
+
 		// calculation to create operation
 		Variable exprVar = new Variable(mapCtxVar.get(ctx.expression())); // deep copy
-		Unit castUnit = Units.instanceOf(castType); // deep copy
+		Unit castUnit = unitsFile.instanceOf(castType); // deep copy
 		double factor = exprVar.convertUnitTo(castUnit);
-		
-		operation = exprName + " * " + factor;
-		
-		// create template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST(type, newName);
-		newVariable.add("previousStatements", expr);
-		newVariable.add("operation", operation);
-		
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> cast type = " + castType + "\n");
+			errors.printInfo(ctx,indent + "-> cast type = " + castType + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return temporary(ctx, "Double", scale(ref(expr), factor), expr);
 	}
-	
+
 	@Override
-	public ST visitExpression_UnaryOperators(Expression_UnaryOperatorsContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION UNARY OPERATORS");
-		
+	public List<IRInstruction> visitExpression_UnaryOperators(Expression_UnaryOperatorsContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION UNARY OPERATORS");
+
 		// get expressions info
-		ST expr = visit(ctx.expression());
-		String exprName = (String) expr.getAttribute("var");
-		String type = (String) expr.getAttribute("type");
-		String op = ctx.op.getText();
-		String operation = op + exprName;
-		
-		// create ST
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST(type, newName);
-		newVariable.add("previousStatements", expr);
-		newVariable.add("operation", operation);
-		
+		List<IRInstruction> expr = visit(ctx.expression());
+		Operator op = ctx.getOperator();
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> expr type = " + mapCtxVar.get(ctx).getVarType().toString());
-			ErrorHandling.printInfo(ctx,indent + "-> op = " + op + "\n");
+			errors.printInfo(ctx,indent + "-> expr type = " + mapCtxVar.get(ctx).getVarType().toString());
+			errors.printInfo(ctx,indent + "-> op = " + op + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return temporary(ctx, type(expr), new Unary(op.getSymbol(), ref(expr)), expr);
 	}
-	
+
 	@Override
-	public ST visitExpression_Power(Expression_PowerContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - POWER");
-		
+	public List<IRInstruction> visitExpression_Power(Expression_PowerContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - POWER");
+
 		// get expressions info
-		ST expr0 = visit(ctx.expression(0));
-		ST expr1 = visit(ctx.expression(1));
-		String expr0Name = (String) expr0.getAttribute("var");
-		String expr1Name = (String) expr1.getAttribute("var");
-		String operation = "Math.pow(" + expr0Name + ", " + expr1Name + ")";
-		String type = "Double";
-		
-		// create ST
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST(type, newName);
-		newVariable.add("previousStatements", expr0);
-		newVariable.add("previousStatements", expr1);
-		newVariable.add("operation", operation);
-		
+		List<IRInstruction> expr0 = visit(ctx.expression(0));
+		List<IRInstruction> expr1 = visit(ctx.expression(1));
+
+		// the factor depends only on the units and on the exponent, see Variable.power: the checker only accepts
+		// values with units to a constant exponent, the powers of numbers have no factor
+		Unit unit = mapCtxVar.get(ctx.expression(0)).getUnit();
+		Double exponent = PotatoesSemanticCheck.constantNumber(ctx.expression(1));
+		double factor = 1.0;
+		if (exponent != null) {
+			Variable unit0 = new Variable(unit, varType.NUMERIC, 1.0);
+			factor = (double) Variable.power(unit0, new Variable(unitsFile.instanceOf("number"), varType.NUMERIC, exponent)).getValue();
+		}
+		else if (!unit.equals(unitsFile.instanceOf("number"))) {
+			throw new IllegalStateException("Power: the exponent of " + unit + " is not a constant");
+		}
+
+		// small integer exponents known at compile time are computed by multiplications (see ExpandPowers)
+		IRExpression operation = new Call(new Name("Math"), "pow", args(ref(expr0), exponent == null ? ref(expr1) : literal(exponent)));
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> expr type = " + mapCtxVar.get(ctx).getVarType().toString() + "\n");
+			errors.printInfo(ctx,indent + "-> expr type = " + mapCtxVar.get(ctx).getVarType().toString() + "\n");
 			ci();
 		}
-		
-		return newVariable;	
+
+		return temporary(ctx, "Double", scale(operation, factor), expr0, expr1);
 	}
-	
+
 	@Override
-	public ST visitExpression_Mult_Div_Mod(Expression_Mult_Div_ModContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - MULT DIV MOD");
-		
+	public List<IRInstruction> visitExpression_Mult_Div_Mod(Expression_Mult_Div_ModContext ctx) {
+		return visitLeftDeepChain(ctx, (c, expr0, expr1) -> compileExpression_Mult_Div_Mod((Expression_Mult_Div_ModContext) c, expr0, expr1));
+	}
+
+	/**
+	 * compiles one operation of a chain, given the statements of both operands
+	 */
+	private List<IRInstruction> compileExpression_Mult_Div_Mod(Expression_Mult_Div_ModContext ctx, List<IRInstruction> expr0, List<IRInstruction> expr1) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - MULT DIV MOD");
+
 		// get expressions info
-		ST expr0 = visit(ctx.expression(0));
-		ST expr1 = visit(ctx.expression(1));
-		String expr0Name = (String) expr0.getAttribute("var");
-		String expr1Name = (String) expr1.getAttribute("var");
-		String op = ctx.op.getText();
-		String operation = "";
+		Operator op = ctx.getOperator();
+		IRExpression operation = null;
 		String type = "";
-		
+
 		Variable expr0Var = new Variable(mapCtxVar.get(ctx.expression(0)));
-		expr0Var = new Variable(expr0Var);
 		Variable expr1Var = new Variable(mapCtxVar.get(ctx.expression(1)));
-		expr1Var = new Variable(expr1Var);
-		
+
 		// if both operand are numeric
 		if (typeIsDouble(expr0) && typeIsDouble(expr1)) {
-			
+
 			type = "Double";
-			
-			if (op.equals("*")) {
-				Double simpleMult = (double) expr0Var.getValue() * (double) expr1Var.getValue();
-				Variable res = Variable.multiply(expr0Var, expr1Var);
-				
-				double codeSimplificationFactor = (double) res.getValue() / simpleMult;
-				operation = expr0Name + " " + op + " " + expr1Name + " " + op + " " + codeSimplificationFactor;
-			}
-			
-			else if (op.equals("/")) {
-				
-				Double simpleDiv = (double) expr0Var.getValue() / (double) expr1Var.getValue();
-				Variable res = Variable.divide(expr0Var, expr1Var);
-				
-				double codeSimplificationFactor = (double) res.getValue() / simpleDiv;
-				operation = expr0Name + " " + op + " " + expr1Name + " " + " * " + " " + codeSimplificationFactor;
+			operation = new Binary(op.getSymbol(), ref(expr0), ref(expr1));
+
+			// the factor depends only on the units, operating on unit values avoids dividing by the operand values
+			Variable unit0 = new Variable(expr0Var.getUnit(), varType.NUMERIC, 1.0);
+			Variable unit1 = new Variable(expr1Var.getUnit(), varType.NUMERIC, 1.0);
+
+			if (op == Operator.MULTIPLY) {
+				double codeSimplificationFactor = (double) Variable.multiply(unit0, unit1).getValue();
+				operation = scale(operation, codeSimplificationFactor);
 			}
-			
-			else if (op.equals("%")) {
-				
-				operation = expr0Name + " " + op + " " + expr1Name;
+
+			else if (op == Operator.DIVIDE) {
+				double codeSimplificationFactor = (double) Variable.divide(unit0, unit1).getValue();
+				operation = scale(operation, codeSimplificationFactor);
 			}
 		}
-		
+
 		// one of the expressions is string -> expanded concatenation
 		else {
-			
+
 			type = "String";
-			
+
 			if (typeIsString(expr0)) {
-				
-				operation = expr0Name;
+
+				operation = ref(expr0);
 				double mult = (double) new Variable(mapCtxVar.get(ctx.expression(1))).getValue();
 				for (int i = 1; i < mult ; i++) {
-					operation += " + " + expr0Name;
-				}				
+					operation = new Binary("+", operation, ref(expr0));
+				}
 			}
-			
+
 			if (typeIsString(expr1)) {
-				
-				operation = expr1Name;
+
+				operation = ref(expr1);
 				double mult = (double) new Variable(mapCtxVar.get(ctx.expression(0))).getValue();
 				for (int i = 1; i < mult ; i++) {
-					operation += " + " + expr1Name;
-				}				
+					operation = new Binary("+", operation, ref(expr1));
+				}
 			}
 		}
-		
-		// create ST
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST(type, newName);
-		newVariable.add("previousStatements", expr0);
-		newVariable.add("previousStatements", expr1);
-		newVariable.add("operation", operation);
-		
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> op = " + op);
-			ErrorHandling.printInfo(ctx,indent + "-> expr0 type = " + expr0Var.getVarType().toString());
-			ErrorHandling.printInfo(ctx,indent + "-> expr1 type = " + expr1Var.getVarType().toString() + "\n");
+			errors.printInfo(ctx,indent + "-> op = " + op);
+			errors.printInfo(ctx,indent + "-> expr0 type = " + expr0Var.getVarType().toString());
+			errors.printInfo(ctx,indent + "-> expr1 type = " + expr1Var.getVarType().toString() + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return temporary(ctx, type, operation, expr0, expr1);
 	}
 
 	@Override
-	public ST visitExpression_Add_Sub(Expression_Add_SubContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - ADD SUB");
-		
+	public List<IRInstruction> visitExpression_Add_Sub(Expression_Add_SubContext ctx) {
+		return visitLeftDeepChain(ctx, (c, expr0, expr1) -> compileExpression_Add_Sub((Expression_Add_SubContext) c, expr0, expr1));
+	}
+
+	/**
+	 * compiles one operation of a chain, given the statements of both operands
+	 */
+	private List<IRInstruction> compileExpression_Add_Sub(Expression_Add_SubContext ctx, List<IRInstruction> expr0, List<IRInstruction> expr1) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - ADD SUB");
+
 		// get expressions info
-		ST expr0 = visit(ctx.expression(0));
-		ST expr1 = visit(ctx.expression(1));
-		String expr0Name = (String) expr0.getAttribute("var");
-		String expr1Name = (String) expr1.getAttribute("var");
-		String op = ctx.op.getText();
-		String operation = "";
+		Operator op = ctx.getOperator();
+		IRExpression operation = null;
 		String type = "";
-		
+
 		Variable expr0Var = new Variable(mapCtxVar.get(ctx.expression(0))); // deep copy
 		Variable expr1Var = new Variable(mapCtxVar.get(ctx.expression(1))); // deep copy
-		
-		// create ST 
-		String newName = getNewVarName();
-		ST newVariable = stg.getInstanceOf("varAssignment"); 
 
-		newVariable.add("previousStatements", expr0);
-		newVariable.add("previousStatements", expr1);
-		
 		// both expressions are numeric
 		if (typeIsDouble(expr0) && typeIsDouble(expr1)) {
-			
+
 			type = "Double";
-			String factor = " * " + expr1Var.convertUnitTo(expr0Var.getUnit());
-			operation = expr0Name + " " + op + " " + expr1Name + factor;
+			double factor = expr1Var.convertUnitTo(expr0Var.getUnit());
+			operation = new Binary(op.getSymbol(), ref(expr0), scale(ref(expr1), factor));
 		}
-		
-		// one of the expressions is string -> concatenation
-		else if (typeIsString(expr0) || typeIsString(expr1)) {
-				
+
+		// one of the expressions is string -> concatenation (numbers with the symbol of their unit)
+		else {
+
 			type = "String";
-			String expr0Symbol = "";
-			String expr1Symbol = "";
-			
-			// expr0 is numeric -> get symbol for printing
-			if (typeIsDouble(expr0)) {	
-				
-				expr0Symbol = " + \" " + mapCtxVar.get(ctx.expression(0)).getUnit().getSymbol() + "\"";
-				operation = expr0Name + expr0Symbol + " + " + expr1Name + expr1Symbol;
-			}
-			else {
-				
-				operation = expr0Name + " + " + expr1Name;
-			}
-			
-			// expr1 is numeric -> get symbol for printing
+			operation = new Binary("+", ref(expr0), ref(expr1));
 			if (typeIsDouble(expr1)) {
-				
-				expr1Symbol = " + \" " + mapCtxVar.get(ctx.expression(1)).getUnit().getSymbol() + "\"";
-				operation = expr0Name + expr0Symbol + " + " + expr1Name + expr1Symbol;
+				operation = withSymbol(operation, mapCtxVar.get(ctx.expression(1)).getUnit());
 			}
-			else {
-				
-				operation = expr0Name + " + " + expr1Name;
-			}
-		} 
-			
-		//complete template
-		newVariable.add("type", type);
-		newVariable.add("var", newName);
-		newVariable.add("operation", operation);
-		
+		}
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> op = " + op);
-			ErrorHandling.printInfo(ctx,indent + "-> expr0 = " + mapCtxVar.get(ctx.expression(0)));
-			ErrorHandling.printInfo(ctx,indent + "-> expr0 type = " + expr0Var.getVarType());
-			ErrorHandling.printInfo(ctx,indent + "-> expr1 = " + mapCtxVar.get(ctx.expression(1)));
-			ErrorHandling.printInfo(ctx,indent + "-> expr1 type = " + expr1Var.getVarType() + "\n");
+			errors.printInfo(ctx,indent + "-> op = " + op);
+			errors.printInfo(ctx,indent + "-> expr0 = " + mapCtxVar.get(ctx.expression(0)));
+			errors.printInfo(ctx,indent + "-> expr0 type = " + expr0Var.getVarType());
+			errors.printInfo(ctx,indent + "-> expr1 = " + mapCtxVar.get(ctx.expression(1)));
+			errors.printInfo(ctx,indent + "-> expr1 type = " + expr1Var.getVarType() + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return temporary(ctx, type, operation, expr0, expr1);
 	}
-	
+
 	@Override
-	public ST visitExpression_RelationalQuantityOperators(Expression_RelationalQuantityOperatorsContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - RELATIONAL QUANTITY OPERATORS");
-		
+	public List<IRInstruction> visitExpression_RelationalQuantityOperators(Expression_RelationalQuantityOperatorsContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - RELATIONAL QUANTITY OPERATORS");
+
 		// get expressions info
-		ST expr0 = visit(ctx.expression(0));
-		ST expr1 = visit(ctx.expression(1));
-		String expr0Name = (String) expr0.getAttribute("var");
-		String expr1Name = (String) expr1.getAttribute("var");
-		String op = ctx.op.getText();
-		String operation = "";
-		
+		List<IRInstruction> expr0 = visit(ctx.expression(0));
+		List<IRInstruction> expr1 = visit(ctx.expression(1));
+		Operator op = ctx.getOperator();
+		IRExpression operation = null;
+
 		// operands are numeric
 		if (typeIsDouble(expr0)) {
 			Variable expr0Var = new Variable(mapCtxVar.get(ctx.expression(0)));
-			Variable expr1Var = new Variable(mapCtxVar.get(ctx.expression(1)));
-			expr1Var = new Variable(expr1Var); // deep copy
-			String factor = " * " + expr1Var.convertUnitTo(expr0Var.getUnit()).toString();
-			operation = expr0Name + " " + op + " " + "(" + expr1Name + factor + ")";
+			Variable expr1Var = new Variable(mapCtxVar.get(ctx.expression(1))); // deep copy
+			double factor = expr1Var.convertUnitTo(expr0Var.getUnit());
+			operation = new Binary(op.getSymbol(), ref(expr0), scale(ref(expr1), factor));
 		}
-		
-		// operands are boolean
-		else if (typeIsString(expr0)) {
-			operation = expr0Name + ".length() " + op + " " + expr1Name + ".length()";
+
+		// operands are strings
+		else {
+			operation = new Binary(op.getSymbol(), new Call(ref(expr0), "length", args()), new Call(ref(expr1), "length", args()));
 		}
-		
-		// create template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST("Boolean", newName);
-		newVariable.add("previousStatements", expr0);
-		newVariable.add("previousStatements", expr1);
-		newVariable.add("operation", operation);
-		
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> op = " + op);
-			ErrorHandling.printInfo(ctx,indent + "-> expr0 type = " + mapCtxVar.get(ctx).getVarType().toString());
-			ErrorHandling.printInfo(ctx,indent + "-> expr1 type = " + mapCtxVar.get(ctx).getVarType().toString() + "\n");
+			errors.printInfo(ctx,indent + "-> op = " + op);
+			errors.printInfo(ctx,indent + "-> expr0 type = " + mapCtxVar.get(ctx).getVarType().toString());
+			errors.printInfo(ctx,indent + "-> expr1 type = " + mapCtxVar.get(ctx).getVarType().toString() + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return temporary(ctx, "Boolean", operation, expr0, expr1);
 	}
-	
+
 	@Override
-	public ST visitExpression_INSTANCEOF(Expression_INSTANCEOFContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - INSTANCEOF");
-		
+	public List<IRInstruction> visitExpression_INSTANCEOF(Expression_INSTANCEOFContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - INSTANCEOF");
+
 		// get expressions info
-		ST expr = visit(ctx.expression());
-		ST type = visit(ctx.type());
-		String operation = "";
-		
-		// get operation boolean value
+		List<IRInstruction> expr = visit(ctx.expression());
+
+		// the result is known at compile time: same type (and same unit, for numbers)
 		Variable exprVar = mapCtxVar.get(ctx.expression());
 		Variable typeVar = mapCtxVar.get(ctx.type());
-		
-		if (exprVar.getVarType() == typeVar.getVarType()) {
-			
-			if (!exprVar.isNumeric()) {
-				operation = "true";
-			}
-			
-			if (exprVar.getUnit().equals(typeVar.getUnit())) {
-				operation = "true";
-			}
-		}
-		
-		else {
-			operation = "false";
-		}
-		
-		// create template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST("Boolean", newName);
-		newVariable.add("previousStatements", expr);
-		newVariable.add("previousStatements", type);
-		newVariable.add("operation", operation);
-		
+		boolean instance = exprVar.getVarType() == typeVar.getVarType() && (!exprVar.isNumeric() || exprVar.getUnit().equals(typeVar.getUnit()));
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> expr0 type = " + mapCtxVar.get(ctx).getVarType().toString());
-			ErrorHandling.printInfo(ctx,indent + "-> expr1 type = " + mapCtxVar.get(ctx).getVarType().toString() + "\n");
+			errors.printInfo(ctx,indent + "-> expr0 type = " + mapCtxVar.get(ctx).getVarType().toString());
+			errors.printInfo(ctx,indent + "-> expr1 type = " + mapCtxVar.get(ctx).getVarType().toString() + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return temporary(ctx, "Boolean", new Literal(String.valueOf(instance)), expr);
 	}
 
 	@Override
-	public ST visitExpression_RelationalEquality(Expression_RelationalEqualityContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - RELATION EQUALITY");
-		
+	public List<IRInstruction> visitExpression_RelationalEquality(Expression_RelationalEqualityContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - RELATION EQUALITY");
+
 		// get expressions info
-		ST expr0 = visit(ctx.expression(0));
-		ST expr1 = visit(ctx.expression(1));
-		String expr0Name = (String) expr0.getAttribute("var");
-		String expr1Name = (String) expr1.getAttribute("var");
-		String op = ctx.op.getText();
-		String operation = "";
-		
+		List<IRInstruction> expr0 = visit(ctx.expression(0));
+		List<IRInstruction> expr1 = visit(ctx.expression(1));
+		Operator op = ctx.getOperator();
+		IRExpression operation = null;
+
 		// operands are numeric
 		if (typeIsDouble(expr0)) {
 			Variable expr0Var = new Variable(mapCtxVar.get(ctx.expression(0)));
-			Variable expr1Var = new Variable(mapCtxVar.get(ctx.expression(1)));
-			expr1Var = new Variable(expr1Var); // deep copy
-			String factor = " * " + expr1Var.convertUnitTo(expr0Var.getUnit()).toString();
-			operation = expr0Name + op + "(" + expr1Name + factor + ")";
+			Variable expr1Var = new Variable(mapCtxVar.get(ctx.expression(1))); // deep copy
+			double factor = expr1Var.convertUnitTo(expr0Var.getUnit());
+			operation = new Binary(op.getSymbol(), ref(expr0), scale(ref(expr1), factor));
 		}
-		
+
 		// operands are boolean
 		else if (typeIsBoolean(expr0)) {
-			operation = expr0Name + op + expr1Name;
+			operation = new Binary(op.getSymbol(), ref(expr0), ref(expr1));
 		}
-		
+
 		// operands are string || lists || dict
 		else {
-			if (op.equals("==")) {
-				operation = expr0Name + ".equals(" + expr1Name + ")";
-			}
-			else if (op.equals("!=")) {
-				operation = "!" + expr0Name + ".equals(" + expr1Name + ")";
+			operation = new Call(ref(expr0), "equals", args(ref(expr1)));
+			if (op == Operator.NOT_EQUAL) {
+				operation = new Unary("!", operation);
 			}
 		}
-		
-		// create template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST("Boolean", newName);
-		newVariable.add("previousStatements", expr0);
-		newVariable.add("previousStatements", expr1);
-		newVariable.add("operation", operation);
-		
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> op = " + op);
-			ErrorHandling.printInfo(ctx,indent + "-> expr0 type = " + mapCtxVar.get(ctx).getVarType().toString());
-			ErrorHandling.printInfo(ctx,indent + "-> expr1 type = " + mapCtxVar.get(ctx).getVarType().toString() + "\n");
+			errors.printInfo(ctx,indent + "-> op = " + op);
+			errors.printInfo(ctx,indent + "-> expr0 type = " + mapCtxVar.get(ctx).getVarType().toString());
+			errors.printInfo(ctx,indent + "-> expr1 type = " + mapCtxVar.get(ctx).getVarType().toString() + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return temporary(ctx, "Boolean", operation, expr0, expr1);
 	}
-	
+
 	@Override
-	public ST visitExpression_logicalOperation(Expression_logicalOperationContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - LOGICAL OPERATION");
-		
+	public List<IRInstruction> visitExpression_logicalOperation(Expression_logicalOperationContext ctx) {
+		return visitLeftDeepChain(ctx, (c, expr0, expr1) -> compileExpression_logicalOperation((Expression_logicalOperationContext) c, expr0, expr1));
+	}
+
+	/**
+	 * compiles one operation of a chain, given the statements of both operands
+	 */
+	private List<IRInstruction> compileExpression_logicalOperation(Expression_logicalOperationContext ctx, List<IRInstruction> expr0, List<IRInstruction> expr1) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - LOGICAL OPERATION");
+
 		// get expressions info
-		ST expr0 = visit(ctx.expression(0));
-		ST expr1 = visit(ctx.expression(1));
-		String expr0Name = (String) expr0.getAttribute("var");
-		String expr1Name = (String) expr1.getAttribute("var");
-		String op = ctx.op.getText();
-		
-		// create template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST("Boolean", newName);
-		newVariable.add("previousStatements", expr0);
-		newVariable.add("previousStatements", expr1);
-		newVariable.add("operation", expr0Name + " " + op + " " + expr1Name);
-		
+		Operator op = ctx.getOperator();
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> op = " + op + "\n");
+			errors.printInfo(ctx,indent + "-> op = " + op + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return temporary(ctx, "Boolean", new Binary(op.getSymbol(), ref(expr0), ref(expr1)), expr0, expr1);
 	}
-	
+
 	@Override
-	public ST visitExpression_tuple(Expression_tupleContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - TUPLE");
-		
+	public List<IRInstruction> visitExpression_tuple(Expression_tupleContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - TUPLE");
+
 		// get expressions info
-		ST expr0 = visit(ctx.expression(0));
-		ST expr1 = visit(ctx.expression(1));
+		List<IRInstruction> expr0 = visit(ctx.expression(0));
+		List<IRInstruction> expr1 = visit(ctx.expression(1));
 		Variable var0 = mapCtxVar.get(ctx.expression(0));
 		Variable var1 = mapCtxVar.get(ctx.expression(1));
-		String expr0Name = (String) expr0.getAttribute("var");
-		expr0Name = var0.isNumeric() ? expr0Name + " + \"" + var0.getUnit().getSymbol() + "\"" : expr0Name;
-		String expr1Name = (String) expr1.getAttribute("var");
-		expr1Name = var1.isNumeric() ? expr1Name + " + \"" + var1.getUnit().getSymbol() + "\"" : expr1Name;
-		String expr0Type = (String) expr0.getAttribute("type");
-		String expr1Type = (String) expr1.getAttribute("type");
-		
-		// create new template
-		String newName = getNewVarName();
+		IRExpression key = ref(expr0);
+		if (var0.isNumeric()) {
+			key = new Binary("+", key, new Literal("\"" + var0.getUnit().getSymbol() + "\""));
+		}
+		IRExpression value = ref(expr1);
+		if (var1.isNumeric()) {
+			value = new Binary("+", value, new Literal("\"" + var1.getUnit().getSymbol() + "\""));
+		}
+
+		// numbers are kept as strings
 		DictTuple tuple = (DictTuple) mapCtxVar.get(ctx).getValue();
 		String keyType = getVarTypeDeclaration(tuple.getKey());
 		if (keyType.equals("Double")) keyType = "String";
 		String valType = getVarTypeDeclaration(tuple.getValue());
 		if (valType.equals("Double")) valType = "String";
 		String type = "Entry<" + keyType + ", " + valType + ">";
-		ST newVariable = varAssignmentST(type , newName);
-		
-		// create operation string
-		String operation = "new AbstractMap.SimpleEntry<" + keyType + ", " + valType + ">(" + expr0Name + ", " + expr1Name + ")";
-		
-		// add previous statements
-		newVariable.add("previousStatements", expr0);
-		newVariable.add("previousStatements", expr1);
-		newVariable.add("operation", operation);
-		
+		IRExpression operation = new New("AbstractMap.SimpleEntry<" + keyType + ", " + valType + ">", args(key, value));
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> key type = " + expr0Type);
-			ErrorHandling.printInfo(ctx,indent + "-> value type = " + expr1Type + "\n");
+			errors.printInfo(ctx,indent + "-> key type = " + type(expr0));
+			errors.printInfo(ctx,indent + "-> value type = " + type(expr1) + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return temporary(ctx, type, operation, expr0, expr1);
 	}
-	
+
 	@Override
-	public ST visitExpression_ADD(Expression_ADDContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - ADD");
-		
+	public List<IRInstruction> visitExpression_ADD(Expression_ADDContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - ADD");
+
 		// get expressions info
-		ST expr0 = visit(ctx.expression(0));
-		ST expr1 = visit(ctx.expression(1));
-		String expr0Name = (String) expr0.getAttribute("var");
-		String operation = "";
+		List<IRInstruction> expr0 = visit(ctx.expression(0));
+		List<IRInstruction> expr1 = visit(ctx.expression(1));
+		IRExpression operation = null;
 		String type = "";
-		
+
 		// expr0 is a list
 		if (typeIsList(expr0)) {
-			
-			String expr1Name = (String) expr1.getAttribute("var");
+
 			type = "Boolean"; // in Java, list add returns boolean
-			operation = expr0Name + ".add(" + expr1Name + ")";
-			
-			// get expr1 Variable
+
+			// numbers are kept with the symbol of their unit
 			Variable expr1Var = new Variable(mapCtxVar.get(ctx.expression(1)));
-			expr1Var = new Variable(expr1Var); // deep copy
-			
-			// if expr1 is Numeric conversion may be needed
+			IRExpression element = ref(expr1);
 			if (expr1Var.isNumeric()) {
-				
-				operation = expr0Name + ".add(" + expr1Name + " + \" " + expr1Var.getUnit().getSymbol() + "\")";
+				element = withSymbol(element, expr1Var.getUnit());
 			}
+			operation = new Call(ref(expr0), "add", args(element));
 		}
-		
+
 		// expr0 is a dict
 		else if (typeIsMap(expr0)) {
-			
-			String expr1Name = (String) expr1.getAttribute("var");
+
 			DictTuple tuple = (DictTuple) mapCtxVar.get(ctx.expression(1)).getValue();
-			String keyType = getVarTypeDeclaration(tuple.getKey());
-			if (keyType.equals("Double")) keyType = "String";
-			String valType = getVarTypeDeclaration(tuple.getValue());
-			type = valType;
-			
-			String key = expr1Name + ".getKey()";
-			String value = expr1Name+ ".getValue()";
-			operation = expr0Name + ".put(" + key + ", " + value + ")";
-			String numericOperation = operation;
+			type = getVarTypeDeclaration(tuple.getValue());
+
+			IRExpression key = new Call(ref(expr1), "getKey", args());
+			IRExpression value = new Call(ref(expr1), "getValue", args());
+			IRExpression put = new Call(ref(expr0), "put", args(key, value));
 			if (getVarTypeDeclaration(tuple.getKey()).equals("Double")) {
-				numericOperation = "Double.parseDouble(" + operation + ".split(\" \")[0])";
+				put = parseNumber(put);
 			}
-			
-			operation = expr0Name + ".containsKey(" + key + ")" + " == false ? " + null + " : " + numericOperation;
-			
+
+			IRExpression containsKey = new Call(ref(expr0), "containsKey", args(key));
+			operation = new Conditional(new Binary("==", containsKey, new Literal("false")), new Literal("null"), put);
 		}
-		
+
 		// expr0 is string -> concatenation
 		else if (typeIsString(expr0)) {
-			
-			String expr1Name = (String) expr1.getAttribute("var");
+
 			type = "String";
-			String expr0Symbol = "";
-			String expr1Symbol = "";
-			
-			// expr0 is numeric -> get symbol for printing
-			if (typeIsDouble(expr0)) {
-				expr0Symbol = " " + mapCtxVar.get(ctx.expression(0)).getUnit().getSymbol();
-			}
-			
+			operation = new Binary("+", ref(expr0), ref(expr1));
+
 			// expr1 is numeric -> get symbol for printing
 			if (typeIsDouble(expr1)) {
-				expr1Symbol = " " + mapCtxVar.get(ctx.expression(1)).getUnit().getSymbol();
+				operation = withSymbol(operation, mapCtxVar.get(ctx.expression(1)).getUnit());
 			}
-			
-			operation = expr0Name + expr0Symbol + " + " + expr1Name + expr1Symbol;
 		}
-		
-		// create new template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST(type, newName);
-		
-		// add previous statements
-		newVariable.add("previousStatements", expr0);
-		newVariable.add("previousStatements", expr1);
-		newVariable.add("operation", operation);
-		
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> expr0 type = " + type);
-			ErrorHandling.printInfo(ctx,indent + "-> expr1 type = " + type + "\n");
+			errors.printInfo(ctx,indent + "-> expr0 type = " + type);
+			errors.printInfo(ctx,indent + "-> expr1 type = " + type + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		// dict put gives null if the key is new, so the value cannot be primitive
+		return temporary(ctx, type, typeIsMap(expr0), operation, expr0, expr1);
 	}
 
 	@Override
-	public ST visitExpression_REM(Expression_REMContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION REMOVE");
-		
+	public List<IRInstruction> visitExpression_REM(Expression_REMContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION REMOVE");
+
 		// get expressions info
-		ST expr0 = visit(ctx.expression(0));
-		ST expr1 = visit(ctx.expression(1));
-		String expr0Name = (String) expr0.getAttribute("var");
-		String expr1Name = (String) expr1.getAttribute("var");
-		String valueType = "";
-		String operation = "";
+		List<IRInstruction> expr0 = visit(ctx.expression(0));
+		List<IRInstruction> expr1 = visit(ctx.expression(1));
+		IRExpression operation = null;
 		String type = "";
-		
+
 		// expr0 is a list
 		if (typeIsList(expr0)) {
-			
+
 			type = getListValueDeclaration(((ListVar) mapCtxVar.get(ctx.expression(0)).getValue()).getType());
-			operation = expr0Name + ".remove(" + expr1Name + ".intValue()" + ")";
+			operation = new Call(ref(expr0), "remove", args(new Cast("int", ref(expr1))));
 			if (mapCtxVar.get(ctx).isNumeric()) {
-				operation = "Double.parseDouble(" + operation + ".split(\" \")[0]" + ")";
+				operation = parseNumber(operation);
 			}
 		}
-		
+
 		// expr0 is a dict
 		if (typeIsMap(expr0)) {
-			
+
 			type = getDictValueDeclaration(((DictVar) mapCtxVar.get(ctx.expression(0)).getValue()).getValueType());
-			operation = expr0Name + ".remove(" + expr1Name + ")";
+			operation = new Call(ref(expr0), "remove", args(ref(expr1)));
 			if (type.equals("Double")) {
-				operation = "Double.parseDouble(" + operation + ".split(\" \")[0]" + ")";
+				operation = parseNumber(operation);
 			}
-			operation = expr0Name + ".containsKey(" + expr1Name + ") ? " + operation + ": null";
+			operation = new Conditional(new Call(ref(expr0), "containsKey", args(ref(expr1))), operation, new Literal("null"));
 		}
-		
-		// create new template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST(type, newName);
-		
-		// add previous statements
-		newVariable.add("previousStatements", expr0);
-		newVariable.add("previousStatements", expr1);
-		newVariable.add("operation", operation);
-		
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> expr1 type = " + valueType + "\n");
+			errors.printInfo(ctx,indent + "-> expr1 type = " + type + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		// dict remove gives null if the key does not exist, so the value cannot be primitive
+		return temporary(ctx, type, typeIsMap(expr0), operation, expr0, expr1);
 	}
-	
+
 	@Override
-	public ST visitExpression_GET(Expression_GETContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - GET");
-		
+	public List<IRInstruction> visitExpression_GET(Expression_GETContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - GET");
+
 		// get expressions info
-		ST expr0 = visit(ctx.expression(0));
-		ST expr1 = visit(ctx.expression(1));
-		
-		// get var names to complete operation
-		String expr0Name = (String) expr0.getAttribute("var");
-		String expr1Name = (String) expr1.getAttribute("var");
+		List<IRInstruction> expr0 = visit(ctx.expression(0));
+		List<IRInstruction> expr1 = visit(ctx.expression(1));
 		String valueType = "";
-		String operation = "";
-		
+		IRExpression operation = null;
+
 		// expr0 is a list
 		if (typeIsList(expr0)) {
-			
+
 			valueType = getListValueDeclaration(((ListVar) mapCtxVar.get(ctx.expression(0)).getValue()).getType());
-			operation = expr0Name + ".get(" + expr1Name + ".intValue())";
+			operation = new Call(ref(expr0), "get", args(new Cast("int", ref(expr1))));
 			if (valueType.equals("Double")) {
-				operation = "Double.parseDouble(" + operation + ".split(\" \")[0]" + ")";
+				operation = parseNumber(operation);
 			}
 		}
-		
+
 		// expr0 is a dict
 		if (typeIsMap(expr0)) {
-			
+
 			valueType = getDictValueDeclaration(((DictVar) mapCtxVar.get(ctx.expression(0)).getValue()).getValueType());
-			
-			operation = expr0Name + "MERDA.keySet().toArray()[" + (int) mapCtxListDict.get(ctx).getValue() + "]";
+
+			IRExpression keys = new Call(new Call(new Name(var(expr0) + "MERDA"), "keySet", args()), "toArray", args());
+			operation = new Index(keys, new Literal("" + (int) mapCtxListDict.get(ctx).getValue()));
 		}
-		
-		// create new template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST(valueType, newName);
-		newVariable.add("previousStatements", expr0);
-		newVariable.add("previousStatements", expr1);
-		newVariable.add("operation", operation);
-		
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> expr0 type = " + expr0.getAttribute("type"));
-			ErrorHandling.printInfo(ctx,indent + "-> expr1 type = " + valueType + "\n");
+			errors.printInfo(ctx,indent + "-> expr0 type = " + type(expr0));
+			errors.printInfo(ctx,indent + "-> expr1 type = " + valueType + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return temporary(ctx, valueType, operation, expr0, expr1);
 	}
-	
+
 	@Override
-	public ST visitExpression_CONTAINS(Expression_CONTAINSContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - CONTAINS\n");
-		
+	public List<IRInstruction> visitExpression_CONTAINS(Expression_CONTAINSContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - CONTAINS\n");
+
 		// get expressions info
-		ST expr0 = visit(ctx.expression(0));
-		ST expr1 = visit(ctx.expression(1));
-		
-		// create new template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST("Boolean", newName);
-		
-		// add previous statements
-		newVariable.add("previousStatements", expr0);
-		newVariable.add("previousStatements", expr1);
-		
-		// get var names to complete operation and add it
-		String expr0Name = (String) expr0.getAttribute("var");
-		String expr1Name = (String) expr1.getAttribute("var");
-		String expr1Type = (String) expr1.getAttribute("type");
-		if (expr1Type.equals("Double")) {
-			expr1Name = expr1Name + " + \" " + mapCtxVar.get(ctx.expression(1)).getUnit().getSymbol() + "\"";
-		}
-		newVariable.add("operation", expr0Name + ".contains(" + expr1Name + ")");
-		
+		List<IRInstruction> expr0 = visit(ctx.expression(0));
+		List<IRInstruction> expr1 = visit(ctx.expression(1));
+
+		// numbers are kept with the symbol of their unit
+		IRExpression element = ref(expr1);
+		if (typeIsDouble(expr1)) {
+			element = withSymbol(element, mapCtxVar.get(ctx.expression(1)).getUnit());
+		}
+
 		if(debug) ci();
-		
-		return newVariable;
+
+		return temporary(ctx, "Boolean", new Call(ref(expr0), "contains", args(element)), expr0, expr1);
 	}
-	
+
 	@Override
-	public ST visitExpression_CONTAINSKEY(Expression_CONTAINSKEYContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - CONTAINS KEY\n");
-		
+	public List<IRInstruction> visitExpression_CONTAINSKEY(Expression_CONTAINSKEYContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - CONTAINS KEY\n");
+
 		// get expressions info
-		ST expr0 = visit(ctx.expression(0));
-		ST expr1 = visit(ctx.expression(1));
-		
-		// create new template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST("boolean", newName);
+		List<IRInstruction> expr0 = visit(ctx.expression(0));
+		List<IRInstruction> expr1 = visit(ctx.expression(1));
 
-		// add previous statements
-		newVariable.add("previousStatements", expr0);
-		newVariable.add("previousStatements", expr1);
-		
-		// get var names to complete operation and add it
-		String expr0Name = (String) expr0.getAttribute("var");
-		String expr1Name = (String) expr1.getAttribute("var");
-		newVariable.add("operation", expr0Name + ".containsKey(" + expr1Name + ")");
-		
 		if(debug) ci();
-		
-		return newVariable;
+
+		return temporary(ctx, "Boolean", new Call(ref(expr0), "containsKey", args(ref(expr1))), expr0, expr1);
 	}
-	
+
 	@Override
-	public ST visitExpression_CONTAINSVALUE(Expression_CONTAINSVALUEContext ctx) {
+	public List<IRInstruction> visitExpression_CONTAINSVALUE(Expression_CONTAINSVALUEContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - CONTAINS VALUE\n");
 
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - CONTAINS VALUE\n");
-		
 		// get expressions info
-		ST expr0 = visit(ctx.expression(0));
-		ST expr1 = visit(ctx.expression(1));
-		
-		// create new template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST("boolean", newName);
+		List<IRInstruction> expr0 = visit(ctx.expression(0));
+		List<IRInstruction> expr1 = visit(ctx.expression(1));
 
-		// add previous statements
-		newVariable.add("previousStatements", expr0);
-		newVariable.add("previousStatements", expr1);
-		
-		// get var names to complete operation and add it
-		String expr0Name = (String) expr0.getAttribute("var");
-		String expr1Name = (String) expr1.getAttribute("var");
-		newVariable.add("operation", expr0Name + ".containsValue(" + expr1Name + ")");
-		
 		if(debug) ci();
-		
-		return newVariable;
+
+		return temporary(ctx, "Boolean", new Call(ref(expr0), "containsValue", args(ref(expr1))), expr0, expr1);
 	}
-	
+
 	@Override
-	public ST visitExpression_INDEXOF(Expression_INDEXOFContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - INDEXOF\n");
-		
+	public List<IRInstruction> visitExpression_INDEXOF(Expression_INDEXOFContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - INDEXOF\n");
+
 		// get expressions info
-		ST expr0 = visit(ctx.expression(0));
-		ST expr1 = visit(ctx.expression(1));
+		List<IRInstruction> expr0 = visit(ctx.expression(0));
+		List<IRInstruction> expr1 = visit(ctx.expression(1));
 		Variable expr1Var = mapCtxVar.get(ctx.expression(1));
-		
-		// create new template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST("Double", newName);
-		
-		// add previous statements
-		newVariable.add("previousStatements", expr0);
-		newVariable.add("previousStatements", expr1);
-		
-		// get var names to complete operation and add it
-		String expr0Name = (String) expr0.getAttribute("var");
-		String expr1Name = (String) expr1.getAttribute("var");
+
+		// numbers are kept with the symbol of their unit
+		IRExpression element = ref(expr1);
 		if (expr1Var.isNumeric()) {
-			expr1Name = expr1Name + " + \" " + expr1Var.getUnit().getSymbol() + "\"";
+			element = withSymbol(element, expr1Var.getUnit());
 		}
-		
-		newVariable.add("operation", "(double) " + expr0Name + ".indexOf(" + expr1Name + ")");
-		
+
 		if(debug) ci();
-		
-		return newVariable;
+
+		return temporary(ctx, "Double", new Cast("double", new Call(ref(expr0), "indexOf", args(element))), expr0, expr1);
 	}
-	
+
 	@Override
-	public ST visitExpression_Var(Expression_VarContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - VAR\n");
-		
-		ST var = visit(ctx.var());
-		
+	public List<IRInstruction> visitExpression_Var(Expression_VarContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - VAR\n");
+
+		List<IRInstruction> var = visit(ctx.var());
+
 		if(debug) ci();
-				
+
 		return var;
 	}
-	
+
 	@Override
-	public ST visitExpression_Value(Expression_ValueContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - VALUE");
-		
-		ST value = visit(ctx.value());
-		
+	public List<IRInstruction> visitExpression_Value(Expression_ValueContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - VALUE");
+
+		List<IRInstruction> value = visit(ctx.value());
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> value = " + mapCtxVar.get(ctx).getValue().toString() + "\n");
+			errors.printInfo(ctx,indent + "-> value = " + mapCtxVar.get(ctx).getValue().toString() + "\n");
 			ci();
 		}
-		
+
 		return value;
 	}
-	
+
 	@Override
-	public ST visitExpression_FunctionCall(Expression_FunctionCallContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->EXPRESSION - FUNCTION CALL");
-		
-		// get expression info
-		ST functionCall = visit(ctx.functionCall());
-		String functionCallRender = functionCall.render();
-		
-		// create new template
-		String newName = getNewVarName();
-		ST newVariable = stg.getInstanceOf("varAssignment");
-		
-		// add preiousStatments
-		if (functionCallRender.contains(";")) {
-			functionCallRender = functionCallRender.substring(0, functionCallRender.lastIndexOf(";"));
-			newVariable.add("previousStatements", functionCallRender);
-		}
-		newVariable.add("type", getVarTypeDeclaration(mapCtxVar.get(ctx.functionCall())));
-		newVariable.add("var", newName);
-		
-		String[] aux = functionCall.render().split(";");
-		String opFunctCall = aux[aux.length-1];
-		newVariable.add("operation", opFunctCall);
-		
+	public List<IRInstruction> visitExpression_FunctionCall(Expression_FunctionCallContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->EXPRESSION - FUNCTION CALL");
+
+		// the arguments are computed before the call, the call itself is the operation
+		List<IRInstruction> functionCall = visit(ctx.functionCall());
+		IRExpression call = ((Eval) functionCall.remove(functionCall.size()-1)).expression;
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> function name = " + (String) functionCall.getAttribute("functionName") + "\n");
+			errors.printInfo(ctx,indent + "-> function name = " + ctx.functionCall().getName() + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return temporary(ctx, getVarTypeDeclaration(mapCtxVar.get(ctx.functionCall())), call, functionCall);
 	}
-	
+
 	@Override
-	public ST visitInputOutput(InputOutputContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->INPUT OUTPUT\n");
+	public List<IRInstruction> visitInputOutput(InputOutputContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->INPUT OUTPUT\n");
 		if(debug) ci();
-		
+
 		return super.visitChildren(ctx);
 	}
-	
+
 	// --------------------------------------------------------------------------------------------------------------------
 	// INPUT OUTPUT----------------------------------------------------------------------------------------------
-	// --------------------------------------------------------------------------------------------------------------------	
+	// --------------------------------------------------------------------------------------------------------------------
 
 	@Override
-	public ST visitPrint(PrintContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "-> PRINT\n");
-		
-		ST expr = visit(ctx.expression());
+	public List<IRInstruction> visitPrint(PrintContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "-> PRINT\n");
+
+		List<IRInstruction> print = visit(ctx.expression());
 		Variable exprVar = new Variable(mapCtxVar.get(ctx.expression()));
-		String exprName = (String) expr.getAttribute("var");
-		
-		//create printST
-		ST print = stg.getInstanceOf("print");
-		
-		// add previous statements
-		print.add("previousStatements", expr);
-		
+
 		// add print type
-		if (ctx.printType.getText().equals("PRINT")){
-			print.add("type", "print");
-		}
-		else {
-			print.add("type", "println");
-		}
-		
-		// add expression to be printed
-		String expression = "";
-		
-		if (exprVar.isNumeric()) {
-			
-			expression = exprName + " + \" " + exprVar.getUnit().getSymbol() + "\"";
-		}
-		else {
-			
-			expression = exprName;
+		String type = ctx.printType.getText().equals("PRINT") ? "print" : "println";
+
+		// add expression to be printed
+		IRExpression expression = ref(print);
+		if (exprVar.isNumeric()) {
+			expression = withSymbol(expression, exprVar.getUnit());
 		}
-		print.add("expression", expression);
-		
+		print.add(new Eval(new Call(new Field(new Name("System"), "out"), type, args(expression))));
+
 		if(debug) ci();
-			
+
 		return print;
 	}
 
 	// TODO implement...
 	@Override
-	public ST visitSave(SaveContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->SAVE\n");
+	public List<IRInstruction> visitSave(SaveContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->SAVE\n");
 		if(debug) ci();
-		
-		return super.visitSave(ctx);
+
+		return new ArrayList<>();
 	}
-	
+
 	// TODO cry.... implement... cry again...
 	@Override
-	public ST visitInput(InputContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->INPUT\n");
+	public List<IRInstruction> visitInput(InputContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->INPUT\n");
 		if(debug) ci();
-		
-		// TODO Auto-generated method stub
-		return super.visitInput(ctx);
+
+		return new ArrayList<>();
 	}
-	
+
 	// --------------------------------------------------------------------------------------------------------------------
-	// VARS AND TYPES------------------------------------------------------------------------------------------------------ 
+	// VARS AND TYPES------------------------------------------------------------------------------------------------------
 	// --------------------------------------------------------------------------------------------------------------------
 
 	@Override
-	public ST visitVar(VarContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->VAR\n");
-		
+	public List<IRInstruction> visitVar(VarContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->VAR\n");
+
 		// get var info
-		String id = ctx.ID().getText();
+		String id = ctx.getName();
 		String lastName = symbolTableNamesGet(id);
 		Variable var = new Variable(symbolTableValue.get(lastName));
-		
-		// create template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST(getVarTypeDeclaration(var) , newName , lastName);
-		
+
+		// the value is copied, the variable may be assigned before the copy is used
+		List<IRInstruction> newVariable = temporary(ctx, getVarTypeDeclaration(var), new Name(lastName));
+
 		// create Variable and save ctx
-		symbolTableValue.put(newName, mapCtxVar.get(ctx));
-		
+		symbolTableValue.put(var(newVariable), mapCtxVar.get(ctx));
+
 		if(debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> original/last/new name = " + id + ", " + lastName + ", " + newName);
-			ErrorHandling.printInfo(ctx, indent + "-> var value = " + var.getValue());
+			errors.printInfo(ctx,indent + "-> original/last/new name = " + id + ", " + lastName + ", " + var(newVariable));
+			errors.printInfo(ctx, indent + "-> var value = " + var.getValue());
 			ci();
 		}
-		
+
 		return newVariable;
 	}
 
 	@Override
-	public ST visitVarDeclaration(VarDeclarationContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->VARDECLARATION - VARIABLE");
-		
+	public List<IRInstruction> visitVarDeclaration(VarDeclarationContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "->VARDECLARATION - VARIABLE");
+
 		// get varDeclaration info
-		ST typeST = visit(ctx.type());
-		String originalName = ctx.ID().getText();
+		String type = getTypeDeclaration(ctx.type());
+		String originalName = ctx.getName();
 		String newName = getNewVarName();
-		String operation = "";
-		String type = typeST.render();
-		
-		if(typeIsBoolean(typeST)) {
-			operation = "false";
+		IRExpression operation = null;
+
+		if (type.equals("Boolean")) {
+			operation = new Literal("false");
 		}
-		else if(typeIsString(typeST)) {
-			operation = "\"\"";
+		else if (type.equals("String")) {
+			operation = new Literal("\"\"");
 		}
-		else if (typeIsDouble(typeST)) {
-			operation = "0.0";
+		else if (type.equals("Double")) {
+			operation = new Literal("0.0");
 		}
-		else if (typeIsList(typeST)) {
-			operation = "new ArrayList<>()";
+		else if (type.contains("List")) {
+			operation = new New("ArrayList<>", args());
 		}
-		else if (typeIsMap(typeST)) {
-			operation = "new HashMap<>()";
+		else if (type.contains("Map")) {
+			operation = new New("HashMap<>", args());
 		}
-		
-		// create varDeclaration ST
-		ST varDeclaration = stg.getInstanceOf("varAssignment");
-		if (globalScope == true) varDeclaration.add("modifier", "static");
-		varDeclaration.add("type", type);
-		varDeclaration.add("var", newName);
-		varDeclaration.add("operation", operation);
-		
+
 		// create Variable and save ctx and update tables
+		newVariable(newName, type, mapCtxVar.getUnit(ctx));
 		symbolTableNamesPut(originalName, newName);
 		symbolTableValue.put(newName, new Variable(mapCtxVar.get(ctx)));
-		
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> original/new name = " + originalName + ", " + newName);
-			ErrorHandling.printInfo(ctx,indent + "-> decl type = " + typeST.render() + "\n");
+			errors.printInfo(ctx,indent + "-> original/new name = " + originalName + ", " + newName);
+			errors.printInfo(ctx,indent + "-> decl type = " + type + "\n");
 			ci();
 		}
-		
-		return varDeclaration;
-	}
-
-
-	@Override
-	public ST visitType_Number_Type(Type_Number_TypeContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->TYPE - NUMBER_TYPE\n");
-		
-		// create template
-		ST type = stg.getInstanceOf("type");
-		type.add("type", "Double");
-		
-		if(debug) ci();
-		
-		return type;
-	}
-
-	@Override
-	public ST visitType_Boolean_Type(Type_Boolean_TypeContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->TYPE BOOLEAN_TYPE\n");
-		
-		// create template
-		ST type = stg.getInstanceOf("type");
-		type.add("type", "Boolean");
-		
-		if(debug) ci();
-		
-		return type;
-	}
 
-	@Override
-	public ST visitType_String_Type(Type_String_TypeContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->TYPE STRING_TYPE\n");
-		
-		// create template
-		ST type = stg.getInstanceOf("type");
-		type.add("type", "String");
-		
-		if(debug) ci();
-				
-		return type;
-	}
-	
-	@Override
-	public ST visitType_Void_Type(Type_Void_TypeContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->TYPE VOID_TYPE\n");
-		
-		// create template
-		ST type = stg.getInstanceOf("type");
-		type.add("type", "void");
-		
-		if(debug) ci();
-		
-		return type;
+		List<IRInstruction> varDeclaration = new ArrayList<>();
+		varDeclaration.add(assign(primitive(type), newName, operation));
+		return varDeclaration;
 	}
 
 	@Override
-	public ST visitType_ID_Type(Type_ID_TypeContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->TYPE ID_TYPE\n");
-		
-		// create template
-		ST type = stg.getInstanceOf("type");
-		type.add("type", "Double");
-		
-		if(debug) ci();
-		
-		return type;
-	}
-	
-	@Override
-	public ST visitType_List_Type(Type_List_TypeContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->TYPE LIST_TYPE\n");
-		
-		visit(ctx.type());
-		
-		// create template
-		ST type = stg.getInstanceOf("type");
-		
-		String valueType = visit(ctx.type()).render();
-		if (valueType.equals("Double")) valueType = "String"; // all Numeric Types will be converted to String in Java
-		type.add("type", "List<" + valueType + ">");
-		
-		if(debug) ci();
-		
-		return type;
-	}
+	public List<IRInstruction> visitValue_Number(Value_NumberContext ctx) {
 
-	@Override
-	public ST visitType_Dict_Type(Type_Dict_TypeContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "->TYPE DICT_TYPE\n");
-		
-		// create template
-		ST type = stg.getInstanceOf("type");
-		
-		String keyType = visit(ctx.type(0)).render();
-		String valueType = visit(ctx.type(1)).render();
-		if (keyType.equals("Double")) keyType = "String"; // all Numeric Types will be converted to String in Java
-		if (valueType.equals("Double")) valueType = "String"; // all Numeric Types will be converted to String in Java
-		type.add("type", "Map<" + keyType + ", " + valueType + ">");
-		
-		if(debug) ci();
-		
-		return type;
-	}
+		if(debug) errors.printInfo(ctx,oi() + "-> VALUE NUMBER");
 
-	@Override
-	public ST visitValue_Number(Value_NumberContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "-> VALUE NUMBER");
-		
 		// get number info
 		String number = "" + Double.parseDouble(ctx.NUMBER().getText());
-		
-		// create template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST("Double", newName, number); 
-		
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> value = " + ctx.NUMBER().getText() + "\n");
+			errors.printInfo(ctx,indent + "-> value = " + ctx.NUMBER().getText() + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return temporary(ctx, "Double", new Literal(number));
 	}
 
 	@Override
-	public ST visitValue_Boolean(Value_BooleanContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "-> VALUE BOOLEAN");
-		
+	public List<IRInstruction> visitValue_Boolean(Value_BooleanContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "-> VALUE BOOLEAN");
+
 		// get boolean info
 		Boolean b = Boolean.parseBoolean(ctx.BOOLEAN().getText());
-		
-		// create template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST("Boolean", newName, b+""); 
-		
+
 		if (debug ) {
-			ErrorHandling.printInfo(ctx,indent + "-> boolean = " + ctx.BOOLEAN().getText() + "\n");
+			errors.printInfo(ctx,indent + "-> boolean = " + ctx.BOOLEAN().getText() + "\n");
 			ci();
 		}
-		
-		return newVariable;
+
+		return temporary(ctx, "Boolean", new Literal(b+""));
 	}
 
 	@Override
-	public ST visitValue_String(Value_StringContext ctx) {
-		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "-> VALUE STRING");
-		
+	public List<IRInstruction> visitValue_String(Value_StringContext ctx) {
+
+		if(debug) errors.printInfo(ctx,oi() + "-> VALUE STRING");
+
 		// string is returned with quotation marks included
 		String str = ctx.STRING().getText();
-		
-		// create template
-		String newName = getNewVarName();
-		ST newVariable = varAssignmentST("String", newName, str);
-		
+
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> string = " + ctx.STRING().getText() + "\n");
+			errors.printInfo(ctx,indent + "-> string = " + ctx.STRING().getText() + "\n");
 			ci();
 		}
-		
-		return newVariable;
-	}
-	
-	/**
-	 * This visitor should never b called during compilation
-	 */
-	@Override
-	public ST visitCast(CastContext ctx) {
-		return null;
+
+		return temporary(ctx, "String", new Literal(str));
 	}
-	
+
 	//-------------------------------------------------------------------------------------------------------------------------------------
 	//OTHER ONES---------------------------------------------------------------------------------------------------------------------------
 	//-------------------------------------------------------------------------------------------------------------------------------------
 
-	protected static ST createEOL (ST temp) {
-		String stat = temp.render();
-		ST statements = stg.getInstanceOf("stats");
-		statements.add("stat", stat);
-		return statements;		
+	/**
+	 * Compiles one binary operation given the statements of both operands
+	 */
+	private interface OperationCompiler {
+		List<IRInstruction> compile(ExpressionContext ctx, List<IRInstruction> expr0, List<IRInstruction> expr1);
 	}
-	
-	protected static ST varAssignmentST(String previousStatements, String type, String var, String operation) {
-		ST newVariable = stg.getInstanceOf("varAssignment");
-		
-		newVariable.add("previousStatements", previousStatements);
-		newVariable.add("type", type);
-		newVariable.add("var", var);
-		newVariable.add("operation", operation);
-		
-		return newVariable;
+
+	/**
+	 * Compiles a left-deep chain of binary operations of the same kind (a + b - c + ...) iteratively.
+	 * The statements of the whole chain are kept in one flat list, so long chains neither recurse when compiled nor
+	 * are copied at every operation.
+	 * @param ctx the last (top) operation of the chain
+	 * @param compileOperation compiles one operation of the chain
+	 * @return the statements of the chain, ending with the declaration of its result
+	 */
+	private List<IRInstruction> visitLeftDeepChain(ExpressionContext ctx, OperationCompiler compileOperation) {
+
+		// collect the operations of the chain, the deepest one on top
+		Deque<ExpressionContext> chain = new ArrayDeque<>();
+		ExpressionContext expr = ctx;
+		while (expr.getClass() == ctx.getClass()) {
+			chain.push(expr);
+			expr = expr.getRuleContext(ExpressionContext.class, 0);
+		}
+
+		// leftmost operand, then the right operand and the temporary of each step (the left operand of a step is the
+		// temporary of the step before, the last statement of the chain)
+		List<IRInstruction> statements = visit(expr);
+		while (!chain.isEmpty()) {
+			ExpressionContext operation = chain.pop();
+			List<IRInstruction> expr1 = visit(operation.getRuleContext(ExpressionContext.class, 1));
+			List<IRInstruction> result = compileOperation.compile(operation, statements.subList(statements.size()-1, statements.size()), expr1);
+			statements.addAll(result.subList(1, result.size()));
+		}
+		return statements;
 	}
 
-	protected static ST varAssignmentST(String type, String var, String operation) {
-				
-		ST newVariable = stg.getInstanceOf("varAssignment");
-		newVariable.add("type", type);
-		newVariable.add("var", var);
-		newVariable.add("operation", operation);
-		
-		return newVariable;
-	} 
-	
-	protected static ST varAssignmentST(String type, String var) {
-		
-		ST newVariable = stg.getInstanceOf("varAssignment");
-		newVariable.add("type", type);
-		newVariable.add("var", var);
-		
-		return newVariable;
-	} 
-	
-	public static String getNewVarName() {
+	/**
+	 * Declares the temporary of an expression, computed after the statements of its operands
+	 * @param ctx the expression
+	 * @param type Java type of the value (numbers and booleans are declared primitive)
+	 * @param operation
+	 * @param operands the statements of the operands
+	 * @return the statements of the expression, ending with the declaration of its temporary
+	 */
+	@SafeVarargs
+	private final List<IRInstruction> temporary(NodeContext ctx, String type, IRExpression operation, List<IRInstruction>... operands) {
+		return temporary(ctx, type, false, operation, operands);
+	}
+
+	/**
+	 * @param boxed true if the value may be null (it is declared with the boxed type)
+	 * @see #temporary(NodeContext, String, IRExpression, List...)
+	 */
+	@SafeVarargs
+	private final List<IRInstruction> temporary(NodeContext ctx, String type, boolean boxed, IRExpression operation, List<IRInstruction>... operands) {
+		List<IRInstruction> statements = new ArrayList<>();
+		for (List<IRInstruction> operand : operands) {
+			statements.addAll(operand);
+		}
+		String newName = getNewVarName();
+		newVariable(newName, type, mapCtxVar.getUnit(ctx));
+		statements.add(assign(boxed ? type : primitive(type), newName, operation));
+		return statements;
+	}
+
+	/**
+	 * Registers a generated variable
+	 * @param name
+	 * @param type Java type of the values of the variable (Double and Boolean for numbers and booleans)
+	 * @param unit unit of the values, null if they are not numbers
+	 */
+	private void newVariable(String name, String type, Unit unit) {
+		javaTypes.put(name, type);
+		if (unit != null) {
+			varUnits.put(name, unit);
+		}
+	}
+
+	/**
+	 * @param type declared type, null if the variable is declared before
+	 * @return the assignment, with the type and the unit of its variable
+	 */
+	private Assign assign(String type, String target, IRExpression value) {
+		Assign assign = new Assign("", type, target, value);
+		if (type != null) {
+			declaredTypes.put(target, type);
+		}
+		assign.declaredType = declaredTypes.get(target);
+		assign.unit = varUnits.get(target);
+		return assign;
+	}
+
+	/**
+	 * @return the declaration of a local of the generated code (not a value of the program)
+	 */
+	private Assign local(String type, String target, IRExpression value) {
+		return assign(type, target, value);
+	}
+
+	/**
+	 * @return for(int index = 0; index &lt; length; index++) body
+	 */
+	private Loop countedLoop(String index, IRExpression length, List<IRInstruction> body) {
+		Assign init = local("int", index, new Literal("0"));
+		Loop loop = new Loop(new Binary("<", new Name(index), length), assign(null, index, new Binary("+", new Name(index), new Literal("1"))), body);
+		loop.init = init;
+		return loop;
+	}
+
+	/**
+	 * @param expr statements of an expression
+	 * @return the name of the temporary that holds its value
+	 */
+	private static String var(List<IRInstruction> expr) {
+		return ((Assign) expr.get(expr.size()-1)).target;
+	}
+
+	/**
+	 * @param expr statements of an expression
+	 * @return the read of the temporary that holds its value
+	 */
+	private static Name ref(List<IRInstruction> expr) {
+		return new Name(var(expr));
+	}
+
+	/**
+	 * @param expr statements of an expression
+	 * @return the Java type of its value
+	 */
+	private String type(List<IRInstruction> expr) {
+		return javaTypes.get(var(expr));
+	}
+
+	private static List<IRExpression> args(IRExpression... args) {
+		return new ArrayList<>(Arrays.asList(args));
+	}
+
+	private static Literal literal(double value) {
+		return new Literal("" + value);
+	}
+
+	/**
+	 * @param operation
+	 * @param factor unit conversion factor
+	 * @return the operation multiplied by the factor, or the operation alone if the factor is 1.0
+	 */
+	private static IRExpression scale(IRExpression operation, double factor) {
+		return factor == 1.0 ? operation : new Binary("*", operation, literal(factor));
+	}
+
+	/**
+	 * @return the number followed by the symbol of its unit, as numbers are printed and kept in lists and dicts
+	 */
+	private static IRExpression withSymbol(IRExpression number, Unit unit) {
+		return new Binary("+", number, new Literal("\" " + unit.getSymbol() + "\""));
+	}
+
+	/**
+	 * @param element a number kept as a string ("value symbol")
+	 * @return the value of the number
+	 */
+	private static IRExpression parseNumber(IRExpression element) {
+		IRExpression value = new Index(new Call(element, "split", args(new Literal("\" \""))), new Literal("0"));
+		return new Call(new Name("Double"), "parseDouble", args(value));
+	}
+
+	/**
+	 * @param type the type of the list
+	 * @param elements the elements known at compile time (their units may be other than the ones defined in the file)
+	 * @return the conversion factor to the unit of the list of each unit a list of the type can hold (see the check of
+	 * list add), by symbol, the unit of the list first
+	 */
+	private Map<String, Double> getFactorsBySymbol(String type, List<Variable> elements) {
+		Unit listUnit = unitsFile.instanceOf(type);
+		Map<String, Double> factors = new LinkedHashMap<>();
+		factors.put(listUnit.getSymbol(), 1.0);
+
+		// lists of numbers only hold numbers (and blocked lists only values of their unit, the checker sees to it)
+		Unit number = unitsFile.instanceOf("number");
+		if (listUnit.equals(number)) {
+			return factors;
+		}
+
+		List<Unit> units = new ArrayList<>(unitsFile.getUnits());
+		for (Variable element : elements) {
+			if (element.getUnit() != null) {
+				units.add(element.getUnit());
+			}
+		}
+		Map<String, Double> compatible = new TreeMap<>();
+		for (Unit unit : units) {
+			if (unit.equals(number) || factors.containsKey(unit.getSymbol()) || compatible.containsKey(unit.getSymbol())
+					|| !unit.isCompatible(listUnit)) {
+				continue;
+			}
+			double factor = new Unit(unit).matchUnitTo(listUnit);
+			if (!Double.isInfinite(factor) && !Double.isNaN(factor)) {
+				compatible.put(unit.getSymbol(), factor);
+			}
+		}
+		factors.putAll(compatible);
+		return factors;
+	}
+
+	private String getNewVarName() {
 		String newName = "var"+varCounter;
 		varCounter++;
 		return newName;
-		
+
+	}
+
+	/**
+	 * @param ctx
+	 * @return the Java type of the values of the type (numbers are Double, lists and dicts keep them as String)
+	 */
+	private static String getTypeDeclaration(TypeContext ctx) {
+		if (ctx instanceof Type_Boolean_TypeContext) {
+			return "Boolean";
+		}
+		if (ctx instanceof Type_String_TypeContext) {
+			return "String";
+		}
+		if (ctx instanceof Type_Void_TypeContext) {
+			return "void";
+		}
+		if (ctx instanceof Type_List_TypeContext) {
+			String valueType = getTypeDeclaration(((Type_List_TypeContext) ctx).type());
+			if (valueType.equals("Double")) valueType = "String"; // all Numeric Types will be converted to String in Java
+			return "List<" + valueType + ">";
+		}
+		if (ctx instanceof Type_Dict_TypeContext) {
+			String keyType = getTypeDeclaration(((Type_Dict_TypeContext) ctx).type(0));
+			String valueType = getTypeDeclaration(((Type_Dict_TypeContext) ctx).type(1));
+			if (keyType.equals("Double")) keyType = "String"; // all Numeric Types will be converted to String in Java
+			if (valueType.equals("Double")) valueType = "String"; // all Numeric Types will be converted to String in Java
+			return "Map<" + keyType + ", " + valueType + ">";
+		}
+
+		// numbers and units
+		return "Double";
 	}
 
-	public static String getCorrespondingTypeDeclaration(String type, String key, String value) {
-		switch(type) {
-		case "number"	: return "Double";
-		case "string"	: return "String";
-		case "boolean"	: return "Boolean";
-		case "void"		: return "void";
-		case "list"		: return "ArrayList<"+value+">";
-		case "dict"		: return "HashMap<"+key+","+value+">";
-		default : return "Double";
+	/**
+	 * @param type the Java type of a Potatoes value
+	 * @return the primitive type for numeric and boolean values
+	 */
+	private static String primitive(String type) {
+		switch (type) {
+		case "Double"	: return "double";
+		case "Boolean"	: return "boolean";
+		default : return type;
 		}
 	}
-	
+
 	private static String getVarTypeDeclaration(Variable var) {
 		
 		if (var.isNumeric()) {
@@ -2329,17 +2291,6 @@ public class PotatoesCompiler extends PotatoesBaseVisitor<ST> {
 		return "List<" + param + ">";
 	}
 	
-	private static String getDictDeclaration(String keyType, String valueType) {
-		if (keyType.equals("string")) keyType = "String";
-		else if (keyType.equals("boolean")) keyType = "Boolean";
-		else keyType = "Double";
-		
-		if (keyType.equals("string")) keyType = "String";
-		else if (keyType.equals("boolean")) keyType = "Boolean";
-		else keyType = "Double";
-		
-		return "Map<" + keyType + ", " + valueType + ">";
-	}
 	
 	private static String getListValueDeclaration(String valType) {
 
@@ -2549,44 +2500,37 @@ public class PotatoesCompiler extends PotatoesBaseVisitor<ST> {
 		
 		return valType;
 	}
-	
-	private static boolean typeIsList(ST exprST) {
-		if (((String)exprST.getAttribute("type")).contains("List"))
-				return true;
-		return false;
-	}
-	
-	private static boolean typeIsMap(ST exprST) {
-		if (((String)exprST.getAttribute("type")).contains("Map"))
+	private boolean typeIsList(List<IRInstruction> expr) {
+		if (type(expr).contains("List"))
 				return true;
 		return false;
 	}
 	
-	private static boolean typeIsString(ST exprST) {
-		if (((String)exprST.getAttribute("type")).equals("String"))
+	private boolean typeIsMap(List<IRInstruction> expr) {
+		if (type(expr).contains("Map"))
 				return true;
 		return false;
 	}
 	
-	private static boolean typeIsBoolean(ST exprST) {
-		if (((String)exprST.getAttribute("type")).equals("Boolean"))
+	private boolean typeIsString(List<IRInstruction> expr) {
+		if (type(expr).equals("String"))
 				return true;
 		return false;
 	}
 	
-	private static boolean typeIsEntry(ST exprST) {
-		if (((String)exprST.getAttribute("type")).contains("Entry"))
+	private boolean typeIsBoolean(List<IRInstruction> expr) {
+		if (type(expr).equals("Boolean"))
 				return true;
 		return false;
 	}
 	
-	private static boolean typeIsDouble(ST exprST) {
-		if (((String)exprST.getAttribute("type")).equals("Double"))
+	private boolean typeIsDouble(List<IRInstruction> expr) {
+		if (type(expr).equals("Double"))
 				return true;
 		return false;
 	}
 		
-	private static void openScope() {
+	private void openScope() {
 		
 		HashMap<String, String> newSymbolTable = new HashMap<>();
 		int lastIndex = symbolTableNames.size()-1;
@@ -2600,34 +2544,33 @@ public class PotatoesCompiler extends PotatoesBaseVisitor<ST> {
 		
 	}
 	
-	private static void closeScope() {
+	private void closeScope() {
 		
 		int lastIndex = symbolTableNames.size()-1;
 		symbolTableNames.remove(lastIndex);
 	}
 	
-	private static void symbolTableNamesPut(String key, String value) {
+	private void symbolTableNamesPut(String key, String value) {
 		
 		int lastIndex = symbolTableNames.size()-1;
 		symbolTableNames.get(lastIndex).put(key, value);
 	}
 	
-	private static String symbolTableNamesGet(String key) {
+	private String symbolTableNamesGet(String key) {
 		
 		int lastIndex = symbolTableNames.size()-1;
 		return symbolTableNames.get(lastIndex).get(key);
 	}
 	
-	private static String indent = "";
+	private String indent = "";
 	
-	private static String oi() {
+	private String oi() {
 		indent = indent + "\t";
 		return indent;
 	}
 	
-	private static void ci() {
+	private void ci() {
 		indent = indent.substring(0, indent.length()-1);
 	}
 		
 }
-
@@ -0,0 +1,265 @@
+package compiler;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.antlr.v4.runtime.CharStream;
+import org.antlr.v4.runtime.CharStreams;
+import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import compiler.ir.BytecodeLowering;
+import compiler.ir.IRProgram;
+import compiler.ir.JavaLowering;
+import compiler.ir.PassManager;
+import potatoesGrammar.grammar.PotatoesLexer;
+import potatoesGrammar.grammar.PotatoesLowering;
+import potatoesGrammar.grammar.PotatoesParser;
+import utils.errorHandling.CompilationException;
+import utils.errorHandling.Diagnostic;
+import utils.errorHandling.ErrorHandling;
+import utils.errorHandling.ErrorHandlingListener;
+
+/**
+ * <b>PotatoesEngine</b><p>
+ *
+ * Compiler to embed in other programs (a build tool compiling many files in one JVM): it compiles sources given as
+ * strings, readers or files, and returns the Java class (or its class file) with the messages of the compilation,
+ * without writing files, logging, throwing or exiting (a file that can not be read is an error of the result).<p>
+ * An engine can be used for any number of compilations, and what the JVM loads for the first one is kept for the next:
+ * the DFAs of the parsers and the units files read last (by the hash of the file, shared by the compilations).<p>
+ * Each compilation has its own checker, compiler and messages, so the threads can use the same engine at the same
+ * time: the whole compilation runs in the thread that compiles.
+ */
+public class PotatoesEngine {
+
+	// where the units files of the sources that are not files are found
+	private final Path directory;
+
+	private boolean bytecode = false;
+
+	/**
+	 * Engine that finds the units files of the sources given as strings or readers in the working directory
+	 */
+	public PotatoesEngine() {
+		this(Paths.get(""));
+	}
+
+	/**
+	 * @param directory where the units files of the sources given as strings or readers are found
+	 */
+	public PotatoesEngine(Path directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * @param bytecode true to generate the class file instead of the Java class (the Java class is generated if the
+	 * program has code the bytecode backend does not support)
+	 */
+	public void setBytecode(boolean bytecode) {
+		this.bytecode = bytecode;
+	}
+
+	/**
+	 * @param name name of the class generated
+	 * @param source code of the Potatoes program
+	 * @return the result of the compilation
+	 */
+	public Result compile(String name, String source) {
+		return compile(name, CharStreams.fromString(source, name), directory.resolve(name));
+	}
+
+	/**
+	 * @param name name of the class generated
+	 * @param source code of the Potatoes program (read to its end, not closed)
+	 * @return the result of the compilation (with an error if the source could not be read)
+	 */
+	public Result compile(String name, Reader source) {
+		try {
+			return compile(name, CharStreams.fromReader(source, name), directory.resolve(name));
+		}
+		catch (IOException e) {
+			return unread(name, "The source of " + name, e);
+		}
+	}
+
+	/**
+	 * @param file Potatoes file (the class generated is named after it)
+	 * @return the result of the compilation (with an error if the file could not be read)
+	 */
+	public Result compile(Path file) {
+		String name = className(file.getFileName().toString());
+		try {
+			return compile(name, CharStreams.fromPath(file), file);
+		}
+		catch (IOException e) {
+			return unread(name, "File \"" + file + "\"", e);
+		}
+	}
+
+	/**
+	 * @param fileName name of a Potatoes file
+	 * @return the name of the class generated for the file
+	 */
+	public static String className(String fileName) {
+		String name = fileName.split("\\.")[0];
+		if (name.isEmpty() || (name.charAt(0) != '$' && name.charAt(0) != '_' && !Character.isLetter(name.charAt(0)))) {
+			name = "_" + name;
+		}
+		return name;
+	}
+
+	/**
+	 * @param source what could not be read
+	 * @return the result of a compilation of a source that could not be read
+	 */
+	private static Result unread(String name, String source, IOException e) {
+		Result result = new Result(name);
+		result.diagnostics.add(new Diagnostic(Diagnostic.Kind.ERROR, 0, source + " could not be read! (" + e + ")"));
+		return result;
+	}
+
+	private Result compile(String name, CharStream input, Path path) {
+		Result result = new Result(name);
+		ErrorHandling errors = new ErrorHandling(result.diagnostics);
+
+		// the parse tree, its tokens and the checker are dropped once the intermediate representation is built
+		IRProgram ir = generate(input, path, result, errors);
+		if (ir == null) {
+			return result;
+		}
+
+		PassManager.standardPasses().run(ir);
+		for (String warning : ir.warnings) {
+			result.diagnostics.add(new Diagnostic(Diagnostic.Kind.WARNING, 0, warning + "!"));
+		}
+		result.endPhase("passes");
+		if (bytecode) {
+			try {
+				result.classFile = BytecodeLowering.lower(ir);
+				result.endPhase("lower");
+				return result;
+			}
+			catch (IllegalStateException e) {
+				result.diagnostics.add(new Diagnostic(Diagnostic.Kind.WARNING, 0, e.getMessage() + "! Generating the Java class instead."));
+			}
+		}
+		result.java = JavaLowering.lower(ir);
+		result.endPhase("lower");
+		return result;
+	}
+
+	/**
+	 * Parses and checks the program, and generates its code
+	 * @param errors where the messages are recorded (in the result)
+	 * @return the intermediate representation of the class (before the passes), or null if the program has errors
+	 */
+	private static IRProgram generate(CharStream input, Path path, Result result, ErrorHandling errors) {
+		PotatoesParser parser = new PotatoesParser(new CommonTokenStream(new PotatoesLexer(input)));
+		parser.removeErrorListeners();
+		parser.addErrorListener(new ErrorHandlingListener(errors));
+		ParseTree tree = parser.program();
+		result.endPhase("parse");
+		if (parser.getNumberOfSyntaxErrors() > 0) {
+			return null;
+		}
+
+		try {
+			new PotatoesLowering().lower(tree);
+			PotatoesSemanticCheck checker = new PotatoesSemanticCheck(path.toString(), tree, errors);
+			if (!checker.visit(tree)) {
+				return null;
+			}
+			return new PotatoesCompiler(checker).compile(tree, result.name);
+		}
+		catch (CompilationException e) {
+			if (!errors.error()) {
+				errors.printError(e.getMessage());
+			}
+			return null;
+		}
+		// a checker that goes on after an error it reported can fail on what is missing: the file has errors, the
+		// other files of the engine are still compiled
+		catch (RuntimeException e) {
+			if (!errors.error()) {
+				errors.printError("Internal error of the compiler: " + e);
+			}
+			return null;
+		}
+		finally {
+			result.endPhase("check");
+		}
+	}
+
+	/**
+	 * What a compilation gives: the code generated (if the program has no errors) and the messages
+	 */
+	public static class Result {
+		private final String				name;
+		private final List<Diagnostic>		diagnostics	= new ArrayList<>();
+		private String						java;
+		private byte[]						classFile;
+		private final Map<String, Long>		phases		= new LinkedHashMap<>();
+		private long						phaseStart	= System.nanoTime();
+
+		private Result(String name) {
+			this.name = name;
+		}
+
+		/**
+		 * @return the name of the class generated
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * @return true if the program compiled (the messages have no errors)
+		 */
+		public boolean succeeded() {
+			return java != null || classFile != null;
+		}
+
+		/**
+		 * @return the Java class, or null if the class file was generated or the program has errors
+		 */
+		public String getJava() {
+			return java;
+		}
+
+		/**
+		 * @return the class file, or null if the Java class was generated or the program has errors
+		 */
+		public byte[] getClassFile() {
+			return classFile;
+		}
+
+		/**
+		 * @return the messages of the compilation, in the order they were given
+		 */
+		public List<Diagnostic> getDiagnostics() {
+			return Collections.unmodifiableList(diagnostics);
+		}
+
+		/**
+		 * @return the time taken by each phase of the compilation, in nanoseconds (parse, check and generation, passes
+		 * and lowering), in the order they were done
+		 */
+		public Map<String, Long> getPhases() {
+			return Collections.unmodifiableMap(phases);
+		}
+
+		private void endPhase(String phase) {
+			long now = System.nanoTime();
+			phases.put(phase, now - phaseStart);
+			phaseStart = now;
+		}
+	}
+}
@@ -12,19 +12,25 @@
 
 package compiler;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
 
 import org.antlr.v4.runtime.ParserRuleContext;
-import org.antlr.v4.runtime.tree.ParseTreeProperty;
+import org.antlr.v4.runtime.tree.ParseTree;
+import org.antlr.v4.runtime.tree.TerminalNode;
 
 import potatoesGrammar.grammar.PotatoesBaseVisitor;
 import potatoesGrammar.grammar.PotatoesFunctionNames;
@@ -32,7 +38,9 @@ import potatoesGrammar.grammar.PotatoesParser.*;
 import potatoesGrammar.utils.DictTuple;
 import potatoesGrammar.utils.DictVar;
 import potatoesGrammar.utils.ListVar;
+import potatoesGrammar.utils.Operator;
 import potatoesGrammar.utils.Variable;
+import potatoesGrammar.utils.VariableTable;
 import potatoesGrammar.utils.varType;
 import unitsGrammar.grammar.*;
 import utils.errorHandling.ErrorHandling;
@@ -48,56 +56,89 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	private static final boolean debug = false;
 
 	// --------------------------------------------------------------------------
-	// Static Fields
-	private static String UnitsFilePath;
-	private static String PotatoesFilePath;
-	
-	private	static Units							unitsFile;		// initialized in visitUsing();
-	private static PotatoesFunctionNames			functions;		// initialized in CTOR;
-	private static Map<String, FunctionIDContext>	functionNames;	// initialized in CTOR;
-	private static Map<String, List<String>>		functionArgs;	// initialized in CTOR;
-
-	protected static ParseTreeProperty<Variable> 		mapCtxVar		= new ParseTreeProperty<>();
-	protected static ParseTreeProperty<Variable> 		mapCtxListDict	= new ParseTreeProperty<>();
-	protected static List<HashMap<String, Variable>>	symbolTable 	= new ArrayList<>();
-	
-	protected static boolean visitedMain = false;
-	protected static String currentReturn = null;
-	
- 	public PotatoesSemanticCheck(String PotatoesFilePath){
- 		PotatoesSemanticCheck.PotatoesFilePath = PotatoesFilePath;
-		functions = new PotatoesFunctionNames(PotatoesFilePath);
+	// Instance Fields (one checker for each program checked)
+	private String UnitsFilePath;
+	private final String PotatoesFilePath;
+	
+	private	Units									unitsFile;		// initialized in visitUsing();
+	private final PotatoesFunctionNames				functions;		// initialized in CTOR;
+	private final Map<String, FunctionIDContext>	functionNames;	// initialized in CTOR;
+	private final Map<String, List<String>>			functionArgs;	// initialized in CTOR;
+	private IncrementalCache						incrementalCache;	// initialized in CTOR (null if not incremental);
+	private final ErrorHandling						errors;			// initialized in CTOR;
+
+	protected final VariableTable 					mapCtxVar		= new VariableTable();
+	protected final VariableTable 					mapCtxListDict	= new VariableTable();
+	protected final List<HashMap<String, Variable>>	symbolTable 	= new ArrayList<>();
+	
+	protected boolean visitedMain = false;
+	protected String currentReturn = null;
+	
+ 	/**
+ 	 * @param PotatoesFilePath path of the Potatoes file (the units file is found from it)
+ 	 * @param tree parse tree of the Potatoes file, already lowered
+ 	 * @param errors where the errors of the program are reported
+ 	 */
+ 	public PotatoesSemanticCheck(String PotatoesFilePath, ParseTree tree, ErrorHandling errors){
+ 		this(PotatoesFilePath, new PotatoesFunctionNames(tree), errors);
+ 	}
+
+ 	private PotatoesSemanticCheck(String PotatoesFilePath, PotatoesFunctionNames functions, ErrorHandling errors){
+ 		this.PotatoesFilePath = PotatoesFilePath;
+		this.functions = functions;
+		this.errors = errors;
 		functionNames = functions.getFunctions();
 		functionArgs = functions.getFunctionsArgs();
 		symbolTable.add(new HashMap<String, Variable>());
-		if (debug) ErrorHandling.printInfo("The PotatoesFilePath is: " + PotatoesFilePath);
-	}
+		if (debug) errors.printInfo("The PotatoesFilePath is: " + PotatoesFilePath);
+	}
+ 	
+ 	/**
+ 	 * Constructor for incremental compilation: functions that are clean in the cache are not checked again
+ 	 * @param PotatoesFilePath path of the Potatoes file
+ 	 * @param tree parse tree of the Potatoes file, already lowered
+ 	 * @param incrementalCache cache already analyzed for the parse tree that will be visited
+ 	 * @param errors where the errors of the program are reported
+ 	 */
+ 	public PotatoesSemanticCheck(String PotatoesFilePath, ParseTree tree, IncrementalCache incrementalCache, ErrorHandling errors){
+ 		this(PotatoesFilePath, tree, errors);
+ 		this.incrementalCache = incrementalCache;
+ 	}
+
 	
 	// --------------------------------------------------------------------------
 	// Getters
-	public static ParseTreeProperty<Variable> getmapCtxVar(){
+	public VariableTable getmapCtxVar(){
 		return mapCtxVar;
 	}
 	
-	public static ParseTreeProperty<Variable> getmapCtxListDict(){
+	public VariableTable getmapCtxListDict(){
 		return mapCtxListDict;
 	}
 
-	public static Units getUnitsFileInfo() {
+	public Units getUnitsFileInfo() {
 		return unitsFile;
 	}
 	
-	public static Map<String, FunctionIDContext> getFunctionNames() {
+	public Map<String, FunctionIDContext> getFunctionNames() {
 		return functionNames;
 	}
 	
+	public IncrementalCache getIncrementalCache() {
+		return incrementalCache;
+	}
+	
+	public ErrorHandling getErrorHandling() {
+		return errors;
+	}
+	
 	// --------------------------------------------------------------------------
 	// Main Rules 	
 
 	@Override 
 	public Boolean visitProgram(ProgramContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->PROGRAM\n");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->PROGRAM\n");
 		
 		Boolean valid = visit(ctx.using());
 		List<GlobalStatementContext> globalStatementsInstructions = ctx.globalStatement();
@@ -146,19 +187,19 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitUsing(UsingContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->USING");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->USING");
 
 		// Get information from the units file
 		UnitsFilePath = getStringText(ctx.STRING().getText());
 		
 		UnitsFilePath = PotatoesFilePath.substring(0, PotatoesFilePath.lastIndexOf("/")+1) + UnitsFilePath;
 		
-		if (debug) { ErrorHandling.printInfo(ctx, "UnitsFilePath is : " + UnitsFilePath);}
-		unitsFile = new Units(UnitsFilePath);
+		if (debug) { errors.printInfo(ctx, "UnitsFilePath is : " + UnitsFilePath);}
+		unitsFile = Units.read(UnitsFilePath, errors);
 
 		if (debug) {
-			ErrorHandling.printInfo(ctx, "Units File path is: " + UnitsFilePath);
-			//ErrorHandling.printInfo(ctx, unitsFile.toString());
+			errors.printInfo(ctx, "Units File path is: " + UnitsFilePath);
+			//errors.printInfo(ctx, unitsFile.toString());
 			ci();
 		}
 		
@@ -168,7 +209,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitGlobalStatement_Declaration(GlobalStatement_DeclarationContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->GLOBAL STATEMENT - DECLARATION");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->GLOBAL STATEMENT - DECLARATION");
 		
 		boolean valid = visit(ctx.varDeclaration()); 
 		
@@ -180,7 +221,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitGlobalStatement_Assignment(GlobalStatement_AssignmentContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->GLOBAL STATEMENT - ASSIGNMENT");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->GLOBAL STATEMENT - ASSIGNMENT");
 		
 		
 		boolean valid = false;
@@ -188,7 +229,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			valid =  visit(ctx.assignment());
 		}
 		else {
-			ErrorHandling.printError(ctx, "No re-assignments allowed in global Scope");
+			errors.printError(ctx, "No re-assignments allowed in global Scope");
 		}
 		
 		if(debug) ci();
@@ -199,7 +240,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitGlobalStatement_FunctionMain(GlobalStatement_FunctionMainContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->GLOBAL STATEMENT - FUNCTION MAIN");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->GLOBAL STATEMENT - FUNCTION MAIN");
 		
 		boolean valid = visitChildren(ctx);
 		
@@ -211,7 +252,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitGlobalStatement_FunctionID(GlobalStatement_FunctionIDContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->GLOBAL STATEMENT - FUNCTION ID");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->GLOBAL STATEMENT - FUNCTION ID");
 		
 		boolean valid = visitChildren(ctx);
 		
@@ -226,7 +267,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitStatement_Declaration(Statement_DeclarationContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->STATEMENT - DECLARATION");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->STATEMENT - DECLARATION");
 		
 		boolean valid = visit(ctx.varDeclaration());
 		
@@ -238,7 +279,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitStatement_Assignment(Statement_AssignmentContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->STATEMENT - ASSIGNMENT");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->STATEMENT - ASSIGNMENT");
 		
 		boolean valid =  visit(ctx.assignment());
 		
@@ -250,7 +291,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitStatement_Control_Flow_Statement(Statement_Control_Flow_StatementContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->STATEMENT - CONTROL FLOW STATEMENT");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->STATEMENT - CONTROL FLOW STATEMENT");
 		
 		boolean valid = visitChildren(ctx);
 		
@@ -262,7 +303,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitStatement_FunctionCall(Statement_FunctionCallContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->STATEMENT - FUNCTION CALL");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->STATEMENT - FUNCTION CALL");
 		
 		boolean valid =  visit(ctx.functionCall());
 		
@@ -274,7 +315,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitStatement_InputOutput(Statement_InputOutputContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->STATEMENT - INPUT OUTPUT");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->STATEMENT - INPUT OUTPUT");
 		
 		boolean valid = visit(ctx.inputOutput());
 		
@@ -286,7 +327,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitStatement_Expression(Statement_ExpressionContext ctx) {
 	
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->STATEMENT - EXPRESSION");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->STATEMENT - EXPRESSION");
 		
 		boolean valid = false;
 		
@@ -310,7 +351,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitAssignment_Var_Declaration_Expression(Assignment_Var_Declaration_ExpressionContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->ASSIGNMENT - VAR DECLARATION - EXPRESSION");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->ASSIGNMENT - VAR DECLARATION - EXPRESSION");
 		
 		if (!visit(ctx.varDeclaration()) || !visit(ctx.expression())) {
 			return false;
@@ -318,16 +359,16 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		
 		Variable var = new Variable(mapCtxVar.get(ctx.varDeclaration()));
 		Variable expr = new Variable(mapCtxVar.get(ctx.expression()));
-		String varName = ctx.varDeclaration().ID().getText();
+		String varName = ctx.varDeclaration().getName();
 		
 		if (expr.getVarType() == varType.VOID) {
-			ErrorHandling.printError(ctx, "expression value is null, cannot be assigned");
+			errors.printError(ctx, "expression value is null, cannot be assigned");
 			return false;
 		}
 		
 		// Types are not compatible -> error
 		else if (var.getVarType() != expr.getVarType()) {
-			ErrorHandling.printError(ctx, "Units in assignment are not compatible");
+			errors.printError(ctx, "Units in assignment are not compatible");
 			return false;
 		}
 		
@@ -335,7 +376,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		if (var.isList()) {
 			
 			if(!((ListVar) var.getValue()).getType().equals(((ListVar) expr.getValue()).getType())) {
-				ErrorHandling.printError(ctx, "Lists values in assignment are not compatible");
+				errors.printError(ctx, "Lists values in assignment are not compatible");
 				return false;
 			}
 		}
@@ -344,11 +385,11 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		else if (var.isDict()) {
 			
 			if(!((DictVar) var.getValue()).getKeyType().equals(((DictVar) expr.getValue()).getKeyType())) {
-				ErrorHandling.printError(ctx, "Dict keys in assignment are not compatible");
+				errors.printError(ctx, "Dict keys in assignment are not compatible");
 				return false;
 			}
 			if(!((DictVar) var.getValue()).getValueType().equals(((DictVar) expr.getValue()).getValueType())) {
-				ErrorHandling.printError(ctx, "Dict values in assignment are not compatible");
+				errors.printError(ctx, "Dict values in assignment are not compatible");
 				return false;
 			}
 		}
@@ -361,7 +402,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				expr.convertUnitTo(var.getUnit());
 			}
 			catch (IllegalArgumentException e) {
-				ErrorHandling.printError(ctx, "Units in assignment are not compatible");
+				errors.printError(ctx, "Units in assignment are not compatible");
 				return false;
 			}
 		}
@@ -371,8 +412,8 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		updateSymbolTable(varName, expr);
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> varDeclaration : varName = " + varName + ", var = " + var);
-			ErrorHandling.printInfo(ctx,indent + "-> expression = " + expr);
+			errors.printInfo(ctx,indent + "-> varDeclaration : varName = " + varName + ", var = " + var);
+			errors.printInfo(ctx,indent + "-> expression = " + expr);
 			ci();
 		}
 		
@@ -382,7 +423,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitAssignment_Var_Expression(Assignment_Var_ExpressionContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->ASSIGNMENT - VAR - EXPRESSION");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->ASSIGNMENT - VAR - EXPRESSION");
 		
 		if (!visit(ctx.var()) || !visit(ctx.expression())) {
 			return false;
@@ -393,12 +434,12 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		
 		// Units are not compatible -> error
 		if (var.getVarType() != expr.getVarType()) {
-			ErrorHandling.printError(ctx, "Units in assignment are not compatible");
+			errors.printError(ctx, "Units in assignment are not compatible");
 			return false;
 		}
 		
 		if (expr.getVarType() == varType.VOID) {
-			ErrorHandling.printError(ctx, "expression value is null, cannot be assigned");
+			errors.printError(ctx, "expression value is null, cannot be assigned");
 			return false;
 		}
 		
@@ -410,18 +451,18 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				expr.convertUnitTo(var.getUnit());
 			}
 			catch (IllegalArgumentException e) {
-				ErrorHandling.printError(ctx, "Units in assignment are not compatible");
+				errors.printError(ctx, "Units in assignment are not compatible");
 				return false;
 			}
 		}
 		
 		// units are compatible -> ok
 		mapCtxVar.put(ctx, expr);
-		updateSymbolTable(ctx.var().ID().getText(), expr);
+		updateSymbolTable(ctx.var().getName(), expr);
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> varDeclaration : varName = " + ctx.var().getText() + ", var = " + var);
-			ErrorHandling.printInfo(ctx,indent + "-> expression = " + expr);
+			errors.printInfo(ctx,indent + "-> varDeclaration : varName = " + ctx.var().getText() + ", var = " + var);
+			errors.printInfo(ctx,indent + "-> expression = " + expr);
 			ci();
 		}
 		
@@ -434,14 +475,21 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitFunctionMain(FunctionMainContext ctx) {
 
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->FUNCTION MAIN");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->FUNCTION MAIN");
 		
 		if (visitedMain == true) {
-			ErrorHandling.printError(ctx, "Only one main function is allowed");
+			errors.printError(ctx, "Only one main function is allowed");
 			return false;
 		}
 		
 		visitedMain = true;
+		
+		// main did not change since last compilation (nor the functions it calls, that would make it dirty)
+		if (incrementalCache != null && incrementalCache.isClean("main")) {
+			if (debug) ci();
+			return true;
+		}
+		
 		openFunctionScope();
 		boolean valid = visit(ctx.scope());
 		
@@ -453,7 +501,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitFunctionID(FunctionIDContext ctx) {
 
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->ASSIGNMENT - FUNCTION ID");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->ASSIGNMENT - FUNCTION ID");
 		
 		if (!visit(ctx.scope())) {
 			return false;
@@ -469,13 +517,13 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitFunctionReturn(FunctionReturnContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->FUNCTION RETURN");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->FUNCTION RETURN");
 		
 		if (ctx.expression() == null) {
 			if (currentReturn == null) {
 				return true;
 			}
-			ErrorHandling.printError(ctx, "return is not compatible with function signature");
+			errors.printError(ctx, "return is not compatible with function signature");
 			return false;
 		}
 		
@@ -488,14 +536,14 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		
 		if (var.isNumeric()) {
 			
-			if (Units.exists(currentReturn)) {
+			if (unitsFile.exists(currentReturn)) {
 				
 				try {
-					var.convertUnitTo(Units.instanceOf(currentReturn));
+					var.convertUnitTo(unitsFile.instanceOf(currentReturn));
 					// jumps to the end
 				}
 				catch (IllegalArgumentException e) {
-					ErrorHandling.printError(ctx, "Retturn unit is not compatible with fucntion signature");
+					errors.printError(ctx, "Retturn unit is not compatible with fucntion signature");
 					return false;
 				}
 			}
@@ -506,15 +554,15 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			!(var.isList() && currentReturn.equals("list")) &&
 			!(var.isDict() && currentReturn.equals("dict"))) {
 			
-			ErrorHandling.printError(ctx, "return is not compatible with function signature");
+			errors.printError(ctx, "return is not compatible with function signature");
 			return false;
 		}
 		
 		mapCtxVar.put(ctx, var);
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent + "-> expressionn : return var = " + var);
-			ErrorHandling.printInfo(ctx,indent +  "currentReturn is: " + currentReturn);
+			errors.printInfo(ctx,indent + "-> expressionn : return var = " + var);
+			errors.printInfo(ctx,indent +  "currentReturn is: " + currentReturn);
 			ci();
 		}
 		
@@ -525,7 +573,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitFunctionCall(FunctionCallContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->FUNCTION CALL");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->FUNCTION CALL");
 		
 		Boolean valid = true;
 		for (ExpressionContext expr : ctx.expression()) {
@@ -536,14 +584,14 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		}
 		
 		// get function context to be visited and args needed from list of functions	
-		FunctionIDContext functionToVisit = functionNames.get(ctx.ID().getText());
-		List<String> argsToUse	= functionArgs.get(ctx.ID().getText());
+		FunctionIDContext functionToVisit = functionNames.get(ctx.getName());
+		List<String> argsToUse	= functionArgs.get(ctx.getName());
 		
 		// update currentReturn
 		currentReturn = functionToVisit.type(0).getText();
 		String cr = currentReturn;
-		if (!Units.exists(cr) && !cr.equals("string") && !cr.equals("boolean") && !cr.equals("list") && !cr.equals("dict") && !cr.equals("void")) {
-			ErrorHandling.printError(ctx, "Function return unit is not a valid unit");
+		if (!unitsFile.exists(cr) && !cr.equals("string") && !cr.equals("boolean") && !cr.equals("list") && !cr.equals("dict") && !cr.equals("void")) {
+			errors.printError(ctx, "Function return unit is not a valid unit");
 			return false;
 		}
 		
@@ -556,14 +604,14 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				
 		// if number of arguments do not match -> error
 		if(argsToUse.size() != functionCallArgs.size()) {
-			ErrorHandling.printError(ctx, "Number of arguments in function call do not match required arguments");
+			errors.printError(ctx, "Number of arguments in function call do not match required arguments");
 			return false;
 		}
 		
 		// verify that all arguments units match function arguments
 		for (int i = 0; i < functionCallArgs.size(); i++) {
 			
-			String toUseArg = argsToUse.get(i+1);
+			String toUseArg = argsToUse.get(i);
 			Variable callArg = functionCallArgs.get(i);
 			
 			if (toUseArg.equals("string") && callArg.isString()) {
@@ -585,33 +633,55 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				}
 			}
 			else {
-				ErrorHandling.printError(ctx, "function call arguments are no compatible with function signature");
+				errors.printError(ctx, "function call arguments are no compatible with function signature");
 				return false;
 			}
 		}
 		
+		// function did not change since last compilation -> it is not checked again if its result is not used, or if
+		// the last compilation checked a call with the same arguments and global variables (the result is the same)
+		String call = null;
+		if (incrementalCache != null && !cr.equals("void")) {
+			call = describeCall(functionCallArgs);
+		}
+		if (incrementalCache != null && incrementalCache.isClean(ctx.getName())) {
+			Variable result = call == null ? null : resultOf(incrementalCache.getResult(ctx.getName(), call));
+			if (cr.equals("void") || result != null) {
+				if (result != null) {
+					mapCtxVar.put(ctx, result);
+				}
+				if (debug) ci();
+				return true;
+			}
+		}
+		
 		// open new scope
 		openFunctionScope();
 		
 		// store new variables with function call value and function signature name
 		for (int i = 0; i < functionCallArgs.size(); i++) {
-			updateSymbolTable(argsToUse.get(i), functionCallArgs.get(i));
+			updateSymbolTable(functionToVisit.ID(i+1).getText(), functionCallArgs.get(i));
+			// the compiler declares the parameter from the annotation of its type
+			mapCtxVar.put(functionToVisit.type(i+1), functionCallArgs.get(i));
 		}
 		
-		// visit the function with correct scope and arguments
-		visit(functionToVisit);
+		// visit the function with correct scope and arguments (the errors of its body are errors of the call)
+		valid = visit(functionToVisit);
 		
 		// update tables and visit function
 		if (mapCtxVar.get(functionToVisit) != null) {
 			mapCtxVar.put(ctx, new Variable(mapCtxVar.get(functionToVisit)));
+			if (call != null && valid) {
+				incrementalCache.putResult(ctx.getName(), call, describeResult(mapCtxVar.get(functionToVisit)));
+			}
 		}
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx,indent +  "currentReturn is: " + currentReturn);
+			errors.printInfo(ctx,indent +  "currentReturn is: " + currentReturn);
 			ci();
 		}
 		
-		return true;
+		return valid;
 	}
 
 
@@ -621,7 +691,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitControlFlowStatement(ControlFlowStatementContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->CONTROL FLOW STATEMENT");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->CONTROL FLOW STATEMENT");
 		
 		boolean valid = visitChildren(ctx);
 		
@@ -633,7 +703,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitForLoop(ForLoopContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->FOR LOOP");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->FOR LOOP");
 		
 		extendScope();
 		
@@ -660,7 +730,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitWhileLoop(WhileLoopContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->WHILE LOOP");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->WHILE LOOP");
 		
 		extendScope();
 		
@@ -671,7 +741,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		// condition is boolean -> ok
 		Variable var = new Variable(mapCtxVar.get(ctx.expression()));
 		if (!var.isBoolean()) {
-			ErrorHandling.printError(ctx, "If condition must be boolean");
+			errors.printError(ctx, "If condition must be boolean");
 			return false;
 		}
 
@@ -686,7 +756,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitCondition(ConditionContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->CONDITION");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->CONDITION");
 		
 		boolean valid = visitChildren(ctx);
 		
@@ -698,7 +768,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitIfCondition(IfConditionContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->IF CONDITION");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->IF CONDITION");
 		
 		extendScope();
 		
@@ -710,7 +780,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		Variable var = new Variable(mapCtxVar.get(ctx.expression()));
 		
 		if (!var.isBoolean()) {
-			ErrorHandling.printError(ctx, "If condition must be boolean");
+			errors.printError(ctx, "If condition must be boolean");
 			return false;
 		}
 
@@ -725,7 +795,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitElseIfCondition(ElseIfConditionContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->ELSE IF CONDITION");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->ELSE IF CONDITION");
 		
 		extendScope();
 		
@@ -736,7 +806,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		// condition is boolean -> ok
 		Variable var = new Variable(mapCtxVar.get(ctx.expression()));
 		if (!var.isBoolean()) {
-			ErrorHandling.printError(ctx, "If condition must be boolean");
+			errors.printError(ctx, "If condition must be boolean");
 			return false;
 		}
 
@@ -751,7 +821,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitElseCondition(ElseConditionContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->ELSE CONDITION");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->ELSE CONDITION");
 		
 		extendScope();
 		
@@ -768,7 +838,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitScope(ScopeContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->SCOPE");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->SCOPE");
 		
 		Boolean valid = true;
 		List<StatementContext> statements = ctx.statement();
@@ -809,7 +879,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitExpression_Parenthesis(Expression_ParenthesisContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION PARENTHESIS");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION PARENTHESIS");
 		
 		if(!visit(ctx.expression())) {
 			return false;
@@ -817,7 +887,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		mapCtxVar.put(ctx, new Variable(mapCtxVar.get(ctx.expression())));
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, "Expression in Parenthesis is: " + mapCtxVar.get(ctx.expression()));
+			errors.printInfo(ctx, "Expression in Parenthesis is: " + mapCtxVar.get(ctx.expression()));
 			ci();
 		}
 		
@@ -827,7 +897,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitExpression_LISTINDEX(Expression_LISTINDEXContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION LISTINDEX");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION LISTINDEX");
 		
 		if(!visit(ctx.expression(0)) || !visit(ctx.expression(1))) {
 			return false;
@@ -839,7 +909,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		// expression units are list and numeric ('number') -> ok
 		if (var0.isList() && var1.isNumeric()) {
 			
-			if (var1.getUnit().equals(Units.instanceOf("number"))){
+			if (var1.getUnit().equals(unitsFile.instanceOf("number"))){
 				
 				ListVar listVar = (ListVar) var0.getValue();
 				int index = ((Double) var1.getValue()).intValue();
@@ -849,30 +919,30 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 					mapCtxVar.put(ctx, get);
 					
 					if (debug) {
-						ErrorHandling.printInfo(ctx, indent+" -> expression 0 : " + var0);
-						ErrorHandling.printInfo(ctx, indent+" -> expression 1 : " + var1);
-						ErrorHandling.printInfo(ctx, indent+" -> get result : " + get);
+						errors.printInfo(ctx, indent+" -> expression 0 : " + var0);
+						errors.printInfo(ctx, indent+" -> expression 1 : " + var1);
+						errors.printInfo(ctx, indent+" -> get result : " + get);
 						ci();
 					}
 					
 					return true;
 				}
 				catch (IndexOutOfBoundsException e) {
-					ErrorHandling.printError(ctx, "Index out of bounds");
+					errors.printError(ctx, "Index out of bounds");
 					return false;
 				}
 			}
 		}
 		
 		// other expression combinations -> error
-		ErrorHandling.printError(ctx, "Bad operands for operator '[ ]'");
+		errors.printError(ctx, "Bad operands for operator '[ ]'");
 		return false;	
 	}
 	
 	@Override
 	public Boolean visitExpression_ISEMPTY(Expression_ISEMPTYContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION ISEMPTY");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION ISEMPTY");
 		
 		if(!visit(ctx.expression())) {
 			return false;
@@ -900,7 +970,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		}
 		
 		else {
-			ErrorHandling.printError(ctx, "Bad operand units for operation 'isEmpty'");
+			errors.printError(ctx, "Bad operand units for operation 'isEmpty'");
 			return false;
 		}
 		
@@ -908,8 +978,8 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		mapCtxVar.put(ctx, var);
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> expression : " + exprVar);
-			ErrorHandling.printInfo(ctx, indent+" -> isEMpty? : " + var);
+			errors.printInfo(ctx, indent+" -> expression : " + exprVar);
+			errors.printInfo(ctx, indent+" -> isEMpty? : " + var);
 			ci();
 		}
 		
@@ -919,7 +989,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitExpression_SIZE(Expression_SIZEContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION SIZE");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION SIZE");
 		
 		if(!visit(ctx.expression())) {
 			return false;
@@ -947,16 +1017,16 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		}
 		
 		else {
-			ErrorHandling.printError(ctx, "Bad operand units for operation 'size'");
+			errors.printError(ctx, "Bad operand units for operation 'size'");
 			return false;
 		}
 		
-		Variable var = new Variable(Units.instanceOf("number") , varType.NUMERIC, size.doubleValue());
+		Variable var = new Variable(unitsFile.instanceOf("number") , varType.NUMERIC, size.doubleValue());
 		mapCtxVar.put(ctx, var);
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> expression : " + exprVar);
-			ErrorHandling.printInfo(ctx, indent+" -> isEMpty? : " + var);
+			errors.printInfo(ctx, indent+" -> expression : " + exprVar);
+			errors.printInfo(ctx, indent+" -> isEMpty? : " + var);
 			ci();
 		}
 		
@@ -966,7 +1036,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitExpression_SORT(Expression_SORTContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION SORT");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION SORT");
 		
 		if(!visit(ctx.expression())) {
 			return false;
@@ -1003,14 +1073,14 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		
 		if (debug) ci();
 		
-		ErrorHandling.printError(ctx, "Bad operand units for operator 'sort'");
+		errors.printError(ctx, "Bad operand units for operator 'sort'");
 		return false;
 	}
 	
 	@Override
 	public Boolean visitExpression_KEYS(Expression_KEYSContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION KEYS");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION KEYS");
 		
 		if(!visit(ctx.expression())) {
 			return false;
@@ -1037,14 +1107,14 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			return true;
 		}
 		
-		ErrorHandling.printError(ctx, "Bad operand units for operator 'value'");
+		errors.printError(ctx, "Bad operand units for operator 'value'");
 		return false;
 	}
 	
 	@Override
 	public Boolean visitExpression_VALUES(Expression_VALUESContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION VALUES");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION VALUES");
 		
 		if(!visit(ctx.expression())) {
 			return false;
@@ -1071,14 +1141,14 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			return true;
 		}
 		
-		ErrorHandling.printError(ctx, "Bad operand units for operator value");
+		errors.printError(ctx, "Bad operand units for operator value");
 		return false;
 	}
 	
 	@Override
 	public Boolean visitExpression_Cast(Expression_CastContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION CAST");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION CAST");
 		
 		if(!visitChildren(ctx)) {
 			return false;
@@ -1088,23 +1158,23 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		Variable castVar = new Variable(mapCtxVar.get(ctx.cast()));
 		
 		if (!exprVar.isNumeric()) {
-			ErrorHandling.printError(ctx, "Invalid operands for operartor cast");
+			errors.printError(ctx, "Invalid operands for operartor cast");
 			return false;
 		}
 			
 		try {
-			exprVar.convertUnitTo(Units.instanceOf(castVar.getUnit().getName()));
+			exprVar.convertUnitTo(unitsFile.instanceOf(castVar.getUnit().getName()));
 		}
 		catch (IllegalArgumentException e) {
-			ErrorHandling.printError(ctx, "Units are not compatible, cast is not possible");
+			errors.printError(ctx, "Units are not compatible, cast is not possible");
 			return false;
 		}
 		
 		mapCtxVar.put(ctx, exprVar);
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> expression : " + exprVar);
-			ErrorHandling.printInfo(ctx, indent+" -> cast Name : " + castVar.getUnit().getName());
+			errors.printInfo(ctx, indent+" -> expression : " + exprVar);
+			errors.printInfo(ctx, indent+" -> cast Name : " + castVar.getUnit().getName());
 			ci();
 		}
 		
@@ -1114,29 +1184,29 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitExpression_UnaryOperators(Expression_UnaryOperatorsContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION UNARY OPERATORS");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION UNARY OPERATORS");
 		
 		if(!visit(ctx.expression())) {
 			return false;
 		}
 		
 		Variable var = new Variable(mapCtxVar.get(ctx.expression()));
-		String op = ctx.op.getText();
+		Operator op = ctx.getOperator();
 		Variable res = null;
 		
-		if ((op.equals("-") && var.isNumeric())) {
+		if ((op == Operator.NEGATIVE && var.isNumeric())) {
 			
 			res = Variable.simetric(var);
 		}
 		
-		else if (op.equals("!") && var.isBoolean()) {
+		else if (op == Operator.NOT && var.isBoolean()) {
 			
 			res = new Variable(var.getUnit(), var.getVarType(), !((Boolean) var.getValue()));
 		}
 		// other variable combinations
 		else {
 			
-			ErrorHandling.printError(ctx, "Bad operand units for operator + '" + op + "'");
+			errors.printError(ctx, "Bad operand units for operator + '" + op + "'");
 			return false;
 		}
 		
@@ -1150,7 +1220,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitExpression_Power(Expression_PowerContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION POWER");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION POWER");
 		
 		if(!visit(ctx.expression(0)) || !visit(ctx.expression(1))) {
 			return false;
@@ -1161,16 +1231,33 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		
 		if (base.isNumeric() && pow.isNumeric()) {
 			
-			if (pow.getUnit().equals(Units.instanceOf("number"))) {
+			if (pow.getUnit().equals(unitsFile.instanceOf("number"))) {
 				
-				Variable res = Variable.power(base, pow);
+				// the unit of the result depends on the exponent, that has to be known at compile time
+				// (the value tracked for a variable may not be the one it has at run time)
+				Double exponent = constantNumber(ctx.expression(1));
+				if (!base.getUnit().equals(unitsFile.instanceOf("number"))
+						&& (exponent == null || exponent != Math.rint(exponent) || exponent.isInfinite())) {
+					errors.printError(ctx, "The exponent of a value with units has to be a constant integer");
+					return false;
+				}
+				
+				Variable res;
+				if (base.getValue() != null && pow.getValue() != null) {
+					res = Variable.power(base, pow);
+				}
+				else {
+					Variable unit = new Variable(base.getUnit(), varType.NUMERIC, 1.0);
+					Variable constant = new Variable(unitsFile.instanceOf("number"), varType.NUMERIC, exponent == null ? 1.0 : exponent);
+					res = new Variable(Variable.power(unit, constant).getUnit(), varType.NUMERIC, null);
+				}
 				
 				mapCtxVar.put(ctx, res);
 				
 				if (debug) {
-					ErrorHandling.printInfo(ctx, indent+ " -> base: " + base);
-					ErrorHandling.printInfo(ctx, indent+ " -> power: " + pow);
-					ErrorHandling.printInfo(ctx, indent+ " -> result: " + res);
+					errors.printInfo(ctx, indent+ " -> base: " + base);
+					errors.printInfo(ctx, indent+ " -> power: " + pow);
+					errors.printInfo(ctx, indent+ " -> result: " + res);
 					ci();
 				}
 				
@@ -1179,49 +1266,177 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		}
 			
 		// other variable combinations
-		ErrorHandling.printError(ctx, "Bad operand units for operator '^'");
+		errors.printError(ctx, "Bad operand units for operator '^'");
 		return false;
 	}
 	
-	@Override 
+	/**
+	 * @return the value of the expression if it is known at compile time: a number written in the program (in
+	 * parenthesis or negated), an arithmetic operation of such values, or a number variable of the function assigned
+	 * only where it is declared, to such a value (see functionConstants), null otherwise
+	 */
+	static Double constantNumber(ExpressionContext ctx) {
+		return constantNumber(ctx, null, new HashSet<>());
+	}
+
+	/**
+	 * @param constants the constants of the function of the expression, null if not found yet
+	 * @param folding the constants whose value is being found (a value that reads itself is not known)
+	 */
+	private static Double constantNumber(ExpressionContext ctx, Map<String, ExpressionContext> constants, Set<String> folding) {
+		if (ctx instanceof Expression_ParenthesisContext) {
+			return constantNumber(((Expression_ParenthesisContext) ctx).expression(), constants, folding);
+		}
+		if (ctx instanceof Expression_UnaryOperatorsContext && ((Expression_UnaryOperatorsContext) ctx).getOperator() == Operator.NEGATIVE) {
+			Double value = constantNumber(((Expression_UnaryOperatorsContext) ctx).expression(), constants, folding);
+			return value == null ? null : -value;
+		}
+		if (ctx instanceof Expression_ValueContext && ((Expression_ValueContext) ctx).value() instanceof Value_NumberContext) {
+			try {
+				return Double.parseDouble(((Value_NumberContext) ((Expression_ValueContext) ctx).value()).NUMBER().getText());
+			}
+			catch (NumberFormatException e) {
+				return null;
+			}
+		}
+		if (ctx instanceof Expression_PowerContext || ctx instanceof Expression_Mult_Div_ModContext || ctx instanceof Expression_Add_SubContext) {
+			Double left = constantNumber(ctx.getChild(ExpressionContext.class, 0), constants, folding);
+			Double right = left == null ? null : constantNumber(ctx.getChild(ExpressionContext.class, 1), constants, folding);
+			if (right == null) {
+				return null;
+			}
+			switch (ctx.getOperator()) {
+				case POWER:		return Math.pow(left, right);
+				case MULTIPLY:	return left * right;
+				case DIVIDE:	return left / right;
+				case MOD:		return left % right;
+				case ADD:		return left + right;
+				case SUBTRACT:	return left - right;
+				default:		return null;
+			}
+		}
+		if (ctx instanceof Expression_VarContext) {
+			String name = ((Expression_VarContext) ctx).var().ID().getText();
+			if (constants == null) {
+				constants = functionConstants(ctx);
+			}
+			if (!constants.containsKey(name) || !folding.add(name)) {
+				return null;
+			}
+			Double value = constantNumber(constants.get(name), constants, folding);
+			folding.remove(name);
+			return value;
+		}
+		return null;
+	}
+
+	/**
+	 * @param ctx a node of a function
+	 * @return the number variables declared in the function (main or other) with a value and not assigned after, by
+	 * name, with the expression of their value. The global variables (that the other functions may assign) and the
+	 * parameters are not constants, and nor are the names declared more than once in the function
+	 */
+	private static Map<String, ExpressionContext> functionConstants(ParserRuleContext ctx) {
+		Map<String, ExpressionContext> constants = new HashMap<>();
+		ParserRuleContext function = ctx;
+		while (function != null && !(function instanceof FunctionMainContext) && !(function instanceof FunctionIDContext)) {
+			function = function.getParent();
+		}
+		if (function == null) {
+			return constants;
+		}
+
+		Set<String> assigned = new HashSet<>();
+		ParserRuleContext program = function;
+		while (!(program instanceof ProgramContext)) {
+			program = program.getParent();
+		}
+		for (GlobalStatementContext statement : ((ProgramContext) program).globalStatement()) {
+			VarDeclarationContext declaration = statement.getRuleContext(VarDeclarationContext.class, 0);
+			AssignmentContext assignment = statement.getRuleContext(AssignmentContext.class, 0);
+			if (assignment != null) {
+				declaration = assignment.getRuleContext(VarDeclarationContext.class, 0);
+			}
+			if (declaration != null) {
+				assigned.add(declaration.ID().getText());
+			}
+		}
+		if (function instanceof FunctionIDContext) {
+			List<TerminalNode> ids = ((FunctionIDContext) function).ID();
+			for (int i = 1; i < ids.size(); i++) {
+				assigned.add(ids.get(i).getText());
+			}
+		}
+
+		// the nodes of the function, without recursion (the chains of operations are deep)
+		Deque<ParseTree> nodes = new ArrayDeque<>();
+		nodes.push(function);
+		while (!nodes.isEmpty()) {
+			ParseTree node = nodes.pop();
+			if (node instanceof VarDeclarationContext) {
+				VarDeclarationContext declaration = (VarDeclarationContext) node;
+				String name = declaration.ID().getText();
+				if (constants.containsKey(name) || !(declaration.type() instanceof Type_Number_TypeContext)
+						|| !(declaration.getParent() instanceof Assignment_Var_Declaration_ExpressionContext)) {
+					assigned.add(name);
+				}
+				else {
+					constants.put(name, ((Assignment_Var_Declaration_ExpressionContext) declaration.getParent()).expression());
+				}
+			}
+			else if (node instanceof Assignment_Var_ExpressionContext) {
+				assigned.add(((Assignment_Var_ExpressionContext) node).var().ID().getText());
+			}
+			for (int i = 0; i < node.getChildCount(); i++) {
+				nodes.push(node.getChild(i));
+			}
+		}
+		constants.keySet().removeAll(assigned);
+		return constants;
+	}
+	
+	@Override
 	public Boolean visitExpression_Mult_Div_Mod(Expression_Mult_Div_ModContext ctx) {
+		return visitLeftDeepChain(ctx, c -> checkExpression_Mult_Div_Mod((Expression_Mult_Div_ModContext) c));
+	}
+	
+	/**
+	 * checks one operation of a chain, with both operands already visited
+	 */
+	private Boolean checkExpression_Mult_Div_Mod(Expression_Mult_Div_ModContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION MULT DIV MOD");
-		
-		if(!visit(ctx.expression(0)) || !visit(ctx.expression(1))) {
-			return false;
-		}
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION MULT DIV MOD");
 		
 		Variable var0 = new Variable(mapCtxVar.get(ctx.expression(0)));
 		Variable var1 = new Variable(mapCtxVar.get(ctx.expression(1)));
-		String op = ctx.op.getText();
+		Operator op = ctx.getOperator();
 	
 		if (var0.isNumeric() && var1.isNumeric()) {
 			
 			Variable res = null;
 			// Modulus
-			if (op.equals("%")) {
+			if (op == Operator.MOD) {
 				try {
 					res = Variable.mod(var0, var1);
 				}
 				catch (IllegalArgumentException e) {
-					ErrorHandling.printError(ctx, "Right side of mod expression has to be of Unit Number!");
+					errors.printError(ctx, "Right side of mod expression has to be of Unit Number!");
 					return false;
 				}
 			}
 			
 			// Multiplication
-			else if (op.equals("*")) {
+			else if (op == Operator.MULTIPLY) {
 				res = Variable.multiply(var0, var1);
 			}
 			
 			// Division expression
-			else if (op.equals("/")) {
+			else if (op == Operator.DIVIDE) {
 				try {
 					res = Variable.divide(var0, var1);
 				}
 				catch (ArithmeticException e) {
-					ErrorHandling.printError(ctx, "Cannot divide by zero");
+					errors.printError(ctx, "Cannot divide by zero");
 				}
 			}
 			
@@ -1229,10 +1444,10 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			mapCtxVar.put(ctx, res);
 			
 			if (debug) {
-				ErrorHandling.printInfo(ctx, indent+" -> Numerical Operation!");
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-				ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-				ErrorHandling.printInfo(ctx, indent+" -> result of op " + op + ": " + res);
+				errors.printInfo(ctx, indent+" -> Numerical Operation!");
+				errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+				errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+				errors.printInfo(ctx, indent+" -> result of op " + op + ": " + res);
 				ci();
 			}
 			
@@ -1240,7 +1455,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		}
 		
 		// one operand is string and the other is numeric (unit number) -> ok (string expanded concatenation)
-		else if (((var0.isString() && var1.isNumeric()) || (var0.isNumeric() && var1.isString())) && op.equals("*")) {
+		else if (((var0.isString() && var1.isNumeric()) || (var0.isNumeric() && var1.isString())) && op == Operator.MULTIPLY) {
 			
 			String str = "";
 			int mult = 0;
@@ -1249,7 +1464,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				str = (String) var0.getValue();
 			}
 			else {
-				if (var0.getUnit().equals(Units.instanceOf("number"))) {
+				if (var0.getUnit().equals(unitsFile.instanceOf("number"))) {
 					mult = ((Double) var0.getValue()).intValue();
 				}
 			}
@@ -1258,7 +1473,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				str = (String) var1.getValue();
 			}
 			else {
-				if (var1.getUnit().equals(Units.instanceOf("number"))) {
+				if (var1.getUnit().equals(unitsFile.instanceOf("number"))) {
 					mult = ((Double) var1.getValue()).intValue();
 				}
 			}
@@ -1272,10 +1487,10 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			mapCtxVar.put(ctx, new Variable (null, varType.STRING, finalStr));
 			
 			if (debug) {
-				ErrorHandling.printInfo(ctx, indent+" -> String Operation!");
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-				ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-				ErrorHandling.printInfo(ctx, indent+" -> result of op " + op + ": " + finalStr);
+				errors.printInfo(ctx, indent+" -> String Operation!");
+				errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+				errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+				errors.printInfo(ctx, indent+" -> result of op " + op + ": " + finalStr);
 				ci();
 			}
 			
@@ -1283,37 +1498,40 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		}
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> Bad operands Error");
-			ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-			ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-			ErrorHandling.printInfo(ctx, indent+" -> op: " + op);
+			errors.printInfo(ctx, indent+" -> Bad operands Error");
+			errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+			errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+			errors.printInfo(ctx, indent+" -> op: " + op);
 			ci();
 		}
 		
 		// other variable combinations
-		ErrorHandling.printError(ctx, "Bad operand units for operator '" + op + "'");
+		errors.printError(ctx, "Bad operand units for operator '" + op + "'");
 		return false;
 	}
 	
-	@Override 
+	@Override
 	public Boolean visitExpression_Add_Sub(Expression_Add_SubContext ctx) {
+		return visitLeftDeepChain(ctx, c -> checkExpression_Add_Sub((Expression_Add_SubContext) c));
+	}
+	
+	/**
+	 * checks one operation of a chain, with both operands already visited
+	 */
+	private Boolean checkExpression_Add_Sub(Expression_Add_SubContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION ADD SUB");
-		
-		if(!visit(ctx.expression(0)) || !visit(ctx.expression(1))) {
-			return false;
-		}
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION ADD SUB");
 		
 		Variable var0 = new Variable(mapCtxVar.get(ctx.expression(0)));
 		Variable var1 = new Variable(mapCtxVar.get(ctx.expression(1)));
-		String op = ctx.op.getText();
+		Operator op = ctx.getOperator();
 		
 		// both elements are numeric -> ok
 		if (var0.isNumeric() && var1.isNumeric()) {
 	
 			try {
 				Variable res = null;
-				if (op.equals("+")) {
+				if (op == Operator.ADD) {
 					res = Variable.add(var0, var1);
 				}
 				else {
@@ -1322,23 +1540,23 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				mapCtxVar.put(ctx, res);
 				
 				if (debug) {
-					ErrorHandling.printInfo(ctx, indent+" -> Numeric Operation!");
-					ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-					ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-					ErrorHandling.printInfo(ctx, indent+" -> result of op " + op + ": " + res);
+					errors.printInfo(ctx, indent+" -> Numeric Operation!");
+					errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+					errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+					errors.printInfo(ctx, indent+" -> result of op " + op + ": " + res);
 					ci();
 				}
 				
 				return true;
 			}
 			catch (IllegalArgumentException e) {
-				ErrorHandling.printError(ctx, "Incompatible units");
+				errors.printError(ctx, "Incompatible units");
 				return false;
 			}
 		}
 		
 		// one operand is string and the other is string || boolean || numeric -> ok (string concatenation)
-		else if ((var0.isString() || var1.isString()) && op.equals("+") && !var0.isTuple() && !var1.isTuple()) {
+		else if ((var0.isString() || var1.isString()) && op == Operator.ADD && !var0.isTuple() && !var1.isTuple()) {
 			
 			String str0 = "";
 			String str1 = "";
@@ -1381,10 +1599,10 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			mapCtxVar.put(ctx, new Variable (null, varType.STRING, finalStr));
 			
 			if (debug) {
-				ErrorHandling.printInfo(ctx, indent+" -> String Operation!");
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-				ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-				ErrorHandling.printInfo(ctx, indent+" -> result of op " + op + ": " + finalStr);
+				errors.printInfo(ctx, indent+" -> String Operation!");
+				errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+				errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+				errors.printInfo(ctx, indent+" -> result of op " + op + ": " + finalStr);
 				ci();
 			}
 			
@@ -1392,21 +1610,21 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		}
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> Bas Operands Error!");
-			ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-			ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
+			errors.printInfo(ctx, indent+" -> Bas Operands Error!");
+			errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+			errors.printInfo(ctx, indent+" -> expression 1: " + var1);
 			ci();
 		}
 		
 		// other variable combinations
-		ErrorHandling.printError(ctx, "Bad operand units for operator '" + op + "'");
+		errors.printError(ctx, "Bad operand units for operator '" + op + "'");
 		return false;
 	}
 	
 	@Override
 	public Boolean visitExpression_RelationalQuantityOperators(Expression_RelationalQuantityOperatorsContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION RELATIONAL QUANTITY OPERATORS");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION RELATIONAL QUANTITY OPERATORS");
 		
 		if(!visit(ctx.expression(0)) || !visit(ctx.expression(1))) {
 			return false;
@@ -1414,18 +1632,18 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		
 		Variable var0 = new Variable(mapCtxVar.get(ctx.expression(0)));
 		Variable var1 = new Variable(mapCtxVar.get(ctx.expression(1)));
-		String op = ctx.op.getText();
+		Operator op = ctx.getOperator();
 		Double var0Val = (Double) var0.getValue();
 		Double var1Val = (Double) var1.getValue();
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-			ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
+			errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+			errors.printInfo(ctx, indent+" -> expression 1: " + var1);
 			ci();
 		}
 		
 		if (!(var0.isNumeric() && var1.isNumeric()) && !(var0.isString() && var1.isString())) {
-			ErrorHandling.printError(ctx, "Units to be compared are not compatible");
+			errors.printError(ctx, "Units to be compared are not compatible");
 			return false;
 		}
 		
@@ -1446,13 +1664,13 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		}
 		
 		Boolean res = false;
-		if (op.equals("<")) {
+		if (op == Operator.LESS) {
 			res = var0Val < var1Val;
 		}
-		else if (op.equals("<=")) {
+		else if (op == Operator.LESS_EQUAL) {
 			res = var0Val <= var1Val;
 		}
-		else if (op.equals(">")) {
+		else if (op == Operator.GREATER) {
 			res = var0Val > var1Val;
 		}
 		else {
@@ -1467,7 +1685,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitExpression_INSTANCEOF(Expression_INSTANCEOFContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION INSTANCEOF");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION INSTANCEOF");
 		
 		if(!visit(ctx.expression()) || !visit(ctx.type())) {
 			return false;
@@ -1499,7 +1717,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitExpression_RelationalEquality(Expression_RelationalEqualityContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION RELATIONAL EQUALITY");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION RELATIONAL EQUALITY");
 		
 		if(!visit(ctx.expression(0)) || !visit(ctx.expression(1))) {
 			return false;
@@ -1509,13 +1727,13 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		Variable var1 = new Variable(mapCtxVar.get(ctx.expression(1)));
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-			ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
+			errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+			errors.printInfo(ctx, indent+" -> expression 1: " + var1);
 			ci();
 		}
 		
 		if (!(var0.getVarType() == var1.getVarType())) {
-			ErrorHandling.printError(ctx, "Units to be compared are not compatible");
+			errors.printError(ctx, "Units to be compared are not compatible");
 			return false;
 		}
 		
@@ -1540,26 +1758,29 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	
 	@Override
 	public Boolean visitExpression_logicalOperation(Expression_logicalOperationContext ctx) {
+		return visitLeftDeepChain(ctx, c -> checkExpression_logicalOperation((Expression_logicalOperationContext) c));
+	}
+	
+	/**
+	 * checks one operation of a chain, with both operands already visited
+	 */
+	private Boolean checkExpression_logicalOperation(Expression_logicalOperationContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION LOGICAL OPERATION");
-		
-		if(!visit(ctx.expression(0)) || !visit(ctx.expression(1))) {
-			return false;
-		}
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION LOGICAL OPERATION");
 		
 		Variable var0 = new Variable(mapCtxVar.get(ctx.expression(0)));
 		Variable var1 = new Variable(mapCtxVar.get(ctx.expression(1)));
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-			ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
+			errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+			errors.printInfo(ctx, indent+" -> expression 1: " + var1);
 			ci();
 		}
 		
 		if (var0.isBoolean() && var1.isBoolean()) {
 			
 			Boolean res = null;
-			if (ctx.op.getText().equals("&&")) {
+			if (ctx.getOperator() == Operator.AND) {
 				res = ((Boolean)var0.getValue()) && ((Boolean)var1.getValue());
 			}
 			else {
@@ -1570,14 +1791,14 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			return true;
 		}
 		
-		ErrorHandling.printError(ctx, "bad operand units for logical operator '" + ctx.op.getText() + "'");
+		errors.printError(ctx, "bad operand units for logical operator '" + ctx.getOperator() + "'");
 		return false;
 	}
 	
 	@Override
 	public Boolean visitExpression_tuple(Expression_tupleContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION TUPLE");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION TUPLE");
 		
 		if(!visit(ctx.expression(0)) || !visit(ctx.expression(1))) {
 			return false;
@@ -1591,9 +1812,9 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		mapCtxVar.put(ctx, new Variable(null, varType.TUPLE, tuple));
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-			ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-			ErrorHandling.printInfo(ctx, indent+" -> tuple: " + tuple);
+			errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+			errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+			errors.printInfo(ctx, indent+" -> tuple: " + tuple);
 			ci();
 		}
 		
@@ -1603,7 +1824,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitExpression_ADD(Expression_ADDContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION ADD");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION ADD");
 		
 		if(!visit(ctx.expression(0)) || !visit(ctx.expression(1))) {
 			return false;
@@ -1627,12 +1848,12 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			}
 			
 			// list is parameterized with numeric unit
-			else if (Units.exists(listValueType) && var1.isNumeric()) {
+			else if (unitsFile.exists(listValueType) && var1.isNumeric()) {
 				
 				// as number is compatible with everything, it has to be blocked manually
-				if ((!listValueType.equals("number") && var1.getUnit().equals(Units.instanceOf("number")))
-						|| (listValueType.equals("number") && !var1.getUnit().equals(Units.instanceOf("number")))) {
-					ErrorHandling.printError(ctx, "Bad operand. Unit '" + listValueType + "' is not compatible with '" + var1.getUnit().getName() + "'");
+				if ((!listValueType.equals("number") && var1.getUnit().equals(unitsFile.instanceOf("number")))
+						|| (listValueType.equals("number") && !var1.getUnit().equals(unitsFile.instanceOf("number")))) {
+					errors.printError(ctx, "Bad operand. Unit '" + listValueType + "' is not compatible with '" + var1.getUnit().getName() + "'");
 					return false;
 				}
 				
@@ -1640,22 +1861,22 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				if (!listVar.isBlocked()) {
 					
 					// list value unit and expression unit are not compatible -> error
-					if (var1.getUnit().isCompatible(Units.instanceOf(listValueType))) {
+					if (var1.getUnit().isCompatible(unitsFile.instanceOf(listValueType))) {
 						added = listVar.getList().add(var1);
 					}
 					else {
-						ErrorHandling.printError(ctx, "Bad operand. Unit '" + listValueType + "' is not compatible with '" + var1.getUnit().getName() + "'");
+						errors.printError(ctx, "Bad operand. Unit '" + listValueType + "' is not compatible with '" + var1.getUnit().getName() + "'");
 						return false;
 					}
 				}
 				// list is blocked to specific unit
 				else {
 
-					if (var1.getUnit().equals(Units.instanceOf("valueType"))) {
+					if (var1.getUnit().equals(unitsFile.instanceOf("valueType"))) {
 						added = listVar.getList().add(var1);
 					}
 					else {
-						ErrorHandling.printError(ctx, "Bad operand. Unit '" + var1.getUnit().getName() + "' is not equal to blocked list values type '" + listValueType + "'");
+						errors.printError(ctx, "Bad operand. Unit '" + var1.getUnit().getName() + "' is not equal to blocked list values type '" + listValueType + "'");
 						return false;
 					}
 				}
@@ -1731,12 +1952,12 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 							}
 							
 							if (!blocked) {
-								if (!Units.instanceOf(eType).isCompatible(Units.instanceOf(lType))) {
+								if (!unitsFile.instanceOf(eType).isCompatible(unitsFile.instanceOf(lType))) {
 									valid = false;
 								}
 							}
 							else {
-								if (!Units.instanceOf(eType).equals(Units.instanceOf(lType))) {
+								if (!unitsFile.instanceOf(eType).equals(unitsFile.instanceOf(lType))) {
 									valid = false;
 								}
 							}
@@ -1769,12 +1990,12 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 							
 							if (!blocked) {
 
-								if (!Units.instanceOf(eType).isCompatible(Units.instanceOf(lType))) {
+								if (!unitsFile.instanceOf(eType).isCompatible(unitsFile.instanceOf(lType))) {
 									valid = false;
 								}
 							}
 							else {
-								if (!Units.instanceOf(eType).equals(Units.instanceOf(lType))) {
+								if (!unitsFile.instanceOf(eType).equals(unitsFile.instanceOf(lType))) {
 									valid = false;
 								}
 							}
@@ -1787,7 +2008,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 					}
 					
 					if (!valid) {
-						ErrorHandling.printError(ctx, "Bad operand. Unit expression type is not compatible to blocked list values accepted types");
+						errors.printError(ctx, "Bad operand. Unit expression type is not compatible to blocked list values accepted types");
 						return false;
 					}
 				}
@@ -1797,13 +2018,13 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			mapCtxVar.put(ctx, new Variable(null, varType.BOOLEAN, added));
 			Variable list = new Variable(null, varType.LIST, listVar);
 			mapCtxListDict.put(ctx, list);
-			updateSymbolTable(ctx.expression(0).getText(), list);
+			updateSymbolTable(getExpressionName(ctx.expression(0)), list);
 			
 			if (debug) {
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0.toString());
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0 (list) type: " + ((ListVar) var0.getValue()).getType());
-				ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-				ErrorHandling.printInfo(ctx, indent+" -> added?: " + added);
+				errors.printInfo(ctx, indent+" -> expression 0: " + var0.toString());
+				errors.printInfo(ctx, indent+" -> expression 0 (list) type: " + ((ListVar) var0.getValue()).getType());
+				errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+				errors.printInfo(ctx, indent+" -> added?: " + added);
 				ci();
 			}
 			
@@ -1831,38 +2052,38 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 					
 					checkKey = true;
 				}
-				else if (Units.exists(keyUnit) && tupleKey.isNumeric()) {
+				else if (unitsFile.exists(keyUnit) && tupleKey.isNumeric()) {
 					
 					// as number is compatible with everything, it has to be blocked manually
-					if ((!keyUnit.equals("number") && tupleKey.getUnit().equals(Units.instanceOf("number")))
-							|| (keyUnit.equals("number") && !tupleKey.getUnit().equals(Units.instanceOf("number")))) {
-						ErrorHandling.printError(ctx, "Bad operand. Unit '" + keyUnit + "' is not compatible with 'number'");
+					if ((!keyUnit.equals("number") && tupleKey.getUnit().equals(unitsFile.instanceOf("number")))
+							|| (keyUnit.equals("number") && !tupleKey.getUnit().equals(unitsFile.instanceOf("number")))) {
+						errors.printError(ctx, "Bad operand. Unit '" + keyUnit + "' is not compatible with 'number'");
 						return false;
 					}
 					
 					// dict accepts compatible key units
 					if (!dictVar.isBlockedKey()) {
 						
-						if (tupleKey.getUnit().isCompatible(Units.instanceOf(keyUnit))) {
+						if (tupleKey.getUnit().isCompatible(unitsFile.instanceOf(keyUnit))) {
 							checkKey = true;
 						}
 					}
 					// dict key is blocked to specific unit
 					else {
 						
-						if (tupleKey.getUnit().equals(Units.instanceOf(keyUnit))) {
+						if (tupleKey.getUnit().equals(unitsFile.instanceOf(keyUnit))) {
 							checkKey = true;
 						}
 					}
 					
 					// key is not compatible
 					if (checkKey == false) {
-						ErrorHandling.printError(ctx, "Bad operand. Key unit is not compatible with dictionary parameterized key unit");
+						errors.printError(ctx, "Bad operand. Key unit is not compatible with dictionary parameterized key unit");
 						return false;
 					}
 				}
 				else {
-					ErrorHandling.printError(ctx, "Bad operand. Key unit is not compatible with dictionary parameterized key unit");
+					errors.printError(ctx, "Bad operand. Key unit is not compatible with dictionary parameterized key unit");
 					return false;
 				}
 				
@@ -1871,38 +2092,38 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 					
 					checkVal = true;
 				}
-				else if (Units.exists(valueUnit) && tupleValue.isNumeric()) {
+				else if (unitsFile.exists(valueUnit) && tupleValue.isNumeric()) {
 					
 					// as number is compatible with everything, it has to be blocked manually
-					if ((!valueUnit.equals("number") && tupleValue.getUnit().equals(Units.instanceOf("number")))
-							|| (valueUnit.equals("number") && !tupleValue.getUnit().equals(Units.instanceOf("number")))) {
-						ErrorHandling.printError(ctx, "Bad operand. Unit '" + valueUnit + "' is not compatible with 'number'");
+					if ((!valueUnit.equals("number") && tupleValue.getUnit().equals(unitsFile.instanceOf("number")))
+							|| (valueUnit.equals("number") && !tupleValue.getUnit().equals(unitsFile.instanceOf("number")))) {
+						errors.printError(ctx, "Bad operand. Unit '" + valueUnit + "' is not compatible with 'number'");
 						return false;
 					}
 					
 					// dict accepts compatible value units
 					if (!dictVar.isBlockedValue()) {
 						
-						if (tupleValue.getUnit().isCompatible(Units.instanceOf(valueUnit))) {
+						if (tupleValue.getUnit().isCompatible(unitsFile.instanceOf(valueUnit))) {
 							checkVal = true;
 						}
 					}
 					// dict value is blocked to specific unit
 					else {
 						
-						if (tupleValue.getUnit().equals(Units.instanceOf(valueUnit))) {
+						if (tupleValue.getUnit().equals(unitsFile.instanceOf(valueUnit))) {
 							checkVal = true;
 						}
 					}
 					
 					// value is not compatible
 					if (checkVal == false) {
-						ErrorHandling.printError(ctx, "Bad operand. Value unit is not compatible with dictionary parameterized value unit");
+						errors.printError(ctx, "Bad operand. Value unit is not compatible with dictionary parameterized value unit");
 						return false;
 					}
 				}
 				else {
-					ErrorHandling.printError(ctx, "Bad operand. Value unit is not compatible with dictionary parameterized key unit");
+					errors.printError(ctx, "Bad operand. Value unit is not compatible with dictionary parameterized key unit");
 					return false;
 				}
 				
@@ -1918,13 +2139,13 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				mapCtxVar.put(ctx, previous);
 				Variable dict = new Variable(null, varType.DICT, dictVar);
 				mapCtxListDict.put(ctx, dict);
-				updateSymbolTable(ctx.expression(0).getText(), dict);
+				updateSymbolTable(getExpressionName(ctx.expression(0)), dict);
 				
 				if (debug) {
-					ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-					ErrorHandling.printInfo(ctx, indent+" -> expression 0 (dict) types: " + ((DictVar) var0.getValue()).getKeyType() + ", " + ((DictVar) var0.getValue()).getValueType());
-					ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-					ErrorHandling.printInfo(ctx, indent+" -> previous: " + previous);
+					errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+					errors.printInfo(ctx, indent+" -> expression 0 (dict) types: " + ((DictVar) var0.getValue()).getKeyType() + ", " + ((DictVar) var0.getValue()).getValueType());
+					errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+					errors.printInfo(ctx, indent+" -> previous: " + previous);
 					ci();
 				}
 				
@@ -1933,21 +2154,21 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		}
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> Bad operands!");
-			ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-			ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
+			errors.printInfo(ctx, indent+" -> Bad operands!");
+			errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+			errors.printInfo(ctx, indent+" -> expression 1: " + var1);
 			ci();
 		}
 		
 		// Bad operands: var0 is not list || dict
-		ErrorHandling.printError(ctx, "Bad operand units for operator 'add'");
+		errors.printError(ctx, "Bad operand units for operator 'add'");
 		return false;
 	}
 	
 	@Override
 	public Boolean visitExpression_REM(Expression_REMContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION REM");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION REM");
 		
 		if(!visit(ctx.expression(0)) || !visit(ctx.expression(1))) {
 			return false;
@@ -1965,34 +2186,34 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			// expression unit is 'number' -> verify
 			if (var1.isNumeric()) {
 					
-				if (var1.getUnit().equals(Units.instanceOf("number"))) {
+				if (var1.getUnit().equals(unitsFile.instanceOf("number"))) {
 					try {
 						int index = ((Double)var1.getValue()).intValue();
 						Variable rem = new Variable(listVar.getList().remove(index));
 						mapCtxVar.put(ctx, rem);
 						Variable list = new Variable(null, varType.LIST, listVar);
 						mapCtxListDict.put(ctx, list);
-						updateSymbolTable(ctx.expression(0).getText(), list);
+						updateSymbolTable(getExpressionName(ctx.expression(0)), list);
 						
 						if (debug) {
-							ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-							ErrorHandling.printInfo(ctx, indent+" -> expression 0 (list) type: " + ((ListVar) var0.getValue()).getType());
-							ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-							ErrorHandling.printInfo(ctx, indent+" -> removed: " + rem);
+							errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+							errors.printInfo(ctx, indent+" -> expression 0 (list) type: " + ((ListVar) var0.getValue()).getType());
+							errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+							errors.printInfo(ctx, indent+" -> removed: " + rem);
 							ci();
 						}
 						
 						return true;
 					}
 					catch (IndexOutOfBoundsException e) {
-						ErrorHandling.printError(ctx, "Index out of bounds");
+						errors.printError(ctx, "Index out of bounds");
 						return false;
 					}
 				}
 			}
 			
 			// expression for index is not 'number -> error
-			ErrorHandling.printError(ctx, "Not a valid index");
+			errors.printError(ctx, "Not a valid index");
 			return false;	
 		}
 		
@@ -2009,38 +2230,38 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				
 				checkKey = true;
 			}
-			else if (Units.exists(keyUnit) && var1.isNumeric()) {
+			else if (unitsFile.exists(keyUnit) && var1.isNumeric()) {
 				
 				// as number is compatible with everything, it has to be blocked manually
-				if ((!keyUnit.equals("number") && var1.getUnit().equals(Units.instanceOf("number")))
-						|| (keyUnit.equals("number") && !var1.getUnit().equals(Units.instanceOf("number")))) {
-					ErrorHandling.printError(ctx, "Bad operand. Unit '" + keyUnit + "' is not compatible with 'number'");
+				if ((!keyUnit.equals("number") && var1.getUnit().equals(unitsFile.instanceOf("number")))
+						|| (keyUnit.equals("number") && !var1.getUnit().equals(unitsFile.instanceOf("number")))) {
+					errors.printError(ctx, "Bad operand. Unit '" + keyUnit + "' is not compatible with 'number'");
 					return false;
 				}
 				
 				// dict accepts compatible key units
 				if (!dictVar.isBlockedKey()) {
 					
-					if (var1.getUnit().isCompatible(Units.instanceOf(keyUnit))) {
+					if (var1.getUnit().isCompatible(unitsFile.instanceOf(keyUnit))) {
 						checkKey = true;
 					}
 				}
 				// dict key is blocked to specific unit
 				else {
 					
-					if (var1.getUnit().equals(Units.instanceOf(keyUnit))) {
+					if (var1.getUnit().equals(unitsFile.instanceOf(keyUnit))) {
 						checkKey = true;
 					}
 				}
 				
 				// key is not compatible
 				if (checkKey == false) {
-					ErrorHandling.printError(ctx, "Bad operand. Key unit is not compatible with dictionary parameterized key unit");
+					errors.printError(ctx, "Bad operand. Key unit is not compatible with dictionary parameterized key unit");
 					return false;
 				}
 			}
 			else {
-				ErrorHandling.printError(ctx, "Bad operand. Key unit is not compatible with dictionary parameterized key unit");
+				errors.printError(ctx, "Bad operand. Key unit is not compatible with dictionary parameterized key unit");
 				return false;
 			}
 			
@@ -2058,7 +2279,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 					}
 					index++;
 				}
-				mapCtxListDict.put(ctx, new Variable(Units.instanceOf("number"), varType.NUMERIC, index));
+				mapCtxListDict.put(ctx, new Variable(unitsFile.instanceOf("number"), varType.NUMERIC, index));
 				
 				// remove the entry
 				rem = new Variable(dictVar.getDict().remove(var1));
@@ -2073,13 +2294,13 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			mapCtxVar.put(ctx, rem);
 			Variable dict = new Variable(null, varType.DICT, dictVar);
 			//mapCtxListDict.put(ctx, dict);
-			updateSymbolTable(ctx.expression(0).getText(), dict);
+			updateSymbolTable(getExpressionName(ctx.expression(0)), dict);
 			
 			if (debug) {
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0 (dict) types: " + ((DictVar) var0.getValue()).getKeyType() + ", " + ((DictVar) var0.getValue()).getValueType());
-				ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-				ErrorHandling.printInfo(ctx, indent+" -> removed: " + rem);
+				errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+				errors.printInfo(ctx, indent+" -> expression 0 (dict) types: " + ((DictVar) var0.getValue()).getKeyType() + ", " + ((DictVar) var0.getValue()).getValueType());
+				errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+				errors.printInfo(ctx, indent+" -> removed: " + rem);
 				ci();
 			}
 			
@@ -2097,7 +2318,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				mapCtxVar.put(ctx, new Variable(null, varType.STRING, str));
 				
 				if (debug) {
-					ErrorHandling.printInfo(ctx, indent+" -> String operation");
+					errors.printInfo(ctx, indent+" -> String operation");
 					ci();
 				}
 				
@@ -2106,21 +2327,21 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		}
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> Bad operands!");
-			ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-			ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
+			errors.printInfo(ctx, indent+" -> Bad operands!");
+			errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+			errors.printInfo(ctx, indent+" -> expression 1: " + var1);
 			ci();
 		}
 		
 		// left expression is not list || dict || string nor right expression is boolean || string || numeric -> error
-		ErrorHandling.printError(ctx, "Bad operand for operator 'rem'");
+		errors.printError(ctx, "Bad operand for operator 'rem'");
 		return false;
 	}
 	
 	@Override
 	public Boolean visitExpression_GET(Expression_GETContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION GET");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION GET");
 		
 		if(!visit(ctx.expression(0)) || !visit(ctx.expression(1))) {
 			return false;
@@ -2137,31 +2358,31 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			// expression for index search is 'number' -> ok
 			if (var1.isNumeric()) {
 				
-				if (var1.getUnit().equals(Units.instanceOf("number"))) {
+				if (var1.getUnit().equals(unitsFile.instanceOf("number"))) {
 					try {
 						int index = ((Double) var1.getValue()).intValue();
 						Variable get = new Variable((Variable) listVar.getList().get(index));
 						mapCtxVar.put(ctx, get);
 						
 						if (debug) {
-							ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-							ErrorHandling.printInfo(ctx, indent+" -> expression 0 (list) type: " + ((ListVar) var0.getValue()).getType());
-							ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-							ErrorHandling.printInfo(ctx, indent+" -> get: " + get);
+							errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+							errors.printInfo(ctx, indent+" -> expression 0 (list) type: " + ((ListVar) var0.getValue()).getType());
+							errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+							errors.printInfo(ctx, indent+" -> get: " + get);
 							ci();
 						}
 						
 						return true;
 					}
 					catch (IndexOutOfBoundsException e) {
-						ErrorHandling.printError(ctx, "Index out of bounds");
+						errors.printError(ctx, "Index out of bounds");
 						return false;
 					}
 				}
 			}
 			
 			// expression for index search is not 'number -> error
-			ErrorHandling.printError(ctx, "Not a valid index");
+			errors.printError(ctx, "Not a valid index");
 			return false;
 		}
 		
@@ -2176,10 +2397,10 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				
 				// dict key unit and expression unit are not compatible -> error
 				try {
-					var1.convertUnitTo(Units.instanceOf(keyUnit));
+					var1.convertUnitTo(unitsFile.instanceOf(keyUnit));
 				}
 				catch (IllegalArgumentException e) {
-					ErrorHandling.printError(ctx, "Bad operand. Unit '" + keyUnit + "' is not compatible with '" + var1.getUnit().getName() + "'");
+					errors.printError(ctx, "Bad operand. Unit '" + keyUnit + "' is not compatible with '" + var1.getUnit().getName() + "'");
 					return false;
 				}
 				// dict key unit and expression unit are compatible -> ok (jumps to next code)
@@ -2199,11 +2420,11 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				}
 				index++;
 			}
-			mapCtxListDict.put(ctx, new Variable(Units.instanceOf("number"), varType.NUMERIC, index));
+			mapCtxListDict.put(ctx, new Variable(unitsFile.instanceOf("number"), varType.NUMERIC, index));
 			
 			// if dictionary does not contain key
 			if (get == null) {
-				ErrorHandling.printError(ctx, "Dictionary does not contain key");
+				errors.printError(ctx, "Dictionary does not contain key");
 				return false;
 			}
 			
@@ -2211,10 +2432,10 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			mapCtxVar.put(ctx, get);
 			
 			if (debug) {
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0 (dict) types: " + ((DictVar) var0.getValue()).getKeyType() + ", " + ((DictVar) var0.getValue()).getValueType());
-				ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-				ErrorHandling.printInfo(ctx, indent+" -> get: " + get);
+				errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+				errors.printInfo(ctx, indent+" -> expression 0 (dict) types: " + ((DictVar) var0.getValue()).getKeyType() + ", " + ((DictVar) var0.getValue()).getValueType());
+				errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+				errors.printInfo(ctx, indent+" -> get: " + get);
 				ci();
 			}
 			
@@ -2222,21 +2443,21 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		}
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> Bad operands!");
-			ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-			ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
+			errors.printInfo(ctx, indent+" -> Bad operands!");
+			errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+			errors.printInfo(ctx, indent+" -> expression 1: " + var1);
 			ci();
 		}
 		
 		// left expression is not list || dict nor right expression is boolean || string || numeric -> error
-		ErrorHandling.printError(ctx, "Bad operand units for operator 'get'");
+		errors.printError(ctx, "Bad operand units for operator 'get'");
 		return false;
 	}
 	
 	@Override
 	public Boolean visitExpression_CONTAINS(Expression_CONTAINSContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION CONTAINS");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION CONTAINS");
 		
 		if(!visit(ctx.expression(0)) || !visit(ctx.expression(1))) {
 			return false;
@@ -2257,10 +2478,10 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				
 				// list value unit and expression unit are not compatible -> error
 				try {
-					var1.convertUnitTo(Units.instanceOf(valueUnit));
+					var1.convertUnitTo(unitsFile.instanceOf(valueUnit));
 				}
 				catch (IllegalArgumentException e) {
-					ErrorHandling.printError(ctx, "Bad operand. Unit '" + valueUnit + "' is not compatible with '" + var1.getUnit().getName() + "'");
+					errors.printError(ctx, "Bad operand. Unit '" + valueUnit + "' is not compatible with '" + var1.getUnit().getName() + "'");
 					return false;
 				}
 				// list value unit and expression unit are compatible -> ok (jumps to next code
@@ -2271,10 +2492,10 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			mapCtxVar.put(ctx, new Variable(null, varType.BOOLEAN, contains));
 			
 			if (debug) {
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0 (list) type: " + ((ListVar) var0.getValue()).getType());
-				ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-				ErrorHandling.printInfo(ctx, indent+" -> contains?: " + contains);
+				errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+				errors.printInfo(ctx, indent+" -> expression 0 (list) type: " + ((ListVar) var0.getValue()).getType());
+				errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+				errors.printInfo(ctx, indent+" -> contains?: " + contains);
 				ci();
 			}
 			
@@ -2292,9 +2513,9 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				mapCtxVar.put(ctx, new Variable(null, varType.BOOLEAN, contains));
 				
 				if (debug) {
-					ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-					ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-					ErrorHandling.printInfo(ctx, indent+" -> contains?: " + contains);
+					errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+					errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+					errors.printInfo(ctx, indent+" -> contains?: " + contains);
 					ci();
 				}
 				
@@ -2302,26 +2523,26 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			}
 			
 			// expression to e searched is not string -> error
-			ErrorHandling.printError(ctx, "Operands are not compatible");
+			errors.printError(ctx, "Operands are not compatible");
 			return false;
 		}
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> Bad Operands!");
-			ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-			ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
+			errors.printInfo(ctx, indent+" -> Bad Operands!");
+			errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+			errors.printInfo(ctx, indent+" -> expression 1: " + var1);
 			ci();
 		}
 		
 		// left expression is not list || string nor right expression is not boolean || string || numeric -> error
-		ErrorHandling.printError(ctx, "Bad operand units for operator 'contains'");
+		errors.printError(ctx, "Bad operand units for operator 'contains'");
 		return false;
 	}
 	
 	@Override
 	public Boolean visitExpression_CONTAINSKEY(Expression_CONTAINSKEYContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION CONTAINSKEY");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION CONTAINSKEY");
 		
 		if(!visit(ctx.expression(0)) || !visit(ctx.expression(1))) {
 			return false;
@@ -2342,10 +2563,10 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				
 				// dict key unit and expression unit are not compatible -> error
 				try {
-					var1.convertUnitTo(Units.instanceOf(keyUnit));
+					var1.convertUnitTo(unitsFile.instanceOf(keyUnit));
 				}
 				catch (IllegalArgumentException e) {
-					ErrorHandling.printError(ctx, "Bad operand. Unit '" + keyUnit + "' is not compatible with '" + var1.getUnit().getName() + "'");
+					errors.printError(ctx, "Bad operand. Unit '" + keyUnit + "' is not compatible with '" + var1.getUnit().getName() + "'");
 					return false;
 				}
 				// dict key unit and expression unit are compatible -> ok (jumps to next code)
@@ -2356,10 +2577,10 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			mapCtxVar.put(ctx, new Variable(null, varType.BOOLEAN, contains));
 			
 			if (debug) {
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0 (dict) types: " + ((DictVar) var0.getValue()).getKeyType() + ", " + ((DictVar) var0.getValue()).getValueType());
-				ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-				ErrorHandling.printInfo(ctx, indent+" -> contains?: " + contains);
+				errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+				errors.printInfo(ctx, indent+" -> expression 0 (dict) types: " + ((DictVar) var0.getValue()).getKeyType() + ", " + ((DictVar) var0.getValue()).getValueType());
+				errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+				errors.printInfo(ctx, indent+" -> contains?: " + contains);
 				ci();
 			}
 			
@@ -2367,21 +2588,21 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		}
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> Bad Operands!");
-			ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-			ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
+			errors.printInfo(ctx, indent+" -> Bad Operands!");
+			errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+			errors.printInfo(ctx, indent+" -> expression 1: " + var1);
 			ci();
 		}
 		
 		// either left expression is not dict or right expression is not boolean || string || numeric -> error
-		ErrorHandling.printError(ctx, "Bad operand units for operator 'containsKey'");
+		errors.printError(ctx, "Bad operand units for operator 'containsKey'");
 		return false;
 	}
 	
 	@Override
 	public Boolean visitExpression_CONTAINSVALUE(Expression_CONTAINSVALUEContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION CONTAINSVALUE");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION CONTAINSVALUE");
 		
 		if(!visit(ctx.expression(0)) || !visit(ctx.expression(1))) {
 			return false;
@@ -2401,10 +2622,10 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				
 				// dict value unit and expression unit are not compatible -> error
 				try {
-					var1.convertUnitTo(Units.instanceOf(valueUnit));
+					var1.convertUnitTo(unitsFile.instanceOf(valueUnit));
 				}
 				catch (IllegalArgumentException e) {
-					ErrorHandling.printError(ctx, "Bad operand. Unit '" + valueUnit + "' is not compatible with '" + var1.getUnit().getName() + "'");
+					errors.printError(ctx, "Bad operand. Unit '" + valueUnit + "' is not compatible with '" + var1.getUnit().getName() + "'");
 					return false;
 				}
 				// dict value unit and expression unit are compatible -> ok (jumps to next code
@@ -2415,10 +2636,10 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			mapCtxVar.put(ctx, new Variable(null, varType.BOOLEAN, contains));
 			
 			if (debug) {
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0 (dict) types: " + ((DictVar) var0.getValue()).getKeyType() + ", " + ((DictVar) var0.getValue()).getValueType());
-				ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-				ErrorHandling.printInfo(ctx, indent+" -> contains?: " + contains);
+				errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+				errors.printInfo(ctx, indent+" -> expression 0 (dict) types: " + ((DictVar) var0.getValue()).getKeyType() + ", " + ((DictVar) var0.getValue()).getValueType());
+				errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+				errors.printInfo(ctx, indent+" -> contains?: " + contains);
 				ci();
 			}
 			
@@ -2426,21 +2647,21 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		}
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> Bad Operands!");
-			ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-			ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
+			errors.printInfo(ctx, indent+" -> Bad Operands!");
+			errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+			errors.printInfo(ctx, indent+" -> expression 1: " + var1);
 			ci();
 		}
 		
 		// either left expression is not dict or right expression is not boolean || string || numeric -> error
-		ErrorHandling.printError(ctx, "Bad operand units for operator 'containsValue'");
+		errors.printError(ctx, "Bad operand units for operator 'containsValue'");
 		return false;
 	}
 	
 	@Override
 	public Boolean visitExpression_INDEXOF(Expression_INDEXOFContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION INDEXOF");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION INDEXOF");
 		
 		if(!visit(ctx.expression(0)) || !visit(ctx.expression(1))) {
 			return false;
@@ -2461,10 +2682,10 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			
 				// dict value unit and expression unit are not compatible -> error
 				try {
-					var1.convertUnitTo(Units.instanceOf(listUnit));
+					var1.convertUnitTo(unitsFile.instanceOf(listUnit));
 				}
 				catch (IllegalArgumentException e) {
-					ErrorHandling.printError(ctx, "Bad operand. List has parameterized unit '" + listUnit +
+					errors.printError(ctx, "Bad operand. List has parameterized unit '" + listUnit +
 							"' (accepts compatible? -> " + listVar.isBlocked() + ")");
 					return false;
 				}
@@ -2472,13 +2693,13 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			}
 			
 			index = listVar.getList().indexOf(var1);
-			mapCtxVar.put(ctx, new Variable(Units.instanceOf("number"), varType.NUMERIC, (double) index));
+			mapCtxVar.put(ctx, new Variable(unitsFile.instanceOf("number"), varType.NUMERIC, (double) index));
 			
 			if (debug) {
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-				ErrorHandling.printInfo(ctx, indent+" -> expression 0 (list) type: " + ((ListVar) var0.getValue()).getType());
-				ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-				ErrorHandling.printInfo(ctx, indent+" -> index: " + index);
+				errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+				errors.printInfo(ctx, indent+" -> expression 0 (list) type: " + ((ListVar) var0.getValue()).getType());
+				errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+				errors.printInfo(ctx, indent+" -> index: " + index);
 				ci();
 			}
 			
@@ -2493,12 +2714,12 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 				String str = (String) var0.getValue();
 				String subStr = (String) var1.getValue();
 				int index = str.indexOf(subStr);
-				mapCtxVar.put(ctx, new Variable(Units.instanceOf("number"), varType.NUMERIC, (double) index));
+				mapCtxVar.put(ctx, new Variable(unitsFile.instanceOf("number"), varType.NUMERIC, (double) index));
 				
 				if (debug) {
-					ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-					ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
-					ErrorHandling.printInfo(ctx, indent+" -> index: " + index);
+					errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+					errors.printInfo(ctx, indent+" -> expression 1: " + var1);
+					errors.printInfo(ctx, indent+" -> index: " + index);
 					ci();
 				}
 				
@@ -2507,21 +2728,21 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		}
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> Bad operands!");
-			ErrorHandling.printInfo(ctx, indent+" -> expression 0: " + var0);
-			ErrorHandling.printInfo(ctx, indent+" -> expression 1: " + var1);
+			errors.printInfo(ctx, indent+" -> Bad operands!");
+			errors.printInfo(ctx, indent+" -> expression 0: " + var0);
+			errors.printInfo(ctx, indent+" -> expression 1: " + var1);
 			ci();
 		}
 		
 		// expression to search index on is not list or string -> error
-		ErrorHandling.printError(ctx, "Bad operand units for operator 'indexof'");
+		errors.printError(ctx, "Bad operand units for operator 'indexof'");
 		return false;	
 	}
 	
 	@Override 
 	public Boolean visitExpression_Var(Expression_VarContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION VAR");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION VAR");
 		
 		if(!visit(ctx.var())) {
 			return false;
@@ -2536,7 +2757,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> expression: " + mapCtxVar.get(ctx.var()));
+			errors.printInfo(ctx, indent+" -> expression: " + mapCtxVar.get(ctx.var()));
 			ci();
 		}
 		
@@ -2546,7 +2767,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitExpression_Value(Expression_ValueContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION VALUE");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION VALUE");
 		
 		if(!visit(ctx.value())) {
 			return false;
@@ -2554,7 +2775,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		mapCtxVar.put(ctx, new Variable(mapCtxVar.get(ctx.value())));
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> expression: " + mapCtxVar.get(ctx.value()));
+			errors.printInfo(ctx, indent+" -> expression: " + mapCtxVar.get(ctx.value()));
 			ci();
 		}
 		
@@ -2564,7 +2785,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitExpression_FunctionCall(Expression_FunctionCallContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->EXPRESSION FUNCTION CALL");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->EXPRESSION FUNCTION CALL");
 		
 		if(!visit(ctx.functionCall())) {
 			return false;
@@ -2572,7 +2793,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		mapCtxVar.put(ctx, new Variable(mapCtxVar.get(ctx.functionCall())));
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> expression: " + mapCtxVar.get(ctx.functionCall()));
+			errors.printInfo(ctx, indent+" -> expression: " + mapCtxVar.get(ctx.functionCall()));
 			ci();
 		}
 		
@@ -2585,7 +2806,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitInputOutput(InputOutputContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->INPUT OUTPUT");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->INPUT OUTPUT");
 		
 		boolean valid = visitChildren(ctx);
 		
@@ -2597,21 +2818,23 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitPrint(PrintContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->PRINT");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->PRINT");
 		
-		boolean valid = visit(ctx.expression());
+		if (!visit(ctx.expression())) {
+			return false;
+		}
 		
 		mapCtxVar.put(ctx, new Variable(mapCtxVar.get(ctx.expression())));
 		
 		if (debug) ci();
 		
-		return valid;
+		return true;
 	}
 	
 	@Override
 	public Boolean visitSave(SaveContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->SAVE");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->SAVE");
 		
 		boolean valid = visit(ctx.expression());
 		
@@ -2624,7 +2847,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitInput(InputContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->INPUT");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->INPUT");
 		
 		if (debug) ci();
 		
@@ -2637,24 +2860,24 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitVar(VarContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->VAR");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->VAR");
 		
-		String varName = ctx.ID().getText();
+		String varName = ctx.getName();
 		// variable is declared -> ok
 		if (symbolTableContains(varName)) {
 			mapCtxVar.put(ctx, new Variable(symbolTableGet(varName)));
 			mapCtxListDict.put(ctx, new Variable(symbolTableGet(varName)));
 			
 			if (debug) {
-				ErrorHandling.printInfo(ctx, indent+" -> var Name: " + varName);
-				ErrorHandling.printInfo(ctx, indent+" -> var symbolTable Value: " + symbolTableGet(varName));
+				errors.printInfo(ctx, indent+" -> var Name: " + varName);
+				errors.printInfo(ctx, indent+" -> var symbolTable Value: " + symbolTableGet(varName));
 				ci();
 			}
 			
 			return true;
 		}
 		// variable is not declared -> error
-		ErrorHandling.printError(ctx, "Variable \"" + varName + "\" is not declared!");
+		errors.printError(ctx, "Variable \"" + varName + "\" is not declared!");
 		return false;
 		
 	}
@@ -2662,14 +2885,14 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitVarDeclaration(VarDeclarationContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->VARDECLARATION VARIABLE");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->VARDECLARATION VARIABLE");
 		
 		if(!visit(ctx.type())) {
 			return false;
 		}
 		
 		Variable type = new Variable(mapCtxVar.get(ctx.type()));
-		String newVarName = ctx.ID().getText();
+		String newVarName = ctx.getName();
 		
 		// variable to be created is already declared or is reserved word -> error
 		if(!isValidNewVariableName(newVarName, ctx)) {return false;}
@@ -2679,8 +2902,8 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		updateSymbolTable(newVarName, type);
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+" -> var Name: " + newVarName);
-			ErrorHandling.printInfo(ctx, indent+" -> var type: " + type);
+			errors.printInfo(ctx, indent+" -> var Name: " + newVarName);
+			errors.printInfo(ctx, indent+" -> var type: " + type);
 			ci();
 		}
 		
@@ -2693,9 +2916,9 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitType_Number_Type(Type_Number_TypeContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->TYPE - NUMBER TYPE");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->TYPE - NUMBER TYPE");
 		
-		Variable var = new Variable (Units.instanceOf("number"), varType.NUMERIC, 0.0);
+		Variable var = new Variable (unitsFile.instanceOf("number"), varType.NUMERIC, 0.0);
 		mapCtxVar.put(ctx, var);
 		
 		if (debug) ci();
@@ -2706,7 +2929,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitType_Boolean_Type(Type_Boolean_TypeContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->TYPE - BOOLEAN TYPE");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->TYPE - BOOLEAN TYPE");
 		
 		Variable var = new Variable (null, varType.BOOLEAN, false);
 		mapCtxVar.put(ctx, var);
@@ -2719,7 +2942,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitType_String_Type(Type_String_TypeContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->TYPE - STRING TYPE");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->TYPE - STRING TYPE");
 		
 		Variable var = new Variable (null, varType.STRING, "");
 		mapCtxVar.put(ctx, var);
@@ -2732,7 +2955,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitType_Void_Type(Type_Void_TypeContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->TYPE - VOID TYPE");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->TYPE - VOID TYPE");
 		
 		Variable var = new Variable (null, varType.VOID, null);
 		mapCtxVar.put(ctx, var);
@@ -2745,37 +2968,37 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override 
 	public Boolean visitType_ID_Type(Type_ID_TypeContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->TYPE - ID TYPE");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->TYPE - ID TYPE");
 		
-		String unitName = ctx.ID().getText();
+		String unitName = ctx.getName();
 		// unit exists -> ok
-		if (Units.exists(unitName)) {
-			Variable var = new Variable (Units.instanceOf(unitName), varType.NUMERIC, 0.0);
+		if (unitsFile.exists(unitName)) {
+			Variable var = new Variable (unitsFile.instanceOf(unitName), varType.NUMERIC, 0.0);
 			mapCtxVar.put(ctx, var);
 			
 			if (debug) {
-				ErrorHandling.printInfo(ctx, indent+ " -> var: " + var);
+				errors.printInfo(ctx, indent+ " -> var: " + var);
 				ci();
 			}
 			
 			return true;
 		}
 		// unit is not declared in units file -> error
-		ErrorHandling.printError(ctx, "Invalid unit. Unit '" + unitName + "' is not declared");
+		errors.printError(ctx, "Invalid unit. Unit '" + unitName + "' is not declared");
 		return false;
 	}
 	
 	@Override
 	public Boolean visitType_List_Type(Type_List_TypeContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->TYPE - LIST TYPE");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->TYPE - LIST TYPE");
 		
 		if(!visit(ctx.type())) {
 			return false;
 		}
 		
 		if (ctx.type() instanceof Type_Void_TypeContext) {
-			ErrorHandling.printError(ctx, "List value type cannot be void");
+			errors.printError(ctx, "List value type cannot be void");
 			return false;
 		}
 		
@@ -2787,7 +3010,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			type = ((ListVar) mapCtxVar.get(ctx.type()).getValue()).getType_();
 			String isStructure = type.substring(0, 4);
 			if (blocked && (isStructure.equals("list") || isStructure.equals("dict"))) {
-				ErrorHandling.printError(ctx, "Invalid permision modifier to use with " + isStructure);
+				errors.printError(ctx, "Invalid permision modifier to use with " + isStructure);
 				return false;
 			}
 			type = "list[" + type + "]";
@@ -2799,8 +3022,8 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		}
 		else {
 			
-			if (!Units.exists(type)) {
-				ErrorHandling.printError(ctx, "Invalid unit type for list value");
+			if (!unitsFile.exists(type)) {
+				errors.printError(ctx, "Invalid unit type for list value");
 				return false;
 			}
 			
@@ -2820,14 +3043,14 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitType_Dict_Type(Type_Dict_TypeContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->TYPE - DICT TYPE");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->TYPE - DICT TYPE");
 
 		if(!visit(ctx.type(0)) || !visit(ctx.type(1))) {
 			return false;
 		}
 		
 		if (ctx.type(0) instanceof Type_Void_TypeContext || ctx.type(1) instanceof Type_Void_TypeContext) {
-			ErrorHandling.printError(ctx, "Dict value and key type cannot be void");
+			errors.printError(ctx, "Dict value and key type cannot be void");
 			return false;
 		}
 		
@@ -2840,8 +3063,8 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			keyType = "dict[" + dict.getKeyType() + ", " + dict.getValueType() + "]";
 		}
 		else {
-			if (!Units.exists(keyType)) {
-				ErrorHandling.printError(ctx, "Invalid unit type for dict key");
+			if (!unitsFile.exists(keyType)) {
+				errors.printError(ctx, "Invalid unit type for dict key");
 				return false;
 			}
 		}
@@ -2856,8 +3079,8 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 			valType = "dict[" + dict.getKeyType() + ", " + dict.getValueType() + "]";
 		}
 		else {
-			if (!Units.exists(valType)) {
-				ErrorHandling.printError(ctx, "Invalid unit type for dict value");
+			if (!unitsFile.exists(valType)) {
+				errors.printError(ctx, "Invalid unit type for dict value");
 				return false;
 			}
 		}
@@ -2875,21 +3098,21 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitValue_Number(Value_NumberContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->VALUE - NUMBER");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->VALUE - NUMBER");
 		
 		try {
-			Variable var = new Variable(Units.instanceOf("number"), varType.NUMERIC, Double.parseDouble(ctx.NUMBER().getText()));
+			Variable var = new Variable(unitsFile.instanceOf("number"), varType.NUMERIC, Double.parseDouble(ctx.NUMBER().getText()));
 			mapCtxVar.put(ctx, var);
 			
 			if (debug) {
-				ErrorHandling.printInfo(ctx, indent+ " -> var: " + var);
+				errors.printInfo(ctx, indent+ " -> var: " + var);
 				ci();
 			}
 			
 			return true;
 		}
 		catch (NumberFormatException e) {
-			ErrorHandling.printError(ctx, "Invalid number value");
+			errors.printError(ctx, "Invalid number value");
 			return false;
 		}
 	}
@@ -2897,13 +3120,13 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitValue_Boolean(Value_BooleanContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->VALUE - BOOLEAN");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->VALUE - BOOLEAN");
 		
 		Variable var = new Variable(null, varType.BOOLEAN, Boolean.parseBoolean(ctx.BOOLEAN().getText()));
 		mapCtxVar.put(ctx, var);
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+ " -> var: " + var);
+			errors.printInfo(ctx, indent+ " -> var: " + var);
 			ci();
 		}
 		
@@ -2913,13 +3136,13 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitValue_String(Value_StringContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->VALUE - STRING");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->VALUE - STRING");
 		
 		Variable var = new Variable(null, varType.STRING, getStringText(ctx.STRING().getText()));
 		mapCtxVar.put(ctx, var);
 		
 		if (debug) {
-			ErrorHandling.printInfo(ctx, indent+ " -> var: " + var);
+			errors.printInfo(ctx, indent+ " -> var: " + var);
 			ci();
 		}
 		
@@ -2929,23 +3152,23 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	@Override
 	public Boolean visitCast(CastContext ctx) {
 		
-		if(debug) ErrorHandling.printInfo(ctx,oi() + "PSC->CAST");
+		if(debug) errors.printInfo(ctx,oi() + "PSC->CAST");
 		
-		String castName = ctx.id.getText();
+		String castName = ctx.getName();
 		// cast unit exists -> ok
-		if (Units.exists(castName)){
-			Variable var = new Variable(Units.instanceOf(castName), varType.NUMERIC, null);
+		if (unitsFile.exists(castName)){
+			Variable var = new Variable(unitsFile.instanceOf(castName), varType.NUMERIC, null);
 			mapCtxVar.put(ctx, var);
 			
 			if (debug) {
-				ErrorHandling.printInfo(ctx, indent+ " -> var: " + var);
+				errors.printInfo(ctx, indent+ " -> var: " + var);
 				ci();
 			}
 			
 			return true;
 		}
 		// cast unit does not exist -> error
-		ErrorHandling.printError(ctx, "Invalid cast Unit. Unit '" + castName + "' does not exist");
+		errors.printError(ctx, "Invalid cast Unit. Unit '" + castName + "' does not exist");
 		return false;
 	}
 	
@@ -2956,7 +3179,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	/**
 	 * Extends the previous scope into a new scope for use inside control flow statements
 	 */
-	private static void extendScope() {
+	private void extendScope() {
 		// create copy of scope context
 		HashMap<String, Variable> newScope = new HashMap<>();
 		HashMap<String, Variable> oldScope = symbolTable.get(0);
@@ -2976,7 +3199,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	/**
 	 * Creates a new clean scope for the function and adds global variables (that are always in scope[0]
 	 */
-	private static void openFunctionScope() {
+	private void openFunctionScope() {
 		HashMap<String, Variable> newScope = new HashMap<>();
 		HashMap<String, Variable> globalScope = symbolTable.get(0);
 		
@@ -2989,7 +3212,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	/**
 	 * closes current scope exposing previous scope
 	 */
-	private static void closeScope() {
+	private void closeScope() {
 		int lastIndex = symbolTable.size()-1;
 		symbolTable.remove(lastIndex);
 	}
@@ -2999,7 +3222,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	 * @param key
 	 * @param value
 	 */
-	private static void updateSymbolTable(String key, Variable value) {
+	private void updateSymbolTable(String key, Variable value) {
 		int lastIndex = symbolTable.size()-1;
 		symbolTable.get(lastIndex).put(key, value);
 	}
@@ -3009,7 +3232,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	 * @param key
 	 * @return
 	 */
-	private static Variable symbolTableGet(String key) {
+	private Variable symbolTableGet(String key) {
 		int lastIndex = symbolTable.size()-1;
 		return symbolTable.get(lastIndex).get(key);
 	}
@@ -3019,7 +3242,7 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	 * @param var
 	 * @return
 	 */
-	private static String symbolTableGetKeyByValue(Variable var) {
+	private String symbolTableGetKeyByValue(Variable var) {
 		int lastIndex = symbolTable.size()-1;
 		Set<Entry<String, Variable>> entries = symbolTable.get(lastIndex).entrySet();
 		for (Entry<String, Variable> en : entries) {
@@ -3035,40 +3258,149 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 	 * @param key
 	 * @return
 	 */
-	private static boolean symbolTableContains(String key) {
+	private boolean symbolTableContains(String key) {
 		int lastIndex = symbolTable.size()-1;
 		return symbolTable.get(lastIndex).containsKey(key);
 	}
 	
+	/**
+	 * @param args arguments of a function call
+	 * @return the arguments and the global variables, as the function sees them (what its result depends on)
+	 */
+	private String describeCall(List<Variable> args) {
+		StringBuilder call = new StringBuilder();
+		for (Variable arg : args) {
+			call.append(describe(arg)).append('\n');
+		}
+		for (Entry<String, Variable> global : new TreeMap<>(symbolTable.get(0)).entrySet()) {
+			call.append(global.getKey()).append(" = ").append(describe(global.getValue())).append('\n');
+		}
+		return call.toString();
+	}
+	
+	private static String describe(Variable var) {
+		Object value = var.getValue();
+		if (value instanceof ListVar) {
+			ListVar list = (ListVar) value;
+			List<String> elements = new ArrayList<>();
+			for (Variable element : list.getList()) {
+				elements.add(describe(element));
+			}
+			return "list " + list.getType_() + " " + list.isBlocked() + " " + elements;
+		}
+		if (value instanceof DictVar) {
+			DictVar dict = (DictVar) value;
+			List<String> entries = new ArrayList<>();
+			for (Entry<Variable, Variable> entry : dict.getDict().entrySet()) {
+				entries.add(describe(entry.getKey()) + " = " + describe(entry.getValue()));
+			}
+			Collections.sort(entries);
+			return "dict " + dict.getKeyType() + " " + dict.isBlockedKey() + " " + dict.getValueType() + " " + dict.isBlockedValue() + " " + entries;
+		}
+		if (value instanceof DictTuple) {
+			return "tuple " + describe(((DictTuple) value).getKey()) + " = " + describe(((DictTuple) value).getValue());
+		}
+		return var.getVarType() + " " + (var.getUnit() == null ? "" : var.getUnit().getName()) + " " + value;
+	}
+	
+	/**
+	 * @param result result of a function call
+	 * @return the result as {@link #resultOf(String)} reads it, or null if it is a list or a dict (always checked again)
+	 */
+	private static String describeResult(Variable result) {
+		if (result.isNumeric()) {
+			return "numeric\t" + result.getUnit().getName() + "\t" + result.getValue();
+		}
+		if (result.isBoolean() || result.isString()) {
+			return result.getVarType() + "\t\t" + result.getValue();
+		}
+		return null;
+	}
+	
+	/**
+	 * @param result described by {@link #describeResult(Variable)} (null if unknown)
+	 * @return the result of the function call, or null if unknown
+	 */
+	private Variable resultOf(String result) {
+		if (result == null) {
+			return null;
+		}
+		String[] parts = result.split("\t", 3);
+		boolean known = !parts[2].equals("null");
+		switch (parts[0]) {
+			case "numeric"	:	return new Variable(unitsFile.instanceOf(parts[1]), varType.NUMERIC, known ? Double.valueOf(parts[2]) : null);
+			case "boolean"	:	return new Variable(null, varType.BOOLEAN, known ? Boolean.valueOf(parts[2]) : null);
+			default			:	return new Variable(null, varType.STRING, known ? parts[2] : null);
+		}
+	}
+	
 	/**
 	 * Used in variable declarations to verify that the new name is a Valid new name
 	 * @param varName
 	 * @param ctx
 	 * @return
 	 */
-	private static boolean isValidNewVariableName(String varName, ParserRuleContext ctx) {
+	private boolean isValidNewVariableName(String varName, ParserRuleContext ctx) {
 
 		if (symbolTableContains(varName)) {
-			ErrorHandling.printError(ctx, "Variable \"" + varName +"\" is already declared");
+			errors.printError(ctx, "Variable \"" + varName +"\" is already declared");
 			return false;
 		}
 		
-		if (Units.isReservedWord(varName)) {
-			ErrorHandling.printError(ctx, varName +"\" is a reserved word");
+		if (unitsFile.isReservedWord(varName)) {
+			errors.printError(ctx, varName +"\" is a reserved word");
 			return false;
 		}
 		
 		return true;
 	}
 	
+	/**
+	 * Visits a left-deep chain of binary operations of the same kind (a + b - c + ...) iteratively,
+	 * so that long chains do not recurse once per operation
+	 * @param ctx the last (top) operation of the chain
+	 * @param checkOperation checks one operation of the chain, once both its operands were visited
+	 * @return true if all the operands and operations of the chain are valid
+	 */
+	private Boolean visitLeftDeepChain(ExpressionContext ctx, Function<ExpressionContext, Boolean> checkOperation) {
+		
+		// collect the operations of the chain, the deepest one on top
+		Deque<ExpressionContext> chain = new ArrayDeque<>();
+		ExpressionContext expr = ctx;
+		while (expr.getClass() == ctx.getClass()) {
+			chain.push(expr);
+			expr = expr.getRuleContext(ExpressionContext.class, 0);
+		}
+		
+		// leftmost operand, then the right operand and the operation of each step
+		if (!visit(expr)) {
+			return false;
+		}
+		while (!chain.isEmpty()) {
+			ExpressionContext operation = chain.pop();
+			if (!visit(operation.getRuleContext(ExpressionContext.class, 1)) || !checkOperation.apply(operation)) {
+				return false;
+			}
+		}
+		return true;
+	}
+	
+	/**
+	 * @param ctx
+	 * @return the variable name if the expression is a variable, the expression text otherwise
+	 */
+	private static String getExpressionName(ExpressionContext ctx) {
+		return ctx.getName() != null ? ctx.getName() : ctx.getText();
+	}
+	
 	/**
 	 * trims the quotes of a lexer string
 	 * @param str
 	 * @return
 	 */
-	private static String getStringText(String str) {
+	private String getStringText(String str) {
 		str = str.substring(1, str.length() -1);
-		if (debug) ErrorHandling.printInfo("removed quotes from string - " + str);
+		if (debug) errors.printInfo("removed quotes from string - " + str);
 		return str;
 	}
 	
@@ -3088,14 +3420,14 @@ public class PotatoesSemanticCheck extends PotatoesBaseVisitor<Boolean>  {
 		}
 	}
 	
-	private static String indent = "";
+	private String indent = "";
 	
-	private static String oi() {
+	private String oi() {
 		indent = indent + "\t";
 		return indent;
 	}
 	
-	private static void ci() {
+	private void ci() {
 		indent = indent.substring(0, indent.length()-1);
 	}
 }
\ No newline at end of file
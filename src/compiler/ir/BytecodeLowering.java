@@ -0,0 +1,899 @@
+package compiler.ir;
+
+import static compiler.ir.ClassFileWriter.*;
+import static compiler.ir.JavaTyping.*;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import compiler.ir.ClassFileWriter.Code;
+import compiler.ir.ClassFileWriter.Label;
+import compiler.ir.IRExpression.*;
+import compiler.ir.IRInstruction.*;
+
+/**
+ * <b>BytecodeLowering</b><p>
+ *
+ * Final lowering of the intermediate representation straight to the class file, without Java source: the globals
+ * are static fields (initialized in the static initializer), the functions static methods and the locals slots of
+ * their frames, with primitive types where the IR has them.<p>
+ * The types of the expressions are the Java ones, found by {@link JavaTyping} with the methods the code calls.
+ */
+public class BytecodeLowering {
+
+	private static class Local {
+		final int	slot;
+		final Type	type;
+
+		Local(int slot, Type type) {
+			this.slot = slot;
+			this.type = type;
+		}
+	}
+
+	private final IRProgram						program;
+	private final ClassFileWriter				classFile;
+	private final JavaTyping					typing;
+
+	// method being lowered
+	private Code								code;
+	private Map<String, Local>					locals;
+	private int									nextSlot;
+	private int									maxLocals;
+	private Type								returnType;
+	private final Deque<Label>					breaks		= new ArrayDeque<>();
+
+	private BytecodeLowering(IRProgram program) {
+		this.program = program;
+		this.classFile = new ClassFileWriter(program.name);
+		this.typing = new JavaTyping(program, "bytecode backend", name -> locals.containsKey(name) ? locals.get(name).type : null);
+	}
+
+	/**
+	 * @param program
+	 * @return the class file of the program
+	 * @throws IllegalStateException if the program has code that can not be lowered to bytecode
+	 */
+	public static byte[] lower(IRProgram program) {
+		BytecodeLowering lowering = new BytecodeLowering(program);
+		lowering.program();
+		return lowering.classFile.toByteArray();
+	}
+
+	// --------------------------------------------------------------------------
+	// Class
+
+	private void program() {
+		for (IRInstruction global : program.globals) {
+			Assign field = (Assign) global;
+			classFile.addField(access(field.modifiers), field.target, descriptor(erasure(typing.globals.get(field.target))));
+		}
+
+		// default constructor
+		startMethod(void.class, 1);
+		code.local(ALOAD, 0, 1);
+		code.opShort(INVOKESPECIAL, classFile.methodConstant("java/lang/Object", "<init>", "()V", false), -1);
+		code.op(RETURN, 0);
+		classFile.addMethod(ACC_PUBLIC, "<init>", "()V", code, maxLocals);
+
+		// static initializer, the values of the globals in order
+		startMethod(void.class, 0);
+		for (IRInstruction global : program.globals) {
+			Assign field = (Assign) global;
+			if (field.value != null) {
+				convert(expression(field.value), typing.globals.get(field.target));
+				code.opShort(PUTSTATIC, fieldConstant(field.target), -size(typing.globals.get(field.target)));
+			}
+		}
+		if (code.position() > 0) {
+			code.op(RETURN, 0);
+			classFile.addMethod(ACC_STATIC, "<clinit>", "()V", code, maxLocals);
+		}
+
+		for (IRFunction function : program.functions) {
+			function(function);
+		}
+	}
+
+	private void function(IRFunction function) {
+		startMethod(typing.type(function.returnType), 0);
+		for (int i = 0; i < function.params.size(); i++) {
+			declare(function.params.get(i), typing.type(function.paramTypes.get(i)), true);
+		}
+		block(function.body);
+
+		// the end of a method that returns a value is only reached where javac knows it is not
+		if (code.reachable) {
+			if (returnType == void.class) {
+				code.op(RETURN, 0);
+			}
+			else {
+				defaultValue(returnType);
+				code.op(returnOpcode(returnType), -size(returnType));
+			}
+		}
+		classFile.addMethod(access(function.modifiers), function.name, methodDescriptor(function), code, maxLocals);
+	}
+
+	private void startMethod(Type returnType, int slots) {
+		this.code = new Code(classFile);
+		this.locals = new HashMap<>();
+		this.nextSlot = slots;
+		this.maxLocals = slots;
+		this.returnType = returnType;
+		breaks.clear();
+		// the types found depend on the locals of the method
+		typing.clear();
+	}
+
+	/**
+	 * @param assigned true for the parameters
+	 */
+	private Local declare(String name, Type type, boolean assigned) {
+		Local local = new Local(nextSlot, type);
+		locals.put(name, local);
+		code.declare(local.slot, descriptor(erasure(type)), assigned);
+		nextSlot += Math.max(size(type), 1);
+		maxLocals = Math.max(maxLocals, nextSlot);
+		return local;
+	}
+
+	// --------------------------------------------------------------------------
+	// Statements
+
+	private void block(List<IRInstruction> block) {
+		Map<String, Local> outer = new HashMap<>(locals);
+		int outerSlot = nextSlot;
+		for (IRInstruction instruction : block) {
+			instruction(instruction);
+		}
+		locals = outer;
+		nextSlot = outerSlot;
+		code.scope(nextSlot);
+	}
+
+	private void instruction(IRInstruction instruction) {
+
+		if (instruction instanceof Assign) {
+			Assign assign = (Assign) instruction;
+			if (assign.isDeclaration()) {
+				Local local = declare(assign.target, typing.type(assign.type), false);
+				if (assign.value != null) {
+					convert(expression(assign.value), local.type);
+					code.local(storeOpcode(local.type), local.slot, -size(local.type));
+				}
+			}
+			else if (locals.containsKey(assign.target)) {
+				Local local = locals.get(assign.target);
+				convert(expression(assign.value), local.type);
+				code.local(storeOpcode(local.type), local.slot, -size(local.type));
+			}
+			else if (typing.globals.containsKey(assign.target)) {
+				convert(expression(assign.value), typing.globals.get(assign.target));
+				code.opShort(PUTSTATIC, fieldConstant(assign.target), -size(typing.globals.get(assign.target)));
+			}
+			else {
+				throw unsupported(instruction);
+			}
+		}
+
+		else if (instruction instanceof Eval) {
+			Type type = expression(((Eval) instruction).expression);
+			if (type != void.class) {
+				code.op(size(type) == 2 ? POP2 : POP, -size(type));
+			}
+		}
+
+		else if (instruction instanceof Return) {
+			IRExpression value = ((Return) instruction).value;
+			if (value == null) {
+				code.op(RETURN, 0);
+			}
+			else {
+				convert(expression(value), returnType);
+				code.op(returnOpcode(returnType), -size(returnType));
+			}
+		}
+
+		else if (instruction instanceof Break) {
+			code.jump(GOTO, breaks.peek(), 0);
+		}
+
+		else if (instruction instanceof If) {
+			If condition = (If) instruction;
+			Label end = new Label();
+			for (int i = 0; i < condition.branches.size(); i++) {
+				Label next = new Label();
+				if (condition.conditions.get(i) != null) {
+					branch(condition.conditions.get(i), false, next);
+				}
+				block(condition.branches.get(i));
+				if (i < condition.branches.size() - 1 && code.reachable) {
+					code.jump(GOTO, end, 0);
+				}
+				code.place(next);
+			}
+			code.place(end);
+		}
+
+		else if (instruction instanceof Loop) {
+			Loop loop = (Loop) instruction;
+			Map<String, Local> outer = new HashMap<>(locals);
+			int outerSlot = nextSlot;
+			if (loop.init != null) {
+				instruction(loop.init);
+			}
+			Label start = new Label();
+			Label end = new Label();
+			code.place(start);
+			branch(loop.condition, false, end);
+			breaks.push(end);
+			block(loop.body);
+			breaks.pop();
+			if (loop.update != null) {
+				instruction(loop.update);
+			}
+			code.jump(GOTO, start, 0);
+			code.place(end);
+			locals = outer;
+			nextSlot = outerSlot;
+			code.scope(nextSlot);
+		}
+
+		else if (instruction instanceof Block) {
+			block(((Block) instruction).body);
+		}
+
+		else if (instruction instanceof Store) {
+			Store store = (Store) instruction;
+			Class<?> component = erasure(expression(store.array)).getComponentType();
+			convert(expression(store.index), int.class);
+			convert(expression(store.value), component);
+			code.op(arrayLoadOpcode(component) + (IASTORE - IALOAD), -2 - size(component));
+		}
+
+		else if (instruction instanceof Throw) {
+			expression(((Throw) instruction).exception);
+			code.op(ATHROW, -1);
+		}
+
+		else {
+			throw unsupported(instruction);
+		}
+	}
+
+	// --------------------------------------------------------------------------
+	// Conditions
+
+	/**
+	 * Jumps to target if the value of the condition is jumpIf
+	 */
+	private void branch(IRExpression condition, boolean jumpIf, Label target) {
+
+		if (condition instanceof Literal && (isLiteral(condition, "true") || isLiteral(condition, "false"))) {
+			if (isLiteral(condition, "true") == jumpIf) {
+				code.jump(GOTO, target, 0);
+			}
+			return;
+		}
+
+		if (condition instanceof Unary && ((Unary) condition).op.equals("!")) {
+			branch(((Unary) condition).operand, !jumpIf, target);
+			return;
+		}
+
+		if (condition instanceof Binary) {
+			Binary binary = (Binary) condition;
+
+			// a && b, a || b
+			if (binary.isShortCircuit()) {
+				boolean and = binary.op.equals("&&");
+				if (and != jumpIf) {
+					branch(binary.left, jumpIf, target);
+					branch(binary.right, jumpIf, target);
+				}
+				else {
+					Label skip = new Label();
+					branch(binary.left, !jumpIf, skip);
+					branch(binary.right, jumpIf, target);
+					code.place(skip);
+				}
+				return;
+			}
+
+			if (isComparison(binary.op)) {
+				compare(binary, jumpIf, target);
+				return;
+			}
+		}
+
+		convert(expression(condition), boolean.class);
+		code.jump(jumpIf ? IFNE : IFEQ, target, -1);
+	}
+
+	private void compare(Binary comparison, boolean jumpIf, Label target) {
+		Type left = typing.typeOf(comparison.left);
+		Type right = typing.typeOf(comparison.right);
+		String op = jumpIf ? comparison.op : negation(comparison.op);
+
+		// references (== and != between objects)
+		if (!isPrimitive(left) && !isPrimitive(right)) {
+			if (left == Null.class || right == Null.class) {
+				expression(left == Null.class ? comparison.right : comparison.left);
+				code.jump(op.equals("==") ? IFNULL : IFNONNULL, target, -1);
+			}
+			else {
+				expression(comparison.left);
+				expression(comparison.right);
+				code.jump(op.equals("==") ? IF_ACMPEQ : IF_ACMPNE, target, -2);
+			}
+			return;
+		}
+
+		Class<?> type = unboxed(left) == boolean.class ? boolean.class : promotion(left, right);
+		convert(expression(comparison.left), type);
+		convert(expression(comparison.right), type);
+		if (type == double.class) {
+			// NaN makes < and <= false with dcmpg, > and >= with dcmpl
+			code.op(comparison.op.startsWith("<") ? DCMPG : DCMPL, -3);
+			code.jump(compareOpcode(IFEQ, op), target, -1);
+		}
+		else if (type == long.class) {
+			code.op(LCMP, -3);
+			code.jump(compareOpcode(IFEQ, op), target, -1);
+		}
+		else {
+			code.jump(compareOpcode(IF_ICMPEQ, op), target, -2);
+		}
+	}
+
+	/**
+	 * @param base opcode of the == jump of the kind (IFEQ or IF_ICMPEQ)
+	 */
+	private static int compareOpcode(int base, String op) {
+		switch (op) {
+		case "==":	return base;
+		case "!=":	return base + 1;
+		case "<":	return base + 2;
+		case ">=":	return base + 3;
+		case ">":	return base + 4;
+		default:	return base + 5;	// <=
+		}
+	}
+
+	private static String negation(String op) {
+		switch (op) {
+		case "==":	return "!=";
+		case "!=":	return "==";
+		case "<":	return ">=";
+		case ">=":	return "<";
+		case ">":	return "<=";
+		default:	return ">";		// <=
+		}
+	}
+
+	// --------------------------------------------------------------------------
+	// Expressions
+
+	/**
+	 * Writes the code that leaves the value of the expression on the stack
+	 * @return the type of the value
+	 */
+	private Type expression(IRExpression expression) {
+		Type type = typing.typeOf(expression);
+
+		if (expression instanceof Literal) {
+			literal(((Literal) expression).text, erasure(type));
+		}
+
+		else if (expression instanceof Name) {
+			String name = ((Name) expression).name;
+			if (type == null) {
+				throw unsupported(expression);
+			}
+			if (locals.containsKey(name)) {
+				code.local(loadOpcode(type), locals.get(name).slot, size(type));
+			}
+			else {
+				code.opShort(GETSTATIC, fieldConstant(name), size(type));
+			}
+		}
+
+		else if (expression instanceof Binary) {
+			Binary binary = (Binary) expression;
+			if (type == String.class && binary.op.equals("+")) {
+				concatenation(binary);
+			}
+			else if (binary.isShortCircuit() || isComparison(binary.op)) {
+				booleanValue(expression);
+			}
+			else {
+				convert(expression(binary.left), type);
+				convert(expression(binary.right), type);
+				code.op(arithmeticOpcode(binary.op, (Class<?>) type), -size(type));
+			}
+		}
+
+		else if (expression instanceof Unary) {
+			Unary unary = (Unary) expression;
+			if (unary.op.equals("!")) {
+				convert(expression(unary.operand), boolean.class);
+				code.op(ICONST_0 + 1, 1);
+				code.op(IXOR, -1);
+			}
+			else {
+				convert(expression(unary.operand), type);
+				if (unary.op.equals("-")) {
+					code.op(type == double.class ? DNEG : type == long.class ? LNEG : INEG, 0);
+				}
+			}
+		}
+
+		else if (expression instanceof Conditional) {
+			Conditional conditional = (Conditional) expression;
+			Label ifFalse = new Label();
+			Label end = new Label();
+			branch(conditional.condition, false, ifFalse);
+			convert(expression(conditional.ifTrue), type);
+			code.jump(GOTO, end, 0);
+			code.place(ifFalse);
+			convert(expression(conditional.ifFalse), type);
+			code.place(end);
+		}
+
+		else if (expression instanceof Cast) {
+			cast(expression(((Cast) expression).operand), type);
+		}
+
+		else if (expression instanceof Call) {
+			call((Call) expression, type);
+		}
+
+		else if (expression instanceof Field) {
+			Field field = (Field) expression;
+			Type target = typing.typeOf(field.target);
+			if (target == null) {
+				java.lang.reflect.Field member = typing.staticField(field);
+				code.opShort(GETSTATIC, classFile.fieldConstant(internalName(member.getDeclaringClass()), member.getName(),
+						descriptor(member.getType())), size(type));
+			}
+			else {
+				expression(field.target);
+				code.op(ARRAYLENGTH, 0);
+			}
+		}
+
+		else if (expression instanceof Index) {
+			Index index = (Index) expression;
+			expression(index.array);
+			convert(expression(index.index), int.class);
+			code.op(arrayLoadOpcode(erasure(type)), size(type) - 2);
+		}
+
+		else if (expression instanceof New) {
+			New creation = (New) expression;
+			Constructor<?> constructor = (Constructor<?>) typing.resolve(creation);
+			String owner = internalName(constructor.getDeclaringClass());
+			code.opShort(NEW, classFile.classConstant(owner), 1);
+			code.op(DUP, 1);
+			int argSlots = arguments(creation.args, constructor);
+			code.opShort(INVOKESPECIAL, classFile.methodConstant(owner, "<init>", descriptor(constructor), false), -argSlots - 1);
+		}
+
+		else if (expression instanceof NewArray) {
+			Class<?> component = erasure(type).getComponentType();
+			convert(expression(((NewArray) expression).length), int.class);
+			if (component.isPrimitive()) {
+				code.opByte(NEWARRAY, arrayTypeCode(component), 0);
+			}
+			else {
+				code.opShort(ANEWARRAY, classFile.classConstant(internalName(component)), 0);
+			}
+		}
+
+		else {
+			throw unsupported(expression);
+		}
+		return type;
+	}
+
+	private void literal(String text, Class<?> type) {
+		if (type == Null.class) {
+			code.op(ACONST_NULL, 1);
+		}
+		else if (type == String.class) {
+			int constant = classFile.stringConstant(unescape(text.substring(1, text.length() - 1)));
+			if (constant < 256) {
+				code.opByte(LDC, constant, 1);
+			}
+			else {
+				code.opShort(LDC_W, constant, 1);
+			}
+		}
+		else if (type == double.class) {
+			double value = Double.parseDouble(text);
+			if (Double.doubleToRawLongBits(value) == 0 || value == 1.0) {
+				code.op(value == 0 ? DCONST_0 : DCONST_1, 2);
+			}
+			else {
+				code.opShort(LDC2_W, classFile.doubleConstant(value), 2);
+			}
+		}
+		else if (type == long.class) {
+			long value = Long.parseLong(text.replaceAll("[lL]$", ""));
+			if (value == 0 || value == 1) {
+				code.op(value == 0 ? LCONST_0 : LCONST_1, 2);
+			}
+			else {
+				code.opShort(LDC2_W, classFile.longConstant(value), 2);
+			}
+		}
+		else {
+			int value = type == boolean.class ? (text.equals("true") ? 1 : 0)
+					: type == char.class ? unescape(text.substring(1, text.length() - 1)).charAt(0) : Integer.parseInt(text);
+			integer(value);
+		}
+	}
+
+	private void integer(int value) {
+		if (value >= -1 && value <= 5) {
+			code.op(ICONST_0 + value, 1);
+		}
+		else if (value == (byte) value) {
+			code.opByte(BIPUSH, value, 1);
+		}
+		else if (value == (short) value) {
+			code.opShort(SIPUSH, value, 1);
+		}
+		else {
+			code.opShort(LDC_W, classFile.intConstant(value), 1);
+		}
+	}
+
+	/**
+	 * a + b + ... with a String operand, appended to a StringBuilder (String.valueOf gives the same text)
+	 */
+	private void concatenation(Binary binary) {
+		List<IRExpression> operands = new ArrayList<>();
+		IRExpression left = binary;
+		while (left instanceof Binary && ((Binary) left).op.equals("+") && typing.typeOf(left) == String.class) {
+			operands.add(0, ((Binary) left).right);
+			left = ((Binary) left).left;
+		}
+		operands.add(0, left);
+
+		code.opShort(NEW, classFile.classConstant("java/lang/StringBuilder"), 1);
+		code.op(DUP, 1);
+		code.opShort(INVOKESPECIAL, classFile.methodConstant("java/lang/StringBuilder", "<init>", "()V", false), -1);
+		for (IRExpression operand : operands) {
+			Class<?> type = erasure(expression(operand));
+			String parameter = type == String.class ? "Ljava/lang/String;"
+					: type == byte.class || type == short.class ? "I"
+					: type.isPrimitive() ? descriptor(type) : "Ljava/lang/Object;";
+			code.opShort(INVOKEVIRTUAL, classFile.methodConstant("java/lang/StringBuilder", "append",
+					"(" + parameter + ")Ljava/lang/StringBuilder;", false), -size(type));
+		}
+		code.opShort(INVOKEVIRTUAL, classFile.methodConstant("java/lang/StringBuilder", "toString", "()Ljava/lang/String;", false), 0);
+	}
+
+	/**
+	 * 1 or 0 for a condition used as a value
+	 */
+	private void booleanValue(IRExpression condition) {
+		Label ifFalse = new Label();
+		Label end = new Label();
+		branch(condition, false, ifFalse);
+		code.op(ICONST_0 + 1, 1);
+		code.jump(GOTO, end, 0);
+		code.place(ifFalse);
+		code.op(ICONST_0, 1);
+		code.place(end);
+	}
+
+	private void call(Call call, Type type) {
+
+		// clone of an array: Object.clone, cast to the array
+		if (typing.isArrayClone(call)) {
+			expression(call.target);
+			code.opShort(INVOKEVIRTUAL, classFile.methodConstant(internalName(erasure(type)), "clone", "()Ljava/lang/Object;", false), 0);
+			code.opShort(CHECKCAST, classFile.classConstant(internalName(erasure(type))), 0);
+			return;
+		}
+
+		Executable member = typing.resolve(call);
+
+		// function of the program
+		if (member == null) {
+			IRFunction function = program.getFunction(call.method);
+			int argSlots = 0;
+			for (int i = 0; i < call.args.size(); i++) {
+				Type parameter = typing.type(function.paramTypes.get(i));
+				convert(expression(call.args.get(i)), parameter);
+				argSlots += size(parameter);
+			}
+			code.opShort(INVOKESTATIC, classFile.methodConstant(classFile.getClassName(), call.method, methodDescriptor(function), false),
+					-argSlots + size(type));
+			return;
+		}
+
+		Method method = (Method) member;
+		boolean isStatic = Modifier.isStatic(method.getModifiers());
+		Class<?> owner = isStatic ? typing.classNamed(((Name) call.target).name) : erasure(typing.typeOf(call.target));
+		if (!isStatic) {
+			expression(call.target);
+		}
+		int argSlots = arguments(call.args, method) + (isStatic ? 0 : 1);
+		int returnSlots = size(method.getReturnType());
+		int constant = classFile.methodConstant(internalName(owner), method.getName(), descriptor(method), owner.isInterface());
+		if (isStatic) {
+			code.opShort(INVOKESTATIC, constant, returnSlots - argSlots);
+		}
+		else if (owner.isInterface()) {
+			code.invokeInterface(constant, argSlots - 1, returnSlots - argSlots);
+		}
+		else {
+			code.opShort(INVOKEVIRTUAL, constant, returnSlots - argSlots);
+		}
+
+		// the erasure of a generic result (E of List<E> is Object)
+		Class<?> result = erasure(type);
+		if (!result.isPrimitive() && !result.isAssignableFrom(method.getReturnType())) {
+			code.opShort(CHECKCAST, classFile.classConstant(internalName(result)), 0);
+		}
+	}
+
+	/**
+	 * Writes the arguments, converted to the types of the parameters
+	 * @return slots of the arguments
+	 */
+	private int arguments(List<IRExpression> args, Executable member) {
+		int slots = 0;
+		Class<?>[] parameters = member.getParameterTypes();
+		for (int i = 0; i < args.size(); i++) {
+			convert(expression(args.get(i)), parameters[i]);
+			slots += size(parameters[i]);
+		}
+		return slots;
+	}
+
+	// --------------------------------------------------------------------------
+	// Conversions
+
+	/**
+	 * Converts the value on the stack to the type it is assigned to (widening, boxing and unboxing)
+	 */
+	private void convert(Type from, Type to) {
+		Class<?> source = erasure(from);
+		Class<?> target = erasure(to);
+		if (source == target || source == Null.class) {
+			return;
+		}
+		if (source.isPrimitive() && target.isPrimitive()) {
+			primitive(source, target);
+		}
+		else if (source.isPrimitive()) {
+			// boxing (to the wrapper of the target if it is one)
+			Class<?> primitive = unboxed(target).isPrimitive() ? unboxed(target) : source;
+			primitive(source, primitive);
+			Class<?> wrapper = wrappers.get(primitive);
+			code.opShort(INVOKESTATIC, classFile.methodConstant(internalName(wrapper), "valueOf",
+					"(" + descriptor(primitive) + ")" + descriptor(wrapper), false), 1 - size(primitive));
+		}
+		else if (target.isPrimitive()) {
+			// unboxing (of the wrapper of the target if the value is not one)
+			Class<?> primitive = unboxed(source).isPrimitive() ? unboxed(source) : target;
+			Class<?> wrapper = wrappers.get(primitive);
+			if (!wrapper.isAssignableFrom(source)) {
+				code.opShort(CHECKCAST, classFile.classConstant(internalName(wrapper)), 0);
+			}
+			code.opShort(INVOKEVIRTUAL, classFile.methodConstant(internalName(wrapper), primitive.getName() + "Value",
+					"()" + descriptor(primitive), false), size(primitive) - 1);
+			primitive(primitive, target);
+		}
+		else if (!target.isAssignableFrom(source)) {
+			code.opShort(CHECKCAST, classFile.classConstant(internalName(target)), 0);
+		}
+	}
+
+	/**
+	 * Conversion of a cast (narrowing too)
+	 */
+	private void cast(Type from, Type to) {
+		Class<?> source = erasure(from);
+		Class<?> target = erasure(to);
+		if (source.isPrimitive() && !target.isPrimitive() && !unboxed(target).isPrimitive()) {
+			// (Object) 1.0
+			convert(from, wrappers.get(source));
+			convert(wrappers.get(source), to);
+		}
+		else {
+			convert(from, to);
+		}
+	}
+
+	/**
+	 * Conversion between primitive types (the int types are all int in the stack)
+	 */
+	private void primitive(Class<?> from, Class<?> to) {
+		Class<?> source = stackType(from);
+		Class<?> target = stackType(to);
+		if (source != target) {
+			int opcode;
+			if (source == int.class) {
+				opcode = target == long.class ? I2L : target == float.class ? I2F : I2D;
+			}
+			else if (source == long.class) {
+				opcode = target == int.class ? L2I : target == float.class ? L2F : L2D;
+			}
+			else if (source == float.class) {
+				opcode = target == int.class ? F2I : target == long.class ? F2L : F2D;
+			}
+			else {
+				opcode = target == int.class ? D2I : target == long.class ? D2L : D2F;
+			}
+			code.op(opcode, size(target) - size(source));
+		}
+		if (to == byte.class && from != byte.class) {
+			code.op(I2B, 0);
+		}
+		else if (to == char.class && from != char.class) {
+			code.op(I2C, 0);
+		}
+		else if (to == short.class && from != short.class && from != byte.class) {
+			code.op(I2S, 0);
+		}
+	}
+
+	// --------------------------------------------------------------------------
+	// Descriptors and opcodes
+
+	private int fieldConstant(String global) {
+		return classFile.fieldConstant(classFile.getClassName(), global, descriptor(erasure(typing.globals.get(global))));
+	}
+
+	private String methodDescriptor(IRFunction function) {
+		StringBuilder descriptor = new StringBuilder("(");
+		for (String parameter : function.paramTypes) {
+			descriptor.append(descriptor(erasure(typing.type(parameter))));
+		}
+		return descriptor.append(")").append(descriptor(erasure(typing.type(function.returnType)))).toString();
+	}
+
+	private static String descriptor(Executable member) {
+		StringBuilder descriptor = new StringBuilder("(");
+		for (Class<?> parameter : member.getParameterTypes()) {
+			descriptor.append(descriptor(parameter));
+		}
+		descriptor.append(")");
+		return descriptor.append(member instanceof Method ? descriptor(((Method) member).getReturnType()) : "V").toString();
+	}
+
+	private static String descriptor(Class<?> type) {
+		if (type.isPrimitive()) {
+			switch (type.getName()) {
+			case "boolean":	return "Z";
+			case "long":	return "J";
+			case "void":	return "V";
+			default:		return type.getName().substring(0, 1).toUpperCase();
+			}
+		}
+		return type.isArray() ? type.getName().replace('.', '/') : "L" + internalName(type) + ";";
+	}
+
+	private static String internalName(Class<?> type) {
+		return type.isArray() ? descriptor(type) : type.getName().replace('.', '/');
+	}
+
+	private static int access(String modifiers) {
+		int access = 0;
+		for (String modifier : modifiers.split(" ")) {
+			switch (modifier) {
+			case "public":		access |= ACC_PUBLIC; break;
+			case "private":		access |= ACC_PRIVATE; break;
+			case "protected":	access |= ACC_PROTECTED; break;
+			case "static":		access |= ACC_STATIC; break;
+			case "final":		access |= ACC_FINAL; break;
+			default:			break;
+			}
+		}
+		return access;
+	}
+
+	/**
+	 * @return the slots of a value of the type in the stack (0 for void)
+	 */
+	private static int size(Type type) {
+		return type == double.class || type == long.class ? 2 : type == void.class ? 0 : 1;
+	}
+
+	private static Class<?> stackType(Class<?> type) {
+		return type == boolean.class || type == byte.class || type == short.class || type == char.class ? int.class : type;
+	}
+
+	private static int loadOpcode(Type type) {
+		return typedOpcode(ILOAD, type);
+	}
+
+	private static int storeOpcode(Type type) {
+		return typedOpcode(ISTORE, type);
+	}
+
+	private static int returnOpcode(Type type) {
+		return typedOpcode(IRETURN, type);
+	}
+
+	/**
+	 * @param base int variant of the opcode (the long, float, double and reference ones follow it)
+	 */
+	private static int typedOpcode(int base, Type type) {
+		Class<?> kind = erasure(type).isPrimitive() ? stackType(erasure(type)) : Object.class;
+		return base + (kind == int.class ? 0 : kind == long.class ? 1 : kind == float.class ? 2 : kind == double.class ? 3 : 4);
+	}
+
+	private static int arrayLoadOpcode(Class<?> component) {
+		if (!component.isPrimitive()) {
+			return AALOAD;
+		}
+		switch (component.getName()) {
+		case "int":		return IALOAD;
+		case "long":	return LALOAD;
+		case "float":	return FALOAD;
+		case "double":	return DALOAD;
+		case "char":	return CALOAD;
+		case "short":	return SALOAD;
+		default:		return BALOAD;	// byte and boolean
+		}
+	}
+
+	/**
+	 * @return the code of the primitive type of the elements of a newarray (4 for boolean to 11 for long)
+	 */
+	private static int arrayTypeCode(Class<?> component) {
+		return 4 + Arrays.asList(boolean.class, char.class, float.class, double.class, byte.class, short.class, int.class,
+				long.class).indexOf(component);
+	}
+
+	private static int arithmeticOpcode(String op, Class<?> type) {
+		int base;
+		switch (op) {
+		case "+":	base = IADD; break;
+		case "-":	base = ISUB; break;
+		case "*":	base = IMUL; break;
+		case "/":	base = IDIV; break;
+		case "%":	base = IREM; break;
+		default:	throw new IllegalStateException("operator " + op);
+		}
+		return base + (type == long.class ? 1 : type == double.class ? 3 : 0);
+	}
+
+	private void defaultValue(Type type) {
+		Class<?> kind = erasure(type);
+		if (!kind.isPrimitive()) {
+			code.op(ACONST_NULL, 1);
+		}
+		else if (kind == double.class) {
+			code.op(DCONST_0, 2);
+		}
+		else if (kind == long.class) {
+			code.op(LCONST_0, 2);
+		}
+		else {
+			code.op(ICONST_0, 1);
+		}
+	}
+
+	private IllegalStateException unsupported(Object code) {
+		return typing.unsupported(code);
+	}
+
+}
@@ -0,0 +1,817 @@
+package compiler.ir;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
+/**
+ * <b>ClassFileWriter</b><p>
+ *
+ * Writer of a class file: the constant pool, the fields and the methods, with the bytecode of each method built by a
+ * {@link Code}. The class files are of version 52 (Java 8), verified by type checking: each method has the stack map
+ * frames of its jump targets, the types of its locals and operand stack there (see {@link Code}).
+ */
+class ClassFileWriter {
+
+	static final int ACC_PUBLIC		= 0x0001;
+	static final int ACC_PRIVATE	= 0x0002;
+	static final int ACC_PROTECTED	= 0x0004;
+	static final int ACC_STATIC		= 0x0008;
+	static final int ACC_FINAL		= 0x0010;
+	static final int ACC_SUPER		= 0x0020;
+
+	// opcodes
+	static final int ACONST_NULL = 1, ICONST_0 = 3, LCONST_0 = 9, LCONST_1 = 10, DCONST_0 = 14, DCONST_1 = 15,
+			BIPUSH = 16, SIPUSH = 17, LDC = 18, LDC_W = 19, LDC2_W = 20,
+			ILOAD = 21, LLOAD = 22, DLOAD = 24, ALOAD = 25,
+			IALOAD = 46, LALOAD = 47, FALOAD = 48, DALOAD = 49, AALOAD = 50, BALOAD = 51, CALOAD = 52, SALOAD = 53,
+			ISTORE = 54, LSTORE = 55, DSTORE = 57, ASTORE = 58,
+			IASTORE = 79, LASTORE = 80, FASTORE = 81, DASTORE = 82, AASTORE = 83, BASTORE = 84, CASTORE = 85, SASTORE = 86,
+			POP = 87, POP2 = 88, DUP = 89,
+			IADD = 96, LADD = 97, DADD = 99, ISUB = 100, LSUB = 101, DSUB = 103, IMUL = 104, LMUL = 105, DMUL = 107,
+			IDIV = 108, LDIV = 109, DDIV = 111, IREM = 112, LREM = 113, DREM = 115, INEG = 116, LNEG = 117, DNEG = 119,
+			IXOR = 130,
+			I2L = 133, I2F = 134, I2D = 135, L2I = 136, L2F = 137, L2D = 138, F2I = 139, F2L = 140, F2D = 141,
+			D2I = 142, D2L = 143, D2F = 144, I2B = 145, I2C = 146, I2S = 147,
+			LCMP = 148, DCMPL = 151, DCMPG = 152,
+			IFEQ = 153, IFNE = 154, IFLT = 155, IFGE = 156, IFGT = 157, IFLE = 158,
+			IF_ICMPEQ = 159, IF_ICMPNE = 160, IF_ICMPLT = 161, IF_ICMPGE = 162, IF_ICMPGT = 163, IF_ICMPLE = 164,
+			IF_ACMPEQ = 165, IF_ACMPNE = 166, GOTO = 167,
+			IRETURN = 172, LRETURN = 173, DRETURN = 175, ARETURN = 176, RETURN = 177,
+			GETSTATIC = 178, PUTSTATIC = 179, GETFIELD = 180,
+			INVOKEVIRTUAL = 182, INVOKESPECIAL = 183, INVOKESTATIC = 184, INVOKEINTERFACE = 185,
+			NEW = 187, NEWARRAY = 188, ANEWARRAY = 189, ARRAYLENGTH = 190, ATHROW = 191, CHECKCAST = 192, WIDE = 196, IFNULL = 198, IFNONNULL = 199;
+
+	private static final int CONSTANT_Utf8 = 1, CONSTANT_Integer = 3, CONSTANT_Long = 5, CONSTANT_Double = 6,
+			CONSTANT_Class = 7, CONSTANT_String = 8, CONSTANT_Fieldref = 9, CONSTANT_Methodref = 10,
+			CONSTANT_InterfaceMethodref = 11, CONSTANT_NameAndType = 12;
+
+	private final ByteArrayOutputStream		pool		= new ByteArrayOutputStream();
+	private final DataOutputStream			poolData	= new DataOutputStream(pool);
+	private final Map<String, Integer>		constants	= new HashMap<>();
+	private int								poolSize	= 1;
+	private final Map<Integer, String>		descriptors	= new HashMap<>();	// constant -> descriptor of the value loaded, the class, the field or the method
+	private final Set<Integer>				initializers	= new HashSet<>();	// constants of the <init> methods
+
+	private final String					className;
+	private final List<byte[]>				fields		= new ArrayList<>();
+	private final List<byte[]>				methods		= new ArrayList<>();
+
+	/**
+	 * @param className internal name of the class (with / between packages)
+	 */
+	ClassFileWriter(String className) {
+		this.className = className;
+	}
+
+	String getClassName() {
+		return className;
+	}
+
+	void addField(int access, String name, String descriptor) {
+		ByteArrayOutputStream field = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(field);
+		try {
+			data.writeShort(access);
+			data.writeShort(utf8(name));
+			data.writeShort(utf8(descriptor));
+			data.writeShort(0);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		fields.add(field.toByteArray());
+	}
+
+	/**
+	 * Adds a method with the code built
+	 * @param maxLocals slots of the locals (parameters included)
+	 */
+	void addMethod(int access, String name, String descriptor, Code code, int maxLocals) {
+		byte[] bytecode = code.toByteArray();
+		if (bytecode.length >= 65536) {
+			throw new IllegalStateException("method " + name + " has more than 64 KB of bytecode");
+		}
+		byte[] frames = code.stackMapTable();
+		ByteArrayOutputStream method = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(method);
+		try {
+			data.writeShort(access);
+			data.writeShort(utf8(name));
+			data.writeShort(utf8(descriptor));
+			data.writeShort(1);
+			data.writeShort(utf8("Code"));
+			data.writeInt(12 + bytecode.length + (frames == null ? 0 : 6 + frames.length));
+			data.writeShort(code.maxStack);
+			data.writeShort(maxLocals);
+			data.writeInt(bytecode.length);
+			data.write(bytecode);
+			data.writeShort(0);	// exception table
+			if (frames == null) {
+				data.writeShort(0);	// attributes
+			}
+			else {
+				data.writeShort(1);
+				data.writeShort(utf8("StackMapTable"));
+				data.writeInt(frames.length);
+				data.write(frames);
+			}
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		methods.add(method.toByteArray());
+	}
+
+	/**
+	 * @return the class file
+	 */
+	byte[] toByteArray() {
+		ByteArrayOutputStream file = new ByteArrayOutputStream();
+		DataOutputStream data = new DataOutputStream(file);
+		try {
+			int thisClass = classConstant(className);
+			int superClass = classConstant("java/lang/Object");
+			data.writeInt(0xCAFEBABE);
+			data.writeShort(0);
+			data.writeShort(52);
+			data.writeShort(poolSize);
+			data.write(pool.toByteArray());
+			data.writeShort(ACC_PUBLIC | ACC_SUPER);
+			data.writeShort(thisClass);
+			data.writeShort(superClass);
+			data.writeShort(0);	// interfaces
+			data.writeShort(fields.size());
+			for (byte[] field : fields) {
+				data.write(field);
+			}
+			data.writeShort(methods.size());
+			for (byte[] method : methods) {
+				data.write(method);
+			}
+			data.writeShort(0);	// attributes
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return file.toByteArray();
+	}
+
+	// --------------------------------------------------------------------------
+	// Constant pool
+
+	int utf8(String text) {
+		return constant("U" + text, 1, data -> {
+			data.writeByte(CONSTANT_Utf8);
+			data.writeUTF(text);
+		});
+	}
+
+	int classConstant(String internalName) {
+		int name = utf8(internalName);
+		int index = constant("C" + internalName, 1, data -> {
+			data.writeByte(CONSTANT_Class);
+			data.writeShort(name);
+		});
+		descriptors.put(index, internalName.startsWith("[") ? internalName : "L" + internalName + ";");
+		return index;
+	}
+
+	int stringConstant(String text) {
+		int value = utf8(text);
+		int index = constant("S" + text, 1, data -> {
+			data.writeByte(CONSTANT_String);
+			data.writeShort(value);
+		});
+		descriptors.put(index, "Ljava/lang/String;");
+		return index;
+	}
+
+	int intConstant(int value) {
+		int index = constant("I" + value, 1, data -> {
+			data.writeByte(CONSTANT_Integer);
+			data.writeInt(value);
+		});
+		descriptors.put(index, "I");
+		return index;
+	}
+
+	int longConstant(long value) {
+		int index = constant("J" + value, 2, data -> {
+			data.writeByte(CONSTANT_Long);
+			data.writeLong(value);
+		});
+		descriptors.put(index, "J");
+		return index;
+	}
+
+	int doubleConstant(double value) {
+		// by the bits, so -0.0 and the NaNs are constants of their own
+		int index = constant("D" + Double.doubleToRawLongBits(value), 2, data -> {
+			data.writeByte(CONSTANT_Double);
+			data.writeDouble(value);
+		});
+		descriptors.put(index, "D");
+		return index;
+	}
+
+	int fieldConstant(String owner, String name, String descriptor) {
+		return memberConstant(CONSTANT_Fieldref, owner, name, descriptor);
+	}
+
+	int methodConstant(String owner, String name, String descriptor, boolean isInterface) {
+		return memberConstant(isInterface ? CONSTANT_InterfaceMethodref : CONSTANT_Methodref, owner, name, descriptor);
+	}
+
+	private int memberConstant(int tag, String owner, String name, String descriptor) {
+		int ownerClass = classConstant(owner);
+		int nameIndex = utf8(name);
+		int descriptorIndex = utf8(descriptor);
+		int nameAndType = constant("N" + name + " " + descriptor, 1, data -> {
+			data.writeByte(CONSTANT_NameAndType);
+			data.writeShort(nameIndex);
+			data.writeShort(descriptorIndex);
+		});
+		int index = constant(tag + ":" + owner + "." + name + " " + descriptor, 1, data -> {
+			data.writeByte(tag);
+			data.writeShort(ownerClass);
+			data.writeShort(nameAndType);
+		});
+		descriptors.put(index, descriptor);
+		if (name.equals("<init>")) {
+			initializers.add(index);
+		}
+		return index;
+	}
+
+	private interface Entry {
+		void write(DataOutputStream data) throws IOException;
+	}
+
+	/**
+	 * @param key identifies the constant (constants are written once)
+	 * @param slots entries of the pool the constant takes (2 for long and double)
+	 * @return the index of the constant in the pool
+	 */
+	private int constant(String key, int slots, Entry entry) {
+		Integer index = constants.get(key);
+		if (index != null) {
+			return index;
+		}
+		try {
+			entry.write(poolData);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		index = poolSize;
+		poolSize += slots;
+		if (poolSize > 65535) {
+			throw new IllegalStateException("constant pool of " + className + " is full");
+		}
+		constants.put(key, index);
+		return index;
+	}
+
+	// --------------------------------------------------------------------------
+	// Code
+
+	/**
+	 * Position in the code, target of jumps (placed once, jumped to before or after)
+	 */
+	static class Label {
+		int			position	= -1;
+		int			stack		= -1;	// depth of the operand stack at the label
+		List<int[]>	jumps		= new ArrayList<>();	// {opcode position, offset position} of the jumps to it
+		List<State>	states		= new ArrayList<>();	// types at the jumps to it written before it is placed
+	}
+
+	/**
+	 * Types of the operand stack and locals assigned at a position of the code. The types are the ones of the
+	 * verifier: I (the int types), J, F, D, N (null), T (top, no value), U and the position of the new instruction
+	 * (object not initialized yet) or the descriptor of the class
+	 */
+	private static class State {
+		final List<String>	stack;
+		final BitSet		assigned;	// slots in scope that hold a value in every path to the position
+
+		State(List<String> stack, BitSet assigned) {
+			this.stack = new ArrayList<>(stack);
+			this.assigned = (BitSet) assigned.clone();
+		}
+	}
+
+	/**
+	 * Types of the locals and of the operand stack at a jump target
+	 */
+	private static class Frame {
+		final List<String>	locals;	// one for each slot, T in the second slot of long and double
+		final List<String>	stack;	// one for long and double
+
+		Frame(List<String> locals, List<String> stack) {
+			this.locals = locals;
+			this.stack = new ArrayList<>(stack);
+		}
+	}
+
+	/**
+	 * Bytecode of a method. Each instruction is written with the change it makes to the depth of the operand stack,
+	 * to compute the maximum depth, and the types of the stack are followed (from the opcodes and the constants the
+	 * instructions use) to give the stack map frame of each jump target: the stack there and the locals in scope
+	 * (declared with their types, see {@link #declare(int, String, boolean)}) assigned in every path to it.<p>
+	 * The code after an unconditional jump is not reachable until a label jumped to: it is not written.
+	 */
+	static class Code {
+		private final ClassFileWriter		classFile;
+		private final ByteArrayOutputStream	code		= new ByteArrayOutputStream();
+		private final List<Label>			labels		= new ArrayList<>();
+		private int							stack		= 0;
+		int									maxStack	= 0;
+		boolean								reachable	= true;
+
+		private final List<String>			stackTypes	= new ArrayList<>();	// one for long and double
+		private final List<String>			localTypes	= new ArrayList<>();	// declared, T in the second slot of long and double
+		private BitSet						assigned	= new BitSet();
+		private final Map<Integer, String>	created		= new HashMap<>();		// position of new -> class of the object
+		private final TreeMap<Integer, Frame>	frames		= new TreeMap<>();		// position -> types there
+
+		Code(ClassFileWriter classFile) {
+			this.classFile = classFile;
+		}
+
+		int position() {
+			return code.size();
+		}
+
+		/**
+		 * Declares the local in the slot (the locals of the slots after it end)
+		 * @param descriptor of the type of the local
+		 * @param assigned true for the parameters
+		 */
+		void declare(int slot, String descriptor, boolean assigned) {
+			scope(slot);
+			while (localTypes.size() < slot) {
+				localTypes.add("T");
+			}
+			String type = verificationType(descriptor);
+			localTypes.add(type);
+			if (type.equals("J") || type.equals("D")) {
+				localTypes.add("T");
+			}
+			if (assigned) {
+				this.assigned.set(slot);
+			}
+		}
+
+		/**
+		 * Ends the locals of the slots after the first ones
+		 */
+		void scope(int slots) {
+			while (localTypes.size() > slots) {
+				localTypes.remove(localTypes.size() - 1);
+			}
+			assigned.clear(slots, Math.max(slots, assigned.length()));
+		}
+
+		/**
+		 * Writes an instruction without operands
+		 * @param stackChange
+		 */
+		void op(int opcode, int stackChange) {
+			if (!reachable) {
+				return;
+			}
+			int position = code.size();
+			code.write(opcode);
+			stack(stackChange);
+			execute(opcode, 0, position);
+			if (opcode == GOTO || opcode == ATHROW || (opcode >= IRETURN && opcode <= RETURN)) {
+				reachable = false;
+			}
+		}
+
+		void opByte(int opcode, int operand, int stackChange) {
+			if (!reachable) {
+				return;
+			}
+			int position = code.size();
+			code.write(opcode);
+			code.write(operand);
+			stack(stackChange);
+			execute(opcode, operand, position);
+		}
+
+		void opShort(int opcode, int operand, int stackChange) {
+			if (!reachable) {
+				return;
+			}
+			int position = code.size();
+			code.write(opcode);
+			writeShort(operand);
+			stack(stackChange);
+			execute(opcode, operand, position);
+		}
+
+		/**
+		 * Loads or stores a local (wide for the slots after 255)
+		 */
+		void local(int opcode, int slot, int stackChange) {
+			if (!reachable) {
+				return;
+			}
+			int position = code.size();
+			if (slot > 255) {
+				code.write(WIDE);
+				code.write(opcode);
+				writeShort(slot);
+			}
+			else {
+				code.write(opcode);
+				code.write(slot);
+			}
+			stack(stackChange);
+			execute(opcode, slot, position);
+		}
+
+		void invokeInterface(int method, int argSlots, int stackChange) {
+			if (!reachable) {
+				return;
+			}
+			int position = code.size();
+			code.write(INVOKEINTERFACE);
+			writeShort(method);
+			code.write(argSlots + 1);
+			code.write(0);
+			stack(stackChange);
+			execute(INVOKEINTERFACE, method, position);
+		}
+
+		void jump(int opcode, Label label, int stackChange) {
+			if (!reachable) {
+				return;
+			}
+			stack(stackChange);
+			pop(opcode == GOTO ? 0 : (opcode >= IF_ICMPEQ && opcode <= IF_ACMPNE) ? 2 : 1);
+			label.stack = stack;
+			label.jumps.add(new int[] {code.size(), code.size() + 1});
+			if (label.position < 0) {
+				label.states.add(new State(stackTypes, assigned));
+			}
+			code.write(opcode);
+			writeShort(0);
+			if (!labels.contains(label)) {
+				labels.add(label);
+			}
+			if (opcode == GOTO) {
+				reachable = false;
+			}
+		}
+
+		/**
+		 * Places the label at the current position. The types there are the ones of the jumps to it written before
+		 * (and of the code before it, if it is reachable): a jump written after it (backwards) must not change them
+		 */
+		void place(Label label) {
+			label.position = code.size();
+			if (!labels.contains(label)) {
+				labels.add(label);
+			}
+			List<State> states = new ArrayList<>(label.states);
+			if (reachable) {
+				states.add(new State(stackTypes, assigned));
+			}
+			if (!label.jumps.isEmpty()) {
+				stack = label.stack;
+				reachable = true;
+			}
+			if (!states.isEmpty()) {
+				merge(states);
+				List<String> locals = new ArrayList<>();
+				for (int slot = 0; slot < localTypes.size(); slot++) {
+					locals.add(assigned.get(slot) ? localTypes.get(slot) : "T");
+				}
+				frames.put(label.position, new Frame(locals, stackTypes));
+			}
+		}
+
+		private void stack(int change) {
+			stack += change;
+			maxStack = Math.max(maxStack, stack);
+		}
+
+		private void writeShort(int value) {
+			code.write(value >> 8);
+			code.write(value);
+		}
+
+		/**
+		 * @return the bytecode, with the offsets of the jumps
+		 */
+		byte[] toByteArray() {
+			byte[] bytes = code.toByteArray();
+			for (Label label : labels) {
+				for (int[] jump : label.jumps) {
+					int offset = label.position - jump[0];
+					if (label.position < 0 || offset != (short) offset) {
+						throw new IllegalStateException("jump out of range in the generated method");
+					}
+					bytes[jump[1]] = (byte) (offset >> 8);
+					bytes[jump[1] + 1] = (byte) offset;
+				}
+			}
+			return bytes;
+		}
+
+		/**
+		 * @return the StackMapTable attribute (without its name and length): a full frame for each jump target, or null
+		 * if the code has no jumps
+		 */
+		byte[] stackMapTable() {
+			TreeSet<Integer> targets = new TreeSet<>();
+			for (Label label : labels) {
+				if (!label.jumps.isEmpty()) {
+					targets.add(label.position);
+				}
+			}
+			if (targets.isEmpty()) {
+				return null;
+			}
+			ByteArrayOutputStream table = new ByteArrayOutputStream();
+			DataOutputStream data = new DataOutputStream(table);
+			try {
+				data.writeShort(targets.size());
+				int previous = -1;
+				for (int target : targets) {
+					Frame frame = frames.get(target);
+					if (frame == null) {
+						throw new IllegalStateException("no types known at a jump target of the generated method");
+					}
+					data.writeByte(255);	// full_frame
+					data.writeShort(target - previous - 1);
+
+					// the second slot of long and double has no entry, nor the unassigned slots after the last local
+					List<String> locals = new ArrayList<>();
+					List<String> types = frame.locals;
+					for (int slot = 0; slot < types.size(); slot++) {
+						locals.add(types.get(slot));
+						if (types.get(slot).equals("J") || types.get(slot).equals("D")) {
+							slot++;
+						}
+					}
+					while (!locals.isEmpty() && locals.get(locals.size() - 1).equals("T")) {
+						locals.remove(locals.size() - 1);
+					}
+					writeTypes(data, locals);
+					writeTypes(data, frame.stack);
+					previous = target;
+				}
+			}
+			catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return table.toByteArray();
+		}
+
+		private void writeTypes(DataOutputStream data, List<String> types) throws IOException {
+			data.writeShort(types.size());
+			for (String type : types) {
+				switch (type.charAt(0)) {
+				case 'T':	data.writeByte(0); break;
+				case 'I':	data.writeByte(1); break;
+				case 'F':	data.writeByte(2); break;
+				case 'D':	data.writeByte(3); break;
+				case 'J':	data.writeByte(4); break;
+				case 'N':	data.writeByte(5); break;
+				case 'U':
+					data.writeByte(8);
+					data.writeShort(Integer.parseInt(type.substring(1)));
+					break;
+				default:
+					data.writeByte(7);
+					data.writeShort(classFile.classConstant(type.startsWith("[") ? type : type.substring(1, type.length() - 1)));
+				}
+			}
+		}
+
+		// ----------------------------------------------------------------------
+		// Types
+
+		/**
+		 * Changes the types of the stack (and the locals assigned) as the instruction does
+		 * @param operand slot, value or constant of the instruction
+		 * @param position of the instruction
+		 */
+		private void execute(int opcode, int operand, int position) {
+			switch (opcode) {
+			case ACONST_NULL:	push("N"); return;
+			case LCONST_0: case LCONST_1:	push("J"); return;
+			case DCONST_0: case DCONST_1:	push("D"); return;
+			case BIPUSH: case SIPUSH:		push("I"); return;
+			case LDC: case LDC_W: case LDC2_W: case GETSTATIC:
+				push(verificationType(classFile.descriptors.get(operand)));
+				return;
+			case PUTSTATIC:		pop(1); return;
+			case GETFIELD:
+				pop(1);
+				push(verificationType(classFile.descriptors.get(operand)));
+				return;
+			case NEW:
+				created.put(position, classFile.descriptors.get(operand));
+				push("U" + position);
+				return;
+			case CHECKCAST:
+				pop(1);
+				push(classFile.descriptors.get(operand));
+				return;
+			case NEWARRAY:
+				// operand: the code of the primitive type of the elements, 4 (boolean) to 11 (long)
+				pop(1);
+				push("[" + "ZCFDBSIJ".charAt(operand - 4));
+				return;
+			case ANEWARRAY:
+				pop(1);
+				push("[" + classFile.descriptors.get(operand));
+				return;
+			case ARRAYLENGTH:	pop(1); push("I"); return;
+			case POP:			pop(1); return;
+			case POP2:			pop(top().equals("J") || top().equals("D") ? 1 : 2); return;
+			case DUP:			push(top()); return;
+			case IXOR: case LCMP: case DCMPL: case DCMPG:
+				pop(2);
+				push("I");
+				return;
+			case INVOKEVIRTUAL: case INVOKESPECIAL: case INVOKESTATIC: case INVOKEINTERFACE:
+				invoke(opcode, operand);
+				return;
+			case ATHROW:
+				stackTypes.clear();
+				return;
+			default:
+				break;
+			}
+			if (opcode >= ICONST_0 - 1 && opcode <= ICONST_0 + 5) {
+				push("I");
+			}
+			else if (opcode >= ILOAD && opcode <= ALOAD) {
+				// the references have the type the local is declared with (this, in a constructor, has none)
+				if (opcode == ALOAD) {
+					push(operand < localTypes.size() ? localTypes.get(operand) : "T");
+				}
+				else {
+					push("IJFD".substring(opcode - ILOAD, opcode - ILOAD + 1));
+				}
+			}
+			else if (opcode >= IALOAD && opcode <= SALOAD) {
+				pop(1);
+				String array = top();
+				pop(1);
+				push(opcode == AALOAD ? array.substring(1) : verificationType("IJFD BCS".substring(opcode - IALOAD, opcode - IALOAD + 1)));
+			}
+			else if (opcode >= ISTORE && opcode <= ASTORE) {
+				pop(1);
+				assigned.set(operand);
+			}
+			else if (opcode >= IASTORE && opcode <= SASTORE) {
+				pop(3);
+			}
+			else if (opcode >= IADD && opcode <= DREM) {
+				pop(2);
+				push("IJFD".substring((opcode - IADD) % 4, (opcode - IADD) % 4 + 1));
+			}
+			else if (opcode >= I2L && opcode <= I2S) {
+				pop(1);
+				push("JFDIFDIJDIJFIII".substring(opcode - I2L, opcode - I2L + 1));
+			}
+			else if (opcode >= IRETURN && opcode <= RETURN) {
+				stackTypes.clear();
+			}
+			// the negations keep the type
+		}
+
+		private void invoke(int opcode, int method) {
+			String descriptor = classFile.descriptors.get(method);
+			pop(argumentTypes(descriptor).size());
+			if (opcode != INVOKESTATIC) {
+				String receiver = top();
+				pop(1);
+				// the object created is initialized: the copies of it in the stack have its class now
+				if (classFile.initializers.contains(method) && receiver.startsWith("U")) {
+					String type = created.get(Integer.parseInt(receiver.substring(1)));
+					stackTypes.replaceAll(entry -> entry.equals(receiver) ? type : entry);
+				}
+			}
+			String result = descriptor.substring(descriptor.indexOf(')') + 1);
+			if (!result.equals("V")) {
+				push(verificationType(result));
+			}
+		}
+
+		private void push(String type) {
+			stackTypes.add(type);
+		}
+
+		private void pop(int entries) {
+			for (int i = 0; i < entries; i++) {
+				stackTypes.remove(stackTypes.size() - 1);
+			}
+		}
+
+		private String top() {
+			return stackTypes.get(stackTypes.size() - 1);
+		}
+
+		/**
+		 * Makes the types of the stack and of the locals assigned the ones common to the paths
+		 */
+		private void merge(List<State> states) {
+			List<String> types = new ArrayList<>(states.get(0).stack);
+			BitSet common = (BitSet) states.get(0).assigned.clone();
+			for (State state : states.subList(1, states.size())) {
+				if (state.stack.size() != types.size()) {
+					throw new IllegalStateException("stacks of different depths at a jump target of the generated method");
+				}
+				for (int i = 0; i < types.size(); i++) {
+					types.set(i, mergeTypes(types.get(i), state.stack.get(i)));
+				}
+				common.and(state.assigned);
+			}
+			stackTypes.clear();
+			stackTypes.addAll(types);
+			assigned = common;
+		}
+
+		/**
+		 * @return the type of a value of one of the types (T if there is none)
+		 */
+		private static String mergeTypes(String a, String b) {
+			if (a.equals(b)) {
+				return a;
+			}
+			boolean referenceA = a.startsWith("L") || a.startsWith("[");
+			boolean referenceB = b.startsWith("L") || b.startsWith("[");
+			if ((a.equals("N") && referenceB) || (b.equals("N") && referenceA)) {
+				return a.equals("N") ? b : a;
+			}
+			if (!referenceA || !referenceB) {
+				return "T";
+			}
+			if (a.startsWith("[") || b.startsWith("[")) {
+				return "Ljava/lang/Object;";
+			}
+			// the common superclass (the verifier takes the interfaces for Object)
+			try {
+				ClassLoader loader = ClassFileWriter.class.getClassLoader();
+				Class<?> classA = Class.forName(a.substring(1, a.length() - 1).replace('/', '.'), false, loader);
+				Class<?> classB = Class.forName(b.substring(1, b.length() - 1).replace('/', '.'), false, loader);
+				if (classA.isInterface() || classB.isInterface()) {
+					return "Ljava/lang/Object;";
+				}
+				while (!classA.isAssignableFrom(classB)) {
+					classA = classA.getSuperclass();
+				}
+				return "L" + classA.getName().replace('.', '/') + ";";
+			}
+			catch (ClassNotFoundException e) {
+				return "Ljava/lang/Object;";
+			}
+		}
+	}
+
+	/**
+	 * @return the verification type of a value of the type (I for the int types)
+	 */
+	private static String verificationType(String descriptor) {
+		switch (descriptor.charAt(0)) {
+		case 'Z': case 'B': case 'C': case 'S': case 'I':	return "I";
+		default:	return descriptor.charAt(0) == 'L' || descriptor.charAt(0) == '[' ? descriptor : descriptor.substring(0, 1);
+		}
+	}
+
+	/**
+	 * @return the descriptors of the parameters of the method
+	 */
+	private static List<String> argumentTypes(String descriptor) {
+		List<String> types = new ArrayList<>();
+		int i = 1;
+		while (descriptor.charAt(i) != ')') {
+			int start = i;
+			while (descriptor.charAt(i) == '[') {
+				i++;
+			}
+			i = descriptor.charAt(i) == 'L' ? descriptor.indexOf(';', i) + 1 : i + 1;
+			types.add(descriptor.substring(start, i));
+		}
+		return types;
+	}
+
+}
@@ -0,0 +1,255 @@
+package compiler.ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import compiler.ir.IRExpression.*;
+import compiler.ir.IRInstruction.*;
+
+/**
+ * <b>CommonSubexpressions</b><p>
+ *
+ * Pass that gives a value number to every value computed in a function (the same number to the same operation over
+ * the same values) and replaces the value of a temporary by the local that already holds it, when that local still
+ * holds it (a read of it, that the other passes propagate). The reads of a copy are replaced by reads of the variable
+ * copied, while both hold the same value.<p>
+ * Only pure values over numbers, booleans and strings are replaced. A value computed in a branch or in a loop is
+ * not available after it, and the variables assigned in a branch or in a loop (the globals too, if it calls a
+ * function) get new numbers after it (and in the loop, before it).
+ */
+public class CommonSubexpressions implements IRPass {
+
+	private static final Set<String> numberedTypes = new HashSet<>(Arrays.asList("double", "boolean", "String"));
+
+	@Override
+	public String getName() {
+		return "common-subexpressions";
+	}
+
+	private final Map<String, Integer>	table		= new HashMap<>(); // operation and value numbers of the operands -> value number
+	private Map<String, Integer>		numbers		= new HashMap<>(); // variable -> value number of its value
+	private Map<Integer, String>		available	= new HashMap<>(); // value number -> local that holds it
+	private final Map<String, String>	types		= new HashMap<>(); // variable -> declared type
+	private final Map<String, String>	copies		= new HashMap<>(); // local -> variable it is a copy of
+	private final Set<String>			globals		= new HashSet<>();
+	private int							count		= 0;
+
+	@Override
+	public void run(IRProgram program) {
+		for (IRInstruction global : program.globals) {
+			if (global instanceof Assign) {
+				globals.add(((Assign) global).target);
+				types.put(((Assign) global).target, ((Assign) global).declaredType);
+			}
+		}
+		for (IRFunction function : program.functions) {
+			numbers = new HashMap<>();
+			available = new HashMap<>();
+			for (int i = 0; i < function.params.size(); i++) {
+				types.put(function.params.get(i), function.paramTypes.get(i));
+			}
+			number(function.body);
+		}
+	}
+
+	private void number(List<IRInstruction> block) {
+		for (IRInstruction instruction : block) {
+
+			if (instruction instanceof Assign || instruction instanceof Eval || instruction instanceof Return) {
+				instruction.mapExpressions(e -> e == null ? null : e.transform(this::propagate));
+			}
+
+			if (instruction instanceof Assign) {
+				number((Assign) instruction);
+			}
+
+			else if (instruction instanceof If || instruction instanceof Block) {
+				Map<String, Integer> outerNumbers = numbers;
+				Map<Integer, String> outerAvailable = available;
+				for (List<IRInstruction> branch : instruction.blocks()) {
+					numbers = new HashMap<>(outerNumbers);
+					available = new HashMap<>(outerAvailable);
+					number(branch);
+				}
+				numbers = outerNumbers;
+				available = outerAvailable;
+				kill(instruction);
+			}
+
+			else if (instruction instanceof Loop) {
+				// the values read in the body may be the ones of the iteration before
+				kill(instruction);
+				Map<String, Integer> outerNumbers = numbers;
+				Map<Integer, String> outerAvailable = available;
+				numbers = new HashMap<>(outerNumbers);
+				available = new HashMap<>(outerAvailable);
+				number(((Loop) instruction).body);
+				numbers = outerNumbers;
+				available = outerAvailable;
+				kill(instruction);
+			}
+
+			else if (callsFunctions(instruction.expressions())) {
+				killGlobals();
+			}
+		}
+	}
+
+	private void number(Assign assign) {
+		if (assign.isDeclaration()) {
+			types.put(assign.target, assign.declaredType);
+		}
+		if (assign.value == null) {
+			numbers.put(assign.target, count++);
+			return;
+		}
+
+		int number = assign.value.isPure() ? number(assign.value) : count++;
+		if (callsFunctions(assign.expressions())) {
+			killGlobals();
+		}
+
+		if (assign.isDeclaration() && assign.value instanceof Name && numberedTypes.contains(assign.declaredType)
+				&& numberedTypes.contains(types.get(((Name) assign.value).name))) {
+			copies.put(assign.target, ((Name) assign.value).name);
+		}
+		else if (assign.isDeclaration() && assign.modifiers.isEmpty() && isCandidate(assign)) {
+			String holder = available.get(number);
+			if (holder != null && numbers.get(holder).equals(number)) {
+				assign.value = new Name(holder);
+			}
+			else {
+				available.put(number, assign.target);
+			}
+		}
+		numbers.put(assign.target, number);
+	}
+
+	/**
+	 * @param expression pure
+	 * @return the value number of the expression
+	 */
+	private int number(IRExpression expression) {
+		String key;
+		if (expression instanceof Name) {
+			return numbers.computeIfAbsent(((Name) expression).name, name -> count++);
+		}
+		else if (expression instanceof Literal) {
+			key = "literal " + ((Literal) expression).text;
+		}
+		else {
+			StringBuilder operands = new StringBuilder();
+			for (IRExpression child : expression.children()) {
+				operands.append(" ").append(number(child));
+			}
+			key = operation(expression) + operands;
+		}
+		return table.computeIfAbsent(key, k -> count++);
+	}
+
+	/**
+	 * @return the read of the variable copied, if the expression reads a copy that holds the same value
+	 */
+	private IRExpression propagate(IRExpression expression) {
+		if (expression instanceof Name && copies.containsKey(((Name) expression).name)) {
+			String copied = copies.get(((Name) expression).name);
+			Integer number = numbers.get(copied);
+			if (number != null && number.equals(numbers.get(((Name) expression).name))) {
+				return new Name(copied);
+			}
+		}
+		return expression;
+	}
+
+	/**
+	 * @return the operation of the expression, without its operands
+	 */
+	private static String operation(IRExpression expression) {
+		if (expression instanceof Unary) {
+			return "unary " + ((Unary) expression).op;
+		}
+		if (expression instanceof Binary) {
+			return "binary " + ((Binary) expression).op;
+		}
+		if (expression instanceof Cast) {
+			return "cast " + ((Cast) expression).type;
+		}
+		if (expression instanceof Call) {
+			return "call " + ((Call) expression).method;
+		}
+		return expression.getClass().getSimpleName();
+	}
+
+	/**
+	 * @return true if the value of the declaration can be replaced by a local that holds it
+	 */
+	private boolean isCandidate(Assign assign) {
+		if (!numberedTypes.contains(assign.declaredType) || !assign.value.isPure()
+				|| assign.value instanceof Name || assign.value instanceof Literal) {
+			return false;
+		}
+		List<String> names = new ArrayList<>();
+		assign.value.collectNames(names);
+		for (String name : names) {
+			if (!name.equals("Math") && !numberedTypes.contains(types.get(name))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Gives new value numbers to the variables assigned by the instruction (and to the globals, if it calls functions)
+	 */
+	private void kill(IRInstruction instruction) {
+		List<IRInstruction> instructions = new ArrayList<>();
+		instructions.add(instruction);
+		for (List<IRInstruction> block : IRProgram.nestedBlocks(instruction.blocks())) {
+			instructions.addAll(block);
+		}
+		for (IRInstruction nested : new ArrayList<>(instructions)) {
+			if (nested instanceof Loop) {
+				instructions.add(((Loop) nested).init);
+				instructions.add(((Loop) nested).update);
+			}
+		}
+
+		boolean calls = false;
+		for (IRInstruction nested : instructions) {
+			if (nested instanceof Assign) {
+				numbers.put(((Assign) nested).target, count++);
+			}
+			if (nested != null) {
+				calls |= callsFunctions(nested.expressions());
+			}
+		}
+		if (calls) {
+			killGlobals();
+		}
+	}
+
+	private void killGlobals() {
+		for (String global : globals) {
+			numbers.put(global, count++);
+		}
+	}
+
+	/**
+	 * @return true if the expressions call methods of the class (that may assign the globals)
+	 */
+	private static boolean callsFunctions(List<IRExpression> expressions) {
+		boolean[] calls = {false};
+		for (IRExpression expression : expressions) {
+			if (expression != null) {
+				expression.forEach(e -> calls[0] |= e instanceof Call && ((Call) e).target == null);
+			}
+		}
+		return calls[0];
+	}
+
+}
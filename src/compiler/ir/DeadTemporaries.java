@@ -0,0 +1,45 @@
+package compiler.ir;
+
+import java.util.List;
+import java.util.Map;
+
+import compiler.ir.IRInstruction.*;
+
+/**
+ * <b>DeadTemporaries</b><p>
+ *
+ * Pass that removes the local declarations never read, when their value is computed without side effects
+ * (values left unused by the other optimizations, like the copies of variables of an expression computed before).
+ */
+public class DeadTemporaries implements IRPass {
+
+	@Override
+	public String getName() {
+		return "dead-temporaries";
+	}
+
+	@Override
+	public void run(IRProgram program) {
+		// removing a declaration may leave the ones it read unused
+		boolean removed = true;
+		while (removed) {
+			removed = false;
+			Map<String, Integer> occurrences = IRProgram.countNames(program.allBlocks());
+			for (List<IRInstruction> block : program.allBlocks()) {
+				if (block != program.globals) {
+					removed |= block.removeIf(instruction -> isDead(instruction, occurrences));
+				}
+			}
+		}
+	}
+
+	private static boolean isDead(IRInstruction instruction, Map<String, Integer> occurrences) {
+		if (!(instruction instanceof Assign)) {
+			return false;
+		}
+		Assign assign = (Assign) instruction;
+		return assign.isDeclaration() && assign.modifiers.isEmpty() && occurrences.getOrDefault(assign.target, 0) == 1
+				&& (assign.value == null || assign.value.isPure());
+	}
+
+}
@@ -0,0 +1,102 @@
+package compiler.ir;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import compiler.ir.IRExpression.*;
+import compiler.ir.IRInstruction.*;
+
+/**
+ * <b>ExpandPowers</b><p>
+ *
+ * Pass that computes the powers of a variable (or a number) to a small integer exponent known at compile time by
+ * multiplications instead of Math.pow: x * x * x for the exponents up to 3, exponentiation by squaring for the others
+ * (the squares of the base are computed before, in new locals). Negative exponents give the inverse of the product.
+ */
+public class ExpandPowers implements IRPass {
+
+	// largest integer exponent computed by multiplications (exponentiation by squaring) instead of Math.pow
+	private static final int MAX_MULTIPLIED_EXPONENT = 1024;
+
+	@Override
+	public String getName() {
+		return "expand-powers";
+	}
+
+	@Override
+	public void run(IRProgram program) {
+		for (List<IRInstruction> block : program.allBlocks()) {
+			if (block == program.globals) {
+				continue;
+			}
+			for (int i = 0; i < block.size(); i++) {
+				if (!(block.get(i) instanceof Assign) || ((Assign) block.get(i)).value == null) {
+					continue;
+				}
+				Assign assign = (Assign) block.get(i);
+				List<IRInstruction> squares = new ArrayList<>();
+				assign.value = assign.value.transform(node -> expand(node, squares, program));
+				block.addAll(i, squares);
+				i += squares.size();
+			}
+		}
+	}
+
+	/**
+	 * @param squares where the declarations of the squares of the base are added
+	 * @return the product that gives the power, or the expression if it is not a power to a small integer exponent
+	 */
+	private static IRExpression expand(IRExpression expression, List<IRInstruction> squares, IRProgram program) {
+		if (!(expression instanceof Call) || !((Call) expression).isMath() || !((Call) expression).method.equals("pow")) {
+			return expression;
+		}
+		IRExpression base = ((Call) expression).args.get(0);
+		IRExpression exponent = ((Call) expression).args.get(1);
+		if (!(base instanceof Name || (base instanceof Literal && ((Literal) base).number() != null))
+				|| !(exponent instanceof Literal) || ((Literal) exponent).number() == null) {
+			return expression;
+		}
+		double value = ((Literal) exponent).number();
+		if (value != Math.rint(value) || Math.abs(value) > MAX_MULTIPLIED_EXPONENT) {
+			return expression;
+		}
+
+		int n = (int) Math.abs(value);
+		IRExpression product = n == 0 ? new Literal("1.0") : multiply(base, n, squares, program);
+		return value < 0 ? new Binary("/", new Literal("1.0"), product) : product;
+	}
+
+	/**
+	 * Exponentiation by squaring
+	 * @param exponent positive
+	 * @return the product of the base (or of its squares) that gives the power
+	 */
+	private static IRExpression multiply(IRExpression base, int exponent, List<IRInstruction> squares, IRProgram program) {
+
+		// small exponents: x * x * x
+		if (exponent <= 3) {
+			IRExpression product = base;
+			for (int i = 1; i < exponent; i++) {
+				product = new Binary("*", product, base);
+			}
+			return product;
+		}
+
+		IRExpression product = null;
+		IRExpression square = base;
+		while (true) {
+			if ((exponent & 1) == 1) {
+				product = product == null ? square : new Binary("*", product, square);
+			}
+			exponent >>= 1;
+			if (exponent == 0) {
+				break;
+			}
+			String newSquare = program.newName();
+			squares.add(new Assign("", "double", newSquare, new Binary("*", square, square)));
+			square = new Name(newSquare);
+		}
+		return product;
+	}
+
+}
@@ -0,0 +1,148 @@
+package compiler.ir;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import compiler.ir.IRExpression.*;
+import compiler.ir.IRInstruction.*;
+
+/**
+ * <b>FoldConstants</b><p>
+ *
+ * Pass that propagates the locals assigned once with a literal into the expressions that read them, and computes
+ * the operations whose operands are all literals (the operations of the program over values, the conversion factors
+ * of the units applied to them, and the ones of an inlined function applied to a literal argument). Only double and boolean literals are propagated: an operation over
+ * them gives the same value, and the same text when concatenated, at compile time and at run time.
+ */
+public class FoldConstants implements IRPass {
+
+	@Override
+	public String getName() {
+		return "fold-constants";
+	}
+
+	private final Set<String> propagated = new HashSet<>();
+
+	@Override
+	public void run(IRProgram program) {
+		// folding an operation may give a new local assigned with a literal
+		while (propagate(program)) {
+		}
+	}
+
+	/**
+	 * @return true if new constants were found (and propagated)
+	 */
+	private boolean propagate(IRProgram program) {
+
+		// assignments of each variable
+		Map<String, Integer> assignments = new HashMap<>();
+		List<Assign> declarations = new ArrayList<>();
+		for (List<IRInstruction> block : program.allBlocks()) {
+			List<IRInstruction> instructions = new ArrayList<>(block);
+			for (IRInstruction instruction : block) {
+				if (instruction instanceof Loop && ((Loop) instruction).update != null) {
+					instructions.add(((Loop) instruction).update);
+				}
+			}
+			for (IRInstruction instruction : instructions) {
+				if (instruction instanceof Assign) {
+					Assign assign = (Assign) instruction;
+					assignments.merge(assign.target, 1, Integer::sum);
+					if (block != program.globals && assign.isDeclaration() && assign.modifiers.isEmpty()) {
+						declarations.add(assign);
+					}
+				}
+			}
+		}
+
+		// locals assigned only by their declaration
+		Set<Assign> single = new HashSet<>();
+		for (Assign declaration : declarations) {
+			if (assignments.get(declaration.target) == 1) {
+				single.add(declaration);
+			}
+		}
+
+		// locals that always hold the same literal: a declaration whose value folds to a literal while sweeping is one
+		// for the instructions after it too, so a chain of locals is propagated in a single sweep
+		Map<String, IRExpression> constants = new HashMap<>();
+		for (List<IRInstruction> block : program.allBlocks()) {
+			for (IRInstruction instruction : block) {
+				instruction.mapExpressions(e -> e.transform(node -> node instanceof Name && constants.containsKey(((Name) node).name)
+						? constants.get(((Name) node).name) : fold(node)));
+				if (single.contains(instruction) && isPropagated(((Assign) instruction).value)) {
+					constants.put(((Assign) instruction).target, ((Assign) instruction).value);
+				}
+			}
+		}
+		return propagated.addAll(constants.keySet());
+	}
+
+	/**
+	 * @return the literal of an operation over double or boolean literals, or the expression
+	 */
+	public static IRExpression fold(IRExpression expression) {
+
+		if (expression instanceof Unary && ((Unary) expression).op.equals("!") && isBoolean(((Unary) expression).operand)) {
+			return new Literal(String.valueOf(!Boolean.parseBoolean(((Literal) ((Unary) expression).operand).text)));
+		}
+		if (expression instanceof Unary && ((Unary) expression).op.equals("-") && isDouble(((Unary) expression).operand)) {
+			return new Literal(Double.toString(-((Literal) ((Unary) expression).operand).number()));
+		}
+
+		// Math.pow over literals (the powers of the units conversions)
+		if (expression instanceof Call && ((Call) expression).isMath() && ((Call) expression).method.equals("pow")
+				&& isDouble(((Call) expression).args.get(0)) && isDouble(((Call) expression).args.get(1))) {
+			double value = Math.pow(((Literal) ((Call) expression).args.get(0)).number(), ((Literal) ((Call) expression).args.get(1)).number());
+			return Double.isNaN(value) || Double.isInfinite(value) ? expression : new Literal(Double.toString(value));
+		}
+
+		if (!(expression instanceof Binary) || !isDouble(((Binary) expression).left) || !isDouble(((Binary) expression).right)) {
+			return expression;
+		}
+		Binary binary = (Binary) expression;
+		double left = ((Literal) binary.left).number();
+		double right = ((Literal) binary.right).number();
+		double value;
+		switch (binary.op) {
+		case "+":	value = left + right; break;
+		case "-":	value = left - right; break;
+		case "*":	value = left * right; break;
+		case "/":	value = left / right; break;
+		case "%":	value = left % right; break;
+		case "<":	return new Literal(String.valueOf(left < right));
+		case "<=":	return new Literal(String.valueOf(left <= right));
+		case ">":	return new Literal(String.valueOf(left > right));
+		case ">=":	return new Literal(String.valueOf(left >= right));
+		case "==":	return new Literal(String.valueOf(left == right));
+		case "!=":	return new Literal(String.valueOf(left != right));
+		default:	return expression;
+		}
+		if (Double.isNaN(value) || Double.isInfinite(value)) {
+			return expression;
+		}
+		return new Literal(Double.toString(value));
+	}
+
+	private static boolean isPropagated(IRExpression value) {
+		return isDouble(value) || isBoolean(value);
+	}
+
+	private static boolean isDouble(IRExpression expression) {
+		if (!(expression instanceof Literal) || ((Literal) expression).number() == null) {
+			return false;
+		}
+		String text = ((Literal) expression).text;
+		return text.contains(".") || text.contains("E");
+	}
+
+	private static boolean isBoolean(IRExpression expression) {
+		return expression instanceof Literal && (((Literal) expression).text.equals("true") || ((Literal) expression).text.equals("false"));
+	}
+
+}
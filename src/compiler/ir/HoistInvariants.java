@@ -0,0 +1,184 @@
+package compiler.ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import compiler.ir.IRExpression.*;
+import compiler.ir.IRInstruction.*;
+
+/**
+ * <b>HoistInvariants</b><p>
+ *
+ * Pass that moves the temporaries of a loop whose value is the same in every iteration (loop invariants) before the
+ * loop, inner loops first, so an invariant of nested loops ends before the outermost loop where it is invariant.<p>
+ * A temporary is invariant if it is assigned only where it is declared, its value is pure (computing it when the
+ * loop does not run changes nothing) and the variables it reads are not assigned in the loop, or are invariant
+ * (the globals are assigned by the functions the loop calls). The copies of variables and the literals are only moved
+ * with the invariants that read them.
+ */
+public class HoistInvariants implements IRPass {
+
+	private static final Set<String> hoistedTypes = new HashSet<>(Arrays.asList("double", "boolean", "String"));
+
+	@Override
+	public String getName() {
+		return "hoist-invariants";
+	}
+
+	private final Set<String> globals = new HashSet<>();
+
+	@Override
+	public void run(IRProgram program) {
+		for (IRInstruction global : program.globals) {
+			if (global instanceof Assign) {
+				globals.add(((Assign) global).target);
+			}
+		}
+		for (IRFunction function : program.functions) {
+			hoist(function.body);
+		}
+	}
+
+	/**
+	 * Hoists the invariants of the loops of the block (and of the blocks nested in it)
+	 */
+	private void hoist(List<IRInstruction> block) {
+		for (int i = 0; i < block.size(); i++) {
+			IRInstruction instruction = block.get(i);
+			for (List<IRInstruction> nested : instruction.blocks()) {
+				hoist(nested);
+			}
+			if (instruction instanceof Loop) {
+				List<IRInstruction> invariants = invariants((Loop) instruction);
+				block.addAll(i, invariants);
+				i += invariants.size();
+			}
+		}
+	}
+
+	/**
+	 * Removes the invariants from the loop
+	 * @return the invariants, in the order they are computed
+	 */
+	private List<IRInstruction> invariants(Loop loop) {
+
+		// the declarations of the loop (not the ones of inner loops, already hoisted), with the block they are in
+		Map<Assign, List<IRInstruction>> declarations = new IdentityHashMap<>();
+		List<Assign> order = new ArrayList<>();
+		collectDeclarations(loop.body, declarations, order);
+
+		// assignments of each variable in the loop, and calls to the methods of the class
+		Map<String, Integer> assignments = new HashMap<>();
+		boolean calls = false;
+		List<IRInstruction> instructions = new ArrayList<>();
+		for (List<IRInstruction> block : IRProgram.nestedBlocks(Arrays.asList(loop.body))) {
+			instructions.addAll(block);
+			for (IRInstruction instruction : block) {
+				if (instruction instanceof Loop) {
+					instructions.add(((Loop) instruction).init);
+					instructions.add(((Loop) instruction).update);
+				}
+			}
+		}
+		instructions.add(loop.init);
+		instructions.add(loop.update);
+		for (IRInstruction instruction : instructions) {
+			if (instruction instanceof Assign) {
+				assignments.merge(((Assign) instruction).target, 1, Integer::sum);
+			}
+			if (instruction != null) {
+				calls |= callsFunctions(instruction);
+			}
+		}
+
+		// invariants read only variables not assigned in the loop, or other invariants
+		Set<String> invariant = new HashSet<>();
+		boolean found = true;
+		while (found) {
+			found = false;
+			for (Assign declaration : order) {
+				if (!invariant.contains(declaration.target) && isInvariant(declaration, assignments, invariant, calls)) {
+					invariant.add(declaration.target);
+					found = true;
+				}
+			}
+		}
+
+		// copies and literals are only hoisted with the invariants that read them
+		Set<String> hoisted = new HashSet<>();
+		for (int i = order.size()-1; i >= 0; i--) {
+			Assign declaration = order.get(i);
+			if (invariant.contains(declaration.target) && (!isTrivial(declaration.value) || hoisted.contains(declaration.target))) {
+				hoisted.add(declaration.target);
+				List<String> names = new ArrayList<>();
+				declaration.value.collectNames(names);
+				hoisted.addAll(names);
+			}
+		}
+
+		List<IRInstruction> invariants = new ArrayList<>();
+		for (Assign declaration : order) {
+			if (invariant.contains(declaration.target) && hoisted.contains(declaration.target)) {
+				declarations.get(declaration).remove(declaration);
+				invariants.add(declaration);
+			}
+		}
+		return invariants;
+	}
+
+	/**
+	 * Adds the declarations of the block and of the branches nested in it (not the ones of nested loops)
+	 */
+	private static void collectDeclarations(List<IRInstruction> block, Map<Assign, List<IRInstruction>> declarations, List<Assign> order) {
+		for (IRInstruction instruction : block) {
+			if (instruction instanceof Assign && ((Assign) instruction).isDeclaration()) {
+				declarations.put((Assign) instruction, block);
+				order.add((Assign) instruction);
+			}
+			else if (instruction instanceof If || instruction instanceof Block) {
+				for (List<IRInstruction> nested : instruction.blocks()) {
+					collectDeclarations(nested, declarations, order);
+				}
+			}
+		}
+	}
+
+	private boolean isInvariant(Assign declaration, Map<String, Integer> assignments, Set<String> invariant, boolean calls) {
+		if (!declaration.modifiers.isEmpty() || declaration.value == null || !declaration.value.isPure()
+				|| !hoistedTypes.contains(declaration.type) || assignments.get(declaration.target) != 1) {
+			return false;
+		}
+		List<String> names = new ArrayList<>();
+		declaration.value.collectNames(names);
+		for (String name : names) {
+			if ((assignments.containsKey(name) && !invariant.contains(name)) || (calls && globals.contains(name))) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean isTrivial(IRExpression value) {
+		return value instanceof Name || value instanceof Literal;
+	}
+
+	/**
+	 * @return true if the instruction calls methods of the class (that may assign the globals)
+	 */
+	private static boolean callsFunctions(IRInstruction instruction) {
+		boolean[] calls = {false};
+		for (IRExpression expression : instruction.expressions()) {
+			if (expression != null) {
+				expression.forEach(e -> calls[0] |= e instanceof Call && ((Call) e).target == null);
+			}
+		}
+		return calls[0];
+	}
+
+}
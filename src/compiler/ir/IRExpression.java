@@ -0,0 +1,396 @@
+package compiler.ir;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.function.UnaryOperator;
+
+/**
+ * <b>IRExpression</b><p>
+ *
+ * Expression of the intermediate representation: a tree of operands (literals and names) and operations.<p>
+ * The front end gives every operation its own temporary (three-address form), so the expressions start flat and
+ * only grow when passes fold temporaries back into the expressions that use them. Expressions are immutable,
+ * passes build new trees with {@link #replace(String, IRExpression)} and {@link #transform(UnaryOperator)}.
+ */
+public abstract class IRExpression implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	// methods without side effects
+	static final Set<String> readOnlyMethods = new HashSet<>(Arrays.asList(
+			"pow", "length", "size", "get", "isEmpty", "contains", "containsKey", "containsValue", "indexOf",
+			"equals", "keySet", "values", "getKey", "getValue", "print", "println"));
+
+	/**
+	 * @return the precedence of the expression in Java (higher binds tighter)
+	 */
+	public abstract int precedence();
+
+	/**
+	 * @return the subexpressions, in evaluation order
+	 */
+	public abstract List<IRExpression> children();
+
+	/**
+	 * @param children new subexpressions, in the order of {@link #children()}
+	 * @return the same operation over the new subexpressions
+	 */
+	public abstract IRExpression withChildren(List<IRExpression> children);
+
+	/**
+	 * @param function applied to each node, after its subexpressions
+	 * @return the expression rebuilt bottom up with function
+	 */
+	public IRExpression transform(UnaryOperator<IRExpression> function) {
+		List<IRExpression> children = children();
+		if (children.isEmpty()) {
+			return function.apply(this);
+		}
+		List<IRExpression> transformed = new ArrayList<>();
+		for (IRExpression child : children) {
+			transformed.add(child.transform(function));
+		}
+		return function.apply(withChildren(transformed));
+	}
+
+	/**
+	 * @param name
+	 * @param value
+	 * @return the expression with the reads of name replaced by value
+	 */
+	public IRExpression replace(String name, IRExpression value) {
+		return transform(e -> e instanceof Name && ((Name) e).name.equals(name) ? value : e);
+	}
+
+	/**
+	 * Calls action for this expression and all its subexpressions (children first, in evaluation order)
+	 * @param action
+	 */
+	public void forEach(Consumer<IRExpression> action) {
+		for (IRExpression child : children()) {
+			child.forEach(action);
+		}
+		action.accept(this);
+	}
+
+	/**
+	 * @return the number of nodes of the expression
+	 */
+	public int size() {
+		int[] size = {0};
+		forEach(e -> size[0]++);
+		return size[0];
+	}
+
+	/**
+	 * @return true if evaluating the expression may write variables or have other side effects
+	 * (calls to methods not known to be read only and object creation)
+	 */
+	public boolean writes() {
+		boolean[] writes = {false};
+		forEach(e -> writes[0] |= e instanceof New || e instanceof NewArray
+				|| (e instanceof Call && !readOnlyMethods.contains(((Call) e).method) && !((Call) e).isMath()));
+		return writes[0];
+	}
+
+	/**
+	 * @return true if the expression reads generated variables (named varN)
+	 */
+	public boolean reads() {
+		boolean[] reads = {false};
+		forEach(e -> reads[0] |= e instanceof Name && ((Name) e).name.startsWith("var"));
+		return reads[0];
+	}
+
+	/**
+	 * @return true if the expression only computes a value from its operands: no calls other than the ones
+	 * to Math, no objects and no indexing (that may fail)
+	 */
+	public boolean isPure() {
+		boolean[] pure = {true};
+		forEach(e -> pure[0] &= !(e instanceof New || e instanceof NewArray || e instanceof Index || e instanceof Field
+				|| (e instanceof Call && !((Call) e).isMath())));
+		return pure[0];
+	}
+
+	/**
+	 * Adds the names read by the expression (and the methods of the class it calls)
+	 * @param names
+	 */
+	public void collectNames(List<String> names) {
+		forEach(e -> {
+			if (e instanceof Name) {
+				names.add(((Name) e).name);
+			}
+			else if (e instanceof Call && ((Call) e).target == null) {
+				names.add(((Call) e).method);
+			}
+		});
+	}
+
+	@Override
+	public String toString() {
+		return JavaLowering.expression(this);
+	}
+
+	// --------------------------------------------------------------------------
+	// Operands
+
+	/**
+	 * Literal value (number, string, char, boolean or null), as written in Java (negative numbers with their sign)
+	 */
+	public static class Literal extends IRExpression {
+		private static final long serialVersionUID = 1L;
+
+		public final String text;
+
+		public Literal(String text) {
+			this.text = text;
+		}
+
+		public int precedence()						{ return text.startsWith("-") ? 13 : 16; }
+		public List<IRExpression> children()		{ return new ArrayList<>(); }
+		public IRExpression withChildren(List<IRExpression> c) { return this; }
+
+		/**
+		 * @return the value of a numeric literal, or null
+		 */
+		public Double number() {
+			int start = text.startsWith("-") ? 1 : 0;
+			if (text.length() <= start || !Character.isDigit(text.charAt(start))) {
+				return null;
+			}
+			try {
+				return Double.parseDouble(text);
+			}
+			catch (NumberFormatException e) {
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Variable, parameter or class name
+	 */
+	public static class Name extends IRExpression {
+		private static final long serialVersionUID = 1L;
+
+		public final String name;
+
+		public Name(String name) {
+			this.name = name;
+		}
+
+		public int precedence()						{ return 16; }
+		public List<IRExpression> children()		{ return new ArrayList<>(); }
+		public IRExpression withChildren(List<IRExpression> c) { return this; }
+	}
+
+	// --------------------------------------------------------------------------
+	// Operations
+
+	public static class Unary extends IRExpression {
+		private static final long serialVersionUID = 1L;
+
+		public final String op;
+		public final IRExpression operand;
+
+		public Unary(String op, IRExpression operand) {
+			this.op = op;
+			this.operand = operand;
+		}
+
+		public int precedence()						{ return 13; }
+		public List<IRExpression> children()		{ return Arrays.asList(operand); }
+		public IRExpression withChildren(List<IRExpression> c) { return new Unary(op, c.get(0)); }
+	}
+
+	/**
+	 * Binary operation (all of them are left associative)
+	 */
+	public static class Binary extends IRExpression {
+		private static final long serialVersionUID = 1L;
+
+		public final String op;
+		public final IRExpression left;
+		public final IRExpression right;
+
+		public Binary(String op, IRExpression left, IRExpression right) {
+			this.op = op;
+			this.left = left;
+			this.right = right;
+		}
+
+		public int precedence()						{ return precedence(op); }
+		public List<IRExpression> children()		{ return Arrays.asList(left, right); }
+		public IRExpression withChildren(List<IRExpression> c) { return new Binary(op, c.get(0), c.get(1)); }
+
+		/**
+		 * @param op
+		 * @return the precedence of the binary operator, or -1 if op is not a binary operator
+		 */
+		public static int precedence(String op) {
+			switch (op) {
+			case "*": case "/": case "%":				return 12;
+			case "+": case "-":							return 11;
+			case "<": case "<=": case ">": case ">=":	return 9;
+			case "==": case "!=":						return 8;
+			case "&&":									return 4;
+			case "||":									return 3;
+			default:									return -1;
+			}
+		}
+
+		/**
+		 * @return true if the right operand is only evaluated for some values of the left one
+		 */
+		public boolean isShortCircuit() {
+			return op.equals("&&") || op.equals("||");
+		}
+	}
+
+	public static class Conditional extends IRExpression {
+		private static final long serialVersionUID = 1L;
+
+		public final IRExpression condition;
+		public final IRExpression ifTrue;
+		public final IRExpression ifFalse;
+
+		public Conditional(IRExpression condition, IRExpression ifTrue, IRExpression ifFalse) {
+			this.condition = condition;
+			this.ifTrue = ifTrue;
+			this.ifFalse = ifFalse;
+		}
+
+		public int precedence()						{ return 1; }
+		public List<IRExpression> children()		{ return Arrays.asList(condition, ifTrue, ifFalse); }
+		public IRExpression withChildren(List<IRExpression> c) { return new Conditional(c.get(0), c.get(1), c.get(2)); }
+	}
+
+	public static class Cast extends IRExpression {
+		private static final long serialVersionUID = 1L;
+
+		public final String type;
+		public final IRExpression operand;
+
+		public Cast(String type, IRExpression operand) {
+			this.type = type;
+			this.operand = operand;
+		}
+
+		public int precedence()						{ return 13; }
+		public List<IRExpression> children()		{ return Arrays.asList(operand); }
+		public IRExpression withChildren(List<IRExpression> c) { return new Cast(type, c.get(0)); }
+	}
+
+	/**
+	 * Method call, target is null for the methods of the generated class
+	 */
+	public static class Call extends IRExpression {
+		private static final long serialVersionUID = 1L;
+
+		public final IRExpression target;
+		public final String method;
+		public final List<IRExpression> args;
+
+		public Call(IRExpression target, String method, List<IRExpression> args) {
+			this.target = target;
+			this.method = method;
+			this.args = args;
+		}
+
+		public int precedence()						{ return 15; }
+		public List<IRExpression> children() {
+			List<IRExpression> children = new ArrayList<>();
+			if (target != null) {
+				children.add(target);
+			}
+			children.addAll(args);
+			return children;
+		}
+		public IRExpression withChildren(List<IRExpression> c) {
+			return target == null ? new Call(null, method, c) : new Call(c.get(0), method, new ArrayList<>(c.subList(1, c.size())));
+		}
+
+		/**
+		 * @return true if the method is one of java.lang.Math
+		 */
+		public boolean isMath() {
+			return target instanceof Name && ((Name) target).name.equals("Math");
+		}
+	}
+
+	public static class Field extends IRExpression {
+		private static final long serialVersionUID = 1L;
+
+		public final IRExpression target;
+		public final String field;
+
+		public Field(IRExpression target, String field) {
+			this.target = target;
+			this.field = field;
+		}
+
+		public int precedence()						{ return 15; }
+		public List<IRExpression> children()		{ return Arrays.asList(target); }
+		public IRExpression withChildren(List<IRExpression> c) { return new Field(c.get(0), field); }
+	}
+
+	public static class Index extends IRExpression {
+		private static final long serialVersionUID = 1L;
+
+		public final IRExpression array;
+		public final IRExpression index;
+
+		public Index(IRExpression array, IRExpression index) {
+			this.array = array;
+			this.index = index;
+		}
+
+		public int precedence()						{ return 15; }
+		public List<IRExpression> children()		{ return Arrays.asList(array, index); }
+		public IRExpression withChildren(List<IRExpression> c) { return new Index(c.get(0), c.get(1)); }
+	}
+
+	/**
+	 * Object creation (type keeps its type arguments: ArrayList&lt;&gt;)
+	 */
+	public static class New extends IRExpression {
+		private static final long serialVersionUID = 1L;
+
+		public final String type;
+		public final List<IRExpression> args;
+
+		public New(String type, List<IRExpression> args) {
+			this.type = type;
+			this.args = args;
+		}
+
+		public int precedence()						{ return 15; }
+		public List<IRExpression> children()		{ return new ArrayList<>(args); }
+		public IRExpression withChildren(List<IRExpression> c) { return new New(type, c); }
+	}
+
+	/**
+	 * new type[length] (type is the type of the elements)
+	 */
+	public static class NewArray extends IRExpression {
+		private static final long serialVersionUID = 1L;
+
+		public final String type;
+		public final IRExpression length;
+
+		public NewArray(String type, IRExpression length) {
+			this.type = type;
+			this.length = length;
+		}
+
+		public int precedence()						{ return 15; }
+		public List<IRExpression> children()		{ return Arrays.asList(length); }
+		public IRExpression withChildren(List<IRExpression> c) { return new NewArray(type, c.get(0)); }
+	}
+}
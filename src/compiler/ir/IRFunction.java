@@ -0,0 +1,35 @@
+package compiler.ir;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <b>IRFunction</b><p>
+ *
+ * Method of the generated class: its signature and the block of its body.
+ */
+public class IRFunction implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	public String				modifiers;
+	public String				returnType;
+	public String				name;
+	public List<String>			paramTypes	= new ArrayList<>();
+	public List<String>			params		= new ArrayList<>();
+	public List<IRInstruction>	body		= new ArrayList<>();
+
+	public IRFunction(String modifiers, String returnType, String name) {
+		this.modifiers = modifiers;
+		this.returnType = returnType;
+		this.name = name;
+	}
+
+	/**
+	 * @return true if the function is the entry point of the program
+	 */
+	public boolean isMain() {
+		return name.equals("main");
+	}
+
+}
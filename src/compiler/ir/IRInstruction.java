@@ -0,0 +1,305 @@
+package compiler.ir;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.UnaryOperator;
+
+import unitsGrammar.grammar.Unit;
+
+/**
+ * <b>IRInstruction</b><p>
+ *
+ * Statement of the intermediate representation. Assignments are typed (with the Java type of the variable) and
+ * annotated with the unit of the value. Control flow keeps its structure (conditions and loops own their blocks),
+ * as Java needs it back. Instructions are serializable: the incremental cache stores the functions as built (with
+ * the default serial versions, so a cache written by another version of the IR classes is not read).
+ */
+public abstract class IRInstruction implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * @return the blocks of statements nested in the instruction
+	 */
+	public List<List<IRInstruction>> blocks() {
+		return new ArrayList<>();
+	}
+
+	/**
+	 * @return the expressions of the instruction (evaluated once each time the instruction runs, or not)
+	 */
+	public abstract List<IRExpression> expressions();
+
+	/**
+	 * Replaces the expressions of the instruction (not the ones of the nested blocks)
+	 * @param function applied to each expression
+	 */
+	public void mapExpressions(UnaryOperator<IRExpression> function) {
+	}
+
+	/**
+	 * Adds the names used by the instruction (read or assigned, not the ones of the nested blocks)
+	 * @param names
+	 */
+	public void collectNames(List<String> names) {
+		for (IRExpression expression : expressions()) {
+			if (expression != null) {
+				expression.collectNames(names);
+			}
+		}
+	}
+
+	@Override
+	public String toString() {
+		return JavaLowering.statement(this);
+	}
+
+	// --------------------------------------------------------------------------
+	// Statements
+
+	/**
+	 * [modifiers] [type] target = value; (type is null if the variable is declared before, value is null in a declaration
+	 * without value)
+	 */
+	public static class Assign extends IRInstruction {
+		private static final long serialVersionUID = 1L;
+
+		public String			modifiers;
+		public String			type;
+		public String			target;
+		public IRExpression		value;
+		public Unit				unit;
+		public String			declaredType; // type of the variable, declared here or before
+
+		public Assign(String modifiers, String type, String target, IRExpression value) {
+			this.modifiers = modifiers;
+			this.type = type;
+			this.target = target;
+			this.value = value;
+			this.declaredType = type;
+		}
+
+		public boolean isDeclaration() {
+			return type != null;
+		}
+
+		public List<IRExpression> expressions() {
+			return Arrays.asList(value);
+		}
+
+		@Override
+		public void mapExpressions(UnaryOperator<IRExpression> function) {
+			if (value != null) {
+				value = function.apply(value);
+			}
+		}
+
+		@Override
+		public void collectNames(List<String> names) {
+			names.add(target);
+			super.collectNames(names);
+		}
+	}
+
+	/**
+	 * expression; (a call made for its side effects)
+	 */
+	public static class Eval extends IRInstruction {
+		private static final long serialVersionUID = 1L;
+
+		public IRExpression expression;
+
+		public Eval(IRExpression expression) {
+			this.expression = expression;
+		}
+
+		public List<IRExpression> expressions() {
+			return Arrays.asList(expression);
+		}
+
+		@Override
+		public void mapExpressions(UnaryOperator<IRExpression> function) {
+			expression = function.apply(expression);
+		}
+	}
+
+	public static class Return extends IRInstruction {
+		private static final long serialVersionUID = 1L;
+
+		public IRExpression value; // null in void methods
+
+		public Return(IRExpression value) {
+			this.value = value;
+		}
+
+		public List<IRExpression> expressions() {
+			return Arrays.asList(value);
+		}
+
+		@Override
+		public void mapExpressions(UnaryOperator<IRExpression> function) {
+			if (value != null) {
+				value = function.apply(value);
+			}
+		}
+	}
+
+	/**
+	 * throw exception; (the errors found when the program runs)
+	 */
+	public static class Throw extends IRInstruction {
+		private static final long serialVersionUID = 1L;
+
+		public IRExpression exception;
+
+		public Throw(IRExpression exception) {
+			this.exception = exception;
+		}
+
+		public List<IRExpression> expressions() {
+			return Arrays.asList(exception);
+		}
+
+		@Override
+		public void mapExpressions(UnaryOperator<IRExpression> function) {
+			exception = function.apply(exception);
+		}
+	}
+
+	public static class Break extends IRInstruction {
+		private static final long serialVersionUID = 1L;
+
+		public List<IRExpression> expressions() {
+			return new ArrayList<>();
+		}
+	}
+
+	/**
+	 * array[index] = value;
+	 */
+	public static class Store extends IRInstruction {
+		private static final long serialVersionUID = 1L;
+
+		public IRExpression array;
+		public IRExpression index;
+		public IRExpression value;
+
+		public Store(IRExpression array, IRExpression index, IRExpression value) {
+			this.array = array;
+			this.index = index;
+			this.value = value;
+		}
+
+		public List<IRExpression> expressions() {
+			return Arrays.asList(array, index, value);
+		}
+
+		@Override
+		public void mapExpressions(UnaryOperator<IRExpression> function) {
+			array = function.apply(array);
+			index = function.apply(index);
+			value = function.apply(value);
+		}
+	}
+
+	// --------------------------------------------------------------------------
+	// Control flow
+
+	/**
+	 * if / else if / else chain, the condition of the else branch is null
+	 */
+	public static class If extends IRInstruction {
+		private static final long serialVersionUID = 1L;
+
+		public List<IRExpression>				conditions	= new ArrayList<>();
+		public List<List<IRInstruction>>		branches	= new ArrayList<>();
+
+		public List<List<IRInstruction>> blocks() {
+			return branches;
+		}
+
+		public List<IRExpression> expressions() {
+			return conditions;
+		}
+
+		@Override
+		public void mapExpressions(UnaryOperator<IRExpression> function) {
+			for (int i = 0; i < conditions.size(); i++) {
+				if (conditions.get(i) != null) {
+					conditions.set(i, function.apply(conditions.get(i)));
+				}
+			}
+		}
+	}
+
+	/**
+	 * while(condition) body, or for(init; condition; update) body if update is not null (init, the declaration of the
+	 * loop variable, may be null)
+	 */
+	public static class Loop extends IRInstruction {
+		private static final long serialVersionUID = 1L;
+
+		public IRInstruction		init		= null;
+		public IRExpression			condition;
+		public IRInstruction		update;
+		public List<IRInstruction>	body;
+
+		public Loop(IRExpression condition, IRInstruction update, List<IRInstruction> body) {
+			this.condition = condition;
+			this.update = update;
+			this.body = body;
+		}
+
+		public List<List<IRInstruction>> blocks() {
+			return Arrays.asList(body);
+		}
+
+		public List<IRExpression> expressions() {
+			return Arrays.asList(condition);
+		}
+
+		@Override
+		public void mapExpressions(UnaryOperator<IRExpression> function) {
+			if (init != null) {
+				init.mapExpressions(function);
+			}
+			condition = function.apply(condition);
+			if (update != null) {
+				update.mapExpressions(function);
+			}
+		}
+
+		@Override
+		public void collectNames(List<String> names) {
+			if (init != null) {
+				init.collectNames(names);
+			}
+			super.collectNames(names);
+			if (update != null) {
+				update.collectNames(names);
+			}
+		}
+	}
+
+	/**
+	 * { body } (a nested scope)
+	 */
+	public static class Block extends IRInstruction {
+		private static final long serialVersionUID = 1L;
+
+		public List<IRInstruction> body;
+
+		public Block(List<IRInstruction> body) {
+			this.body = body;
+		}
+
+		public List<List<IRInstruction>> blocks() {
+			return Arrays.asList(body);
+		}
+
+		public List<IRExpression> expressions() {
+			return new ArrayList<>();
+		}
+	}
+}
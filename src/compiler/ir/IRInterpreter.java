@@ -0,0 +1,1207 @@
+package compiler.ir;
+
+import static compiler.ir.JavaTyping.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Executable;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import compiler.ir.IRExpression.*;
+import compiler.ir.IRInstruction.*;
+
+/**
+ * <b>IRInterpreter</b><p>
+ *
+ * Runs the program without generating its class: the intermediate representation is compiled once to a tree of
+ * closures, and main is run by them. Everything is resolved when the closures are made: the locals are indices of
+ * the arrays of the frame of their call (one array for each kind of value, so the numbers are never boxed), the
+ * globals of the frame of the program, the methods the code calls are method handles found by {@link JavaTyping}, and
+ * the constants (the conversion factors of the units among them) are bound to the closures. The closures are made
+ * from the IR as the compiler builds it, the passes are not run.
+ */
+public class IRInterpreter {
+
+	// what runs after a statement
+	private static final int	NEXT	= 0;
+	private static final int	BREAK	= 1;
+	private static final int	RETURN	= 2;
+
+	// arrays of a frame, by the kind of the values kept
+	private static final int	DOUBLES	= 0;
+	private static final int	LONGS	= 1;
+	private static final int	INTS	= 2;	// int, char, short, byte, and boolean (1 or 0)
+	private static final int	OBJECTS	= 3;
+
+	private static final MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+
+	// --------------------------------------------------------------------------
+	// Closures (each expression gives the one of the kind of its type)
+
+	private interface DoubleCode	{ double run(Frame frame); }
+	private interface LongCode		{ long run(Frame frame); }
+	private interface IntCode		{ int run(Frame frame); }
+	private interface BooleanCode	{ boolean run(Frame frame); }
+	private interface ObjectCode	{ Object run(Frame frame); }
+
+	/**
+	 * @return NEXT, or BREAK and RETURN to leave the blocks up to the loop or the function
+	 */
+	private interface Statement		{ int run(Frame frame); }
+
+	private interface Appender		{ void append(StringBuilder text, Frame frame); }
+	private interface Argument		{ void pass(Frame caller, Frame callee); }
+
+	/**
+	 * Values of the locals of a call (or of the globals), and the value it returns
+	 */
+	private static final class Frame {
+		final double[]	doubles;
+		final long[]	longs;
+		final int[]		ints;
+		final Object[]	objects;
+		double			doubleResult;
+		long			longResult;
+		int				intResult;
+		Object			objectResult;
+
+		Frame(int[] sizes) {
+			this.doubles = new double[sizes[DOUBLES]];
+			this.longs = new long[sizes[LONGS]];
+			this.ints = new int[sizes[INTS]];
+			this.objects = new Object[sizes[OBJECTS]];
+		}
+	}
+
+	/**
+	 * Function of the program (its body is compiled after the calls to it that come before)
+	 */
+	private static final class Procedure {
+		final int[]	sizes	= new int[4];
+		Statement	body;
+
+		Frame call(Frame caller, Argument[] args) {
+			Frame callee = new Frame(sizes);
+			for (Argument arg : args) {
+				arg.pass(caller, callee);
+			}
+			body.run(callee);
+			return callee;
+		}
+	}
+
+	private static class Local {
+		final int	kind;
+		final int	index;
+		final Type	type;
+
+		Local(int kind, int index, Type type) {
+			this.kind = kind;
+			this.index = index;
+			this.type = type;
+		}
+	}
+
+	/**
+	 * Checked exception thrown by a method the program calls, up to {@link #run(String[])}
+	 */
+	private static class Thrown extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+
+		Thrown(Throwable cause) {
+			super(cause);
+		}
+	}
+
+	private final IRProgram					program;
+	private final JavaTyping				typing;
+	private final Map<String, Procedure>	procedures	= new HashMap<>();
+	private final Map<String, Local>		globals		= new HashMap<>();
+	private final Frame						globalFrame;
+	private Statement						initializer;
+	private Procedure						main;
+
+	// function being compiled
+	private Map<String, Local>				locals;
+	private int[]							next;
+	private int[]							sizes;
+	private Type							returnType;
+
+	private IRInterpreter(IRProgram program) {
+		this.program = program;
+		this.typing = new JavaTyping(program, "interpreter", name -> locals != null && locals.containsKey(name) ? locals.get(name).type : null);
+		int[] globalSizes = new int[4];
+		for (IRInstruction global : program.globals) {
+			String name = ((Assign) global).target;
+			Type type = typing.globals.get(name);
+			int kind = kind(type);
+			globals.put(name, new Local(kind, globalSizes[kind]++, type));
+		}
+		this.globalFrame = new Frame(globalSizes);
+	}
+
+	/**
+	 * @param program
+	 * @return the program compiled to closures, to run
+	 * @throws IllegalStateException if the program has code that can not be interpreted
+	 */
+	public static IRInterpreter compile(IRProgram program) {
+		IRInterpreter interpreter = new IRInterpreter(program);
+		interpreter.program();
+		return interpreter;
+	}
+
+	/**
+	 * Runs main (after the values of the globals)
+	 * @param args arguments of main
+	 * @throws Exception what main throws
+	 */
+	public void run(String[] args) throws Exception {
+		try {
+			initializer.run(globalFrame);
+			Frame frame = new Frame(main.sizes);
+			frame.objects[0] = args;
+			main.body.run(frame);
+		}
+		catch (Thrown e) {
+			if (e.getCause() instanceof Exception) {
+				throw (Exception) e.getCause();
+			}
+			throw e;
+		}
+	}
+
+	// --------------------------------------------------------------------------
+	// Program
+
+	private void program() {
+		for (IRFunction function : program.functions) {
+			procedures.put(function.name, new Procedure());
+		}
+
+		// the values of the globals in order, run in the frame of the globals
+		startFunction(void.class, new int[4]);
+		List<Statement> values = new ArrayList<>();
+		for (IRInstruction global : program.globals) {
+			Assign field = (Assign) global;
+			if (field.value != null) {
+				Local variable = globals.get(field.target);
+				values.add(store(variable, true, converted(field.value, variable.type)));
+			}
+		}
+		initializer = sequence(values);
+
+		for (IRFunction function : program.functions) {
+			function(function);
+			if (function.isMain()) {
+				main = procedures.get(function.name);
+			}
+		}
+		if (main == null) {
+			throw typing.unsupported("program without main");
+		}
+	}
+
+	private void function(IRFunction function) {
+		Procedure procedure = procedures.get(function.name);
+		startFunction(typing.type(function.returnType), procedure.sizes);
+		for (int i = 0; i < function.params.size(); i++) {
+			declare(function.params.get(i), typing.type(function.paramTypes.get(i)));
+		}
+		procedure.body = block(function.body);
+	}
+
+	private void startFunction(Type returnType, int[] sizes) {
+		this.locals = new HashMap<>();
+		this.next = new int[4];
+		this.sizes = sizes;
+		this.returnType = returnType;
+		// the types found depend on the locals of the function
+		typing.clear();
+	}
+
+	/**
+	 * The locals take the next index of their kind (the ones of a block are reused after it)
+	 */
+	private Local declare(String name, Type type) {
+		int kind = kind(type);
+		Local local = new Local(kind, next[kind]++, type);
+		sizes[kind] = Math.max(sizes[kind], next[kind]);
+		locals.put(name, local);
+		return local;
+	}
+
+	private int kind(Type type) {
+		Class<?> kind = erasure(type);
+		if (kind == float.class) {
+			throw typing.unsupported("float");
+		}
+		if (kind == double.class) {
+			return DOUBLES;
+		}
+		if (kind == long.class) {
+			return LONGS;
+		}
+		return kind.isPrimitive() ? INTS : OBJECTS;
+	}
+
+	// --------------------------------------------------------------------------
+	// Statements
+
+	private Statement block(List<IRInstruction> block) {
+		Map<String, Local> outer = new HashMap<>(locals);
+		int[] outerNext = next.clone();
+		List<Statement> statements = new ArrayList<>();
+		for (IRInstruction instruction : block) {
+			Statement statement = instruction(instruction);
+			if (statement != null) {
+				statements.add(statement);
+			}
+		}
+		locals = outer;
+		next = outerNext;
+		return sequence(statements);
+	}
+
+	private static Statement sequence(List<Statement> statements) {
+		if (statements.size() == 1) {
+			return statements.get(0);
+		}
+		Statement[] all = statements.toArray(new Statement[0]);
+		return frame -> {
+			for (Statement statement : all) {
+				int next = statement.run(frame);
+				if (next != NEXT) {
+					return next;
+				}
+			}
+			return NEXT;
+		};
+	}
+
+	/**
+	 * @return the closure of the instruction, null if it does nothing
+	 */
+	private Statement instruction(IRInstruction instruction) {
+
+		if (instruction instanceof Assign) {
+			Assign assign = (Assign) instruction;
+			if (assign.isDeclaration()) {
+				Type type = typing.type(assign.type);
+				if (assign.value == null) {
+					declare(assign.target, type);
+					return null;
+				}
+				Object value = converted(assign.value, type);
+				return store(declare(assign.target, type), false, value);
+			}
+			if (locals.containsKey(assign.target)) {
+				Local local = locals.get(assign.target);
+				return store(local, false, converted(assign.value, local.type));
+			}
+			if (globals.containsKey(assign.target)) {
+				Local global = globals.get(assign.target);
+				return store(global, true, converted(assign.value, global.type));
+			}
+			throw typing.unsupported(instruction);
+		}
+
+		if (instruction instanceof Eval) {
+			return discard(expression(((Eval) instruction).expression));
+		}
+
+		if (instruction instanceof Return) {
+			IRExpression value = ((Return) instruction).value;
+			return value == null ? frame -> RETURN : result(converted(value, returnType));
+		}
+
+		if (instruction instanceof Break) {
+			return frame -> BREAK;
+		}
+
+		if (instruction instanceof If) {
+			If condition = (If) instruction;
+			int count = condition.branches.size();
+			BooleanCode[] conditions = new BooleanCode[count];
+			Statement[] branches = new Statement[count];
+			for (int i = 0; i < count; i++) {
+				conditions[i] = condition.conditions.get(i) != null ? condition(condition.conditions.get(i)) : null;
+				branches[i] = block(condition.branches.get(i));
+			}
+			if (count == 1 && conditions[0] != null) {
+				BooleanCode test = conditions[0];
+				Statement then = branches[0];
+				return frame -> test.run(frame) ? then.run(frame) : NEXT;
+			}
+			return frame -> {
+				for (int i = 0; i < branches.length; i++) {
+					if (conditions[i] == null || conditions[i].run(frame)) {
+						return branches[i].run(frame);
+					}
+				}
+				return NEXT;
+			};
+		}
+
+		if (instruction instanceof Loop) {
+			Loop loop = (Loop) instruction;
+			Map<String, Local> outer = new HashMap<>(locals);
+			int[] outerNext = next.clone();
+			Statement init = loop.init != null ? instruction(loop.init) : null;
+			BooleanCode condition = condition(loop.condition);
+			Statement body = block(loop.body);
+			Statement update = loop.update != null ? instruction(loop.update) : null;
+			locals = outer;
+			next = outerNext;
+			Statement repeat = frame -> {
+				while (condition.run(frame)) {
+					int next = body.run(frame);
+					if (next == BREAK) {
+						break;
+					}
+					if (next == RETURN) {
+						return RETURN;
+					}
+					if (update != null) {
+						update.run(frame);
+					}
+				}
+				return NEXT;
+			};
+			return init != null ? sequence(Arrays.asList(init, repeat)) : repeat;
+		}
+
+		if (instruction instanceof Block) {
+			return block(((Block) instruction).body);
+		}
+
+		if (instruction instanceof Store) {
+			return store((Store) instruction);
+		}
+
+		if (instruction instanceof Throw) {
+			ObjectCode exception = (ObjectCode) expression(((Throw) instruction).exception);
+			return frame -> {
+				throw rethrown((Throwable) exception.run(frame));
+			};
+		}
+
+		throw typing.unsupported(instruction);
+	}
+
+	/**
+	 * Store in an element of an array (of one of the kinds of the frames, or of objects)
+	 */
+	private Statement store(Store store) {
+		ObjectCode array = (ObjectCode) expression(store.array);
+		IntCode position = (IntCode) converted(store.index, int.class);
+		Class<?> component = erasure(typing.typeOf(store.array)).getComponentType();
+		Object value = converted(store.value, component);
+		if (component == double.class) {
+			DoubleCode code = (DoubleCode) value;
+			return frame -> { ((double[]) array.run(frame))[position.run(frame)] = code.run(frame); return NEXT; };
+		}
+		if (component == long.class) {
+			LongCode code = (LongCode) value;
+			return frame -> { ((long[]) array.run(frame))[position.run(frame)] = code.run(frame); return NEXT; };
+		}
+		if (component == int.class) {
+			IntCode code = (IntCode) value;
+			return frame -> { ((int[]) array.run(frame))[position.run(frame)] = code.run(frame); return NEXT; };
+		}
+		if (component == char.class) {
+			IntCode code = (IntCode) value;
+			return frame -> { ((char[]) array.run(frame))[position.run(frame)] = (char) code.run(frame); return NEXT; };
+		}
+		if (component == boolean.class) {
+			BooleanCode code = (BooleanCode) value;
+			return frame -> { ((boolean[]) array.run(frame))[position.run(frame)] = code.run(frame); return NEXT; };
+		}
+		if (component.isPrimitive()) {
+			throw typing.unsupported(store);
+		}
+		ObjectCode code = (ObjectCode) value;
+		return frame -> { ((Object[]) array.run(frame))[position.run(frame)] = code.run(frame); return NEXT; };
+	}
+
+	private Statement store(Local variable, boolean global, Object value) {
+		int index = variable.index;
+		Frame globals = globalFrame;
+		switch (variable.kind) {
+		case DOUBLES: {
+			DoubleCode code = (DoubleCode) value;
+			if (global) {
+				return frame -> { globals.doubles[index] = code.run(frame); return NEXT; };
+			}
+			return frame -> { frame.doubles[index] = code.run(frame); return NEXT; };
+		}
+		case LONGS: {
+			LongCode code = (LongCode) value;
+			if (global) {
+				return frame -> { globals.longs[index] = code.run(frame); return NEXT; };
+			}
+			return frame -> { frame.longs[index] = code.run(frame); return NEXT; };
+		}
+		case INTS: {
+			IntCode code = ints(value);
+			if (global) {
+				return frame -> { globals.ints[index] = code.run(frame); return NEXT; };
+			}
+			return frame -> { frame.ints[index] = code.run(frame); return NEXT; };
+		}
+		default: {
+			ObjectCode code = (ObjectCode) value;
+			if (global) {
+				return frame -> { globals.objects[index] = code.run(frame); return NEXT; };
+			}
+			return frame -> { frame.objects[index] = code.run(frame); return NEXT; };
+		}
+		}
+	}
+
+	/**
+	 * The value of the expression is not used
+	 */
+	private static Statement discard(Object code) {
+		if (code instanceof DoubleCode) {
+			DoubleCode value = (DoubleCode) code;
+			return frame -> { value.run(frame); return NEXT; };
+		}
+		if (code instanceof LongCode) {
+			LongCode value = (LongCode) code;
+			return frame -> { value.run(frame); return NEXT; };
+		}
+		if (code instanceof IntCode) {
+			IntCode value = (IntCode) code;
+			return frame -> { value.run(frame); return NEXT; };
+		}
+		if (code instanceof BooleanCode) {
+			BooleanCode value = (BooleanCode) code;
+			return frame -> { value.run(frame); return NEXT; };
+		}
+		ObjectCode value = (ObjectCode) code;
+		return frame -> { value.run(frame); return NEXT; };
+	}
+
+	/**
+	 * Return of the value (kept in the frame for the call)
+	 */
+	private static Statement result(Object code) {
+		if (code instanceof DoubleCode) {
+			DoubleCode value = (DoubleCode) code;
+			return frame -> { frame.doubleResult = value.run(frame); return RETURN; };
+		}
+		if (code instanceof LongCode) {
+			LongCode value = (LongCode) code;
+			return frame -> { frame.longResult = value.run(frame); return RETURN; };
+		}
+		if (code instanceof IntCode || code instanceof BooleanCode) {
+			IntCode value = ints(code);
+			return frame -> { frame.intResult = value.run(frame); return RETURN; };
+		}
+		ObjectCode value = (ObjectCode) code;
+		return frame -> { frame.objectResult = value.run(frame); return RETURN; };
+	}
+
+	/**
+	 * @return the closure of a value kept in the ints of a frame (1 or 0 for a boolean)
+	 */
+	private static IntCode ints(Object code) {
+		if (code instanceof BooleanCode) {
+			BooleanCode value = (BooleanCode) code;
+			return frame -> value.run(frame) ? 1 : 0;
+		}
+		return (IntCode) code;
+	}
+
+	// --------------------------------------------------------------------------
+	// Conditions
+
+	private BooleanCode condition(IRExpression condition) {
+
+		if (condition instanceof Unary && ((Unary) condition).op.equals("!")) {
+			BooleanCode operand = condition(((Unary) condition).operand);
+			return frame -> !operand.run(frame);
+		}
+
+		if (condition instanceof Binary) {
+			Binary binary = (Binary) condition;
+			if (binary.isShortCircuit()) {
+				BooleanCode left = condition(binary.left);
+				BooleanCode right = condition(binary.right);
+				if (binary.op.equals("&&")) {
+					return frame -> left.run(frame) && right.run(frame);
+				}
+				return frame -> left.run(frame) || right.run(frame);
+			}
+			if (isComparison(binary.op)) {
+				return compare(binary);
+			}
+		}
+
+		return (BooleanCode) converted(condition, boolean.class);
+	}
+
+	private BooleanCode compare(Binary comparison) {
+		Type left = typing.typeOf(comparison.left);
+		Type right = typing.typeOf(comparison.right);
+		String op = comparison.op;
+
+		// references (== and != between objects)
+		if (!isPrimitive(left) && !isPrimitive(right)) {
+			ObjectCode a = (ObjectCode) expression(comparison.left);
+			ObjectCode b = (ObjectCode) expression(comparison.right);
+			if (op.equals("==")) {
+				return frame -> a.run(frame) == b.run(frame);
+			}
+			return frame -> a.run(frame) != b.run(frame);
+		}
+
+		Class<?> type = unboxed(left) == boolean.class ? boolean.class : promotion(left, right);
+		Object first = converted(comparison.left, type);
+		Object second = converted(comparison.right, type);
+		if (type == boolean.class) {
+			BooleanCode a = (BooleanCode) first;
+			BooleanCode b = (BooleanCode) second;
+			if (op.equals("==")) {
+				return frame -> a.run(frame) == b.run(frame);
+			}
+			return frame -> a.run(frame) != b.run(frame);
+		}
+		if (type == double.class) {
+			DoubleCode a = (DoubleCode) first;
+			DoubleCode b = (DoubleCode) second;
+			switch (op) {
+			case "==":	return frame -> a.run(frame) == b.run(frame);
+			case "!=":	return frame -> a.run(frame) != b.run(frame);
+			case "<":	return frame -> a.run(frame) < b.run(frame);
+			case "<=":	return frame -> a.run(frame) <= b.run(frame);
+			case ">":	return frame -> a.run(frame) > b.run(frame);
+			default:	return frame -> a.run(frame) >= b.run(frame);
+			}
+		}
+		if (type == long.class) {
+			LongCode a = (LongCode) first;
+			LongCode b = (LongCode) second;
+			switch (op) {
+			case "==":	return frame -> a.run(frame) == b.run(frame);
+			case "!=":	return frame -> a.run(frame) != b.run(frame);
+			case "<":	return frame -> a.run(frame) < b.run(frame);
+			case "<=":	return frame -> a.run(frame) <= b.run(frame);
+			case ">":	return frame -> a.run(frame) > b.run(frame);
+			default:	return frame -> a.run(frame) >= b.run(frame);
+			}
+		}
+		IntCode a = (IntCode) first;
+		IntCode b = (IntCode) second;
+		switch (op) {
+		case "==":	return frame -> a.run(frame) == b.run(frame);
+		case "!=":	return frame -> a.run(frame) != b.run(frame);
+		case "<":	return frame -> a.run(frame) < b.run(frame);
+		case "<=":	return frame -> a.run(frame) <= b.run(frame);
+		case ">":	return frame -> a.run(frame) > b.run(frame);
+		default:	return frame -> a.run(frame) >= b.run(frame);
+		}
+	}
+
+	// --------------------------------------------------------------------------
+	// Expressions
+
+	/**
+	 * @return the closure of the expression (DoubleCode, LongCode, IntCode, BooleanCode or ObjectCode, by its type)
+	 */
+	private Object expression(IRExpression expression) {
+		Type type = typing.typeOf(expression);
+
+		if (expression instanceof Literal) {
+			return literal(((Literal) expression).text, erasure(type));
+		}
+
+		if (expression instanceof Name) {
+			String name = ((Name) expression).name;
+			if (type == null) {
+				throw typing.unsupported(expression);
+			}
+			return locals.containsKey(name) ? load(locals.get(name), false) : load(globals.get(name), true);
+		}
+
+		if (expression instanceof Binary) {
+			Binary binary = (Binary) expression;
+			if (type == String.class && binary.op.equals("+")) {
+				return concatenation(binary);
+			}
+			if (binary.isShortCircuit() || isComparison(binary.op)) {
+				return condition(expression);
+			}
+			return arithmetic(binary, (Class<?>) type, converted(binary.left, type), converted(binary.right, type));
+		}
+
+		if (expression instanceof Unary) {
+			Unary unary = (Unary) expression;
+			if (unary.op.equals("!")) {
+				return condition(expression);
+			}
+			Object operand = converted(unary.operand, type);
+			if (unary.op.equals("+")) {
+				return operand;
+			}
+			if (!unary.op.equals("-")) {
+				throw typing.unsupported(expression);
+			}
+			if (operand instanceof DoubleCode) {
+				DoubleCode value = (DoubleCode) operand;
+				return (DoubleCode) frame -> -value.run(frame);
+			}
+			if (operand instanceof LongCode) {
+				LongCode value = (LongCode) operand;
+				return (LongCode) frame -> -value.run(frame);
+			}
+			IntCode value = (IntCode) operand;
+			return (IntCode) frame -> -value.run(frame);
+		}
+
+		if (expression instanceof Conditional) {
+			Conditional conditional = (Conditional) expression;
+			BooleanCode condition = condition(conditional.condition);
+			Object ifTrue = converted(conditional.ifTrue, type);
+			Object ifFalse = converted(conditional.ifFalse, type);
+			if (ifTrue instanceof DoubleCode) {
+				DoubleCode a = (DoubleCode) ifTrue;
+				DoubleCode b = (DoubleCode) ifFalse;
+				return (DoubleCode) frame -> condition.run(frame) ? a.run(frame) : b.run(frame);
+			}
+			if (ifTrue instanceof LongCode) {
+				LongCode a = (LongCode) ifTrue;
+				LongCode b = (LongCode) ifFalse;
+				return (LongCode) frame -> condition.run(frame) ? a.run(frame) : b.run(frame);
+			}
+			if (ifTrue instanceof IntCode) {
+				IntCode a = (IntCode) ifTrue;
+				IntCode b = (IntCode) ifFalse;
+				return (IntCode) frame -> condition.run(frame) ? a.run(frame) : b.run(frame);
+			}
+			if (ifTrue instanceof BooleanCode) {
+				BooleanCode a = (BooleanCode) ifTrue;
+				BooleanCode b = (BooleanCode) ifFalse;
+				return (BooleanCode) frame -> condition.run(frame) ? a.run(frame) : b.run(frame);
+			}
+			ObjectCode a = (ObjectCode) ifTrue;
+			ObjectCode b = (ObjectCode) ifFalse;
+			return (ObjectCode) frame -> condition.run(frame) ? a.run(frame) : b.run(frame);
+		}
+
+		if (expression instanceof Cast) {
+			IRExpression operand = ((Cast) expression).operand;
+			return cast(expression(operand), typing.typeOf(operand), type);
+		}
+
+		if (expression instanceof Call) {
+			return call((Call) expression, type);
+		}
+
+		if (expression instanceof Field) {
+			Field field = (Field) expression;
+			if (typing.typeOf(field.target) == null) {
+				return staticField(typing.staticField(field), expression);
+			}
+			ObjectCode array = (ObjectCode) expression(field.target);
+			return (IntCode) frame -> Array.getLength(array.run(frame));
+		}
+
+		if (expression instanceof Index) {
+			Index index = (Index) expression;
+			ObjectCode array = (ObjectCode) expression(index.array);
+			IntCode position = (IntCode) converted(index.index, int.class);
+			Class<?> component = erasure(type);
+			if (component == double.class) {
+				return (DoubleCode) frame -> ((double[]) array.run(frame))[position.run(frame)];
+			}
+			if (component == long.class) {
+				return (LongCode) frame -> ((long[]) array.run(frame))[position.run(frame)];
+			}
+			if (component == int.class) {
+				return (IntCode) frame -> ((int[]) array.run(frame))[position.run(frame)];
+			}
+			if (component == char.class) {
+				return (IntCode) frame -> ((char[]) array.run(frame))[position.run(frame)];
+			}
+			if (component == boolean.class) {
+				return (BooleanCode) frame -> ((boolean[]) array.run(frame))[position.run(frame)];
+			}
+			if (component.isPrimitive()) {
+				throw typing.unsupported(expression);
+			}
+			return (ObjectCode) frame -> ((Object[]) array.run(frame))[position.run(frame)];
+		}
+
+		if (expression instanceof NewArray) {
+			IntCode length = (IntCode) converted(((NewArray) expression).length, int.class);
+			Class<?> component = erasure(type).getComponentType();
+			return (ObjectCode) frame -> Array.newInstance(component, length.run(frame));
+		}
+
+		if (expression instanceof New) {
+			New creation = (New) expression;
+			Constructor<?> constructor = (Constructor<?>) typing.resolve(creation);
+			try {
+				return invocation(lookup.unreflectConstructor(constructor), arguments(null, creation.args, constructor));
+			}
+			catch (IllegalAccessException e) {
+				throw typing.unsupported(expression);
+			}
+		}
+
+		throw typing.unsupported(expression);
+	}
+
+	private static Object literal(String text, Class<?> type) {
+		if (type == Null.class) {
+			return (ObjectCode) frame -> null;
+		}
+		if (type == String.class) {
+			String value = unescape(text.substring(1, text.length() - 1)).intern();
+			return (ObjectCode) frame -> value;
+		}
+		if (type == double.class) {
+			double value = Double.parseDouble(text);
+			return (DoubleCode) frame -> value;
+		}
+		if (type == long.class) {
+			long value = Long.parseLong(text.replaceAll("[lL]$", ""));
+			return (LongCode) frame -> value;
+		}
+		if (type == boolean.class) {
+			boolean value = text.equals("true");
+			return (BooleanCode) frame -> value;
+		}
+		int value = type == char.class ? unescape(text.substring(1, text.length() - 1)).charAt(0) : Integer.parseInt(text);
+		return (IntCode) frame -> value;
+	}
+
+	private Object load(Local variable, boolean global) {
+		int index = variable.index;
+		Frame globals = globalFrame;
+		switch (variable.kind) {
+		case DOUBLES:
+			return global ? (DoubleCode) frame -> globals.doubles[index] : (DoubleCode) frame -> frame.doubles[index];
+		case LONGS:
+			return global ? (LongCode) frame -> globals.longs[index] : (LongCode) frame -> frame.longs[index];
+		case INTS:
+			if (variable.type == boolean.class) {
+				return global ? (BooleanCode) frame -> globals.ints[index] != 0 : (BooleanCode) frame -> frame.ints[index] != 0;
+			}
+			return global ? (IntCode) frame -> globals.ints[index] : (IntCode) frame -> frame.ints[index];
+		default:
+			return global ? (ObjectCode) frame -> globals.objects[index] : (ObjectCode) frame -> frame.objects[index];
+		}
+	}
+
+	private Object arithmetic(Binary binary, Class<?> type, Object left, Object right) {
+		if (type == double.class) {
+			DoubleCode a = (DoubleCode) left;
+			DoubleCode b = (DoubleCode) right;
+			switch (binary.op) {
+			case "+":	return (DoubleCode) frame -> a.run(frame) + b.run(frame);
+			case "-":	return (DoubleCode) frame -> a.run(frame) - b.run(frame);
+			case "*":	return (DoubleCode) frame -> a.run(frame) * b.run(frame);
+			case "/":	return (DoubleCode) frame -> a.run(frame) / b.run(frame);
+			case "%":	return (DoubleCode) frame -> a.run(frame) % b.run(frame);
+			}
+		}
+		else if (type == long.class) {
+			LongCode a = (LongCode) left;
+			LongCode b = (LongCode) right;
+			switch (binary.op) {
+			case "+":	return (LongCode) frame -> a.run(frame) + b.run(frame);
+			case "-":	return (LongCode) frame -> a.run(frame) - b.run(frame);
+			case "*":	return (LongCode) frame -> a.run(frame) * b.run(frame);
+			case "/":	return (LongCode) frame -> a.run(frame) / b.run(frame);
+			case "%":	return (LongCode) frame -> a.run(frame) % b.run(frame);
+			}
+		}
+		else {
+			IntCode a = (IntCode) left;
+			IntCode b = (IntCode) right;
+			switch (binary.op) {
+			case "+":	return (IntCode) frame -> a.run(frame) + b.run(frame);
+			case "-":	return (IntCode) frame -> a.run(frame) - b.run(frame);
+			case "*":	return (IntCode) frame -> a.run(frame) * b.run(frame);
+			case "/":	return (IntCode) frame -> a.run(frame) / b.run(frame);
+			case "%":	return (IntCode) frame -> a.run(frame) % b.run(frame);
+			}
+		}
+		throw typing.unsupported(binary);
+	}
+
+	/**
+	 * a + b + ... with a String operand, appended to a StringBuilder (String.valueOf gives the same text)
+	 */
+	private ObjectCode concatenation(Binary binary) {
+		List<IRExpression> operands = new ArrayList<>();
+		IRExpression left = binary;
+		while (left instanceof Binary && ((Binary) left).op.equals("+") && typing.typeOf(left) == String.class) {
+			operands.add(0, ((Binary) left).right);
+			left = ((Binary) left).left;
+		}
+		operands.add(0, left);
+
+		Appender[] parts = new Appender[operands.size()];
+		for (int i = 0; i < parts.length; i++) {
+			Object code = expression(operands.get(i));
+			if (code instanceof DoubleCode) {
+				DoubleCode value = (DoubleCode) code;
+				parts[i] = (text, frame) -> text.append(value.run(frame));
+			}
+			else if (code instanceof LongCode) {
+				LongCode value = (LongCode) code;
+				parts[i] = (text, frame) -> text.append(value.run(frame));
+			}
+			else if (code instanceof BooleanCode) {
+				BooleanCode value = (BooleanCode) code;
+				parts[i] = (text, frame) -> text.append(value.run(frame));
+			}
+			else if (code instanceof IntCode && erasure(typing.typeOf(operands.get(i))) == char.class) {
+				IntCode value = (IntCode) code;
+				parts[i] = (text, frame) -> text.append((char) value.run(frame));
+			}
+			else if (code instanceof IntCode) {
+				IntCode value = (IntCode) code;
+				parts[i] = (text, frame) -> text.append(value.run(frame));
+			}
+			else {
+				ObjectCode value = (ObjectCode) code;
+				parts[i] = (text, frame) -> text.append(value.run(frame));
+			}
+		}
+		return frame -> {
+			StringBuilder text = new StringBuilder();
+			for (Appender part : parts) {
+				part.append(text, frame);
+			}
+			return text.toString();
+		};
+	}
+
+	private Object call(Call call, Type type) {
+
+		// clone of an array
+		if (typing.isArrayClone(call)) {
+			ObjectCode array = (ObjectCode) expression(call.target);
+			return (ObjectCode) frame -> {
+				Object original = array.run(frame);
+				int length = Array.getLength(original);
+				Object copy = Array.newInstance(original.getClass().getComponentType(), length);
+				System.arraycopy(original, 0, copy, 0, length);
+				return copy;
+			};
+		}
+
+		Executable member = typing.resolve(call);
+
+		// function of the program
+		if (member == null) {
+			IRFunction function = program.getFunction(call.method);
+			Procedure procedure = procedures.get(call.method);
+			Argument[] args = new Argument[call.args.size()];
+			int[] indices = new int[4];
+			for (int i = 0; i < args.length; i++) {
+				Type parameter = typing.type(function.paramTypes.get(i));
+				int kind = kind(parameter);
+				args[i] = argument(converted(call.args.get(i), parameter), kind, indices[kind]++);
+			}
+			Class<?> result = erasure(type);
+			if (result == double.class) {
+				return (DoubleCode) frame -> procedure.call(frame, args).doubleResult;
+			}
+			if (result == long.class) {
+				return (LongCode) frame -> procedure.call(frame, args).longResult;
+			}
+			if (result == boolean.class) {
+				return (BooleanCode) frame -> procedure.call(frame, args).intResult != 0;
+			}
+			if (result.isPrimitive() && result != void.class) {
+				return (IntCode) frame -> procedure.call(frame, args).intResult;
+			}
+			return (ObjectCode) frame -> procedure.call(frame, args).objectResult;
+		}
+
+		Method method = (Method) member;
+		boolean isStatic = Modifier.isStatic(method.getModifiers());
+		Class<?> owner = isStatic ? typing.classNamed(((Name) call.target).name) : erasure(typing.typeOf(call.target));
+		MethodHandle handle;
+		try {
+			MethodType signature = MethodType.methodType(method.getReturnType(), method.getParameterTypes());
+			handle = isStatic ? lookup.findStatic(owner, method.getName(), signature) : lookup.findVirtual(owner, method.getName(), signature);
+		}
+		catch (ReflectiveOperationException e) {
+			throw typing.unsupported(call);
+		}
+
+		// the functions of Math (double to double) called without boxing
+		if (isStatic && method.getReturnType() == double.class && call.args.size() <= 2
+				&& Arrays.stream(method.getParameterTypes()).allMatch(parameter -> parameter == double.class)) {
+			MethodHandle function = handle;
+			if (call.args.size() == 1) {
+				DoubleCode a = (DoubleCode) converted(call.args.get(0), double.class);
+				return (DoubleCode) frame -> {
+					try {
+						return (double) function.invokeExact(a.run(frame));
+					}
+					catch (Throwable e) {
+						throw rethrown(e);
+					}
+				};
+			}
+			if (call.args.size() == 2) {
+				DoubleCode a = (DoubleCode) converted(call.args.get(0), double.class);
+				DoubleCode b = (DoubleCode) converted(call.args.get(1), double.class);
+				return (DoubleCode) frame -> {
+					try {
+						return (double) function.invokeExact(a.run(frame), b.run(frame));
+					}
+					catch (Throwable e) {
+						throw rethrown(e);
+					}
+				};
+			}
+		}
+
+		ObjectCode result = invocation(handle, arguments(isStatic ? null : call.target, call.args, method));
+		Class<?> returned = method.getReturnType();
+		return returned.isPrimitive() && returned != void.class ? convert(result, wrappers.get(returned), returned) : result;
+	}
+
+	/**
+	 * @param target of the method, null for a static method or a constructor
+	 * @return the values the method handle takes (the target first), boxed
+	 */
+	private ObjectCode[] arguments(IRExpression target, List<IRExpression> args, Executable member) {
+		List<ObjectCode> values = new ArrayList<>();
+		if (target != null) {
+			values.add((ObjectCode) expression(target));
+		}
+		Class<?>[] parameters = member.getParameterTypes();
+		for (int i = 0; i < args.size(); i++) {
+			Class<?> parameter = parameters[i];
+			Object value = converted(args.get(i), parameter);
+			values.add(parameter.isPrimitive() ? (ObjectCode) convert(value, parameter, wrappers.get(parameter)) : (ObjectCode) value);
+		}
+		return values.toArray(new ObjectCode[0]);
+	}
+
+	private static Argument argument(Object code, int kind, int index) {
+		switch (kind) {
+		case DOUBLES: {
+			DoubleCode value = (DoubleCode) code;
+			return (caller, callee) -> callee.doubles[index] = value.run(caller);
+		}
+		case LONGS: {
+			LongCode value = (LongCode) code;
+			return (caller, callee) -> callee.longs[index] = value.run(caller);
+		}
+		case INTS: {
+			IntCode value = ints(code);
+			return (caller, callee) -> callee.ints[index] = value.run(caller);
+		}
+		default: {
+			ObjectCode value = (ObjectCode) code;
+			return (caller, callee) -> callee.objects[index] = value.run(caller);
+		}
+		}
+	}
+
+	/**
+	 * Call of a method handle with the values of the closures (the result boxed, null for void)
+	 */
+	private static ObjectCode invocation(MethodHandle handle, ObjectCode[] args) {
+		MethodHandle spread = handle.asType(handle.type().generic()).asSpreader(Object[].class, args.length);
+		return frame -> {
+			Object[] values = new Object[args.length];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = args[i].run(frame);
+			}
+			try {
+				return (Object) spread.invokeExact(values);
+			}
+			catch (Throwable e) {
+				throw rethrown(e);
+			}
+		};
+	}
+
+	/**
+	 * The static fields that are constants are bound to the closure, the other ones read when it runs
+	 */
+	private Object staticField(java.lang.reflect.Field member, IRExpression expression) {
+		Class<?> type = member.getType();
+		try {
+			if (Modifier.isFinal(member.getModifiers()) && (type.isPrimitive() || type == String.class)) {
+				Object value = member.get(null);
+				return convert((ObjectCode) frame -> value, type.isPrimitive() ? wrappers.get(type) : type, type);
+			}
+			MethodHandle getter = lookup.unreflectGetter(member);
+			ObjectCode value = invocation(getter, new ObjectCode[0]);
+			return type.isPrimitive() ? convert(value, wrappers.get(type), type) : value;
+		}
+		catch (IllegalAccessException e) {
+			throw typing.unsupported(expression);
+		}
+	}
+
+	private static RuntimeException rethrown(Throwable e) {
+		if (e instanceof Error) {
+			throw (Error) e;
+		}
+		return e instanceof RuntimeException ? (RuntimeException) e : new Thrown(e);
+	}
+
+	// --------------------------------------------------------------------------
+	// Conversions
+
+	private Object converted(IRExpression expression, Type to) {
+		return convert(expression(expression), typing.typeOf(expression), to);
+	}
+
+	/**
+	 * Converts the value of the closure to the type it is assigned to (widening, boxing and unboxing)
+	 */
+	private static Object convert(Object code, Type from, Type to) {
+		Class<?> source = erasure(from);
+		Class<?> target = erasure(to);
+		if (source == target || source == Null.class) {
+			return code;
+		}
+		if (source.isPrimitive() && target.isPrimitive()) {
+			return primitive(code, source, target);
+		}
+		if (source.isPrimitive()) {
+			// boxing (to the wrapper of the target if it is one)
+			Class<?> primitive = unboxed(target).isPrimitive() ? unboxed(target) : source;
+			return box(primitive(code, source, primitive), primitive);
+		}
+		if (target.isPrimitive()) {
+			// unboxing (of the wrapper of the target if the value is not one)
+			Class<?> primitive = unboxed(source).isPrimitive() ? unboxed(source) : target;
+			return primitive(unbox((ObjectCode) code, primitive), primitive, target);
+		}
+		return code;
+	}
+
+	/**
+	 * Conversion of a cast (narrowing too)
+	 */
+	private static Object cast(Object code, Type from, Type to) {
+		Class<?> source = erasure(from);
+		Class<?> target = erasure(to);
+		if (source.isPrimitive() && !target.isPrimitive() && !unboxed(target).isPrimitive()) {
+			// (Object) 1.0
+			return convert(code, source, wrappers.get(source));
+		}
+		if (!source.isPrimitive() && !target.isPrimitive() && !target.isAssignableFrom(source)) {
+			ObjectCode value = (ObjectCode) code;
+			return (ObjectCode) frame -> target.cast(value.run(frame));
+		}
+		return convert(code, from, to);
+	}
+
+	private static ObjectCode box(Object code, Class<?> primitive) {
+		if (primitive == double.class) {
+			DoubleCode value = (DoubleCode) code;
+			return frame -> value.run(frame);
+		}
+		if (primitive == long.class) {
+			LongCode value = (LongCode) code;
+			return frame -> value.run(frame);
+		}
+		if (primitive == boolean.class) {
+			BooleanCode value = (BooleanCode) code;
+			return frame -> value.run(frame);
+		}
+		IntCode value = (IntCode) code;
+		if (primitive == char.class) {
+			return frame -> (char) value.run(frame);
+		}
+		if (primitive == short.class) {
+			return frame -> (short) value.run(frame);
+		}
+		if (primitive == byte.class) {
+			return frame -> (byte) value.run(frame);
+		}
+		return frame -> value.run(frame);
+	}
+
+	private static Object unbox(ObjectCode value, Class<?> primitive) {
+		if (primitive == double.class) {
+			return (DoubleCode) frame -> (Double) value.run(frame);
+		}
+		if (primitive == long.class) {
+			return (LongCode) frame -> (Long) value.run(frame);
+		}
+		if (primitive == boolean.class) {
+			return (BooleanCode) frame -> (Boolean) value.run(frame);
+		}
+		if (primitive == char.class) {
+			return (IntCode) frame -> (Character) value.run(frame);
+		}
+		if (primitive == short.class) {
+			return (IntCode) frame -> (Short) value.run(frame);
+		}
+		if (primitive == byte.class) {
+			return (IntCode) frame -> (Byte) value.run(frame);
+		}
+		return (IntCode) frame -> (Integer) value.run(frame);
+	}
+
+	/**
+	 * Conversion between primitive types (the int types, as char, are all IntCode)
+	 */
+	private static Object primitive(Object code, Class<?> from, Class<?> to) {
+		if (from == to) {
+			return code;
+		}
+		Object value = code;
+		if (code instanceof IntCode) {
+			IntCode operand = (IntCode) code;
+			if (to == double.class) {
+				value = (DoubleCode) frame -> operand.run(frame);
+			}
+			else if (to == long.class) {
+				value = (LongCode) frame -> operand.run(frame);
+			}
+		}
+		else if (code instanceof LongCode) {
+			LongCode operand = (LongCode) code;
+			value = to == double.class ? (DoubleCode) frame -> operand.run(frame) : (IntCode) frame -> (int) operand.run(frame);
+		}
+		else if (code instanceof DoubleCode) {
+			DoubleCode operand = (DoubleCode) code;
+			value = to == long.class ? (LongCode) frame -> (long) operand.run(frame) : (IntCode) frame -> (int) operand.run(frame);
+		}
+
+		// narrowing of the int types
+		if (to == byte.class && from != byte.class) {
+			IntCode operand = (IntCode) value;
+			value = (IntCode) frame -> (byte) operand.run(frame);
+		}
+		else if (to == char.class && from != char.class) {
+			IntCode operand = (IntCode) value;
+			value = (IntCode) frame -> (char) operand.run(frame);
+		}
+		else if (to == short.class && from != short.class && from != byte.class) {
+			IntCode operand = (IntCode) value;
+			value = (IntCode) frame -> (short) operand.run(frame);
+		}
+		return value;
+	}
+
+}
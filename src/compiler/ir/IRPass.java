@@ -0,0 +1,21 @@
+package compiler.ir;
+
+/**
+ * <b>IRPass</b><p>
+ *
+ * Transformation of the intermediate representation, run by the {@link PassManager}.
+ */
+public interface IRPass {
+
+	/**
+	 * @return the name of the pass (in the timings and the IR dump)
+	 */
+	String getName();
+
+	/**
+	 * Transforms the program in place
+	 * @param program
+	 */
+	void run(IRProgram program);
+
+}
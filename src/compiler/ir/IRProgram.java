@@ -0,0 +1,104 @@
+package compiler.ir;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * <b>IRProgram</b><p>
+ *
+ * Intermediate representation of a compiled Potatoes program: the generated class, with the global variables
+ * (static fields, in initialization order) and the functions (static methods).
+ */
+public class IRProgram {
+
+	public String				name;
+	public List<String>			imports		= new ArrayList<>();
+	public List<IRInstruction>	globals		= new ArrayList<>();
+	public List<IRFunction>		functions	= new ArrayList<>();
+	public List<String>			warnings	= new ArrayList<>(); // what the passes report about the program
+	private int					names		= 0; // number of the next name generated
+
+	public IRProgram(String name) {
+		this.name = name;
+	}
+
+	/**
+	 * @param names number of the names generated by the compiler (varN, N less than names)
+	 */
+	public void setNamesCount(int names) {
+		this.names = names;
+	}
+
+	/**
+	 * @return a name not used in the program, for the new locals of the passes
+	 */
+	public String newName() {
+		return "var" + names++;
+	}
+
+	/**
+	 * @param name
+	 * @return the function with the name, or null
+	 */
+	public IRFunction getFunction(String name) {
+		for (IRFunction function : functions) {
+			if (function.name.equals(name)) {
+				return function;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return all the blocks of statements of the program (the globals, the bodies of the functions and the blocks
+	 * nested in them), outer blocks before the ones they contain
+	 */
+	public List<List<IRInstruction>> allBlocks() {
+		List<List<IRInstruction>> blocks = new ArrayList<>();
+		blocks.add(globals);
+		for (IRFunction function : functions) {
+			blocks.add(function.body);
+		}
+		return nestedBlocks(blocks);
+	}
+
+	/**
+	 * @param blocks
+	 * @return the blocks and all the blocks nested in them, outer blocks before the ones they contain
+	 */
+	public static List<List<IRInstruction>> nestedBlocks(List<List<IRInstruction>> blocks) {
+		List<List<IRInstruction>> nested = new ArrayList<>(blocks);
+		for (int i = 0; i < nested.size(); i++) {
+			for (IRInstruction instruction : nested.get(i)) {
+				nested.addAll(instruction.blocks());
+			}
+		}
+		return nested;
+	}
+
+	/**
+	 * @param blocks blocks with the blocks nested in them (see {@link #nestedBlocks(List)})
+	 * @return number of occurrences of each name in the blocks (reads and assignments)
+	 */
+	public static Map<String, Integer> countNames(List<List<IRInstruction>> blocks) {
+		List<String> names = new ArrayList<>();
+		for (List<IRInstruction> block : blocks) {
+			for (IRInstruction instruction : block) {
+				instruction.collectNames(names);
+			}
+		}
+		Map<String, Integer> occurrences = new HashMap<>();
+		for (String name : names) {
+			occurrences.merge(name, 1, Integer::sum);
+		}
+		return occurrences;
+	}
+
+	@Override
+	public String toString() {
+		return JavaLowering.dump(this);
+	}
+
+}
@@ -0,0 +1,267 @@
+package compiler.ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import compiler.ir.IRExpression.*;
+import compiler.ir.IRInstruction.*;
+
+/**
+ * <b>InductionVariables</b><p>
+ *
+ * Pass that gives the loops counted by a dimensionless variable the canonical form the JIT recognizes
+ * ({@code for(int i = 0; i < n; i++)}): as numbers are doubles, the JIT can not see those loops as counted ones, so it
+ * does not unroll them nor remove the checks of the indexes they compute.<p>
+ * A variable is an induction variable when it is only assigned integral literals before the loop, and in the loop
+ * only by the update that adds (or subtracts) an integral literal to it, compared with the bound in the condition.
+ * Its value is then always an integer, kept in an int (a long when the bound is not a literal), and converted back
+ * to double where the loop reads it. The variable must not be used after the loop.
+ */
+public class InductionVariables implements IRPass {
+
+	// largest integer a double holds exactly (2^53)
+	private static final double MAX_EXACT_LONG = 9007199254740992.0;
+
+	private Map<String, Integer> occurrences;
+
+	@Override
+	public String getName() {
+		return "induction-variables";
+	}
+
+	@Override
+	public void run(IRProgram program) {
+		for (IRFunction function : program.functions) {
+			List<List<IRInstruction>> blocks = IRProgram.nestedBlocks(Arrays.asList(function.body));
+			occurrences = IRProgram.countNames(blocks);
+			for (List<IRInstruction> block : blocks) {
+				for (int i = 0; i < block.size(); i++) {
+					if (block.get(i) instanceof Loop) {
+						i = countedLoop(block, i);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Gives the loop the counted form, if it is counted by an induction variable
+	 * @return the new index of the loop in the block
+	 */
+	private int countedLoop(List<IRInstruction> block, int index) {
+		Loop loop = (Loop) block.get(index);
+		if (loop.init != null) {
+			return index;
+		}
+
+		// the update, i = i + step (the last statement of a while loop)
+		boolean inBody = loop.update == null;
+		IRInstruction lastStatement = inBody && !loop.body.isEmpty() ? loop.body.get(loop.body.size()-1) : loop.update;
+		if (!(lastStatement instanceof Assign) || !isStep((Assign) lastStatement)) {
+			return index;
+		}
+		Assign update = (Assign) lastStatement;
+		String variable = update.target;
+		String op = ((Binary) update.value).op;
+		double step = ((Literal) ((Binary) update.value).right).number();
+		if (!"double".equals(update.declaredType) || (update.unit != null && !update.unit.getName().equals("number"))) {
+			return index;
+		}
+
+		// the condition, i < bound (i > bound if i decreases)
+		if (!(loop.condition instanceof Binary)) {
+			return index;
+		}
+		Binary condition = (Binary) loop.condition;
+		String comparison = condition.op;
+		IRExpression bound = condition.right;
+		if (isName(condition.right, variable)) {
+			comparison = mirror(comparison);
+			bound = condition.left;
+		}
+		else if (!isName(condition.left, variable)) {
+			return index;
+		}
+		boolean increasing = op.equals("+");
+		if (!(increasing ? comparison.equals("<") || comparison.equals("<=") : comparison.equals(">") || comparison.equals(">="))
+				|| uses(bound, variable) > 0) {
+			return index;
+		}
+
+		// in the loop, only the update assigns the variable
+		List<String> loopNames = new ArrayList<>();
+		loop.collectNames(loopNames);
+		for (List<IRInstruction> nested : IRProgram.nestedBlocks(loop.blocks())) {
+			for (IRInstruction instruction : nested) {
+				instruction.collectNames(loopNames);
+				if (instruction != update && assigns(instruction, variable)) {
+					return index;
+				}
+			}
+		}
+		int loopUses = 0;
+		for (String name : loopNames) {
+			loopUses += name.equals(variable) ? 1 : 0;
+		}
+
+		// before the loop, the declaration and assignments of integral literals (the last one is the initial value)
+		List<Assign> initializations = new ArrayList<>();
+		Assign declaration = null;
+		for (IRInstruction instruction : block.subList(0, index)) {
+			List<String> names = new ArrayList<>();
+			instruction.collectNames(names);
+			for (List<IRInstruction> nested : IRProgram.nestedBlocks(instruction.blocks())) {
+				for (IRInstruction statement : nested) {
+					statement.collectNames(names);
+				}
+			}
+			if (!names.contains(variable)) {
+				continue;
+			}
+			if (!(instruction instanceof Assign) || !((Assign) instruction).target.equals(variable) || names.size() != 1
+					|| !isIntegral(((Assign) instruction).value)) {
+				return index;
+			}
+			Assign assign = (Assign) instruction;
+			if (assign.isDeclaration()) {
+				declaration = assign;
+			}
+			initializations.add(assign);
+		}
+		if (declaration == null || !declaration.modifiers.isEmpty()
+				|| occurrences.get(variable) != initializations.size() + loopUses) {
+			return index;
+		}
+		double initial = ((Literal) initializations.get(initializations.size()-1).value).number();
+
+		// int if the loop can not take the variable out of its range
+		boolean fitsInt = bound instanceof Literal && ((Literal) bound).number() != null
+				&& Math.abs(((Literal) bound).number()) + step < Integer.MAX_VALUE && Math.abs(initial) < Integer.MAX_VALUE;
+		if (!fitsInt && (Math.abs(initial) >= MAX_EXACT_LONG || step >= MAX_EXACT_LONG)) {
+			return index;
+		}
+		String type = fitsInt ? "int" : "long";
+
+		// for(type i = initial; i < bound; i += step)
+		block.removeAll(initializations);
+		index -= initializations.size();
+		if (inBody) {
+			loop.body.remove(loop.body.size()-1);
+		}
+		Assign init = new Assign("", type, variable, new Literal(integer(initial)));
+		init.unit = declaration.unit;
+		loop.init = init;
+		Assign increment = new Assign("", null, variable, new Binary(op, new Name(variable), new Literal(integer(step))));
+		increment.declaredType = type;
+		increment.unit = declaration.unit;
+		loop.update = increment;
+		if (bound instanceof Literal && isIntegral(bound) && fitsInt) {
+			bound = new Literal(integer(((Literal) bound).number()));
+		}
+		loop.condition = new Binary(comparison, new Name(variable), bound);
+
+		// the loop reads the variable as a double
+		for (List<IRInstruction> nested : IRProgram.nestedBlocks(loop.blocks())) {
+			for (IRInstruction instruction : nested) {
+				instruction.mapExpressions(e -> asDouble(e, variable));
+			}
+		}
+		return index;
+	}
+
+	/**
+	 * @return the expression with the reads of the variable converted to double, where the conversion changes the value
+	 * (not in operations with a double literal, nor in casts)
+	 */
+	private static IRExpression asDouble(IRExpression expression, String variable) {
+		Cast converted = new Cast("double", new Name(variable));
+		return expression.transform(e -> {
+			if (isName(e, variable)) {
+				return converted;
+			}
+			if (e instanceof Cast && ((Cast) e).operand == converted) {
+				return new Cast(((Cast) e).type, new Name(variable));
+			}
+			if (e instanceof Binary && !((Binary) e).isShortCircuit()) {
+				Binary binary = (Binary) e;
+				if (binary.left == converted && isDouble(binary.right)) {
+					return new Binary(binary.op, new Name(variable), binary.right);
+				}
+				if (binary.right == converted && isDouble(binary.left)) {
+					return new Binary(binary.op, binary.left, new Name(variable));
+				}
+			}
+			return e;
+		});
+	}
+
+	/**
+	 * @return true if the assignment is i = i + step or i = i - step, step an integral literal
+	 */
+	private static boolean isStep(Assign assign) {
+		if (assign.isDeclaration() || !assign.modifiers.isEmpty() || !(assign.value instanceof Binary)) {
+			return false;
+		}
+		Binary value = (Binary) assign.value;
+		return (value.op.equals("+") || value.op.equals("-")) && isName(value.left, assign.target)
+				&& isIntegral(value.right) && ((Literal) value.right).number() > 0;
+	}
+
+	private static boolean assigns(IRInstruction instruction, String variable) {
+		if (instruction instanceof Assign) {
+			return ((Assign) instruction).target.equals(variable);
+		}
+		if (instruction instanceof Loop) {
+			for (IRInstruction header : Arrays.asList(((Loop) instruction).init, ((Loop) instruction).update)) {
+				if (header != null && assigns(header, variable)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	private static boolean isName(IRExpression expression, String name) {
+		return expression instanceof Name && ((Name) expression).name.equals(name);
+	}
+
+	private static int uses(IRExpression expression, String name) {
+		List<String> names = new ArrayList<>();
+		expression.collectNames(names);
+		int uses = 0;
+		for (String used : names) {
+			uses += used.equals(name) ? 1 : 0;
+		}
+		return uses;
+	}
+
+	private static boolean isIntegral(IRExpression expression) {
+		if (!isDouble(expression)) {
+			return false;
+		}
+		double value = ((Literal) expression).number();
+		return value == Math.rint(value) && value < MAX_EXACT_LONG;
+	}
+
+	private static boolean isDouble(IRExpression expression) {
+		return expression instanceof Literal && ((Literal) expression).number() != null
+				&& (((Literal) expression).text.contains(".") || ((Literal) expression).text.contains("E"));
+	}
+
+	private static String integer(double value) {
+		return Long.toString((long) value);
+	}
+
+	private static String mirror(String comparison) {
+		switch (comparison) {
+		case "<":	return ">";
+		case "<=":	return ">=";
+		case ">":	return "<";
+		case ">=":	return "<=";
+		default:	return comparison;
+		}
+	}
+
+}
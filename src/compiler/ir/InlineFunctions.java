@@ -0,0 +1,133 @@
+package compiler.ir;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import compiler.ir.IRExpression.*;
+import compiler.ir.IRInstruction.*;
+
+/**
+ * <b>InlineFunctions</b><p>
+ *
+ * Pass that replaces the calls to small functions by the expression they compute.<p>
+ * A function is inlined when its body is straight-line code over its parameters and locals that returns a value
+ * computed without side effects (unit conversion wrappers, formulas): the body is then one expression of the
+ * parameters, so the call is replaced by that expression of the arguments. Such functions call no other function,
+ * so they are never recursive. Calls in loops get a larger budget than the others, they are the ones that pay the
+ * call on every iteration. Literal arguments are folded with the conversion factors of the body (see {@link FoldConstants}).
+ */
+public class InlineFunctions implements IRPass {
+
+	// body size (expression nodes) of the functions inlined outside and inside loops
+	private static final int INLINE_BUDGET			= 16;
+	private static final int INLINE_BUDGET_IN_LOOPS	= 48;
+
+	private final Map<String, IRFunction>	functions	= new HashMap<>();
+	private final Map<String, IRExpression>	bodies		= new HashMap<>(); // function -> returned expression of its parameters
+
+	@Override
+	public String getName() {
+		return "inline-functions";
+	}
+
+	@Override
+	public void run(IRProgram program) {
+		for (IRFunction function : program.functions) {
+			IRExpression body = function.isMain() ? null : returnedExpression(function);
+			if (body != null) {
+				functions.put(function.name, function);
+				bodies.put(function.name, body);
+			}
+		}
+		if (bodies.isEmpty()) {
+			return;
+		}
+		for (IRFunction function : program.functions) {
+			inline(function.body, 0);
+		}
+	}
+
+	private void inline(List<IRInstruction> block, int loopDepth) {
+		for (IRInstruction instruction : block) {
+			int depth = instruction instanceof Loop ? loopDepth + 1 : loopDepth;
+			int budget = depth == 0 ? INLINE_BUDGET : INLINE_BUDGET_IN_LOOPS;
+			instruction.mapExpressions(e -> e.transform(node -> node instanceof Call ? inlineCall((Call) node, budget) : node));
+			for (List<IRInstruction> nested : instruction.blocks()) {
+				inline(nested, depth);
+			}
+		}
+	}
+
+	/**
+	 * @return the expression computed by the call, or the call if it is not inlined
+	 */
+	private IRExpression inlineCall(Call call, int budget) {
+		IRExpression body = call.target == null ? bodies.get(call.method) : null;
+		if (body == null || body.size() > budget) {
+			return call;
+		}
+		IRFunction function = functions.get(call.method);
+		if (function.params.size() != call.args.size()) {
+			return call;
+		}
+
+		// the arguments are evaluated where the body reads the parameters: they can not have side effects,
+		// and only operands can be read more than once
+		for (int i = 0; i < call.args.size(); i++) {
+			IRExpression arg = call.args.get(i);
+			int uses = uses(body, function.params.get(i));
+			if (arg.writes() || (uses == 0 && !arg.isPure()) || (uses > 1 && !(arg instanceof Name || arg instanceof Literal))) {
+				return call;
+			}
+		}
+
+		IRExpression inlined = body;
+		for (int i = 0; i < call.args.size(); i++) {
+			inlined = inlined.replace(function.params.get(i), call.args.get(i));
+		}
+		return inlined.transform(FoldConstants::fold);
+	}
+
+	/**
+	 * @return the expression returned by the function, as an expression of its parameters, or null if the body
+	 * is not straight-line code without side effects
+	 */
+	private static IRExpression returnedExpression(IRFunction function) {
+		Map<String, IRExpression> values = new HashMap<>(); // parameter or local -> its value
+		for (String param : function.params) {
+			values.put(param, new Name(param));
+		}
+		List<IRInstruction> body = function.body;
+		for (int i = 0; i < body.size(); i++) {
+			IRInstruction instruction = body.get(i);
+			if (instruction instanceof Assign) {
+				Assign assign = (Assign) instruction;
+				if (!assign.modifiers.isEmpty() || assign.value == null || !assign.value.isPure()
+						|| (!assign.isDeclaration() && !values.containsKey(assign.target))) {
+					return null;
+				}
+				values.put(assign.target, substitute(assign.value, values));
+			}
+			else if (instruction instanceof Return && i == body.size()-1 && ((Return) instruction).value != null) {
+				IRExpression value = ((Return) instruction).value;
+				return value.isPure() ? substitute(value, values) : null;
+			}
+			else {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	private static IRExpression substitute(IRExpression expression, Map<String, IRExpression> values) {
+		return expression.transform(e -> e instanceof Name && values.containsKey(((Name) e).name) ? values.get(((Name) e).name) : e);
+	}
+
+	private static int uses(IRExpression expression, String name) {
+		int[] uses = {0};
+		expression.forEach(e -> uses[0] += e instanceof Name && ((Name) e).name.equals(name) ? 1 : 0);
+		return uses[0];
+	}
+
+}
@@ -0,0 +1,183 @@
+package compiler.ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import compiler.ir.IRExpression.*;
+import compiler.ir.IRInstruction.*;
+
+/**
+ * <b>InlineTemporaries</b><p>
+ *
+ * Pass that folds single use temporaries back into the expression that uses them.<p>
+ * The compiler declares one local for every subexpression (double var7 = var5 + var6;). A temporary is inlined
+ * into the statement right after its declaration when it is used only there, so a chain of temporaries
+ * becomes one nested expression. Statements are kept where evaluation order or side effects need them:
+ * the expression of the temporary is not moved across code that may write what it reads (or read what it writes),
+ * nor into an operand that may not be evaluated.
+ */
+public class InlineTemporaries implements IRPass {
+
+	private static final Set<String> inlinedTypes = new HashSet<>(Arrays.asList("double", "boolean", "String"));
+
+	// longer expressions are split in statements, very deep expressions overflow the stack of javac
+	private static final int MAX_EXPRESSION_NODES = 64;
+
+	@Override
+	public String getName() {
+		return "inline-temporaries";
+	}
+
+	@Override
+	public void run(IRProgram program) {
+		// temporaries have unique names in the class, so their uses are counted in the whole program
+		Map<String, Integer> occurrences = IRProgram.countNames(program.allBlocks());
+		for (IRFunction function : program.functions) {
+			inline(function.body, occurrences);
+		}
+	}
+
+	/**
+	 * Inlines the temporaries of the block and of the blocks nested in it
+	 * @param block
+	 * @param occurrences number of occurrences of each name in the program
+	 */
+	private static void inline(List<IRInstruction> block, Map<String, Integer> occurrences) {
+		List<IRInstruction> result = new ArrayList<>();
+		for (IRInstruction instruction : block) {
+			for (List<IRInstruction> nested : instruction.blocks()) {
+				inline(nested, occurrences);
+			}
+			// inline the declarations right above the instruction, as long as possible
+			while (!result.isEmpty() && inlineInto(result.get(result.size()-1), instruction, occurrences)) {
+				result.remove(result.size()-1);
+			}
+			result.add(instruction);
+		}
+		block.clear();
+		block.addAll(result);
+	}
+
+	/**
+	 * Inlines the temporary declared in declaration into instruction, if it is allowed
+	 * @return true if the temporary was inlined (instruction is changed)
+	 */
+	private static boolean inlineInto(IRInstruction declaration, IRInstruction instruction, Map<String, Integer> occurrences) {
+
+		// declaration must be "type temporary = expression;"
+		if (!(declaration instanceof Assign)) {
+			return false;
+		}
+		Assign assign = (Assign) declaration;
+		if (!assign.isDeclaration() || !assign.modifiers.isEmpty() || !inlinedTypes.contains(assign.type) || assign.value == null
+				|| occurrences.getOrDefault(assign.target, 0) != 2 || !isInlineable(assign.value)) {
+			return false;
+		}
+
+		// the only use must be in an expression evaluated once (the first condition of an if, not the ones of loops)
+		IRExpression expression = onceEvaluated(instruction);
+		if (expression == null || expression.size() + assign.value.size() > MAX_EXPRESSION_NODES) {
+			return false;
+		}
+		Use use = new Use(assign.target);
+		if (!use.find(expression, false)) {
+			return false;
+		}
+
+		// the expression is moved after the code evaluated before the use
+		boolean expressionWrites = assign.value.writes();
+		if ((use.beforeWrites && (assign.value.reads() || expressionWrites)) || (expressionWrites && (use.beforeReads || use.conditional))) {
+			return false;
+		}
+
+		setOnceEvaluated(instruction, expression.replace(assign.target, assign.value));
+		occurrences.put(assign.target, 0);
+		return true;
+	}
+
+	/**
+	 * @return true if the expression may be moved: no method calls on objects (their result may be boxed or int),
+	 * no object creation and no conditional operator
+	 */
+	private static boolean isInlineable(IRExpression expression) {
+		boolean[] inlineable = {true};
+		expression.forEach(e -> inlineable[0] &= !(e instanceof New || e instanceof NewArray || e instanceof Conditional || e instanceof Field
+				|| (e instanceof Call && ((Call) e).target != null && !((Call) e).isMath())));
+		return inlineable[0];
+	}
+
+	/**
+	 * @return the expression of the instruction that is evaluated first and once, or null
+	 */
+	private static IRExpression onceEvaluated(IRInstruction instruction) {
+		if (instruction instanceof Assign) {
+			return ((Assign) instruction).value;
+		}
+		if (instruction instanceof Eval) {
+			return ((Eval) instruction).expression;
+		}
+		if (instruction instanceof Return) {
+			return ((Return) instruction).value;
+		}
+		if (instruction instanceof If) {
+			return ((If) instruction).conditions.get(0);
+		}
+		return null;
+	}
+
+	private static void setOnceEvaluated(IRInstruction instruction, IRExpression expression) {
+		if (instruction instanceof Assign) {
+			((Assign) instruction).value = expression;
+		}
+		else if (instruction instanceof Eval) {
+			((Eval) instruction).expression = expression;
+		}
+		else if (instruction instanceof Return) {
+			((Return) instruction).value = expression;
+		}
+		else if (instruction instanceof If) {
+			((If) instruction).conditions.set(0, expression);
+		}
+	}
+
+	/**
+	 * Finds the read of a temporary in an expression, and what is evaluated before it
+	 */
+	private static class Use {
+		private final String	temporary;
+		private boolean			beforeWrites	= false;
+		private boolean			beforeReads		= false;
+		private boolean			conditional		= false; // the use may not be evaluated
+
+		private Use(String temporary) {
+			this.temporary = temporary;
+		}
+
+		/**
+		 * @return true if the temporary is read in expression (the expressions evaluated before it are recorded)
+		 */
+		private boolean find(IRExpression expression, boolean mayNotRun) {
+			if (expression instanceof Name && ((Name) expression).name.equals(temporary)) {
+				conditional = mayNotRun;
+				return true;
+			}
+			List<IRExpression> children = expression.children();
+			for (int i = 0; i < children.size(); i++) {
+				boolean childMayNotRun = mayNotRun || (i > 0 && (expression instanceof Conditional
+						|| (expression instanceof Binary && ((Binary) expression).isShortCircuit())));
+				if (find(children.get(i), childMayNotRun)) {
+					return true;
+				}
+			}
+			// evaluated completely before the use
+			beforeWrites |= expression.writes();
+			beforeReads |= expression.reads();
+			return false;
+		}
+	}
+
+}
@@ -0,0 +1,369 @@
+package compiler.ir;
+
+import java.io.Writer;
+import java.util.List;
+
+import compiler.ir.IRExpression.*;
+import compiler.ir.IRInstruction.*;
+
+/**
+ * <b>JavaLowering</b><p>
+ *
+ * Final lowering of the intermediate representation to the Java class, the last step of the compilation to Java. The
+ * class is streamed to its file by a {@link JavaWriter} as it is lowered.<p>
+ * Parenthesis are only written where the operators precedence needs them. The same printer dumps the IR
+ * (see {@link #dump(IRProgram)}), with the type and unit of each assignment.
+ */
+public class JavaLowering {
+
+	private final JavaWriter	str;
+	private final boolean		annotate;
+
+	private JavaLowering(JavaWriter str, boolean annotate) {
+		this.str = str;
+		this.annotate = annotate;
+	}
+
+	/**
+	 * Writes the Java code of the program
+	 * @param program
+	 * @param out
+	 */
+	public static void lower(IRProgram program, Writer out) {
+		JavaWriter writer = out instanceof JavaWriter ? (JavaWriter) out : new JavaWriter(out);
+		new JavaLowering(writer, false).program(program);
+		writer.flush();
+	}
+
+	/**
+	 * @param program
+	 * @return the Java code of the program
+	 */
+	public static String lower(IRProgram program) {
+		JavaLowering lowering = new JavaLowering(new JavaWriter(), false);
+		lowering.program(program);
+		return lowering.str.toString();
+	}
+
+	/**
+	 * @param program
+	 * @return the program as text, with the unit of each assignment
+	 */
+	public static String dump(IRProgram program) {
+		JavaLowering lowering = new JavaLowering(new JavaWriter(), true);
+		lowering.program(program);
+		return lowering.str.toString();
+	}
+
+	/**
+	 * @param instruction
+	 * @return the Java code of the instruction (nested blocks included)
+	 */
+	public static String statement(IRInstruction instruction) {
+		JavaLowering lowering = new JavaLowering(new JavaWriter(), false);
+		lowering.instruction(instruction, 0);
+		return lowering.str.toString().trim();
+	}
+
+	/**
+	 * @param expression
+	 * @return the Java code of the expression
+	 */
+	public static String expression(IRExpression expression) {
+		JavaWriter str = new JavaWriter();
+		expression(expression, str);
+		return str.toString();
+	}
+
+	// --------------------------------------------------------------------------
+	// Program
+
+	private void program(IRProgram program) {
+		for (String imported : program.imports) {
+			str.append("import ").append(imported).append(";\n");
+		}
+		str.append("\npublic class ").append(program.name).append(" {\n");
+		for (IRInstruction global : program.globals) {
+			instruction(global, 1);
+		}
+		for (IRFunction function : program.functions) {
+			indent(1);
+			str.append(function.modifiers.isEmpty() ? "" : function.modifiers + " ").append(function.returnType).append(" ").append(function.name).append("(");
+			for (int i = 0; i < function.params.size(); i++) {
+				str.append(i > 0 ? ", " : "").append(function.paramTypes.get(i)).append(" ").append(function.params.get(i));
+			}
+			str.append(")\n");
+			indent(1);
+			str.append("{\n");
+			block(function.body, 2);
+			indent(1);
+			str.append("}\n");
+		}
+		str.append("}\n");
+	}
+
+	private void block(List<IRInstruction> block, int depth) {
+		for (IRInstruction instruction : block) {
+			instruction(instruction, depth);
+		}
+	}
+
+	// --------------------------------------------------------------------------
+	// Statements
+
+	private void instruction(IRInstruction instruction, int depth) {
+		indent(depth);
+
+		if (instruction instanceof If) {
+			If condition = (If) instruction;
+			for (int i = 0; i < condition.branches.size(); i++) {
+				List<IRInstruction> branch = condition.branches.get(i);
+				if (i > 0) {
+					indent(depth);
+					str.append("else ");
+				}
+				if (condition.conditions.get(i) != null) {
+					str.append("if(");
+					expression(condition.conditions.get(i), str);
+					str.append(")");
+
+					// if(condition) break;
+					if (condition.branches.size() == 1 && branch.size() == 1 && branch.get(0) instanceof Break) {
+						str.append(" break;\n");
+						return;
+					}
+					str.append(" ");
+				}
+				str.append("{\n");
+				block(branch, depth + 1);
+				indent(depth);
+				str.append("}\n");
+			}
+			return;
+		}
+
+		if (instruction instanceof Loop) {
+			Loop loop = (Loop) instruction;
+			if (loop.update == null) {
+				str.append("while(");
+				expression(loop.condition, str);
+			}
+			else {
+				str.append("for(");
+				if (loop.init != null) {
+					simpleStatement(loop.init);
+				}
+				str.append("; ");
+				expression(loop.condition, str);
+				str.append("; ");
+				simpleStatement(loop.update);
+			}
+			str.append(") {\n");
+			block(loop.body, depth + 1);
+			indent(depth);
+			str.append("}\n");
+			return;
+		}
+
+		if (instruction instanceof Block) {
+			str.append("{\n");
+			block(((Block) instruction).body, depth + 1);
+			indent(depth);
+			str.append("}\n");
+			return;
+		}
+
+		if (instruction instanceof Store) {
+			Store store = (Store) instruction;
+			operand(store.array, 15, str);
+			str.append("[");
+			expression(store.index, str);
+			str.append("] = ");
+			expression(store.value, str);
+			str.append(";\n");
+			return;
+		}
+
+		if (instruction instanceof Break) {
+			str.append("break;\n");
+			return;
+		}
+
+		if (instruction instanceof Throw) {
+			str.append("throw ");
+			expression(((Throw) instruction).exception, str);
+			str.append(";\n");
+			return;
+		}
+
+		if (instruction instanceof Return) {
+			IRExpression value = ((Return) instruction).value;
+			str.append("return");
+			if (value != null) {
+				str.append(" ");
+				expression(value, str);
+			}
+			str.append(";\n");
+			return;
+		}
+
+		simpleStatement(instruction);
+		str.append(";");
+		if (annotate && instruction instanceof Assign) {
+			Assign assign = (Assign) instruction;
+			if (assign.unit != null) {
+				str.append("\t\t// ").append(assign.declaredType).append(" [").append(assign.unit.getName()).append("]");
+			}
+		}
+		str.append("\n");
+	}
+
+	/**
+	 * Assignment or expression statement, without the ;
+	 */
+	private void simpleStatement(IRInstruction instruction) {
+		if (instruction instanceof Assign && isIncrement((Assign) instruction)) {
+			// i++, i--, i += step
+			Assign assign = (Assign) instruction;
+			Binary increment = (Binary) assign.value;
+			String step = ((Literal) increment.right).text;
+			str.append(assign.target).append(step.equals("1") ? increment.op + increment.op : " " + increment.op + "= " + step);
+		}
+		else if (instruction instanceof Assign) {
+			Assign assign = (Assign) instruction;
+			if (!assign.modifiers.isEmpty()) {
+				str.append(assign.modifiers).append(" ");
+			}
+			if (assign.type != null) {
+				str.append(assign.type).append(" ");
+			}
+			str.append(assign.target);
+			if (assign.value != null) {
+				str.append(" = ");
+				expression(assign.value, str);
+			}
+		}
+		else if (instruction instanceof Eval) {
+			expression(((Eval) instruction).expression, str);
+		}
+		else {
+			str.append(statement(instruction));
+		}
+	}
+
+	/**
+	 * @return true if the assignment adds an integer literal to an integer variable (i = i + 1)
+	 */
+	private static boolean isIncrement(Assign assign) {
+		if (assign.isDeclaration() || !("int".equals(assign.declaredType) || "long".equals(assign.declaredType))
+				|| !(assign.value instanceof Binary)) {
+			return false;
+		}
+		Binary value = (Binary) assign.value;
+		return (value.op.equals("+") || value.op.equals("-")) && value.left instanceof Name
+				&& ((Name) value.left).name.equals(assign.target) && value.right instanceof Literal
+				&& ((Literal) value.right).text.matches("\\d+");
+	}
+
+	private void indent(int depth) {
+		str.indent(depth);
+	}
+
+	// --------------------------------------------------------------------------
+	// Expressions
+
+	private static void expression(IRExpression expression, JavaWriter str) {
+
+		if (expression instanceof Literal) {
+			str.append(((Literal) expression).text);
+		}
+		else if (expression instanceof Name) {
+			str.append(((Name) expression).name);
+		}
+		else if (expression instanceof Binary) {
+			Binary binary = (Binary) expression;
+			operand(binary.left, binary.precedence(), str);
+			str.append(" ").append(binary.op).append(" ");
+			operand(binary.right, binary.precedence() + 1, str);
+		}
+		else if (expression instanceof Unary) {
+			Unary unary = (Unary) expression;
+			str.append(unary.op);
+			// - -x is not --x
+			boolean nested = !unary.op.equals("!") && (unary.operand instanceof Unary
+					|| (unary.operand instanceof Literal && ((Literal) unary.operand).text.startsWith("-")));
+			operand(unary.operand, nested ? Integer.MAX_VALUE : unary.precedence(), str);
+		}
+		else if (expression instanceof Cast) {
+			Cast cast = (Cast) expression;
+			str.append("(").append(cast.type).append(") ");
+			operand(cast.operand, cast.precedence(), str);
+		}
+		else if (expression instanceof Conditional) {
+			Conditional conditional = (Conditional) expression;
+			operand(conditional.condition, 2, str);
+			str.append(" ? ");
+			operand(conditional.ifTrue, 2, str);
+			str.append(" : ");
+			operand(conditional.ifFalse, 1, str);
+		}
+		else if (expression instanceof Call) {
+			Call call = (Call) expression;
+			if (call.target != null) {
+				operand(call.target, call.precedence(), str);
+				str.append(".");
+			}
+			str.append(call.method);
+			arguments(call.args, str);
+		}
+		else if (expression instanceof Field) {
+			Field field = (Field) expression;
+			operand(field.target, field.precedence(), str);
+			str.append(".").append(field.field);
+		}
+		else if (expression instanceof Index) {
+			Index index = (Index) expression;
+			operand(index.array, index.precedence(), str);
+			str.append("[");
+			expression(index.index, str);
+			str.append("]");
+		}
+		else if (expression instanceof New) {
+			New creation = (New) expression;
+			str.append("new ").append(creation.type);
+			arguments(creation.args, str);
+		}
+		else if (expression instanceof NewArray) {
+			NewArray creation = (NewArray) expression;
+			str.append("new ").append(creation.type).append("[");
+			expression(creation.length, str);
+			str.append("]");
+		}
+	}
+
+	/**
+	 * Writes the expression, in parenthesis if it binds less than precedence
+	 */
+	private static void operand(IRExpression expression, int precedence, JavaWriter str) {
+		if (expression.precedence() < precedence) {
+			str.append("(");
+			expression(expression, str);
+			str.append(")");
+		}
+		else {
+			expression(expression, str);
+		}
+	}
+
+	private static void arguments(List<IRExpression> args, JavaWriter str) {
+		str.append("(");
+		for (int i = 0; i < args.size(); i++) {
+			if (i > 0) {
+				str.append(", ");
+			}
+			expression(args.get(i), str);
+		}
+		str.append(")");
+	}
+
+}
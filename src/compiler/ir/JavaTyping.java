@@ -0,0 +1,684 @@
+package compiler.ir;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Executable;
+import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.lang.reflect.TypeVariable;
+import java.lang.reflect.WildcardType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import compiler.ir.IRExpression.*;
+import compiler.ir.IRInstruction.*;
+
+/**
+ * <b>JavaTyping</b><p>
+ *
+ * Java types of the expressions of the intermediate representation, for the backends that run the program without
+ * its Java source (the bytecode and the interpreter): the methods of the JDK classes the generated code calls are
+ * found by reflection, with their generic types, and chosen among their overloads as javac does (without varargs).<p>
+ * The types of the names depend on the locals of the function being lowered, given by the backend; the types found
+ * are kept until {@link #clear()}.
+ */
+class JavaTyping {
+
+	private static final Map<String, Class<?>> primitiveTypes = new HashMap<>();
+	static final Map<Class<?>, Class<?>> wrappers = new HashMap<>();
+	static {
+		for (Class<?> type : Arrays.asList(double.class, int.class, long.class, boolean.class, char.class, float.class,
+				short.class, byte.class, void.class)) {
+			primitiveTypes.put(type.getName(), type);
+		}
+		wrappers.put(double.class, Double.class);
+		wrappers.put(int.class, Integer.class);
+		wrappers.put(long.class, Long.class);
+		wrappers.put(boolean.class, Boolean.class);
+		wrappers.put(char.class, Character.class);
+		wrappers.put(float.class, Float.class);
+		wrappers.put(short.class, Short.class);
+		wrappers.put(byte.class, Byte.class);
+	}
+
+	/**
+	 * Type of the null literal
+	 */
+	static final class Null {
+	}
+
+	/**
+	 * Type with type arguments, as written in the generated code (List&lt;String&gt;)
+	 */
+	static final class Generic implements ParameterizedType {
+		private final Class<?>	raw;
+		private final Type[]	args;
+
+		Generic(Class<?> raw, Type[] args) {
+			this.raw = raw;
+			this.args = args;
+		}
+
+		public Type getRawType()				{ return raw; }
+		public Type[] getActualTypeArguments()	{ return args.clone(); }
+		public Type getOwnerType()				{ return null; }
+
+		@Override
+		public String toString() {
+			List<String> names = new ArrayList<>();
+			for (Type arg : args) {
+				names.add(arg.getTypeName());
+			}
+			return raw.getName() + "<" + String.join(", ", names) + ">";
+		}
+	}
+
+	private final IRProgram						program;
+	private final String						backend;
+	private final Function<String, Type>		locals;
+	private final List<String>					imports		= new ArrayList<>(Arrays.asList("java.lang.*"));
+	private final Map<String, Class<?>>			classes		= new HashMap<>();
+	final Map<String, Type>						globals		= new HashMap<>();
+	private final Map<IRExpression, Type>		types		= new IdentityHashMap<>();
+	private final Map<IRExpression, Executable>	members		= new IdentityHashMap<>();
+	private final Map<String, Map<TypeVariable<?>, Type>> bindings = new HashMap<>();
+
+	/**
+	 * @param program
+	 * @param backend name of the backend, for the errors
+	 * @param locals type of a local of the function being lowered, null for the other names
+	 * @throws IllegalStateException if a global is not a declaration
+	 */
+	JavaTyping(IRProgram program, String backend, Function<String, Type> locals) {
+		this.program = program;
+		this.backend = backend;
+		this.locals = locals;
+		imports.addAll(program.imports);
+		for (IRInstruction global : program.globals) {
+			if (!(global instanceof Assign) || !((Assign) global).isDeclaration()) {
+				throw unsupported(global);
+			}
+			globals.put(((Assign) global).target, type(((Assign) global).type));
+		}
+	}
+
+	/**
+	 * Forgets the types found, that depend on the locals of the function
+	 */
+	void clear() {
+		types.clear();
+		members.clear();
+	}
+
+	// --------------------------------------------------------------------------
+	// Types
+
+	/**
+	 * @return the Java type of the expression
+	 */
+	Type typeOf(IRExpression expression) {
+		Type type = types.get(expression);
+		if (type == null && !types.containsKey(expression)) {
+			type = computeType(expression);
+			types.put(expression, type);
+		}
+		return type;
+	}
+
+	/**
+	 * @return the type of the expression, null for the name of a class
+	 */
+	private Type computeType(IRExpression expression) {
+		if (expression instanceof Literal) {
+			return literalType(((Literal) expression).text);
+		}
+		if (expression instanceof Name) {
+			String name = ((Name) expression).name;
+			Type local = locals.apply(name);
+			if (local != null) {
+				return local;
+			}
+			if (globals.containsKey(name)) {
+				return globals.get(name);
+			}
+			classNamed(name);
+			return null;
+		}
+		if (expression instanceof Binary) {
+			Binary binary = (Binary) expression;
+			if (binary.isShortCircuit() || isComparison(binary.op)) {
+				return boolean.class;
+			}
+			Type left = typeOf(binary.left);
+			Type right = typeOf(binary.right);
+			if (binary.op.equals("+") && (left == String.class || right == String.class)) {
+				return String.class;
+			}
+			return promotion(left, right);
+		}
+		if (expression instanceof Unary) {
+			Unary unary = (Unary) expression;
+			return unary.op.equals("!") ? boolean.class : promotion(typeOf(unary.operand), int.class);
+		}
+		if (expression instanceof Conditional) {
+			Conditional conditional = (Conditional) expression;
+			return conditionalType(typeOf(conditional.ifTrue), typeOf(conditional.ifFalse));
+		}
+		if (expression instanceof Cast) {
+			return type(((Cast) expression).type);
+		}
+		if (expression instanceof Call) {
+			Call call = (Call) expression;
+			if (isArrayClone(call)) {
+				return typeOf(call.target);
+			}
+			Executable member = resolve(call);
+			if (member == null) {
+				return type(program.getFunction(call.method).returnType);
+			}
+			Method method = (Method) member;
+			if (Modifier.isStatic(method.getModifiers())) {
+				return method.getReturnType();
+			}
+			return substitute(method.getGenericReturnType(), bindings(typeOf(call.target)));
+		}
+		if (expression instanceof Field) {
+			Field field = (Field) expression;
+			Type target = typeOf(field.target);
+			if (target == null) {
+				return staticField(field).getGenericType();
+			}
+			if (erasure(target).isArray() && field.field.equals("length")) {
+				return int.class;
+			}
+			throw unsupported(expression);
+		}
+		if (expression instanceof Index) {
+			Class<?> array = erasure(typeOf(((Index) expression).array));
+			if (!array.isArray()) {
+				throw unsupported(expression);
+			}
+			return array.getComponentType();
+		}
+		if (expression instanceof New) {
+			return type(((New) expression).type);
+		}
+		if (expression instanceof NewArray) {
+			return type(((NewArray) expression).type + "[]");
+		}
+		throw unsupported(expression);
+	}
+
+	/**
+	 * @return true for the clone of an array, that reflection does not find (it is public in the arrays, and gives the
+	 * type of the array)
+	 */
+	boolean isArrayClone(Call call) {
+		return call.method.equals("clone") && call.args.isEmpty() && call.target != null && typeOf(call.target) != null
+				&& erasure(typeOf(call.target)).isArray();
+	}
+
+	private static Type literalType(String text) {
+		if (text.startsWith("\"")) {
+			return String.class;
+		}
+		if (text.startsWith("'")) {
+			return char.class;
+		}
+		if (text.equals("true") || text.equals("false")) {
+			return boolean.class;
+		}
+		if (text.equals("null")) {
+			return Null.class;
+		}
+		if (text.endsWith("L") || text.endsWith("l")) {
+			return long.class;
+		}
+		if (text.endsWith("f") || text.endsWith("F")) {
+			throw new IllegalStateException("float literal " + text);
+		}
+		if (text.contains(".") || text.contains("e") || text.contains("E") || text.endsWith("d") || text.endsWith("D")
+				|| text.equals("Infinity") || text.equals("NaN")) {
+			return double.class;
+		}
+		return int.class;
+	}
+
+	/**
+	 * @return the type of a conditional expression (JLS 15.25)
+	 */
+	private static Type conditionalType(Type ifTrue, Type ifFalse) {
+		Class<?> first = erasure(ifTrue);
+		Class<?> second = erasure(ifFalse);
+		if (first == second) {
+			return ifTrue;
+		}
+		if (unboxed(first) == boolean.class && unboxed(second) == boolean.class) {
+			return boolean.class;
+		}
+		if (first == Null.class && second.isPrimitive()) {
+			return wrappers.get(second);
+		}
+		if (second == Null.class && first.isPrimitive()) {
+			return wrappers.get(first);
+		}
+		if (isNumeric(first) && isNumeric(second)) {
+			return promotion(first, second);
+		}
+		if (first == Null.class) {
+			return ifFalse;
+		}
+		if (second == Null.class || first.isAssignableFrom(second)) {
+			return ifTrue;
+		}
+		return second.isAssignableFrom(first) ? ifFalse : Object.class;
+	}
+
+	/**
+	 * @return the type of an arithmetic operation over the operands (binary numeric promotion)
+	 */
+	static Class<?> promotion(Type left, Type right) {
+		Class<?> first = unboxed(erasure(left));
+		Class<?> second = unboxed(erasure(right));
+		if (!isNumeric(first) || !isNumeric(second)) {
+			throw new IllegalStateException("operation over " + first.getName() + " and " + second.getName());
+		}
+		if (first == float.class || second == float.class) {
+			throw new IllegalStateException("float operation");
+		}
+		if (first == double.class || second == double.class) {
+			return double.class;
+		}
+		return first == long.class || second == long.class ? long.class : int.class;
+	}
+
+	/**
+	 * @param text type as written in the generated code
+	 */
+	Type type(String text) {
+		int[] pos = {0};
+		return parseType(text.replace(" ", ""), pos);
+	}
+
+	private Type parseType(String text, int[] pos) {
+		int start = pos[0];
+		while (pos[0] < text.length() && (Character.isJavaIdentifierPart(text.charAt(pos[0])) || text.charAt(pos[0]) == '.')) {
+			pos[0]++;
+		}
+		Class<?> raw = classNamed(text.substring(start, pos[0]));
+		Type type = raw;
+		if (pos[0] < text.length() && text.charAt(pos[0]) == '<') {
+			pos[0]++;
+			List<Type> args = new ArrayList<>();
+			while (text.charAt(pos[0]) != '>') {
+				if (text.charAt(pos[0]) == ',') {
+					pos[0]++;
+				}
+				if (text.charAt(pos[0]) == '?') {
+					pos[0]++;
+					args.add(Object.class);
+				}
+				else {
+					args.add(parseType(text, pos));
+				}
+			}
+			pos[0]++;
+			// the diamond is the raw type (the variable assigned has the type arguments)
+			type = args.isEmpty() ? raw : new Generic(raw, args.toArray(new Type[0]));
+		}
+		while (text.startsWith("[]", pos[0])) {
+			pos[0] += 2;
+			type = Array.newInstance(erasure(type), 0).getClass();
+		}
+		return type;
+	}
+
+	/**
+	 * @param name simple (imported) or qualified name of a class, or of a primitive type
+	 */
+	Class<?> classNamed(String name) {
+		if (primitiveTypes.containsKey(name)) {
+			return primitiveTypes.get(name);
+		}
+		Class<?> found = classes.get(name);
+		if (found != null) {
+			return found;
+		}
+		String outer = name.contains(".") ? name.substring(0, name.indexOf('.')) : name;
+		String nested = name.contains(".") ? name.substring(name.indexOf('.')).replace('.', '$') : "";
+		List<String> candidates = new ArrayList<>();
+		for (String imported : imports) {
+			String prefix = imported.substring(0, imported.length() - 2);
+			if (imported.endsWith(".*")) {
+				candidates.add(prefix + "." + outer + nested);
+				candidates.add(prefix + "$" + outer + nested);
+			}
+			else if (imported.endsWith("." + outer)) {
+				candidates.add(imported + nested);
+			}
+		}
+		candidates.add(name);
+		for (String candidate : candidates) {
+			try {
+				found = Class.forName(candidate, false, JavaTyping.class.getClassLoader());
+				classes.put(name, found);
+				return found;
+			}
+			catch (ClassNotFoundException e) {
+				// next import
+			}
+		}
+		throw new IllegalStateException("unknown class " + name);
+	}
+
+	static Class<?> erasure(Type type) {
+		if (type instanceof Class) {
+			return (Class<?>) type;
+		}
+		if (type instanceof ParameterizedType) {
+			return (Class<?>) ((ParameterizedType) type).getRawType();
+		}
+		if (type instanceof TypeVariable) {
+			return erasure(((TypeVariable<?>) type).getBounds()[0]);
+		}
+		if (type instanceof WildcardType) {
+			return erasure(((WildcardType) type).getUpperBounds()[0]);
+		}
+		if (type instanceof GenericArrayType) {
+			return Array.newInstance(erasure(((GenericArrayType) type).getGenericComponentType()), 0).getClass();
+		}
+		throw new IllegalStateException("type " + type);
+	}
+
+	/**
+	 * @return the type arguments of the type and of its supertypes (E of Collection&lt;E&gt; for a List&lt;String&gt;)
+	 */
+	private Map<TypeVariable<?>, Type> bindings(Type type) {
+		Map<TypeVariable<?>, Type> found = bindings.get(type.getTypeName());
+		if (found == null) {
+			found = new HashMap<>();
+			bind(type, found);
+			bindings.put(type.getTypeName(), found);
+		}
+		return found;
+	}
+
+	private static void bind(Type type, Map<TypeVariable<?>, Type> bindings) {
+		Class<?> raw = erasure(type);
+		if (type instanceof ParameterizedType) {
+			TypeVariable<?>[] parameters = raw.getTypeParameters();
+			Type[] args = ((ParameterizedType) type).getActualTypeArguments();
+			for (int i = 0; i < parameters.length && i < args.length; i++) {
+				bindings.putIfAbsent(parameters[i], args[i]);
+			}
+		}
+		List<Type> supertypes = new ArrayList<>(Arrays.asList(raw.getGenericInterfaces()));
+		if (raw.getGenericSuperclass() != null) {
+			supertypes.add(raw.getGenericSuperclass());
+		}
+		for (Type supertype : supertypes) {
+			bind(substitute(supertype, bindings), bindings);
+		}
+	}
+
+	/**
+	 * @return the type with the type variables bound replaced (and the other ones erased)
+	 */
+	private static Type substitute(Type type, Map<TypeVariable<?>, Type> bindings) {
+		if (type instanceof TypeVariable) {
+			Type bound = bindings.get(type);
+			return bound != null ? bound : erasure(type);
+		}
+		if (type instanceof ParameterizedType) {
+			Type[] args = ((ParameterizedType) type).getActualTypeArguments();
+			for (int i = 0; i < args.length; i++) {
+				args[i] = substitute(args[i], bindings);
+			}
+			return new Generic(erasure(type), args);
+		}
+		if (type instanceof WildcardType) {
+			return substitute(((WildcardType) type).getUpperBounds()[0], bindings);
+		}
+		if (type instanceof GenericArrayType) {
+			return Array.newInstance(erasure(substitute(((GenericArrayType) type).getGenericComponentType(), bindings)), 0).getClass();
+		}
+		return type;
+	}
+
+	// --------------------------------------------------------------------------
+	// Members
+
+	/**
+	 * @return the method called, null for the functions of the program
+	 */
+	Executable resolve(Call call) {
+		if (members.containsKey(call)) {
+			return members.get(call);
+		}
+		Executable member = null;
+		if (call.target == null) {
+			if (program.getFunction(call.method) == null) {
+				throw unsupported(call);
+			}
+		}
+		else {
+			Type target = typeOf(call.target);
+			boolean isStatic = target == null;
+			Class<?> owner = isStatic ? classNamed(((Name) call.target).name) : erasure(target);
+			if (owner.isPrimitive()) {
+				throw unsupported(call);
+			}
+			List<Executable> candidates = new ArrayList<>();
+			List<Method> methods = new ArrayList<>(Arrays.asList(owner.getMethods()));
+			if (owner.isInterface()) {
+				methods.addAll(Arrays.asList(Object.class.getMethods()));
+			}
+			for (Method method : methods) {
+				if (method.getName().equals(call.method) && Modifier.isStatic(method.getModifiers()) == isStatic) {
+					candidates.add(method);
+				}
+			}
+			member = choose(candidates, call.args, call);
+		}
+		members.put(call, member);
+		return member;
+	}
+
+	Executable resolve(New creation) {
+		Executable member = members.get(creation);
+		if (member == null) {
+			Class<?> type = erasure(typeOf(creation));
+			if (type.isArray() || type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+				throw unsupported(creation);
+			}
+			member = choose(new ArrayList<>(Arrays.asList(type.getConstructors())), creation.args, creation);
+			members.put(creation, member);
+		}
+		return member;
+	}
+
+	/**
+	 * @return the most specific of the methods applicable to the arguments: first without boxing, then with it
+	 */
+	private Executable choose(List<Executable> candidates, List<IRExpression> args, IRExpression expression) {
+		List<Type> argTypes = new ArrayList<>();
+		for (IRExpression arg : args) {
+			argTypes.add(typeOf(arg));
+		}
+		for (boolean boxing : new boolean[] {false, true}) {
+			List<Executable> applicable = new ArrayList<>();
+			for (Executable candidate : candidates) {
+				if (candidate.getParameterCount() == args.size() && isApplicable(candidate.getParameterTypes(), argTypes, boxing)) {
+					applicable.add(candidate);
+				}
+			}
+			Executable chosen = null;
+			for (Executable candidate : applicable) {
+				if (chosen == null || isMoreSpecific(candidate, chosen)) {
+					chosen = candidate;
+				}
+			}
+			if (chosen != null) {
+				return chosen;
+			}
+		}
+		throw unsupported(expression);
+	}
+
+	private static boolean isApplicable(Class<?>[] parameters, List<Type> args, boolean boxing) {
+		for (int i = 0; i < parameters.length; i++) {
+			if (!isAssignable(erasure(args.get(i)), parameters[i], boxing)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return true if candidate takes the parameters of other (and is not the same signature of a less specific class)
+	 */
+	private static boolean isMoreSpecific(Executable candidate, Executable other) {
+		Class<?>[] parameters = candidate.getParameterTypes();
+		Class<?>[] otherParameters = other.getParameterTypes();
+		if (Arrays.equals(parameters, otherParameters)) {
+			// the same method seen from the class and from a supertype: the one with the most specific result
+			return candidate instanceof Method && !((Method) candidate).isBridge()
+					&& ((Method) other).getReturnType().isAssignableFrom(((Method) candidate).getReturnType())
+					&& ((Method) other).getReturnType() != ((Method) candidate).getReturnType();
+		}
+		for (int i = 0; i < parameters.length; i++) {
+			if (!isAssignable(parameters[i], otherParameters[i], false)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	static boolean isAssignable(Class<?> from, Class<?> to, boolean boxing) {
+		if (from == Null.class) {
+			return !to.isPrimitive();
+		}
+		if (from.isPrimitive() && to.isPrimitive()) {
+			return isWidening(from, to);
+		}
+		if (!from.isPrimitive() && !to.isPrimitive()) {
+			return to.isAssignableFrom(from);
+		}
+		if (!boxing) {
+			return false;
+		}
+		return from.isPrimitive() ? to.isAssignableFrom(wrappers.get(from)) : isWidening(unboxed(from), to);
+	}
+
+	private static boolean isWidening(Class<?> from, Class<?> to) {
+		List<Class<?>> order = Arrays.asList(byte.class, short.class, int.class, long.class, float.class, double.class);
+		if (from == to) {
+			return true;
+		}
+		if (from == char.class) {
+			return order.indexOf(to) >= order.indexOf(int.class);
+		}
+		return order.contains(from) && order.indexOf(to) > order.indexOf(from) && !(from == byte.class && to == char.class);
+	}
+
+	java.lang.reflect.Field staticField(Field field) {
+		try {
+			java.lang.reflect.Field member = classNamed(((Name) field.target).name).getField(field.field);
+			if (!Modifier.isStatic(member.getModifiers())) {
+				throw unsupported(field);
+			}
+			return member;
+		}
+		catch (NoSuchFieldException e) {
+			throw unsupported(field);
+		}
+	}
+
+	// --------------------------------------------------------------------------
+	// Helpers
+
+	static boolean isComparison(String op) {
+		return Binary.precedence(op) == 9 || Binary.precedence(op) == 8;
+	}
+
+	static boolean isPrimitive(Type type) {
+		return type instanceof Class && ((Class<?>) type).isPrimitive();
+	}
+
+	static boolean isNumeric(Class<?> type) {
+		Class<?> primitive = unboxed(type);
+		return primitive.isPrimitive() && primitive != boolean.class && primitive != void.class;
+	}
+
+	/**
+	 * @return the primitive type of a wrapper, or the type
+	 */
+	static Class<?> unboxed(Type type) {
+		Class<?> kind = erasure(type);
+		for (Map.Entry<Class<?>, Class<?>> wrapper : wrappers.entrySet()) {
+			if (wrapper.getValue() == kind) {
+				return wrapper.getKey();
+			}
+		}
+		return kind;
+	}
+
+	static boolean isLiteral(IRExpression expression, String text) {
+		return expression instanceof Literal && ((Literal) expression).text.equals(text);
+	}
+
+	/**
+	 * @return the text of a Java string or char literal (without the quotes) with its escapes replaced
+	 */
+	static String unescape(String text) {
+		StringBuilder value = new StringBuilder();
+		for (int i = 0; i < text.length(); i++) {
+			char c = text.charAt(i);
+			if (c != '\\') {
+				value.append(c);
+				continue;
+			}
+			c = text.charAt(++i);
+			switch (c) {
+			case 'n':	value.append('\n'); break;
+			case 't':	value.append('\t'); break;
+			case 'r':	value.append('\r'); break;
+			case 'b':	value.append('\b'); break;
+			case 'f':	value.append('\f'); break;
+			case 's':	value.append(' '); break;
+			case 'u':
+				while (text.charAt(i) == 'u') {
+					i++;
+				}
+				value.append((char) Integer.parseInt(text.substring(i, i + 4), 16));
+				i += 3;
+				break;
+			default:
+				if (c >= '0' && c <= '7') {
+					int end = i;
+					while (end < text.length() && end < i + (c <= '3' ? 3 : 2) && text.charAt(end) >= '0' && text.charAt(end) <= '7') {
+						end++;
+					}
+					value.append((char) Integer.parseInt(text.substring(i, end), 8));
+					i = end - 1;
+				}
+				else {
+					value.append(c);	// \" \' \\
+				}
+			}
+		}
+		return value.toString();
+	}
+
+	IllegalStateException unsupported(Object code) {
+		return new IllegalStateException("code not supported by the " + backend + ": " + code);
+	}
+
+}
@@ -0,0 +1,131 @@
+package compiler.ir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+
+/**
+ * <b>JavaWriter</b><p>
+ *
+ * Buffered writer of the generated code, that indents the lines with tabs.<p>
+ * The code is written to the output each time the buffer fills, so the class is never held whole in memory; without
+ * output the writer keeps all the code, given by {@link #toString()}. The errors of the output are thrown unchecked,
+ * so the code can be written in chained appends.
+ */
+public class JavaWriter extends Writer {
+
+	// characters kept before writing them to the output
+	private static final int BUFFER_SIZE = 8192;
+
+	private final Writer		out;
+	private final StringBuilder	buffer = new StringBuilder();
+
+	/**
+	 * @param out where the code is written
+	 */
+	public JavaWriter(Writer out) {
+		this.out = out;
+	}
+
+	/**
+	 * Writer that keeps the code in memory
+	 */
+	public JavaWriter() {
+		this(null);
+	}
+
+	/**
+	 * Writes the tabs of the indentation
+	 * @param depth
+	 */
+	public JavaWriter indent(int depth) {
+		for (int i = 0; i < depth; i++) {
+			buffer.append('\t');
+		}
+		return this;
+	}
+
+	@Override
+	public JavaWriter append(CharSequence text) {
+		buffer.append(text);
+		drain();
+		return this;
+	}
+
+	@Override
+	public JavaWriter append(char c) {
+		buffer.append(c);
+		return this;
+	}
+
+	@Override
+	public void write(char[] chars, int offset, int length) {
+		buffer.append(chars, offset, length);
+		drain();
+	}
+
+	@Override
+	public void write(String text, int offset, int length) {
+		buffer.append(text, offset, offset + length);
+		drain();
+	}
+
+	@Override
+	public void write(int c) {
+		buffer.append((char) c);
+	}
+
+	@Override
+	public void flush() {
+		if (out == null) {
+			return;
+		}
+		try {
+			out.append(buffer);
+			buffer.setLength(0);
+			out.flush();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void close() {
+		if (out == null) {
+			return;
+		}
+		flush();
+		try {
+			out.close();
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return the code not written to the output yet (all the code, for a writer without output)
+	 */
+	@Override
+	public String toString() {
+		return buffer.toString();
+	}
+
+	/**
+	 * Writes the buffer to the output when it is full
+	 */
+	private void drain() {
+		if (out == null || buffer.length() < BUFFER_SIZE) {
+			return;
+		}
+		try {
+			out.append(buffer);
+			buffer.setLength(0);
+		}
+		catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+}
@@ -0,0 +1,78 @@
+package compiler.ir;
+
+import java.util.List;
+import java.util.Map;
+
+import compiler.ir.IRExpression.*;
+import compiler.ir.IRInstruction.*;
+
+/**
+ * <b>LoopHeaders</b><p>
+ *
+ * Pass that moves the condition of the loops into their header. The compiler computes the condition of a loop before
+ * it and again at the end of its body (boolean c = E; while (c) { ... c = E; }); when both are the same expression
+ * (after the temporaries are inlined) and c is not used elsewhere, the loop becomes while (E) { ... }.<p>
+ * The declarations between the condition and the loop are moved across it only if they and the condition are pure.
+ */
+public class LoopHeaders implements IRPass {
+
+	@Override
+	public String getName() {
+		return "loop-headers";
+	}
+
+	@Override
+	public void run(IRProgram program) {
+		Map<String, Integer> occurrences = IRProgram.countNames(program.allBlocks());
+		for (List<IRInstruction> block : program.allBlocks()) {
+			if (block != program.globals) {
+				for (int i = 0; i < block.size(); i++) {
+					if (block.get(i) instanceof Loop && moveCondition(block, i, occurrences)) {
+						i--;
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param index of the loop in the block
+	 * @return true if the condition was moved (its declaration is removed from the block)
+	 */
+	private static boolean moveCondition(List<IRInstruction> block, int index, Map<String, Integer> occurrences) {
+		Loop loop = (Loop) block.get(index);
+		if (loop.init != null || loop.update != null || !(loop.condition instanceof Name) || loop.body.isEmpty()) {
+			return false;
+		}
+		String condition = ((Name) loop.condition).name;
+		IRInstruction last = loop.body.get(loop.body.size()-1);
+		if (occurrences.getOrDefault(condition, 0) != 3 || !(last instanceof Assign) || !((Assign) last).target.equals(condition)
+				|| ((Assign) last).isDeclaration()) {
+			return false;
+		}
+		IRExpression value = ((Assign) last).value;
+
+		// the declaration of the condition, before the loop or before pure declarations
+		for (int i = index-1; i >= 0; i--) {
+			if (!(block.get(i) instanceof Assign)) {
+				return false;
+			}
+			Assign assign = (Assign) block.get(i);
+			if (assign.target.equals(condition)) {
+				if (!assign.isDeclaration() || !assign.modifiers.isEmpty() || assign.value == null
+						|| !assign.value.toString().equals(value.toString())) {
+					return false;
+				}
+				loop.condition = value;
+				loop.body.remove(loop.body.size()-1);
+				block.remove(i);
+				return true;
+			}
+			if (!assign.isDeclaration() || assign.value == null || !assign.value.isPure() || !value.isPure()) {
+				return false;
+			}
+		}
+		return false;
+	}
+
+}
@@ -0,0 +1,101 @@
+package compiler.ir;
+
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * <b>PassManager</b><p>
+ *
+ * Runs the passes over the intermediate representation, in the order they were added, timing each of them.<p>
+ * If a dump is set, the IR is written to it as built and after every pass.
+ */
+public class PassManager {
+
+	private final List<IRPass>		passes	= new ArrayList<>();
+	private final Map<String, Long>	timings	= new LinkedHashMap<>(); // pass name -> nanoseconds
+	private PrintWriter				dump	= null;
+
+	/**
+	 * @return a pass manager with the passes run on every program
+	 */
+	public static PassManager standardPasses() {
+		PassManager passManager = new PassManager();
+		passManager.add(new InlineFunctions());
+		passManager.add(new RemoveUnreachable());
+		passManager.add(new PromoteGlobals());
+		passManager.add(new FoldConstants());
+		passManager.add(new ExpandPowers());
+		passManager.add(new CommonSubexpressions());
+		passManager.add(new HoistInvariants());
+		passManager.add(new DeadTemporaries());
+		passManager.add(new InlineTemporaries());
+		// again, for the globals whose value at the start of main is only known once the temporaries are inlined
+		passManager.add(new PromoteGlobals());
+		passManager.add(new LoopHeaders());
+		passManager.add(new InductionVariables());
+		passManager.add(new SplitMethods());
+		return passManager;
+	}
+
+	public void add(IRPass pass) {
+		passes.add(pass);
+	}
+
+	/**
+	 * @param dump writer for the IR dump, or null for none
+	 */
+	public void setDump(PrintWriter dump) {
+		this.dump = dump;
+	}
+
+	/**
+	 * Runs all the passes over the program
+	 * @param program
+	 */
+	public void run(IRProgram program) {
+		dump(program, "built");
+		for (IRPass pass : passes) {
+			long start = System.nanoTime();
+			pass.run(program);
+			long time = System.nanoTime() - start;
+			timings.merge(pass.getName(), time, Long::sum);
+			dump(program, "after " + pass.getName() + " (" + milliseconds(time) + ")");
+		}
+	}
+
+	/**
+	 * @return the time taken by each pass, in nanoseconds
+	 */
+	public Map<String, Long> getTimings() {
+		return timings;
+	}
+
+	/**
+	 * @return the time taken by each pass, as text ("pass 0.42 ms, ...")
+	 */
+	public String timingsReport() {
+		List<String> report = new ArrayList<>();
+		for (Map.Entry<String, Long> timing : timings.entrySet()) {
+			report.add(timing.getKey() + " " + milliseconds(timing.getValue()));
+		}
+		return String.join(", ", report);
+	}
+
+	private void dump(IRProgram program, String title) {
+		if (dump != null) {
+			dump.println("// ---- " + title + " ----");
+			dump.println(JavaLowering.dump(program));
+			dump.println();
+			dump.flush();
+		}
+	}
+
+	private static String milliseconds(long nanoseconds) {
+		return String.format(Locale.ROOT, "%.3f ms", nanoseconds / 1e6);
+	}
+
+}
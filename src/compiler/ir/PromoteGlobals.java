@@ -0,0 +1,212 @@
+package compiler.ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import compiler.ir.IRExpression.*;
+import compiler.ir.IRInstruction.*;
+
+/**
+ * <b>PromoteGlobals</b><p>
+ *
+ * Pass that turns the global variables (static fields) into locals of main when no other function uses them, so the
+ * JIT can keep them in registers instead of writing the field on every assignment.<p>
+ * The globals the other functions read stay fields, and are made final when main assigns them once, at its start,
+ * with a value known before main runs: the assignment becomes the initializer of the field.
+ */
+public class PromoteGlobals implements IRPass {
+
+	@Override
+	public String getName() {
+		return "promote-globals";
+	}
+
+	@Override
+	public void run(IRProgram program) {
+		IRFunction main = program.getFunction("main");
+		if (main == null) {
+			return;
+		}
+
+		Set<String> functionNames = new HashSet<>();
+		for (IRFunction function : program.functions) {
+			functionNames.add(function.name);
+		}
+		Set<String> programNames = new HashSet<>(functionNames);
+		for (IRInstruction global : program.globals) {
+			if (global instanceof Assign) {
+				programNames.add(((Assign) global).target);
+			}
+		}
+
+		List<IRInstruction> locals = new ArrayList<>();
+		Set<String> finals = new HashSet<>();
+		for (IRInstruction instruction : new ArrayList<>(program.globals)) {
+			if (!(instruction instanceof Assign)) {
+				continue;
+			}
+			Assign global = (Assign) instruction;
+			if (!isKnownBeforeMain(global.value, programNames, finals)) {
+				continue;
+			}
+
+			// only main uses the global -> local of main
+			if (!usedOutsideMain(program, global.target)) {
+				program.globals.remove(global);
+				Assign first = firstAssignment(main, global.target, null);
+				if (first != null && (global.value == null || !global.value.writes())) {
+					// the first assignment declares the local (the value of the field is never read)
+					first.modifiers = "";
+					first.type = global.type;
+					first.declaredType = global.type;
+				}
+				else {
+					Assign local = new Assign("", global.type, global.target, global.value != null ? global.value : defaultValue(global.type));
+					local.unit = global.unit;
+					locals.add(local);
+				}
+			}
+
+			// assigned once at the start of main -> final field, initialized with the value
+			else {
+				Assign assignment = initialization(program, main, global, functionNames, programNames, finals);
+				if (assignment != null) {
+					main.body.remove(assignment);
+					global.modifiers = global.modifiers.isEmpty() ? "final" : global.modifiers + " final";
+					global.value = assignment.value;
+					finals.add(global.target);
+				}
+			}
+		}
+		main.body.addAll(0, locals);
+	}
+
+	/**
+	 * @return the assignment of the global in main that can be its initializer, or null: it must be the only assignment
+	 * of the global, at the start of main (no statement before it uses the global or calls a function of the program),
+	 * and its value must be known before main runs
+	 */
+	private static Assign initialization(IRProgram program, IRFunction main, Assign global, Set<String> functionNames,
+			Set<String> programNames, Set<String> finals) {
+		// the declaration of the field and the assignment in main
+		if (assignments(program, global.target) != 2) {
+			return null;
+		}
+		Assign assignment = firstAssignment(main, global.target, functionNames);
+		if (assignment == null || assignment.value == null || !isKnownBeforeMain(assignment.value, programNames, finals)) {
+			return null;
+		}
+		// the initializer of the field can not read the locals of main
+		boolean[] locals = {false};
+		assignment.value.forEach(e -> locals[0] |= e instanceof Name && !finals.contains(((Name) e).name));
+		return locals[0] ? null : assignment;
+	}
+
+	/**
+	 * @param stops names that can not be used before the assignment (besides the global), or null
+	 * @return the statement of main that assigns the global before any other statement uses it, or null
+	 */
+	private static Assign firstAssignment(IRFunction main, String global, Set<String> stops) {
+		for (IRInstruction instruction : main.body) {
+			if (instruction instanceof Assign && ((Assign) instruction).target.equals(global)) {
+				Assign assignment = (Assign) instruction;
+				List<String> names = new ArrayList<>();
+				if (assignment.value != null) {
+					assignment.value.collectNames(names);
+				}
+				return names.contains(global) ? null : assignment;
+			}
+			List<String> names = names(instruction);
+			if (names.contains(global) || (stops != null && names.stream().anyMatch(stops::contains))) {
+				return null;
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return true if the value does not depend on the program (only on literals and final globals), so it is the same
+	 * computed in main or before it
+	 */
+	private static boolean isKnownBeforeMain(IRExpression value, Set<String> programNames, Set<String> finals) {
+		if (value == null) {
+			return true;
+		}
+		List<String> names = new ArrayList<>();
+		value.collectNames(names);
+		for (String name : names) {
+			if (programNames.contains(name) && !finals.contains(name)) {
+				return false;
+			}
+		}
+		boolean[] calls = {false};
+		value.forEach(e -> calls[0] |= e instanceof Call && ((Call) e).target == null);
+		return !calls[0];
+	}
+
+	/**
+	 * @return number of assignments of the global (its declaration included)
+	 */
+	private static int assignments(IRProgram program, String global) {
+		int assignments = 0;
+		for (List<IRInstruction> block : program.allBlocks()) {
+			for (IRInstruction instruction : block) {
+				if (instruction instanceof Assign && ((Assign) instruction).target.equals(global)) {
+					assignments++;
+				}
+				if (instruction instanceof Loop) {
+					for (IRInstruction header : Arrays.asList(((Loop) instruction).init, ((Loop) instruction).update)) {
+						if (header instanceof Assign && ((Assign) header).target.equals(global)) {
+							assignments++;
+						}
+					}
+				}
+			}
+		}
+		return assignments;
+	}
+
+	private static boolean usedOutsideMain(IRProgram program, String global) {
+		for (IRFunction function : program.functions) {
+			if (!function.isMain()) {
+				Map<String, Integer> occurrences = IRProgram.countNames(IRProgram.nestedBlocks(Arrays.asList(function.body)));
+				if (occurrences.containsKey(global)) {
+					return true;
+				}
+			}
+		}
+		for (IRInstruction other : program.globals) {
+			if (!(other instanceof Assign && ((Assign) other).target.equals(global)) && names(other).contains(global)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static List<String> names(IRInstruction instruction) {
+		List<String> names = new ArrayList<>();
+		instruction.collectNames(names);
+		for (List<IRInstruction> block : IRProgram.nestedBlocks(instruction.blocks())) {
+			for (IRInstruction nested : block) {
+				nested.collectNames(names);
+			}
+		}
+		return names;
+	}
+
+	/**
+	 * @return the value of a field of the type not initialized
+	 */
+	private static IRExpression defaultValue(String type) {
+		switch (type) {
+		case "double":	return new Literal("0.0");
+		case "boolean":	return new Literal("false");
+		default:		return new Literal("null");
+		}
+	}
+
+}
@@ -0,0 +1,164 @@
+package compiler.ir;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import compiler.ir.IRExpression.*;
+import compiler.ir.IRInstruction.*;
+
+/**
+ * <b>RemoveUnreachable</b><p>
+ *
+ * Pass that keeps in the class only the functions reachable from main (following the calls) and the globals
+ * whose value is read by them. Globals initialized with side effects are always kept, and so is what they read.
+ * The assignments of the globals removed are removed too (or reduced to the call that computes the value).
+ */
+public class RemoveUnreachable implements IRPass {
+
+	@Override
+	public String getName() {
+		return "remove-unreachable";
+	}
+
+	@Override
+	public void run(IRProgram program) {
+
+		Map<String, IRFunction> functions = new HashMap<>();
+		for (IRFunction function : program.functions) {
+			functions.put(function.name, function);
+		}
+		Map<String, IRInstruction> globals = new HashMap<>();
+		for (IRInstruction global : program.globals) {
+			if (global instanceof Assign) {
+				globals.put(((Assign) global).target, global);
+			}
+		}
+
+		Set<String> reachable = new HashSet<>();
+		Set<String> live = new HashSet<>();
+		while (true) {
+			reachable.clear();
+			live.clear();
+
+			// roots: main, globals with side effects and the globals the IR does not represent
+			Deque<String> toVisit = new ArrayDeque<>();
+			toVisit.add("main");
+			for (IRInstruction global : program.globals) {
+				if (!(global instanceof Assign) || hasSideEffects((Assign) global)) {
+					toVisit.addAll(reads(global));
+					if (global instanceof Assign) {
+						live.add(((Assign) global).target);
+					}
+				}
+			}
+
+			while (!toVisit.isEmpty()) {
+				String name = toVisit.pop();
+				if (functions.containsKey(name) && reachable.add(name)) {
+					for (List<IRInstruction> block : IRProgram.nestedBlocks(Arrays.asList(functions.get(name).body))) {
+						for (IRInstruction instruction : block) {
+							toVisit.addAll(reads(instruction));
+						}
+					}
+				}
+				else if (globals.containsKey(name) && live.add(name)) {
+					toVisit.addAll(reads(globals.get(name)));
+				}
+			}
+
+			// assignments of dead globals that can not be removed make them live
+			if (removeAssignments(program, reachable, globals.keySet(), live, false)) {
+				removeAssignments(program, reachable, globals.keySet(), live, true);
+				break;
+			}
+		}
+
+		program.functions.removeIf(function -> !reachable.contains(function.name));
+		program.globals.removeIf(global -> global instanceof Assign && !live.contains(((Assign) global).target));
+	}
+
+	/**
+	 * Removes the assignments of the globals that are not live from the reachable functions
+	 * @param apply false to only check that all of them can be removed
+	 * @return false if an assignment can not be removed (its global was made live)
+	 */
+	private static boolean removeAssignments(IRProgram program, Set<String> reachable, Set<String> globals, Set<String> live, boolean apply) {
+		List<List<IRInstruction>> bodies = new ArrayList<>();
+		for (IRFunction function : program.functions) {
+			if (reachable.contains(function.name)) {
+				bodies.add(function.body);
+			}
+		}
+		for (List<IRInstruction> block : IRProgram.nestedBlocks(bodies)) {
+			for (int i = 0; i < block.size(); i++) {
+				IRInstruction instruction = block.get(i);
+				if (instruction instanceof Loop && ((Loop) instruction).update instanceof Assign) {
+					Assign update = (Assign) ((Loop) instruction).update;
+					if (globals.contains(update.target) && !live.contains(update.target)) {
+						live.add(update.target);
+						return false;
+					}
+				}
+				if (!(instruction instanceof Assign)) {
+					continue;
+				}
+				Assign assign = (Assign) instruction;
+				if (assign.isDeclaration() || !globals.contains(assign.target) || live.contains(assign.target)) {
+					continue;
+				}
+				if (assign.value == null || !assign.value.writes()) {
+					if (apply) {
+						block.remove(i--);
+					}
+				}
+				else if (assign.value instanceof Call) {
+					if (apply) {
+						block.set(i, new Eval(assign.value));
+					}
+				}
+				else {
+					live.add(assign.target);
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	private static boolean hasSideEffects(Assign global) {
+		return global.value != null && global.value.writes();
+	}
+
+	/**
+	 * @return the names read by the instruction (the variable assigned is not read)
+	 */
+	private static List<String> reads(IRInstruction instruction) {
+		List<String> names = new ArrayList<>();
+		if (instruction instanceof Assign) {
+			if (((Assign) instruction).value != null) {
+				((Assign) instruction).value.collectNames(names);
+			}
+		}
+		else if (instruction instanceof Loop) {
+			if (((Loop) instruction).init != null) {
+				names.addAll(reads(((Loop) instruction).init));
+			}
+			((Loop) instruction).condition.collectNames(names);
+			if (((Loop) instruction).update != null) {
+				names.addAll(reads(((Loop) instruction).update));
+			}
+		}
+		else {
+			instruction.collectNames(names);
+		}
+		return names;
+	}
+
+}
@@ -0,0 +1,391 @@
+package compiler.ir;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import compiler.ir.IRExpression.*;
+import compiler.ir.IRInstruction.*;
+
+/**
+ * <b>SplitMethods</b><p>
+ *
+ * Pass that keeps the generated methods small enough to be compiled by the JIT. HotSpot does not compile
+ * methods with more than 8000 bytes of bytecode (HugeMethodLimit), and javac rejects the ones with more than 64 KB:
+ * with one temporary per subexpression, the main of a long script easily passes both.<p>
+ * The bytecode of each method is estimated from its instructions. The methods over the limit get their statements
+ * moved, in consecutive runs, to private static methods called in their place (the bodies of the loops and the
+ * branches too large to move are split the same way, and the long chains of conditions are nested in pieces that fit
+ * in a method). The locals a run reads are passed as arguments, and the one local it leaves for the statements after
+ * it (at most one) is returned. The methods still over the limit are reported in the warnings of the program.
+ */
+public class SplitMethods implements IRPass {
+
+	// estimated bytecode size of the methods split, and of the methods created
+	private static final int HUGE_METHOD_LIMIT	= 8000;
+	private static final int PART_SIZE			= 4000;
+	// smallest run of statements moved to a method (smaller ones are not worth the call)
+	private static final int MIN_PART_SIZE		= 64;
+	// locals passed to a method (a method has at most 255 slots of parameters, doubles take two)
+	private static final int MAX_PARAMETERS		= 100;
+
+	private IRProgram			program;
+	private IRFunction			function;
+	private Map<String, String>	types;			// local -> declared type (null if unknown)
+	private Set<String>			uninitialized;	// locals declared without value
+	private Map<String, Integer>	occurrences;	// name -> occurrences in the function
+
+	@Override
+	public String getName() {
+		return "split-methods";
+	}
+
+	@Override
+	public void run(IRProgram program) {
+		this.program = program;
+		for (IRFunction function : new ArrayList<>(program.functions)) {
+			if (size(function.body) > HUGE_METHOD_LIMIT) {
+				split(function);
+				if (size(function.body) > HUGE_METHOD_LIMIT) {
+					program.warnings.add("method " + function.name + " is still over " + HUGE_METHOD_LIMIT
+							+ " bytes of bytecode after its split (about " + size(function.body) + "), the JIT will not compile it");
+				}
+			}
+		}
+	}
+
+	private void split(IRFunction function) {
+		this.function = function;
+		types = new HashMap<>();
+		uninitialized = new HashSet<>();
+		for (int i = 0; i < function.params.size(); i++) {
+			types.put(function.params.get(i), function.paramTypes.get(i));
+		}
+		for (List<IRInstruction> block : IRProgram.nestedBlocks(Arrays.asList(function.body))) {
+			for (IRInstruction instruction : block) {
+				if (instruction instanceof Loop && ((Loop) instruction).init instanceof Assign) {
+					Assign declaration = (Assign) ((Loop) instruction).init;
+					types.put(declaration.target, declaration.type);
+				}
+				if (instruction instanceof Assign && ((Assign) instruction).isDeclaration()) {
+					Assign declaration = (Assign) instruction;
+					types.put(declaration.target, declaration.type);
+					if (declaration.value == null) {
+						uninitialized.add(declaration.target);
+					}
+				}
+			}
+		}
+		occurrences = IRProgram.countNames(IRProgram.nestedBlocks(Arrays.asList(function.body)));
+		splitBlock(function.body);
+	}
+
+	/**
+	 * Moves the runs of statements of the block to new methods
+	 */
+	private void splitBlock(List<IRInstruction> block) {
+		for (int i = 0; i < block.size(); i++) {
+
+			// a statement too large to move alone is split inside (and moved, if it fits in a method after that)
+			if (size(block.get(i)) > PART_SIZE) {
+				if (block.get(i) instanceof If) {
+					splitChain((If) block.get(i));
+				}
+				for (List<IRInstruction> nested : block.get(i).blocks()) {
+					splitBlock(nested);
+				}
+				if (size(block.get(i)) > PART_SIZE) {
+					continue;
+				}
+			}
+
+			// longest run of statements that fits in a method and can be moved
+			Part part = new Part();
+			int end = -1;
+			for (int j = i; j < block.size() && part.size + size(block.get(j)) <= PART_SIZE; j++) {
+				part.add(block.get(j));
+				if (part.size >= MIN_PART_SIZE && part.canMove()) {
+					end = j + 1;
+				}
+			}
+			if (end > 0) {
+				Part longest = new Part();
+				for (IRInstruction instruction : block.subList(i, end)) {
+					longest.add(instruction);
+				}
+				outline(block, i, end, longest);
+			}
+		}
+	}
+
+	/**
+	 * Nests the branches of a chain of conditions too large for a method in its last else, from the first branch over
+	 * half a method (if (a) ... else if (b) ... else { if (c) ... else if (d) ... }): the chain nested is split the
+	 * same way, and each piece, with the call to the method of the piece nested in it, can be moved to a method
+	 */
+	private void splitChain(If chain) {
+		int size = 0;
+		for (int i = 0; i < chain.branches.size(); i++) {
+			IRExpression condition = chain.conditions.get(i);
+			size += 6 + (condition == null ? 0 : size(condition)) + size(chain.branches.get(i));
+			if (size > PART_SIZE / 2 && i > 0 && condition != null) {
+				If rest = new If();
+				rest.conditions.addAll(chain.conditions.subList(i, chain.conditions.size()));
+				rest.branches.addAll(chain.branches.subList(i, chain.branches.size()));
+				chain.conditions.subList(i, chain.conditions.size()).clear();
+				chain.branches.subList(i, chain.branches.size()).clear();
+				chain.conditions.add(null);
+				chain.branches.add(new ArrayList<>(Arrays.asList(rest)));
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Replaces the statements [start, end[ of the block (the part) by the call to a new method with them
+	 */
+	private void outline(List<IRInstruction> block, int start, int end, Part part) {
+		List<IRInstruction> statements = new ArrayList<>(block.subList(start, end));
+		String output = part.output();
+
+		IRFunction method = new IRFunction("private static", output == null ? "void" : types.get(output), newName());
+		List<IRExpression> args = new ArrayList<>();
+		for (String input : part.inputs()) {
+			method.paramTypes.add(types.get(input));
+			method.params.add(input);
+			args.add(new Name(input));
+		}
+		method.body = statements;
+		if (output != null) {
+			method.body.add(new Return(new Name(output)));
+		}
+		program.functions.add(program.functions.indexOf(function), method);
+
+		// the call, that declares or assigns the local returned
+		Call call = new Call(null, method.name, args);
+		IRInstruction replacement = new Eval(call);
+		if (output != null) {
+			Assign assign = part.declarations.get(output);
+			replacement = assign == null ? new Assign("", null, output, call) : new Assign(assign.modifiers, assign.type, output, call);
+			((Assign) replacement).declaredType = types.get(output);
+		}
+		block.subList(start, end).clear();
+		block.add(start, replacement);
+
+		// the names of the statements moved are now only used by the call
+		List<String> names = new ArrayList<>();
+		replacement.collectNames(names);
+		for (String name : names) {
+			occurrences.merge(name, 1, Integer::sum);
+		}
+		for (Map.Entry<String, Integer> moved : part.occurrences.entrySet()) {
+			occurrences.merge(moved.getKey(), -moved.getValue(), Integer::sum);
+		}
+	}
+
+	private String newName() {
+		for (int n = 1; ; n++) {
+			String name = function.name + "Part" + n;
+			if (program.getFunction(name) == null) {
+				return name;
+			}
+		}
+	}
+
+	/**
+	 * Run of consecutive statements of a block, with the names it uses
+	 */
+	private class Part {
+		int							size		= 0;
+		boolean						jumps		= false;	// leaves the run (return, or break out of it)
+		Map<String, Integer>		occurrences	= new HashMap<>();
+		Set<String>					assigned	= new LinkedHashSet<>();
+		Map<String, Assign>			declarations	= new HashMap<>(); // declarations of the run (not nested)
+		Set<String>					declared	= new HashSet<>();
+
+		void add(IRInstruction instruction) {
+			size += size(instruction);
+			if (instruction instanceof Assign && ((Assign) instruction).isDeclaration()) {
+				declarations.put(((Assign) instruction).target, (Assign) instruction);
+			}
+			visit(instruction, 0);
+		}
+
+		private void visit(IRInstruction instruction, int loops) {
+			List<String> names = new ArrayList<>();
+			instruction.collectNames(names);
+			for (String name : names) {
+				occurrences.merge(name, 1, Integer::sum);
+			}
+
+			if (instruction instanceof Assign) {
+				assigned.add(((Assign) instruction).target);
+				if (((Assign) instruction).isDeclaration()) {
+					declared.add(((Assign) instruction).target);
+				}
+			}
+			else if (instruction instanceof Loop && ((Loop) instruction).update instanceof Assign) {
+				assigned.add(((Assign) ((Loop) instruction).update).target);
+				if (((Loop) instruction).init instanceof Assign) {
+					declared.add(((Assign) ((Loop) instruction).init).target);
+				}
+			}
+			else if (instruction instanceof Return || (instruction instanceof Break && loops == 0)) {
+				jumps = true;
+			}
+
+			for (List<IRInstruction> nested : instruction.blocks()) {
+				for (IRInstruction statement : nested) {
+					visit(statement, instruction instanceof Loop ? loops + 1 : loops);
+				}
+			}
+		}
+
+		/**
+		 * @return the locals assigned by the run that are used by the rest of the function
+		 */
+		List<String> outputs() {
+			List<String> outputs = new ArrayList<>();
+			for (String name : assigned) {
+				if (types.containsKey(name) && SplitMethods.this.occurrences.getOrDefault(name, 0) > occurrences.get(name)) {
+					outputs.add(name);
+				}
+			}
+			return outputs;
+		}
+
+		String output() {
+			List<String> outputs = outputs();
+			return outputs.isEmpty() ? null : outputs.get(0);
+		}
+
+		/**
+		 * @return the locals used by the run that are declared before it
+		 */
+		List<String> inputs() {
+			List<String> inputs = new ArrayList<>();
+			for (String name : occurrences.keySet()) {
+				if (types.containsKey(name) && !declared.contains(name)) {
+					inputs.add(name);
+				}
+			}
+			inputs.sort(null);
+			return inputs;
+		}
+
+		/**
+		 * @return true if the run can be a method: it does not leave the function or the loop it is in, it leaves at most
+		 * one local to the rest of the function and the types of the locals passed are known (and they have a value)
+		 */
+		boolean canMove() {
+			if (jumps) {
+				return false;
+			}
+			List<String> outputs = outputs();
+			if (outputs.size() > 1) {
+				return false;
+			}
+			for (String output : outputs) {
+				// a local declared in a nested block of the run is not the one of the rest of the function
+				if ((declared.contains(output) && !declarations.containsKey(output)) || uninitialized.contains(output)
+						|| types.get(output) == null) {
+					return false;
+				}
+			}
+			List<String> inputs = inputs();
+			if (inputs.size() > MAX_PARAMETERS) {
+				return false;
+			}
+			for (String input : inputs) {
+				if (types.get(input) == null || uninitialized.contains(input)) {
+					return false;
+				}
+			}
+			return true;
+		}
+	}
+
+	// --------------------------------------------------------------------------
+	// Bytecode size estimates (bytes, rather over than under the size javac gives)
+
+	private static int size(List<IRInstruction> block) {
+		int size = 0;
+		for (IRInstruction instruction : block) {
+			size += size(instruction);
+		}
+		return size;
+	}
+
+	private static int size(IRInstruction instruction) {
+		int size = 0;
+		if (instruction instanceof Assign) {
+			// store (or putstatic)
+			size += 2;
+		}
+		else if (instruction instanceof Eval) {
+			// pop of the value
+			size += 1;
+		}
+		else if (instruction instanceof Return || instruction instanceof Break || instruction instanceof Throw) {
+			size += 3;
+		}
+		else if (instruction instanceof Store) {
+			// array store
+			size += 1;
+		}
+		else if (instruction instanceof If) {
+			// conditional jump and jump over the other branches
+			size += 6 * ((If) instruction).branches.size();
+		}
+		else if (instruction instanceof Loop) {
+			size += 6;
+			if (((Loop) instruction).init != null) {
+				size += size(((Loop) instruction).init);
+			}
+			if (((Loop) instruction).update != null) {
+				size += size(((Loop) instruction).update);
+			}
+		}
+		for (IRExpression expression : instruction.expressions()) {
+			if (expression != null) {
+				size += size(expression);
+			}
+		}
+		for (List<IRInstruction> nested : instruction.blocks()) {
+			size += size(nested);
+		}
+		return size;
+	}
+
+	private static int size(IRExpression expression) {
+		int[] size = {0};
+		expression.forEach(e -> {
+			if (e instanceof Name) {
+				// load (or getstatic)
+				size[0] += 2;
+			}
+			else if (e instanceof Literal || e instanceof Field || e instanceof Cast) {
+				// ldc2_w, getfield, checkcast or conversion
+				size[0] += 3;
+			}
+			else if (e instanceof Call || e instanceof New || e instanceof NewArray) {
+				// invoke (new and dup for the objects)
+				size[0] += e instanceof New ? 7 : 3;
+			}
+			else if (e instanceof Conditional) {
+				size[0] += 6;
+			}
+			else {
+				// operator
+				size[0] += 1;
+			}
+		});
+		return size[0];
+	}
+
+}
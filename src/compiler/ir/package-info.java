@@ -0,0 +1,6 @@
+/**
+ * <b>compiler.ir</b><p>
+ * This package contains the Intermediate Representation of the compiled programs, built by the Compiler Visitor from the
+ * checked parse tree: the instructions and expressions, the passes with their pass manager and the final lowering to Java (or straight to bytecode, or to the closures of the interpreter)<p>
+ */
+package compiler.ir;
@@ -0,0 +1,66 @@
+package potatoesGrammar.grammar;
+
+import org.antlr.v4.runtime.ParserRuleContext;
+
+import potatoesGrammar.utils.Operator;
+
+/**
+ * <b>NodeContext</b><p>
+ *
+ * Super class of every Potatoes parse tree context (see the contextSuperClass option in Potatoes.g4).<p>
+ * Each node gets a dense index, so the information computed for the nodes can be stored in flat arrays
+ * instead of maps keyed by node identity, and keeps its operator or its interned identifier, so they are not
+ * read from the tokens again. The nodes are the ones of the parse tree (it is not a separate, smaller tree): a node
+ * takes two fields more than a plain context, and the compilation drops the tree, its tokens and the tables of
+ * the checker once the intermediate representation is built.
+ */
+public class NodeContext extends ParserRuleContext {
+
+	private int		index = -1;
+	private Object	lowered;	// the operator or the interned identifier (no node has both)
+
+	public NodeContext() {
+		super();
+	}
+
+	public NodeContext(ParserRuleContext parent, int invokingStateNumber) {
+		super(parent, invokingStateNumber);
+	}
+
+	/**
+	 * @return the index of the node (set by {@link PotatoesLowering})
+	 */
+	public int getIndex() {
+		if (index < 0) {
+			throw new IllegalStateException("Node " + getClass().getSimpleName() + " was not lowered");
+		}
+		return index;
+	}
+
+	void setIndex(int index) {
+		this.index = index;
+	}
+
+	/**
+	 * @return the operator of the node (set by {@link PotatoesLowering}), or null if the node has none
+	 */
+	public Operator getOperator() {
+		return lowered instanceof Operator ? (Operator) lowered : null;
+	}
+
+	void setOperator(Operator operator) {
+		lowered = operator;
+	}
+
+	/**
+	 * @return the interned identifier of the node (set by {@link PotatoesLowering}), or null if the node has none
+	 */
+	public String getName() {
+		return lowered instanceof String ? (String) lowered : null;
+	}
+
+	void setName(String name) {
+		lowered = name;
+	}
+
+}
@@ -5,6 +5,11 @@
  
 grammar Potatoes;
 
+options{
+	// dense node numbering, used by the checker and compiler side tables
+	contextSuperClass = NodeContext;
+}
+
 @header{
 	package potatoesGrammar.grammar;
 }
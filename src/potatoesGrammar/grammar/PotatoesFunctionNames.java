@@ -14,6 +14,7 @@ import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.tree.ParseTree;
 
 import potatoesGrammar.grammar.PotatoesParser.FunctionIDContext;
+import utils.errorHandling.CompilationException;
 import utils.errorHandling.ErrorHandling;
 import utils.errorHandling.ErrorHandlingListener;
 
@@ -35,25 +36,34 @@ public class PotatoesFunctionNames {
 	}
 	
 
-	public PotatoesFunctionNames(String path) {
-		// create a stream from the file
-		InputStream fileStream = null;
-
-		// create a CharStream that reads from the file:		
-		CharStream input = null;
+	/**
+	 * @param path Potatoes file
+	 * @param errors where the errors reading and parsing the file are reported
+	 */
+	public PotatoesFunctionNames(String path, ErrorHandling errors) {
+		this(parse(read(path, errors), errors));
+	}
 
-		try {
-			fileStream = new FileInputStream(new File(path)); 
-			input = CharStreams.fromStream(fileStream);
-			fileStream.close();
-		} catch(FileNotFoundException e) {
-			ErrorHandling.printError("Types file could not be found! Please check if the file exists and can be read.");
-			System.exit(1);
-		} catch (IOException e) {
-			ErrorHandling.printError("Internal error reading the Types file! Please check if the file exists and can be read.");
-			System.exit(2);
-		}
+	/**
+	 * @param tree parse tree of the Potatoes file, already lowered (the functions found are its nodes)
+	 */
+	public PotatoesFunctionNames(ParseTree tree) {
+		// print LISP-style tree:
+		// System.out.println(tree.toStringTree(parser));
+		PotatoesFunctionsCheck visitor0 = new PotatoesFunctionsCheck();
+		visitor0.visit(tree);
+//		Don't care if there are errors, just want to create the list o function names
+//		Potatoes Semantic Check will evaluate errors
+//		if (!visitor0.visit(tree)) {
+//			System.exit(3);  
+//		}
+
+		// Information to be transmited to the Potatoes Semantic Checker
+		this.functions = visitor0.getFunctionsCtx();
+		this.functionsArgs = visitor0.getFunctionsArgs();
+	}
 
+	private static ParseTree parse(CharStream input, ErrorHandling errors) {
 		// create a lexer that feeds off of input CharStream:
 		PotatoesLexer lexer = new PotatoesLexer(input);
 
@@ -65,34 +75,37 @@ public class PotatoesFunctionNames {
 
 		// replace error listener:
 		parser.removeErrorListeners(); // remove ConsoleErrorListener
-		parser.addErrorListener(new ErrorHandlingListener());
+		parser.addErrorListener(new ErrorHandlingListener(errors));
 
 		// begin parsing at typesFile rule:
 		ParseTree tree = parser.program();
 
-		if (parser.getNumberOfSyntaxErrors() == 0) {
-			// print LISP-style tree:
-			// System.out.println(tree.toStringTree(parser));
-			PotatoesFunctionsCheck visitor0 = new PotatoesFunctionsCheck();
-			visitor0.visit(tree);
-//			Don't care if there are errors, just want to create the list o function names
-//			Potatoes Semantic Check will evaluate errors
-//			if (!visitor0.visit(tree)) {
-//				System.exit(3);  
-//			}
-
-			// Information to be transmited to the Potatoes Semantic Checker
-			this.functions = visitor0.getFunctionsCtx();
-			this.functionsArgs = visitor0.getFunctionsArgs();
-
+		if (parser.getNumberOfSyntaxErrors() != 0) {
+			throw new CompilationException("Types file with syntax errors", 3);
 		}
-		else {
-			// this code should be unreachable but is needed 
-			// since the fields are final
-			this.functions = null;
-			this.functionsArgs = null;
-			System.exit(3);
+		new PotatoesLowering().lower(tree);
+		return tree;
+	}
+
+	private static CharStream read(String path, ErrorHandling errors) {
+		// create a stream from the file
+		InputStream fileStream = null;
+
+		// create a CharStream that reads from the file:		
+		CharStream input = null;
+
+		try {
+			fileStream = new FileInputStream(new File(path)); 
+			input = CharStreams.fromStream(fileStream);
+			fileStream.close();
+		} catch(FileNotFoundException e) {
+			errors.printError("Types file could not be found! Please check if the file exists and can be read.");
+			throw new CompilationException("Types file not found", 1);
+		} catch (IOException e) {
+			errors.printError("Internal error reading the Types file! Please check if the file exists and can be read.");
+			throw new CompilationException("Types file not read", 2);
 		}
+		return input;
 	}
 
 }
@@ -0,0 +1,116 @@
+package potatoesGrammar.grammar;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.antlr.v4.runtime.tree.ParseTree;
+
+import potatoesGrammar.grammar.PotatoesParser.*;
+import potatoesGrammar.utils.Operator;
+
+/**
+ * <b>PotatoesLowering</b><p>
+ *
+ * Single pass over a Potatoes parse tree, run right after parsing, that<p>
+ * - numbers the nodes densely (see {@link NodeContext#getIndex()})<p>
+ * - replaces the operator tokens by {@link Operator} values<p>
+ * - interns the identifiers of variables, declarations, functions and casts<p>
+ * so that the semantic check and the compiler do not need to compare token texts.<p>
+ * One lowering is used per compilation: the trees it lowers share the numbering (their nodes are stored in the
+ * same tables) and the interned identifiers, and both are dropped with it.
+ */
+public class PotatoesLowering {
+
+	private final Map<String, String> identifiers = new HashMap<>();
+
+	private int nodesCount = 0;
+
+	/**
+	 * Lowers all the nodes of the tree, numbering them after the nodes of the trees lowered before
+	 * @param tree
+	 */
+	public void lower(ParseTree tree) {
+		// explicit stack, long expression chains make very deep trees
+		Deque<ParseTree> toVisit = new ArrayDeque<>();
+		toVisit.push(tree);
+		while (!toVisit.isEmpty()) {
+			ParseTree node = toVisit.pop();
+			if (node instanceof NodeContext) {
+				lowerNode((NodeContext) node);
+				for (int i = node.getChildCount()-1; i >= 0; i--) {
+					toVisit.push(node.getChild(i));
+				}
+			}
+		}
+	}
+
+	/**
+	 * @param identifier
+	 * @return the unique instance of the identifier
+	 */
+	public String intern(String identifier) {
+		String interned = identifiers.putIfAbsent(identifier, identifier);
+		return interned == null ? identifier : interned;
+	}
+
+	/**
+	 * @return the number of nodes numbered so far
+	 */
+	public int getNodesCount() {
+		return nodesCount;
+	}
+
+	private void lowerNode(NodeContext node) {
+
+		node.setIndex(nodesCount++);
+
+		// operators
+		if (node instanceof Expression_UnaryOperatorsContext) {
+			node.setOperator(Operator.fromSymbol(((Expression_UnaryOperatorsContext) node).op.getText(), true));
+		}
+		else if (node instanceof Expression_PowerContext) {
+			node.setOperator(Operator.POWER);
+		}
+		else if (node instanceof Expression_Mult_Div_ModContext) {
+			node.setOperator(Operator.fromSymbol(((Expression_Mult_Div_ModContext) node).op.getText(), false));
+		}
+		else if (node instanceof Expression_Add_SubContext) {
+			node.setOperator(Operator.fromSymbol(((Expression_Add_SubContext) node).op.getText(), false));
+		}
+		else if (node instanceof Expression_RelationalQuantityOperatorsContext) {
+			node.setOperator(Operator.fromSymbol(((Expression_RelationalQuantityOperatorsContext) node).op.getText(), false));
+		}
+		else if (node instanceof Expression_RelationalEqualityContext) {
+			node.setOperator(Operator.fromSymbol(((Expression_RelationalEqualityContext) node).op.getText(), false));
+		}
+		else if (node instanceof Expression_logicalOperationContext) {
+			node.setOperator(Operator.fromSymbol(((Expression_logicalOperationContext) node).op.getText(), false));
+		}
+
+		// identifiers
+		else if (node instanceof VarContext) {
+			node.setName(intern(((VarContext) node).ID().getText()));
+		}
+		else if (node instanceof Expression_VarContext) {
+			node.setName(intern(((Expression_VarContext) node).var().ID().getText()));
+		}
+		else if (node instanceof VarDeclarationContext) {
+			node.setName(intern(((VarDeclarationContext) node).ID().getText()));
+		}
+		else if (node instanceof FunctionCallContext) {
+			node.setName(intern(((FunctionCallContext) node).ID().getText()));
+		}
+		else if (node instanceof FunctionIDContext) {
+			node.setName(intern(((FunctionIDContext) node).ID(0).getText()));
+		}
+		else if (node instanceof CastContext) {
+			node.setName(intern(((CastContext) node).id.getText()));
+		}
+		else if (node instanceof Type_ID_TypeContext) {
+			node.setName(intern(((Type_ID_TypeContext) node).ID().getText()));
+		}
+	}
+
+}
@@ -17,7 +17,7 @@ public class DictTuple {
 	}
 	
 	/**
-	 * Copy Constructor
+	 * Copy Constructor (constant time, see Variable copy constructor)
 	 * @param tuple
 	 */
 	public DictTuple(DictTuple tuple) {
@@ -1,12 +1,16 @@
 package potatoesGrammar.utils;
 
-import java.util.HashMap;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * <b>DictVar</b><p>
+ * Copies share the map of entries, which is only copied when one of them changes it.
  * 
  * @author Luis Moura
  * @version August 2018
@@ -14,6 +18,8 @@ import java.util.Map;
 public class DictVar {
 	
 	private Map<Variable, Variable> dict = new LinkedHashMap<>();
+	private boolean shared = false;		// true if dict may be used by other DictVar
+	private final Map<Variable, Variable> view = new DictView();
 	private String keyType;
 	private String valueType;
 	private boolean blockedKeyType;
@@ -27,7 +33,7 @@ public class DictVar {
 	}
 	
 	/**
-	 * Copy Constructor
+	 * Copy Constructor (constant time, the entries are copied on first change)
 	 * @param dictVar
 	 */
 	public DictVar(DictVar dictVar) {
@@ -35,17 +41,30 @@ public class DictVar {
 		this.valueType = dictVar.getValueType();
 		this.blockedKeyType = dictVar.isBlockedKey();
 		this.blockedValueType = dictVar.isBlockedValue();
-		this.dict = new HashMap<>();
-		Map<Variable, Variable> tempMap = dictVar.getDict();
-		for (Variable key : tempMap.keySet()) {
-			this.dict.put(new Variable(key), new Variable(tempMap.get(key)));
-		}
+		this.dict = dictVar.dict;
+		this.shared = true;
+		dictVar.shared = true;
 	}
 
 	/**
-	 * @return the dict
+	 * @return the dict. Changing it does not change the copies of this DictVar
 	 */
 	public Map<Variable, Variable> getDict() {
+		return view;
+	}
+	
+	/**
+	 * @return the map of entries owned by this DictVar, ready to be changed
+	 */
+	private Map<Variable, Variable> dictToChange() {
+		if (shared) {
+			Map<Variable, Variable> copy = new LinkedHashMap<>();
+			for (Map.Entry<Variable, Variable> entry : dict.entrySet()) {
+				copy.put(new Variable(entry.getKey()), new Variable(entry.getValue()));
+			}
+			dict = copy;
+			shared = false;
+		}
 		return dict;
 	}
 
@@ -122,4 +141,61 @@ public class DictVar {
 		return str.toString();
 	}
 
+	/**
+	 * Map returned by getDict(): reads the current entries, and copies them before the first change if they are shared.
+	 * Only put, remove and clear change the entries, the collection views are read only.
+	 */
+	private class DictView extends AbstractMap<Variable, Variable> {
+
+		@Override
+		public Set<Map.Entry<Variable, Variable>> entrySet() {
+			return Collections.unmodifiableMap(dict).entrySet();
+		}
+
+		@Override
+		public Set<Variable> keySet() {
+			return Collections.unmodifiableSet(dict.keySet());
+		}
+
+		@Override
+		public Collection<Variable> values() {
+			return Collections.unmodifiableCollection(dict.values());
+		}
+
+		@Override
+		public int size() {
+			return dict.size();
+		}
+
+		@Override
+		public boolean containsKey(Object key) {
+			return dict.containsKey(key);
+		}
+
+		@Override
+		public boolean containsValue(Object value) {
+			return dict.containsValue(value);
+		}
+
+		@Override
+		public Variable get(Object key) {
+			return dict.get(key);
+		}
+
+		@Override
+		public Variable put(Variable key, Variable value) {
+			return dictToChange().put(key, value);
+		}
+
+		@Override
+		public Variable remove(Object key) {
+			return dictToChange().remove(key);
+		}
+
+		@Override
+		public void clear() {
+			dictToChange().clear();
+		}
+	}
+
 }
@@ -1,15 +1,20 @@
 package potatoesGrammar.utils;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.RandomAccess;
 
 /**
  * <b>ListVar</b><p>
+ * Copies share the list of elements, which is only copied when one of them changes it.
  */
 public class ListVar {
 	
 	private List<Variable> list = new ArrayList<>();
+	private boolean shared = false;		// true if list may be used by other ListVar
+	private final List<Variable> view = new ListView();
 	private String type;
 	private boolean blocked;
 	
@@ -20,22 +25,36 @@ public class ListVar {
 	
 	/**
 	 * 
-	 * Copy Constructor
+	 * Copy Constructor (constant time, the elements are copied on first change)
 	 * @param listVar
 	 */
 	public ListVar(ListVar listVar) {
 		this.type = listVar.getType();
 		this.blocked = listVar.isBlocked();
-		this.list = new ArrayList<>();
-		for (Variable var : listVar.getList()) {
-			this.list.add(new Variable(var));
-		}
+		this.list = listVar.list;
+		this.shared = true;
+		listVar.shared = true;
 	}
 
 	/**
-	 * @return the list
+	 * @return the list. Changing it does not change the copies of this ListVar
 	 */
 	public List<Variable> getList() {
+		return view;
+	}
+	
+	/**
+	 * @return the list of elements owned by this ListVar, ready to be changed
+	 */
+	private List<Variable> listToChange() {
+		if (shared) {
+			List<Variable> copy = new ArrayList<>(list.size());
+			for (Variable var : list) {
+				copy.add(new Variable(var));
+			}
+			list = copy;
+			shared = false;
+		}
 		return list;
 	}
 
@@ -97,4 +116,45 @@ public class ListVar {
 		
 		return str.toString();
 	}
+	
+	/**
+	 * List returned by getList(): reads the current elements, and copies them before the first change if they are shared.
+	 */
+	private class ListView extends AbstractList<Variable> implements RandomAccess {
+
+		@Override
+		public Variable get(int index) {
+			return list.get(index);
+		}
+
+		@Override
+		public int size() {
+			return list.size();
+		}
+
+		@Override
+		public Variable set(int index, Variable element) {
+			return listToChange().set(index, element);
+		}
+
+		@Override
+		public void add(int index, Variable element) {
+			listToChange().add(index, element);
+		}
+
+		@Override
+		public Variable remove(int index) {
+			return listToChange().remove(index);
+		}
+
+		@Override
+		public boolean contains(Object o) {
+			return list.contains(o);
+		}
+
+		@Override
+		public int indexOf(Object o) {
+			return list.indexOf(o);
+		}
+	}
 }
@@ -0,0 +1,52 @@
+package potatoesGrammar.utils;
+
+/**
+ * <b>Operator</b><p>
+ * Operators of the Potatoes expressions. The operator symbol is the same in Potatoes and in Java.
+ */
+public enum Operator {
+
+	NEGATIVE("-"), NOT("!"),
+	POWER("^"),
+	MULTIPLY("*"), DIVIDE("/"), MOD("%"),
+	ADD("+"), SUBTRACT("-"),
+	LESS("<"), LESS_EQUAL("<="), GREATER(">"), GREATER_EQUAL(">="),
+	EQUAL("=="), NOT_EQUAL("!="),
+	AND("&&"), OR("||");
+
+	private final String symbol;
+
+	private Operator(String symbol) {
+		this.symbol = symbol;
+	}
+
+	/**
+	 * @return the operator symbol
+	 */
+	public String getSymbol() {
+		return symbol;
+	}
+
+	/**
+	 * @param symbol the operator symbol
+	 * @param unary true if the operator has only one operand
+	 * @return the corresponding Operator
+	 * @throws IllegalArgumentException if the symbol is not a Potatoes operator
+	 */
+	public static Operator fromSymbol(String symbol, boolean unary) {
+		if (unary) {
+			return symbol.equals("-") ? NEGATIVE : NOT;
+		}
+		for (Operator op : values()) {
+			if (op != NEGATIVE && op.symbol.equals(symbol)) {
+				return op;
+			}
+		}
+		throw new IllegalArgumentException("Unknown operator \"" + symbol + "\"");
+	}
+
+	@Override
+	public String toString() {
+		return symbol;
+	}
+}
@@ -44,45 +44,33 @@ public class Variable implements Comparable<Variable>{
 
 	/** 
 	 * 
-	 * Copy Constructor 
+	 * Copy Constructor<p>
+	 * The copy is made in constant time: the Unit is shared (it is only changed by {@link #convertUnitTo(Unit)},
+	 * which replaces it by a copy first) and lists and dicts are copied on write.
 	 * @param a 
 	 * @throws NullPointerException if a is null (ie new Variable (null)) 
 	 */ 
 	public Variable(Variable a) { 
 		
-		// deep copy Unit
-		if (a.getUnit() == null){
-			this.unit = null;
-		}
-		else {
-			this.unit = new Unit(a.getUnit());
-		}
+		// share Unit (copied before being changed)
+		this.unit = a.getUnit();
 		
-		// deep copy varType Enum (immutable)
+		// copy varType Enum (immutable)
 		this.varType = a.getVarType();
 		
-		// deep copy value object
+		// copy value object (Double, String and Boolean are immutable)
 		Object value = a.getValue();
-		if (value == null) {
-			this.value = null;
-		}
-		else if (value instanceof Double) {
-			this.value = a.getValue();
-		}
-		else if (value instanceof String) {
-			this.value = a.getValue();
-		}
-		else if (value instanceof Boolean) {
-			this.value = a.getValue();
-		}
-		else if (value instanceof DictVar) {
-			this.value = new DictVar((DictVar) a.getValue());
+		if (value instanceof DictVar) {
+			this.value = new DictVar((DictVar) value);
 		}
 		else if (value instanceof ListVar) {
-			this.value = new ListVar((ListVar) a.getValue());
+			this.value = new ListVar((ListVar) value);
 		}
 		else if (value instanceof DictTuple) {
-			this.value = new DictTuple((DictTuple) a.getValue());
+			this.value = new DictTuple((DictTuple) value);
+		}
+		else {
+			this.value = value;
 		}
 	}
 
@@ -304,11 +292,15 @@ public class Variable implements Comparable<Variable>{
 		// if unit is numeric, attempting conversion is possible -> verify
 		if (this.isNumeric()) {
 			
+			// the Unit may be shared with copies of this Variable
+			Unit unit = new Unit(this.unit);
+			
 			// if conversion is possible returns conversion factor, else throws IllegalArgumentException
-			Double factor = this.unit.matchUnitTo(newUnit);
+			Double factor = unit.matchUnitTo(newUnit);
 			if (factor == Double.POSITIVE_INFINITY) {
 				throw new IllegalArgumentException();
 			}
+			this.unit = unit;
 			this.value = (Double) value * factor;
 			return factor;
 		}
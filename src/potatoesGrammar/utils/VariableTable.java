@@ -0,0 +1,101 @@
+package potatoesGrammar.utils;
+
+import java.util.Arrays;
+
+import potatoesGrammar.grammar.NodeContext;
+import unitsGrammar.grammar.Unit;
+
+/**
+ * <b>VariableTable</b><p>
+ *
+ * Stores the Variable computed for each parse tree node, in flat arrays indexed by the node index
+ * (see {@link NodeContext}).<p>
+ * The annotation of a node (type and unit) is kept apart from its value, so that the value can be
+ * dropped or replaced without touching the annotation.
+ */
+public class VariableTable {
+
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private varType[]	types	= new varType[INITIAL_CAPACITY];
+	private Unit[]		units	= new Unit[INITIAL_CAPACITY];
+	private Object[]	values	= new Object[INITIAL_CAPACITY];
+
+	/**
+	 * Stores the Variable of a node (replacing the previous one, if any)
+	 * @param node
+	 * @param var the Variable, or null to remove the node annotation
+	 */
+	public void put(NodeContext node, Variable var) {
+		int index = node.getIndex();
+		ensureCapacity(index + 1);
+		if (var == null) {
+			types[index]	= null;
+			units[index]	= null;
+			values[index]	= null;
+		}
+		else {
+			types[index]	= var.getVarType();
+			units[index]	= var.getUnit();
+			values[index]	= var.getValue();
+		}
+	}
+
+	/**
+	 * @param node
+	 * @return a Variable with the annotation and value of the node, or null if the node has none
+	 */
+	public Variable get(NodeContext node) {
+		int index = node.getIndex();
+		if (index >= types.length || types[index] == null) {
+			return null;
+		}
+		return new Variable(units[index], types[index], values[index]);
+	}
+
+	/**
+	 * @param node
+	 * @return the type of the node, or null if the node has none
+	 */
+	public varType getVarType(NodeContext node) {
+		int index = node.getIndex();
+		return index < types.length ? types[index] : null;
+	}
+
+	/**
+	 * @param node
+	 * @return the unit of the node, or null if the node has none
+	 */
+	public Unit getUnit(NodeContext node) {
+		int index = node.getIndex();
+		return index < units.length ? units[index] : null;
+	}
+
+	/**
+	 * @param node
+	 * @return the value of the node, or null if the node has none
+	 */
+	public Object getValue(NodeContext node) {
+		int index = node.getIndex();
+		return index < values.length ? values[index] : null;
+	}
+
+	/**
+	 * Removes all the annotations (and gives back the memory taken by the ones of a big tree)
+	 */
+	public void clear() {
+		types	= new varType[INITIAL_CAPACITY];
+		units	= new Unit[INITIAL_CAPACITY];
+		values	= new Object[INITIAL_CAPACITY];
+	}
+
+	private void ensureCapacity(int capacity) {
+		if (capacity > types.length) {
+			int newCapacity = Math.max(capacity, types.length * 2);
+			types	= Arrays.copyOf(types, newCapacity);
+			units	= Arrays.copyOf(units, newCapacity);
+			values	= Arrays.copyOf(values, newCapacity);
+		}
+	}
+
+}
@@ -12,6 +12,7 @@
 
 package unitsGrammar.grammar;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
@@ -23,7 +24,8 @@ import java.util.stream.Collectors;
  * @author Luis Moura (https://github.com/LuisPedroMoura)
  * @version 2.0 - July 2018
  */
-public class Code {
+public class Code implements Serializable {
+	private static final long serialVersionUID = 1L;
 	
 	private List<Integer> numCodes = new ArrayList<>();;		// numerator codes
 	private List<Integer> denCodes = new ArrayList<>();;		// denominator codes
@@ -91,21 +93,25 @@ public class Code {
 	/**
 	 * @param a
 	 * @param b
+	 * @param conversionTable
+	 * @param codesTable
 	 * @return if the two codes are equivalent returns the Code of <b>a<b>
 	 * @throws IllegalArgumentException if the Codes are not equivalent
 	 */
-	protected static double add(Code a, Code b) throws IllegalArgumentException {
-		double factor = matchCodes(a, b, Units.getConversionTable(), Units.getBasicUnitsCodesTable()); // matches 'b' to ´a´
+	protected static double add(Code a, Code b, Map<Unit, Map<Unit, Double>> conversionTable, Map<Integer, Unit> codesTable) throws IllegalArgumentException {
+		double factor = matchCodes(a, b, conversionTable, codesTable); // matches 'b' to ´a´
 		return factor;
 	}
 	
 	/**
 	 * @param a
 	 * @param b
+	 * @param conversionTable
+	 * @param codesTable
 	 * @return a new Code resulting of the multiplication of the two Codes
 	 */
-	protected static double subtract(Code a, Code b) throws IllegalArgumentException {
-		double factor = matchCodes(a, b, Units.getConversionTable(), Units.getBasicUnitsCodesTable()); // matches 'b' to ´a´
+	protected static double subtract(Code a, Code b, Map<Unit, Map<Unit, Double>> conversionTable, Map<Integer, Unit> codesTable) throws IllegalArgumentException {
+		double factor = matchCodes(a, b, conversionTable, codesTable); // matches 'b' to ´a´
 		return factor;
 	}
 	
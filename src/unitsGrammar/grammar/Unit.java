@@ -13,9 +13,11 @@
 
 package unitsGrammar.grammar;
 
+import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 
@@ -24,10 +26,11 @@ import java.util.Map;
  * @author Luis Moura (https://github.com/LuisPedroMoura)
  * @version 2.0 - July 2018
  */
-public class Unit {
+public class Unit implements Serializable {
+	private static final long serialVersionUID = 1L;
 
-	// Static Fields
-	private static int newCode = 1;
+	// Static Fields (the codes are unique in the JVM, the Units files may be read by many threads at the same time)
+	private static final AtomicInteger newCode = new AtomicInteger(1);
 
 	// --------------------------------------------------------------------------
 	// Instance Fields
@@ -36,6 +39,7 @@ public class Unit {
 	private Code code;
 	private boolean isClass;
 	private boolean isStructure;
+	private transient Units unitsFile;	// Units of the file of this Unit (set once the file is read)
 
 	// --------------------------------------------------------------------------
 	// CTORs
@@ -47,7 +51,7 @@ public class Unit {
 	 * @param symbol	for example 'm'
 	 */
 	protected Unit(String name, String symbol) {
-		this(name, symbol, new Code(++newCode)); // ++ operator before variable ensures that code 1 is never used and can be saved for dimensionless unit 'number'
+		this(name, symbol, new Code(newCode.incrementAndGet())); // incrementing before getting ensures that code 1 is never used and can be saved for dimensionless unit 'number'
 	}
 
 	/**
@@ -90,6 +94,17 @@ public class Unit {
 		this.symbol = "";
 		this.code = new Code(calculatedCode);
 	}
+	
+	/**
+	 * Constructor for temporary units of a Units file<p>
+	 * Creates a new unit with name = "temp" and symbol = "". The code will be deep copied.
+	 * @param code a unique prime number, or the result of operating with other codes
+	 * @param unitsFile Units of the file of the units operated
+	 */
+	protected Unit(Code calculatedCode, Units unitsFile) {
+		this(calculatedCode);
+		this.unitsFile = unitsFile;
+	}
 
 	/** 
 	 * Copy Constructor 
@@ -100,6 +115,7 @@ public class Unit {
 		this.name  = unit.name; 
 		this.symbol = unit.symbol;
 		this.code = new Code(unit.getCode());
+		this.unitsFile = unit.unitsFile;
 	}
 
 	// --------------------------------------------------------------------------
@@ -126,6 +142,20 @@ public class Unit {
 		return code;
 	}
 	
+	/**
+	 * @return the Units of the file of this Unit
+	 */
+	protected Units getUnitsFile() {
+		return unitsFile;
+	}
+	
+	/**
+	 * sets the Units of the file of this Unit (once the file is read).
+	 */
+	protected void setUnitsFile(Units unitsFile) {
+		this.unitsFile = unitsFile;
+	}
+	
 	/**
 	 * @return true if this Unit represents a Class of Units ("dimension").
 	 */
@@ -167,9 +197,9 @@ public class Unit {
 	 */
 	public double adjustToKnownUnit() {
 		
-		Map<Unit, Map<Unit, Double>> conversionTable = Units.getConversionTable();
-		Map<String, Unit> unitsTable = Units.getUnitsTable();
-		Map<Integer, Unit> codesTable = Units.getBasicUnitsCodesTable();
+		Map<Unit, Map<Unit, Double>> conversionTable = unitsFile.getConversionTable();
+		Map<String, Unit> unitsTable = unitsFile.getUnitsTable();
+		Map<Integer, Unit> codesTable = unitsFile.getBasicUnitsCodesTable();
 
 		// first tries to simplify this Unit code using conversions ('m^2/yd' -> 'm')
 		// if simplification occurs, a conversion factor is given for quantity adjustment
@@ -224,8 +254,8 @@ public class Unit {
 	 */
 	public double matchUnitTo(Unit a) throws IllegalArgumentException {
 		
-		Map<Unit, Map<Unit, Double>> conversionTable = Units.getConversionTable();
-		Map<Integer, Unit> codesTable = Units.getBasicUnitsCodesTable();
+		Map<Unit, Map<Unit, Double>> conversionTable = unitsFile.getConversionTable();
+		Map<Integer, Unit> codesTable = unitsFile.getBasicUnitsCodesTable();
 		
 		Double factor = null;
 		
@@ -253,8 +283,8 @@ public class Unit {
 	
 	public boolean isCompatible(Unit a) {
 		
-		Map<Unit, Map<Unit, Double>> conversionTable = Units.getConversionTable();
-		Map<Integer, Unit> codesTable = Units.getBasicUnitsCodesTable();
+		Map<Unit, Map<Unit, Double>> conversionTable = unitsFile.getConversionTable();
+		Map<Integer, Unit> codesTable = unitsFile.getBasicUnitsCodesTable();
 		Double factor = null;
 		
 		// if there is a conversion factor between the Units, then they are compatible
@@ -303,7 +333,7 @@ public class Unit {
 			if(!used.contains(code)) {
 				int count = (int) numCodes.stream().filter(c -> c == code).count();
 				used.add(code);
-				symbol += Units.getBasicUnitsCodesTable().get(code).getSymbol();
+				symbol += unitsFile.getBasicUnitsCodesTable().get(code).getSymbol();
 				if (count > 1) {
 					symbol += "^" + count;
 				}
@@ -316,7 +346,7 @@ public class Unit {
 			if(!used.contains(code)) {
 				int count = (int) denCodes.stream().filter(c -> c == code).count();
 				used.add(code);
-				symbol += Units.getBasicUnitsCodesTable().get(code).getSymbol();
+				symbol += unitsFile.getBasicUnitsCodesTable().get(code).getSymbol();
 				symbol += "^-" + count;
 				symbol += " ";
 			}
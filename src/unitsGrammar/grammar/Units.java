@@ -13,8 +13,16 @@ package unitsGrammar.grammar;
 import static java.lang.System.out;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -23,6 +31,7 @@ import org.antlr.v4.runtime.CharStreams;
 import org.antlr.v4.runtime.CommonTokenStream;
 import org.antlr.v4.runtime.tree.ParseTree;
 
+import utils.errorHandling.CompilationException;
 import utils.errorHandling.ErrorHandling;
 import utils.errorHandling.ErrorHandlingListener;
 
@@ -30,42 +39,59 @@ public class Units {
 	
 	private static final boolean debug = false;
 
-	// Instance Fields
-	private static Map<Integer, Unit>	basicUnitsCodesTable	= new HashMap<>();
-	private static Map<String, Unit>	unitsTable				= new HashMap<>();
-	private static Map<Unit, Map<Unit, Double>>	conversionTable	= new HashMap<>();
-	private static List<String>			reservedWords			= new ArrayList<>();
+	// Instance Fields (not changed once the file is read, the compilations of many threads share them)
+	private Map<Integer, Unit>	basicUnitsCodesTable	= new HashMap<>();
+	private Map<String, Unit>	unitsTable				= new HashMap<>();
+	private Map<Unit, Map<Unit, Double>>	conversionTable	= new HashMap<>();
+	private List<String>			reservedWords			= new ArrayList<>();
+	
+	// Units of the files read last, by the hash of their content (the daemon compiles many programs in one JVM): the
+	// Units of the file used least recently are dropped when there are more than MAX_CATALOGS files
+	private static final int					MAX_CATALOGS	= 16;
+	private static final Map<String, Units>		catalogs		= Collections.synchronizedMap(new LinkedHashMap<String, Units>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, Units> eldest) {
+			return size() > MAX_CATALOGS;
+		}
+	});
 	
 	// --------------------------------------------------------------------------
 	// CTOR
 	
 	/**
-	 * Constructor
 	 * @param path path to the Units file to be read
+	 * @param errors where the errors of the file are reported
+	 * @return the Units of the file (the ones read before, if the file did not change)
 	 */
-	@SuppressWarnings("resource")
-	public Units(String path) {
-		// create a stream from the file
-		InputStream fileStream = null;
-
-		// create a CharStream that reads from the file:		
-		CharStream input = null;
-
+	public static Units read(String path, ErrorHandling errors) {
+		// the content of the file, and its hash
+		byte[] content = null;
 		try {
-			//System.out.println("PATH: " + path);
-			File f = new File(path);
-			//System.out.println("FILE: " + f.getAbsolutePath());
-			fileStream = new FileInputStream(f);
-			//out.println("Compiling \"" + f.getAbsolutePath() + "\"...");
-			input = CharStreams.fromStream(fileStream);
-			fileStream.close();
-		} catch(FileNotFoundException e) {
-			ErrorHandling.printError("Units file could not be found! Please check if the file exists and can be read.");
-			System.exit(1);
+			content = Files.readAllBytes(new File(path).toPath());
+		} catch(NoSuchFileException e) {
+			errors.printError("Units file could not be found! Please check if the file exists and can be read.");
+			throw new CompilationException("Units file not found", 1);
 		} catch (IOException e) {
-			ErrorHandling.printError("Internal error reading the Units file! Please check if the file exists and can be read.");
-			System.exit(2);
+			errors.printError("Internal error reading the Units file! Please check if the file exists and can be read.");
+			throw new CompilationException("Units file not read", 2);
 		}
+		String hash = hash(content);
+		
+		// the tables of a file already read are not built again: the first thread that reads it builds them, under the lock
+		// of the map, and the other ones wait for them (a file with errors is not kept, each thread reports its errors)
+		byte[] read = content;
+		return catalogs.computeIfAbsent(hash, key -> new Units(path, read, errors));
+	}
+	
+	/**
+	 * Constructor
+	 * @param path path to the Units file
+	 * @param content content of the file
+	 * @param errors where the errors of the file are reported
+	 */
+	private Units(String path, byte[] content, ErrorHandling errors) {
+		// create a CharStream that reads from the file:
+		CharStream input = CharStreams.fromString(new String(content, StandardCharsets.UTF_8), path);
 
 		// create a lexer that feeds off of input CharStream:
 		UnitsLexer lexer = new UnitsLexer(input);
@@ -78,7 +104,7 @@ public class Units {
 
 		// replace error listener:
 		parser.removeErrorListeners(); // remove ConsoleErrorListener
-		parser.addErrorListener(new ErrorHandlingListener());
+		parser.addErrorListener(new ErrorHandlingListener(errors));
 
 		// begin parsing at UnitsFile rule:
 		ParseTree tree = parser.unitsFile();
@@ -86,19 +112,19 @@ public class Units {
 		if (parser.getNumberOfSyntaxErrors() == 0) {
 			// print LISP-style tree:
 			// System.out.println(tree.toStringTree(parser));
-			UnitsInterpreter visitor0 = new UnitsInterpreter();
+			UnitsInterpreter visitor0 = new UnitsInterpreter(errors);
 
 			if (!visitor0.visit(tree)) {
-				System.exit(3);  
+				throw new CompilationException("Units file with errors", 3);
 			}
 
 			// Information to be transmitted to the Potatoes Semantic Checker
-			Units.basicUnitsCodesTable	= visitor0.getBasicUnitsCodesTable();
-			Units.unitsTable			= visitor0.getAllUnits();
-			Units.reservedWords			= visitor0.getReservedWords();
+			this.basicUnitsCodesTable	= visitor0.getBasicUnitsCodesTable();
+			this.unitsTable			= visitor0.getAllUnits();
+			this.reservedWords			= visitor0.getReservedWords();
 			Graph unitsGraph			= visitor0.getUnitsGraph();
 			GraphInfo graphInfo			= new GraphInfo(unitsGraph);
-			Units.conversionTable		= graphInfo.getAllMinJumpsPathCostsTable();
+			this.conversionTable		= graphInfo.getAllMinJumpsPathCostsTable();
 			
 			// update conversion Table with Unit 'number' which cannot be put in the graph
 			// (because it connects to everything and would allow conversion between all unrelated units)
@@ -115,6 +141,14 @@ public class Units {
 			}
 			conversionTable.put(number, map);
 			
+			// the units of the tables are the ones of this file
+			for (Unit unit : unitsTable.values()) {
+				unit.setUnitsFile(this);
+			}
+			for (Unit unit : basicUnitsCodesTable.values()) {
+				unit.setUnitsFile(this);
+			}
+			
 			if (debug) {
 				System.out.println("####################################\n####################################\n");
 				System.out.println("UNITS GRAPH\n");
@@ -131,7 +165,7 @@ public class Units {
 			}
 		}
 		else {
-			System.exit(3);
+			throw new CompilationException("Units file with syntax errors", 3);
 		}
 	}
 
@@ -142,39 +176,46 @@ public class Units {
 	 * @return	unitsTable, the table of Units defined in the file.
 	 * 			Can be an empty table (if no Units were declared in the file).
 	 */
-	protected static Map<String, Unit> getUnitsTable() {
+	protected Map<String, Unit> getUnitsTable() {
 		return unitsTable;
 	}
 	
+	/**
+	 * @return	the Units defined in the file (and number), not to be changed.
+	 */
+	public Collection<Unit> getUnits() {
+		return Collections.unmodifiableCollection(unitsTable.values());
+	}
+	
 	/**
 	 * @return the basicUnitsCodesTable
 	 */
-	protected  static Map<Integer, Unit> getBasicUnitsCodesTable() {
+	protected Map<Integer, Unit> getBasicUnitsCodesTable() {
 		return basicUnitsCodesTable;
 	}
 
 	/**
 	 * @return the conversionTable
 	 */
-	protected static Map<Unit, Map<Unit, Double>> getConversionTable() {
+	protected Map<Unit, Map<Unit, Double>> getConversionTable() {
 		return conversionTable;
 	}
 
 	/**
 	 * @return reservedWords, the list of all Unit names, prefixed names, symbols, and Class of Units names
 	 */
-	protected static List<String> getReservedWords(){
+	protected List<String> getReservedWords(){
 		return reservedWords;
 	}
 	
 	// --------------------------------------------------------------------------
-	// Static Methods
+	// Other Methods
 	
 	/**
 	 * @param a String that is the name or symbol of the Unit
 	 * @return an instance of Unit Class
 	 */
-	public static Unit instanceOf(String name) {
+	public Unit instanceOf(String name) {
 		if (unitsTable.containsKey(name)) {
 			return new Unit(getUnitsTable().get(name));
 		}
@@ -192,7 +233,7 @@ public class Units {
 	 * @param a String that is the name or symbol of the Unit
 	 * @return an instance of Unit Class
 	 */
-	public static boolean exists(String name) {
+	public boolean exists(String name) {
 		if (unitsTable.containsKey(name)) {
 			return true;
 		}
@@ -206,10 +247,13 @@ public class Units {
 		return false;
 	}
 	
-	public static boolean isReservedWord(String name) {
+	public boolean isReservedWord(String name) {
 		return reservedWords.contains(name);
 	}
 	
+	// --------------------------------------------------------------------------
+	// Static Methods (with the tables of the Units file of the first Unit)
+	
 	/**
 	 * Addition of units implies that the two units are <b>equal<b> (equivalence is not enough)
 	 * This method only guarantees that the two units are equal.
@@ -217,8 +261,9 @@ public class Units {
 	 * @throws IllegalArgumentException if the two Unit are not compatible
 	 */
 	public static Tuple add(Unit a, Unit b) throws IllegalArgumentException {
-		double factor = Code.add(a.getCode(), b.getCode());
-		return new Tuple(new Unit(a.getCode()), factor);
+		Units units = a.getUnitsFile();
+		double factor = Code.add(a.getCode(), b.getCode(), units.conversionTable, units.basicUnitsCodesTable);
+		return new Tuple(new Unit(a.getCode(), units), factor);
 	}
 
 	/**
@@ -228,8 +273,9 @@ public class Units {
 	 * @throws IllegalArgumentException if the two Unit are not compatible
 	 */
 	public static Tuple subtract(Unit a, Unit b) {
-		double factor = Code.subtract(a.getCode(), b.getCode());
-		return new Tuple(new Unit(a.getCode()), factor);
+		Units units = a.getUnitsFile();
+		double factor = Code.subtract(a.getCode(), b.getCode(), units.conversionTable, units.basicUnitsCodesTable);
+		return new Tuple(new Unit(a.getCode(), units), factor);
 	}
 	
 	/**
@@ -237,8 +283,9 @@ public class Units {
 	 */
 	public static Tuple multiply(Unit a, Unit b) {
 		Code mult = Code.multiply(a.getCode(), b.getCode());
-		double factor = mult.simplifyCodeWithConvertions(conversionTable, basicUnitsCodesTable);
-		return new Tuple(new Unit(mult), factor);
+		Units units = a.getUnitsFile();
+		double factor = mult.simplifyCodeWithConvertions(units.conversionTable, units.basicUnitsCodesTable);
+		return new Tuple(new Unit(mult, units), factor);
 	}
 
 	/**
@@ -246,8 +293,9 @@ public class Units {
 	 */
 	public static Tuple divide(Unit a, Unit b) {
 		Code div = Code.divide(a.getCode(), b.getCode());
-		double factor = div.simplifyCodeWithConvertions(conversionTable, basicUnitsCodesTable);
-		return new Tuple(new Unit(div), factor);
+		Units units = a.getUnitsFile();
+		double factor = div.simplifyCodeWithConvertions(units.conversionTable, units.basicUnitsCodesTable);
+		return new Tuple(new Unit(div, units), factor);
 	}
 	
 	/**
@@ -255,13 +303,30 @@ public class Units {
 	 */
 	public static Tuple power(Unit a, int exponent) {
 		Code pow = Code.power(a.getCode(), exponent);
-		double factor = pow.simplifyCodeWithConvertions(conversionTable, basicUnitsCodesTable);
-		return new Tuple(new Unit(pow), factor);
+		Units units = a.getUnitsFile();
+		double factor = pow.simplifyCodeWithConvertions(units.conversionTable, units.basicUnitsCodesTable);
+		return new Tuple(new Unit(pow, units), factor);
 	}
 	
 	// --------------------------------------------------------------------------
 	// Private Methods
 	
+	/**
+	 * @return the SHA-256 of the content, in hexadecimal
+	 */
+	private static String hash(byte[] content) {
+		try {
+			StringBuilder hex = new StringBuilder();
+			for (byte b : MessageDigest.getInstance("SHA-256").digest(content)) {
+				hex.append(String.format("%02x", b));
+			}
+			return hex.toString();
+		}
+		catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+	
 	
 
 
@@ -44,6 +44,18 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 	private ParseTreeProperty<Double>	valuesCtx	= new ParseTreeProperty<>();
 	
 	String dimentionlessUnitName = null;
+	
+	private final ErrorHandling errors;
+
+	// --------------------------------------------------------------------------
+	// CTOR
+	
+	/**
+	 * @param errors where the errors of the Units file are reported
+	 */
+	public UnitsInterpreter(ErrorHandling errors) {
+		this.errors = errors;
+	}
 
 	// --------------------------------------------------------------------------
 	// Getters
@@ -154,7 +166,7 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 
 		List<UnitContext> UnitsDeclared = ctx.unit(); 
 		for (UnitContext unit : UnitsDeclared) {
-			if (debug) ErrorHandling.printInfo(ctx, "--- Processing unit " + unit.getText() + "...");
+			if (debug) errors.printInfo(ctx, "--- Processing unit " + unit.getText() + "...");
 			valid = visit(unit);		// visit all declared Units
 			if (!valid) return false;
 		}	
@@ -199,7 +211,7 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 		unitsGraph.addEdge(1.0, u, u);
 
 		if (debug) {
-			ErrorHandling.printInfo(ctx, "Added Basic Unit " + u + "\n\tOriginal line: " + ctx.getText() + ")\n");
+			errors.printInfo(ctx, "Added Basic Unit " + u + "\n\tOriginal line: " + ctx.getText() + ")\n");
 		}
 
 		return true;
@@ -233,7 +245,7 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 		
 
 		if (debug) {
-			ErrorHandling.printInfo(ctx, "Added Derived Unit " + u + "\n\tOriginal line: " + ctx.getText() + ")\n");
+			errors.printInfo(ctx, "Added Derived Unit " + u + "\n\tOriginal line: " + ctx.getText() + ")\n");
 		}
 		
 		return true;
@@ -272,7 +284,7 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 		
 		// Unit must have been already created
 		if (!reservedWords.contains(name)) {
-			ErrorHandling.printError(ctx, "Unit '" + name + "' is not declared");
+			errors.printError(ctx, "Unit '" + name + "' is not declared");
 			return false;
 		}
 		
@@ -283,7 +295,7 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 		}
 
 		if (debug) {
-			ErrorHandling.printInfo(ctx, "Added Equivalent Unit " + u + "\n\tOriginal line: " + ctx.getText() + ")\n");
+			errors.printInfo(ctx, "Added Equivalent Unit " + u + "\n\tOriginal line: " + ctx.getText() + ")\n");
 		}
 		
 		return true;
@@ -299,7 +311,7 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 		String baseUnitName = ctx.ID(1).getText();
 		
 		if (!unitsTable.containsKey(baseUnitName)) {
-			ErrorHandling.printError(ctx, "Base Unit '" + baseUnitName + "' is not declared");
+			errors.printError(ctx, "Base Unit '" + baseUnitName + "' is not declared");
 			return false;
 		}
 		
@@ -321,7 +333,7 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 		}
 
 		if (debug) {
-			ErrorHandling.printInfo(ctx, "Added Or Derived Unit " + u + "\n\tOriginal line: " + ctx.getText() + ")\n");
+			errors.printInfo(ctx, "Added Or Derived Unit " + u + "\n\tOriginal line: " + ctx.getText() + ")\n");
 		}
 
 		classesTable.put(className, u); 	// goes to own table so its not prefixed later
@@ -356,13 +368,13 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 		
 		// Conversion factor must be different than zero
 		if (valuesCtx.get(ctx.value()) == 0.0) {
-			ErrorHandling.printError(ctx, "Convertion factor has to be different than zero");
+			errors.printError(ctx, "Convertion factor has to be different than zero");
 			return false;
 		}
 		
 		// Verify that the unit already exists (it must)
 		if (!unitsTable.containsKey(unitName)) {
-			ErrorHandling.printError(ctx, "Unit \"" + unitName + "\" does not exists!");
+			errors.printError(ctx, "Unit \"" + unitName + "\" does not exists!");
 			return false;
 		}
 
@@ -417,7 +429,7 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 		
 		// power cannot be decimal
 		if (numberToParse.contains(".")) {
-			ErrorHandling.printError(ctx, "Value \"" + numberToParse + "\" is not a valid value for a power of a unit!");
+			errors.printError(ctx, "Value \"" + numberToParse + "\" is not a valid value for a power of a unit!");
 			return false;
 		}
 		
@@ -425,7 +437,7 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 		try {
 			power = Integer.parseInt(numberToParse);
 		} catch (Exception e) {
-			ErrorHandling.printError(ctx, "Value \"" + numberToParse + "\" is not a valid value for a power of a unit!");
+			errors.printError(ctx, "Value \"" + numberToParse + "\" is not a valid value for a power of a unit!");
 			return false;
 		}
 		
@@ -498,7 +510,7 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 		if (!isValidNewPrefixNameAndSymbol(prefixName, prefixSymbol,  ctx)) return false;
 		
 		if (value == Double.POSITIVE_INFINITY || value == Double.NEGATIVE_INFINITY || value == 0.0) {
-			ErrorHandling.printError(ctx, "Prefix \"" + prefixName +"\" value is not a valid value");
+			errors.printError(ctx, "Prefix \"" + prefixName +"\" value is not a valid value");
 			return false;
 		}
 
@@ -519,7 +531,7 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 				reservedPrefixes.add(prefixSymbol);
 				
 				if (debug) {
-					ErrorHandling.printInfo(ctx, "Added " + prefix + "\n\tOriginal line: " + ctx.getText() + "\n");
+					errors.printInfo(ctx, "Added " + prefix + "\n\tOriginal line: " + ctx.getText() + "\n");
 				}
 			}
 		}
@@ -563,7 +575,7 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 		Double res = Math.pow(base, power);
 		
 		if (res == Double.POSITIVE_INFINITY || res == Double.NEGATIVE_INFINITY) {
-			ErrorHandling.printError(ctx, "Expression overflows");
+			errors.printError(ctx, "Expression overflows");
 			return false;
 		}
 		
@@ -589,7 +601,7 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 		}
 		
 		if (res == Double.POSITIVE_INFINITY || res == Double.NEGATIVE_INFINITY) {
-			ErrorHandling.printError(ctx, "Expression overflows");
+			errors.printError(ctx, "Expression overflows");
 			return false;
 		}
 		
@@ -615,7 +627,7 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 		}
 		
 		if (res == Double.POSITIVE_INFINITY || res == Double.NEGATIVE_INFINITY) {
-			ErrorHandling.printError(ctx, "Expression overflows");
+			errors.printError(ctx, "Expression overflows");
 			return false;
 		}
 		
@@ -632,7 +644,7 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 			valuesCtx.put(ctx, number);
 			return true;
 		} catch (NumberFormatException e) {
-			ErrorHandling.printError(ctx, "Value \"" + ctx.NUMBER().getText() + "\" is not a valid number");
+			errors.printError(ctx, "Value \"" + ctx.NUMBER().getText() + "\" is not a valid number");
 			return false;
 		}
 	}
@@ -658,32 +670,32 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 		// Semantic Analysis : Units can't be redefined
 		
 		if (reservedWords.contains(name)) {
-			ErrorHandling.printError(ctx, "Unit '" + name +"' is already defined");
+			errors.printError(ctx, "Unit '" + name +"' is already defined");
 			return false;
 		}
 		
 		name = name.toLowerCase();
 		
 		if (name.equals("number")) {
-			ErrorHandling.printError(ctx, "Unit name '" + name + "' is a reserved word and cannot be defined");
+			errors.printError(ctx, "Unit name '" + name + "' is a reserved word and cannot be defined");
 			return false;
 		}
 		
 		if (symbol != null) {
 			if (reservedWords.contains(symbol)) {
-				ErrorHandling.printError(ctx, "Unit symbol '" + symbol + "' is already defined");
+				errors.printError(ctx, "Unit symbol '" + symbol + "' is already defined");
 				return false;
 			}
 			
 			if (symbol.equals("")) {
-				ErrorHandling.printError(ctx, "Unit symbol cannot be empty");
+				errors.printError(ctx, "Unit symbol cannot be empty");
 				return false;
 			}
 			
 			symbol = symbol.toLowerCase();
 			
 			if (symbol.equals("temp") || symbol.equals("number")) {
-				ErrorHandling.printError(ctx, "Unit symbol '" + symbol + "' is a reserved word and cannot be defined");
+				errors.printError(ctx, "Unit symbol '" + symbol + "' is a reserved word and cannot be defined");
 				return false;
 			}
 		}
@@ -695,33 +707,33 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 		// Semantic Analysis : Units can't be redefined
 		
 		if (reservedWords.contains(name)) {
-			ErrorHandling.printError(ctx, "Prefix '" + name +"' is already defined");
+			errors.printError(ctx, "Prefix '" + name +"' is already defined");
 			return false;
 		}
 		
 		name = name.toLowerCase();
 		
 		if (name.equals("number")) {
-			ErrorHandling.printError(ctx, "Prefix name '" + name + "' is a reserved word and cannot be defined");
+			errors.printError(ctx, "Prefix name '" + name + "' is a reserved word and cannot be defined");
 			return false;
 		}
 		
 		
 		if (symbol != null) {
 			if (reservedPrefixes.contains(symbol)) {
-				ErrorHandling.printError(ctx, "Prefix symbol '" + symbol + "'  is already defined");
+				errors.printError(ctx, "Prefix symbol '" + symbol + "'  is already defined");
 				return false;
 			}
 			
 			if (symbol.equals("")) {
-				ErrorHandling.printError(ctx, "Prefix symbol cannot be empty");
+				errors.printError(ctx, "Prefix symbol cannot be empty");
 				return false;
 			}
 			
 			symbol = symbol.toLowerCase();
 			
 			if (symbol.equals("number")) {
-				ErrorHandling.printError(ctx, "Prefix symbol '" + symbol + "' is a reserved word and cannot be defined");
+				errors.printError(ctx, "Prefix symbol '" + symbol + "' is a reserved word and cannot be defined");
 				return false;
 			}
 		}
@@ -731,7 +743,7 @@ public class UnitsInterpreter extends UnitsBaseVisitor<Boolean> {
 	
 	private boolean unitExists(String unitName, ParserRuleContext ctx) {
 		if (!unitsTable.containsKey(unitName)) {
-			ErrorHandling.printError(ctx, "Unit \"" + unitName + "\" does not exists");
+			errors.printError(ctx, "Unit \"" + unitName + "\" does not exists");
 			return false;
 		}
 		return true;
@@ -0,0 +1,28 @@
+package utils.errorHandling;
+
+/**
+ * Thrown where the compilation can not go on (the error is already reported), instead of exiting the JVM: the
+ * compiler may be running in the JVM of a daemon or of a build tool. The command line exits with the status.
+ */
+public class CompilationException extends RuntimeException {
+
+	private static final long serialVersionUID = 1L;
+
+	private final int status;
+
+	/**
+	 * @param message
+	 * @param status exit status of the command line
+	 */
+	public CompilationException(String message, int status) {
+		super(message);
+		this.status = status;
+	}
+
+	/**
+	 * @return the exit status of the command line
+	 */
+	public int getStatus() {
+		return status;
+	}
+}
@@ -0,0 +1,49 @@
+package utils.errorHandling;
+
+/**
+ * Message of a compilation (info, warning or error), as recorded instead of logged
+ * (see {@link ErrorHandling#ErrorHandling(java.util.List)})
+ */
+public class Diagnostic {
+
+	public enum Kind { INFO, WARNING, ERROR }
+
+	private final Kind		kind;
+	private final int		line;
+	private final String	message;
+
+	/**
+	 * @param kind
+	 * @param line line number (0 if the message is not about a line)
+	 * @param message
+	 */
+	public Diagnostic(Kind kind, int line, String message) {
+		this.kind = kind;
+		this.line = line;
+		this.message = message;
+	}
+
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * @return the line number (0 if the message is not about a line)
+	 */
+	public int getLine() {
+		return line;
+	}
+
+	public String getMessage() {
+		return message;
+	}
+
+	public boolean isError() {
+		return kind == Kind.ERROR;
+	}
+
+	@Override
+	public String toString() {
+		return "[" + kind + (line > 0 ? " at line " + line : "") + "] " + message;
+	}
+}
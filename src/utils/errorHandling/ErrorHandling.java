@@ -3,22 +3,66 @@ package utils.errorHandling;
 import static java.lang.System.out;
 
 import java.io.PrintStream;
+import java.util.List;
 
 import org.antlr.v4.runtime.ParserRuleContext;
 
 /**
  * Error handling module for uniform error handling within ANTLR4
  *
+ * <p>Each compilation has its own instance: its counts of errors and warnings, and where its messages go.</p>
+ *
  * @author  Miguel Oliveira e Silva (mos@ua.pt)
  * @version 2.0
  * @since   2013-02-20
  */
 public class ErrorHandling
 {
+	/**
+	 * Messages logged to System.out
+	 */
+	public ErrorHandling()
+	{
+		this(out);
+	}
+
+	/**
+	 * Messages logged to a stream
+	 *
+	 * <p><dl><dt><b>Precondition:</b></dt>
+	 *    <dd>{@code logFile != null}</dd>
+	 * </dl></p>
+	 *
+	 * @param logFile stream
+	 */
+	public ErrorHandling(PrintStream logFile)
+	{
+		assert logFile != null;
+
+		this.logFile = logFile;
+	}
+
+	/**
+	 * Messages recorded in a list instead of logged
+	 *
+	 * <p><dl><dt><b>Precondition:</b></dt>
+	 *    <dd>{@code diagnostics != null}</dd>
+	 * </dl></p>
+	 *
+	 * @param diagnostics list
+	 */
+	public ErrorHandling(List<Diagnostic> diagnostics)
+	{
+		assert diagnostics != null;
+
+		this.logFile = out;
+		this.diagnostics = diagnostics;
+	}
+
 	/**
 	 * Log a new line.
 	 */
-	public static void newLine()
+	public void newLine()
 	{
 		logFile.println();
 		logFile.flush();
@@ -33,7 +77,7 @@ public class ErrorHandling
 	 *
 	 * @param text message
 	 */
-	public static void printInfo(String text)
+	public void printInfo(String text)
 	{
 		assert text != null && text.length() > 0;
 
@@ -49,7 +93,7 @@ public class ErrorHandling
 	 *
 	 * @param text message
 	 */
-	public static void printWarning(String text)
+	public void printWarning(String text)
 	{
 		assert text != null && text.length() > 0;
 
@@ -66,7 +110,7 @@ public class ErrorHandling
 	 *
 	 * @param text message
 	 */
-	public static void printError(String text)
+	public void printError(String text)
 	{
 		assert text != null && text.length() > 0;
 
@@ -85,7 +129,7 @@ public class ErrorHandling
 	 * @param line line number
 	 * @param text message
 	 */
-	public static void printInfo(int line, String text)
+	public void printInfo(int line, String text)
 	{
 		assert line > 0;
 		assert text != null && text.length() > 0;
@@ -104,7 +148,7 @@ public class ErrorHandling
 	 * @param line line number
 	 * @param text message
 	 */
-	public static void printWarning(int line, String text)
+	public void printWarning(int line, String text)
 	{
 		assert line > 0;
 		assert text != null && text.length() > 0;
@@ -124,7 +168,7 @@ public class ErrorHandling
 	 * @param line line number
 	 * @param text message
 	 */
-	public static void printError(int line, String text)
+	public void printError(int line, String text)
 	{
 		assert line > 0;
 		assert text != null && text.length() > 0;
@@ -144,7 +188,7 @@ public class ErrorHandling
 	 * @param ctx parser tree node reference
 	 * @param text message
 	 */
-	public static void printInfo(ParserRuleContext ctx, String text)
+	public void printInfo(ParserRuleContext ctx, String text)
 	{
 		assert ctx != null;
 		assert text != null && text.length() > 0;
@@ -163,7 +207,7 @@ public class ErrorHandling
 	 * @param ctx parser tree node reference
 	 * @param text message
 	 */
-	public static void printWarning(ParserRuleContext ctx, String text)
+	public void printWarning(ParserRuleContext ctx, String text)
 	{
 		assert ctx != null;
 		assert text != null && text.length() > 0;
@@ -183,7 +227,7 @@ public class ErrorHandling
 	 * @param ctx parser tree node reference
 	 * @param text message
 	 */
-	public static void printError(ParserRuleContext ctx, String text)
+	public void printError(ParserRuleContext ctx, String text)
 	{
 		assert ctx != null;
 		assert text != null && text.length() > 0;
@@ -196,7 +240,7 @@ public class ErrorHandling
 	 * Regist a new error.
 	 *
 	 */
-	public static void registerError() {
+	public void registerError() {
 		errorCount++;
 	}
 
@@ -205,7 +249,7 @@ public class ErrorHandling
 	 *
 	 * @return {@code boolean} true, in the presence of a registered error
 	 */
-	public static boolean error()
+	public boolean error()
 	{
 		return errorCount > 0;
 	}
@@ -215,7 +259,7 @@ public class ErrorHandling
 	 *
 	 * @return {@code int} number of errors
 	 */
-	public static int errorCount()
+	public int errorCount()
 	{
 		return errorCount;
 	}
@@ -225,7 +269,7 @@ public class ErrorHandling
 	 *
 	 * @return {@code int} number of warnings
 	 */
-	public static int warningCount()
+	public int warningCount()
 	{
 		return warningCount;
 	}
@@ -239,17 +283,17 @@ public class ErrorHandling
 	 *
 	 * @param logFile stream
 	 */
-	public static void redirectLogFile(PrintStream logFile)
+	public void redirectLogFile(PrintStream logFile)
 	{
 		assert logFile != null;
 
-		ErrorHandling.logFile = logFile;
+		this.logFile = logFile;
 	}
 
 	/**
 	 * Reset regist of all errors and warnings.
 	 */
-	public static void reset()
+	public void reset()
 	{
 		errorCount = 0;
 		warningCount = 0;
@@ -270,24 +314,33 @@ public class ErrorHandling
 	protected static final String[] prefixMsg = {"INFO", "WARNING", "ERROR"};
 	protected static final String[] prefixFormat = {BLUE, YELLOW, RED};
 
-	protected static void printMessage(String text, int type)
+	protected void printMessage(String text, int type)
 	{
+		if (diagnostics != null) {
+			diagnostics.add(new Diagnostic(Diagnostic.Kind.values()[type-1], 0, text));
+			return;
+		}
 		logFile.printf("[%s%s%s] %s\n", prefixFormat[type-1], prefixMsg[type-1], RESET, text);
 		logFile.flush();
 	}
 
-	protected static void printMessage(int line, String text, int type)
+	protected void printMessage(int line, String text, int type)
 	{
+		if (diagnostics != null) {
+			diagnostics.add(new Diagnostic(Diagnostic.Kind.values()[type-1], line, text));
+			return;
+		}
 		logFile.printf("[%s%s%s at line %d] %s\n", prefixFormat[type-1], prefixMsg[type-1], RESET, line, text);
 		logFile.flush();
 	}
-	protected static void printMessage(ParserRuleContext ctx, String text, int type)
+	protected void printMessage(ParserRuleContext ctx, String text, int type)
 	{
 		printMessage(ctx.getStart().getLine(), text, type);
 	}
 
-	protected static PrintStream logFile = out; // default
-	protected static int errorCount = 0;
-	protected static int warningCount = 0;
+	protected PrintStream logFile;
+	protected int errorCount = 0;
+	protected int warningCount = 0;
+	protected List<Diagnostic> diagnostics = null; // messages recorded instead of logged
 }
 
@@ -10,7 +10,7 @@ import org.antlr.v4.runtime.Recognizer;
  * <p>After parser object creation add the following instructions:
  * <ul>
  * <li>{@code parser.removeErrorListeners();}</li>
- * <li>{@code parser.addErrorListener(new ErrorHandlingListener());}</li>
+ * <li>{@code parser.addErrorListener(new ErrorHandlingListener(errors));}</li>
  * </ul></p>
  *
  * @author  Miguel Oliveira e Silva (mos@ua.pt)
@@ -18,13 +18,23 @@ import org.antlr.v4.runtime.Recognizer;
  * @since   2016-05-19
  */
 public class ErrorHandlingListener extends BaseErrorListener {
+	private final ErrorHandling errors;
+
+	/**
+	 * @param errors where the syntax errors are reported
+	 */
+	public ErrorHandlingListener(ErrorHandling errors)
+	{
+		this.errors = errors;
+	}
+
 	@Override public void syntaxError(Recognizer<?, ?> recognizer,
 			Object offendingSymbol,
 			int line, int charPositionInLine,
 			String msg,
 			RecognitionException e)
 	{
-		ErrorHandling.printError(line, msg);
+		errors.printError(line, msg);
 	}
 }
 
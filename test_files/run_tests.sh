@@ -0,0 +1,128 @@
+#!/bin/bash
+# Compiles the samples that have their expected output next to them (<sample>.out), runs them and compares what they
+# print with it: the Java class, the class file (--bytecode) and the interpreter (--interpret) must all print it. The
+# Java class built again with --incremental, reusing the methods of the first build, must be the one built from scratch.
+# The samples of a directory are compiled together (PotatoesMain <directory>): the messages of the compilation are
+# compared with <directory>.out, and what each class prints with the .out of its sample.
+#
+# usage: ./run_tests.sh [samples directory]	(the compiler and ANTLR in the CLASSPATH)
+
+samples=$(cd "${1:-$(dirname "$0")}" && pwd)
+work=$(mktemp -d)
+trap 'rm -rf "$work"' EXIT
+failed=0
+
+fail() {
+	echo "FAILED: $*"
+	failed=$((failed + 1))
+}
+
+# name of the class generated for a sample (as PotatoesEngine.className)
+class_name() {
+	local name=$(basename "$1")
+	name=${name%%.*}
+	[[ $name =~ ^[A-Za-z_$] ]] || name=_$name
+	echo "$name"
+}
+
+# compares what was printed ($2) with the expected output ($3) of the sample $1
+compare() {
+	if ! diff -q "$3" "$2" > /dev/null; then
+		fail "$1: the output differs from $(basename "$3")"
+		diff "$3" "$2" | head -10
+	fi
+}
+
+# what the program printed, between the messages of the compiler (--run and --interpret)
+program_output() {
+	sed -n '/Running\.\.\./,/Phases:/p' "$1" | sed '1d;$d'
+}
+
+# the messages of the compiler, without colours and without the lines that report times
+messages() {
+	sed 's/\x1b\[[0-9;]*m//g' "$1" | grep -v ' ms\b'
+}
+
+for sample in "$samples"/*.txt; do
+	expected=${sample%.txt}.out
+	[ -f "$expected" ] || continue
+	name=$(basename "$sample" .txt)
+	class=$(class_name "$sample")
+	dir=$work/$name
+	mkdir -p "$dir/java" "$dir/bytecode" "$dir/interpret"
+
+	# Java class
+	(cd "$dir/java" && java PotatoesMain "$sample" > compile.log 2>&1) || { fail "$name: does not compile"; cat "$dir/java/compile.log"; continue; }
+	javac -nowarn -d "$dir/java" "$dir/java/$class.java" || { fail "$name: javac rejects $class.java"; continue; }
+	java -cp "$dir/java" "$class" > "$dir/java.out" 2>&1
+	compare "$name" "$dir/java.out" "$expected"
+	# the globals the other functions only read, assigned once at the start of main, are final fields (y0, a0, y1, a1)
+	if [ "$name" = 01_Declarations ]; then
+		[ "$(grep -c "^	static final " "$dir/java/$class.java")" = 4 ] || fail "$name: the globals read by the functions are not final fields"
+	fi
+
+	# incremental build, from scratch and then reusing every method
+	mkdir -p "$dir/incremental"
+	(cd "$dir/incremental" && java PotatoesMain --incremental "$sample" > compile.log 2>&1 && java PotatoesMain --incremental "$sample" > compile.log 2>&1)
+	grep -q " 0 function(s) regenerated" "$dir/incremental/compile.log" || fail "$name: the incremental build does not reuse the methods"
+	cmp -s "$dir/java/$class.java" "$dir/incremental/$class.java" || fail "$name: the incremental build differs from the clean build"
+	# a cache written in another format is not read
+	sed -i 's/^format=.*/format=0/' "$dir/incremental/$class.pcache"
+	(cd "$dir/incremental" && java PotatoesMain --incremental "$sample" > compile.log 2>&1)
+	grep -q " 0 function(s) reused" "$dir/incremental/compile.log" || fail "$name: the incremental build reads a cache in another format"
+
+	# the methods generated stay under the size the JIT compiles (HugeMethodLimit, 8000 bytes of bytecode)
+	huge=$(javap -c -p -cp "$dir/java" "$class" | awk '/^  [^ ].*\);$/ { method = $0 } /^ +[0-9]+: / { if ($1 + 0 >= 8000) print method }' | sort -u)
+	[ -z "$huge" ] || fail "$name: methods over 8000 bytes of bytecode:$huge"
+
+	# class file (the Java class where the bytecode backend falls back, which fails the test)
+	(cd "$dir/bytecode" && java PotatoesMain --bytecode "$sample" > compile.log 2>&1) || { fail "$name: does not compile with --bytecode"; continue; }
+	if [ ! -f "$dir/bytecode/$class.class" ]; then
+		fail "$name: the bytecode backend generates the Java class instead ($(grep -o 'code not supported[^!]*' "$dir/bytecode/compile.log"))"
+		javac -nowarn -d "$dir/bytecode" "$dir/bytecode/$class.java"
+	fi
+	java -cp "$dir/bytecode" "$class" > "$dir/bytecode.out" 2>&1
+	compare "$name (--bytecode)" "$dir/bytecode.out" "$expected"
+
+	# interpreter (the class compiled in memory where the interpreter falls back, which fails the test)
+	(cd "$dir/interpret" && java PotatoesMain --interpret "$sample" > run.log 2>&1) || { fail "$name: does not run with --interpret"; continue; }
+	if grep -q "Compiling the class instead" "$dir/interpret/run.log"; then
+		fail "$name: the interpreter compiles the class instead ($(grep -o 'code not supported[^!]*' "$dir/interpret/run.log"))"
+	fi
+	program_output "$dir/interpret/run.log" > "$dir/interpret.out"
+	compare "$name (--interpret)" "$dir/interpret.out" "$expected"
+done
+
+# a program whose class has the name of a class of the compiler is run in memory (--run) with its own class
+mkdir -p "$work/clash"
+cp "$samples/01_Declarations.txt" "$work/clash/PotatoesEngine.txt"
+cp "$samples/testUnitsFile.txt" "$work/clash/"
+(cd "$work/clash" && java PotatoesMain --run PotatoesEngine.txt > run.log 2>&1)
+program_output "$work/clash/run.log" > "$work/clash/run.out"
+compare "PotatoesEngine.txt (--run)" "$work/clash/run.out" "$samples/01_Declarations.out"
+
+for directory in "$samples"/*/; do
+	directory=${directory%/}
+	expected=$directory.out
+	[ -f "$expected" ] || continue
+	name=$(basename "$directory")
+	dir=$work/$name
+	mkdir -p "$dir"
+
+	# the samples compiled together, on many threads (the messages name the samples from the samples directory)
+	(cd "$dir" && java -Dpotatoes.jobs=4 PotatoesMain "$directory" > compile.log 2>&1)
+	messages "$dir/compile.log" | sed "s#$samples/##" > "$dir/messages"
+	compare "$name" "$dir/messages" "$expected"
+	for sample in "$directory"/*.txt; do
+		[ -f "${sample%.txt}.out" ] || continue
+		class=$(class_name "$sample")
+		javac -nowarn -d "$dir" "$dir/$class.java" && java -cp "$dir" "$class" > "$dir/$class.out" 2>&1
+		compare "$name/$(basename "$sample")" "$dir/$class.out" "${sample%.txt}.out"
+	done
+done
+
+if [ $failed -gt 0 ]; then
+	echo "$failed test(s) failed"
+	exit 1
+fi
+echo "All the tests passed"